@@ -0,0 +1,824 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.audit;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link AuditEventRepository} that appends events to a log of segment files in a
+ * directory so that they survive a restart and do not take up heap. Each event is stored
+ * as a length-prefixed, checksummed record with a compact binary encoding of its
+ * timestamp, principal, type and data. Data values that are not {@link String strings},
+ * {@link Number numbers} or {@link Boolean booleans} are stored as their
+ * {@code toString()}.
+ * <p>
+ * A new segment is started when the current one is full. Each segment keeps a sparse,
+ * in-memory time index of its records (the offset and latest timestamp of each block of
+ * records), so queries only read and decode the blocks that can contain events that are
+ * recent enough. Old segments are deleted once there are more than
+ * {@link #setMaxSegments(int) maxSegments} or once all of their events are older than
+ * the {@link #setRetentionPeriod(long) retention period}. The retention period is
+ * checked whenever events are added or found, so events that have expired are never
+ * returned even if no new events have been added for a while. When the repository is
+ * created it recovers any existing segments in the directory, discarding incomplete
+ * records at the end of the log.
+ * <p>
+ * Segments are read and written with positional {@link FileChannel} reads and writes
+ * so that any number of queries can run while events are added. Writes go straight to
+ * the files so they survive the JVM exiting but are only guaranteed to be on disk once
+ * the repository has been {@link #flush() flushed} or {@link #close() closed}.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+public class FileAuditEventRepository
+		implements AuditEventRepository, Flushable, Closeable {
+
+	private static final Log logger = LogFactory.getLog(FileAuditEventRepository.class);
+
+	private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	private static final String PREFIX = "audit-";
+
+	private static final String SUFFIX = ".log";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Size of the length and checksum that precede each record.
+	 */
+	private static final int HEADER_SIZE = 8;
+
+	/**
+	 * Number of records in each block of the time index.
+	 */
+	private static final int BLOCK_SIZE = 64;
+
+	private static final byte NULL = 0;
+
+	private static final byte STRING = 1;
+
+	private static final byte LONG = 2;
+
+	private static final byte INTEGER = 3;
+
+	private static final byte DOUBLE = 4;
+
+	private static final byte TRUE = 5;
+
+	private static final byte FALSE = 6;
+
+	private final Object monitor = new Object();
+
+	private final File directory;
+
+	private final int segmentSize;
+
+	private final Encoder encoder = new Encoder();
+
+	private final CRC32 crc = new CRC32();
+
+	private volatile List<Segment> segments;
+
+	private Segment active;
+
+	private int maxSegments;
+
+	private long retentionPeriod;
+
+	private boolean closed;
+
+	/**
+	 * Create a new {@link FileAuditEventRepository} in the given directory with 64MB
+	 * segments.
+	 * @param directory the directory
+	 */
+	public FileAuditEventRepository(File directory) {
+		this(directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Create a new {@link FileAuditEventRepository} in the given directory.
+	 * @param directory the directory
+	 * @param segmentSize the size of each segment in bytes
+	 */
+	public FileAuditEventRepository(File directory, int segmentSize) {
+		Assert.notNull(directory, "Directory must not be null");
+		Assert.isTrue(segmentSize > HEADER_SIZE, "SegmentSize is too small");
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		try {
+			this.segments = Collections.unmodifiableList(recover());
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(
+					"Could not open audit event log in " + directory, ex);
+		}
+	}
+
+	/**
+	 * Set the maximum number of segments to keep. Older segments are deleted when a new
+	 * one is started.
+	 * @param maxSegments the maximum number of segments (or 0 if unlimited, the default)
+	 */
+	public void setMaxSegments(int maxSegments) {
+		this.maxSegments = maxSegments;
+	}
+
+	/**
+	 * Set the time to keep events for. Older events are not returned and a segment is
+	 * deleted once all of its events are older than the retention period.
+	 * @param retentionPeriod the retention period in milliseconds (or 0 if unlimited,
+	 * the default)
+	 */
+	public void setRetentionPeriod(long retentionPeriod) {
+		this.retentionPeriod = retentionPeriod;
+	}
+
+	private List<Segment> recover() throws IOException {
+		if (!this.directory.exists() && !this.directory.mkdirs()) {
+			throw new IOException("Could not create directory " + this.directory);
+		}
+		File[] files = this.directory.listFiles(new FileFilter() {
+
+			@Override
+			public boolean accept(File file) {
+				String name = file.getName();
+				return name.startsWith(PREFIX) && name.endsWith(SUFFIX)
+						&& file.isFile();
+			}
+
+		});
+		Arrays.sort(files, new Comparator<File>() {
+
+			@Override
+			public int compare(File o1, File o2) {
+				return o1.getName().compareTo(o2.getName());
+			}
+
+		});
+		List<Segment> segments = new ArrayList<Segment>();
+		for (int i = 0; i < files.length; i++) {
+			boolean last = (i == files.length - 1);
+			segments.add(Segment.recover(files[i], getId(files[i]),
+					(last ? this.segmentSize : 0)));
+		}
+		if (segments.isEmpty()) {
+			segments.add(Segment.create(this.directory, 0, this.segmentSize));
+		}
+		this.active = segments.get(segments.size() - 1);
+		return segments;
+	}
+
+	private long getId(File file) {
+		String name = file.getName();
+		return Long.parseLong(
+				name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+	}
+
+	@Override
+	public void add(AuditEvent event) {
+		Assert.notNull(event, "AuditEvent must not be null");
+		synchronized (this.monitor) {
+			Assert.state(!this.closed, "FileAuditEventRepository has been closed");
+			this.encoder.reset();
+			this.encoder.encode(event);
+			this.crc.reset();
+			this.crc.update(this.encoder.bytes, HEADER_SIZE,
+					this.encoder.size - HEADER_SIZE);
+			this.encoder.writeHeader((int) this.crc.getValue());
+			try {
+				expire();
+				if (!this.active.append(this.encoder, event.getTimestamp().getTime())) {
+					roll(this.encoder.size);
+					Assert.state(
+							this.active.append(this.encoder,
+									event.getTimestamp().getTime()),
+							"Could not append event");
+				}
+			}
+			catch (IOException ex) {
+				throw new IllegalStateException("Could not append audit event", ex);
+			}
+		}
+	}
+
+	private void roll(int recordSize) throws IOException {
+		this.active.force();
+		List<Segment> segments = new ArrayList<Segment>(this.segments);
+		this.active = Segment.create(this.directory, this.active.id + 1,
+				Math.max(this.segmentSize, recordSize));
+		segments.add(this.active);
+		removeExpired(segments);
+	}
+
+	// Delete expired segments, starting a new segment first if the active one has
+	// expired as well
+	private void expire() throws IOException {
+		List<Segment> segments = this.segments;
+		if (!isExpired(segments.get(0), segments.size(), System.currentTimeMillis())) {
+			return;
+		}
+		if (segments.size() == 1) {
+			if (this.active.isEmpty()) {
+				return;
+			}
+			roll(0);
+		}
+		else {
+			removeExpired(new ArrayList<Segment>(segments));
+		}
+	}
+
+	private void removeExpired(List<Segment> segments) {
+		long now = System.currentTimeMillis();
+		while (segments.size() > 1 && isExpired(segments.get(0), segments.size(), now)) {
+			segments.remove(0).delete();
+		}
+		this.segments = Collections.unmodifiableList(segments);
+	}
+
+	private boolean isExpired(Segment segment, int count, long now) {
+		return (this.maxSegments > 0 && count > this.maxSegments)
+				|| (this.retentionPeriod > 0 && !segment.isEmpty()
+						&& segment.getMaxTimestamp() < now - this.retentionPeriod);
+	}
+
+	@Override
+	public List<AuditEvent> find(Date after) {
+		return find(null, after, null);
+	}
+
+	@Override
+	public List<AuditEvent> find(String principal, Date after) {
+		return find(principal, after, null);
+	}
+
+	@Override
+	public List<AuditEvent> find(String principal, Date after, String type) {
+		long timestamp = (after == null ? Long.MIN_VALUE : after.getTime());
+		if (this.retentionPeriod > 0) {
+			long now = System.currentTimeMillis();
+			timestamp = Math.max(timestamp, now - this.retentionPeriod);
+			List<Segment> segments = this.segments;
+			if (isExpired(segments.get(0), segments.size(), now)) {
+				synchronized (this.monitor) {
+					if (!this.closed) {
+						try {
+							expire();
+						}
+						catch (IOException ex) {
+							logger.warn("Could not delete expired audit events", ex);
+						}
+					}
+				}
+			}
+		}
+		byte[] principalBytes = (principal == null ? null : principal.getBytes(UTF_8));
+		byte[] typeBytes = (type == null ? null : type.getBytes(UTF_8));
+		List<AuditEvent> events = new ArrayList<AuditEvent>();
+		for (Segment segment : this.segments) {
+			if (segment.getMaxTimestamp() >= timestamp) {
+				try {
+					segment.find(principalBytes, timestamp, typeBytes, events);
+				}
+				catch (ClosedChannelException ex) {
+					// Deleted or closed while we were reading it
+				}
+				catch (IOException ex) {
+					throw new IllegalStateException("Could not read audit events", ex);
+				}
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Force any events that have been added to be written to disk.
+	 */
+	@Override
+	public void flush() {
+		synchronized (this.monitor) {
+			if (!this.closed) {
+				this.active.force();
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		synchronized (this.monitor) {
+			if (!this.closed) {
+				this.closed = true;
+				this.active.force();
+				for (Segment segment : this.segments) {
+					segment.close();
+				}
+			}
+		}
+	}
+
+	private static int readVarInt(ByteBuffer buffer) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static long readVarLong(ByteBuffer buffer) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		}
+		while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = readVarInt(buffer);
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	// Read a string, returning whether it is equal to the given (encoded) string. The
+	// buffer is always positioned after the string.
+	private static boolean matchString(ByteBuffer buffer, byte[] expected) {
+		int length = readVarInt(buffer);
+		int position = buffer.position();
+		buffer.position(position + length);
+		if (expected == null) {
+			return true;
+		}
+		if (length != expected.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (buffer.get(position + i) != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Object readValue(ByteBuffer buffer) {
+		byte tag = buffer.get();
+		switch (tag) {
+		case STRING:
+			return readString(buffer);
+		case LONG:
+			return decodeZigZag(readVarLong(buffer));
+		case INTEGER:
+			return (int) decodeZigZag(readVarLong(buffer));
+		case DOUBLE:
+			return buffer.getDouble();
+		case TRUE:
+			return Boolean.TRUE;
+		case FALSE:
+			return Boolean.FALSE;
+		default:
+			return null;
+		}
+	}
+
+	private static long decodeZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Reusable buffer that encodes an {@link AuditEvent}.
+	 */
+	private static final class Encoder {
+
+		private byte[] bytes = new byte[256];
+
+		private int size;
+
+		void reset() {
+			// Leave space for the header
+			this.size = HEADER_SIZE;
+		}
+
+		void writeHeader(int checksum) {
+			int length = this.size - HEADER_SIZE;
+			for (int i = 0; i < 4; i++) {
+				this.bytes[i] = (byte) (length >>> (24 - i * 8));
+				this.bytes[i + 4] = (byte) (checksum >>> (24 - i * 8));
+			}
+		}
+
+		void encode(AuditEvent event) {
+			writeLong(event.getTimestamp().getTime());
+			writeString(event.getPrincipal());
+			writeString(event.getType());
+			Map<String, Object> data = event.getData();
+			writeVarLong(data.size());
+			for (Map.Entry<String, Object> entry : data.entrySet()) {
+				writeString(entry.getKey());
+				writeValue(entry.getValue());
+			}
+		}
+
+		private void writeValue(Object value) {
+			if (value == null) {
+				writeByte(NULL);
+			}
+			else if (value instanceof Long || value instanceof Short
+					|| value instanceof Byte) {
+				writeByte(LONG);
+				writeVarLong(encodeZigZag(((Number) value).longValue()));
+			}
+			else if (value instanceof Integer) {
+				writeByte(INTEGER);
+				writeVarLong(encodeZigZag(((Integer) value).longValue()));
+			}
+			else if (value instanceof Double || value instanceof Float) {
+				writeByte(DOUBLE);
+				long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+				writeLong(bits);
+			}
+			else if (value instanceof Boolean) {
+				writeByte(((Boolean) value) ? TRUE : FALSE);
+			}
+			else {
+				writeByte(STRING);
+				writeString(value.toString());
+			}
+		}
+
+		private long encodeZigZag(long value) {
+			return (value << 1) ^ (value >> 63);
+		}
+
+		private void writeString(String value) {
+			byte[] encoded = value.getBytes(UTF_8);
+			writeVarLong(encoded.length);
+			ensureCapacity(encoded.length);
+			System.arraycopy(encoded, 0, this.bytes, this.size, encoded.length);
+			this.size += encoded.length;
+		}
+
+		private void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				this.bytes[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.bytes[this.size++] = (byte) value;
+		}
+
+		private void writeLong(long value) {
+			ensureCapacity(8);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				this.bytes[this.size++] = (byte) (value >>> shift);
+			}
+		}
+
+		private void writeByte(byte value) {
+			ensureCapacity(1);
+			this.bytes[this.size++] = value;
+		}
+
+		private void ensureCapacity(int extra) {
+			if (this.size + extra > this.bytes.length) {
+				this.bytes = Arrays.copyOf(this.bytes,
+						Math.max(this.bytes.length * 2, this.size + extra));
+			}
+		}
+
+	}
+
+	/**
+	 * A single file of the log and the time index of its records.
+	 */
+	private static final class Segment {
+
+		private final long id;
+
+		private final File file;
+
+		private final int capacity;
+
+		private volatile FileChannel channel;
+
+		private volatile boolean closed;
+
+		private int size;
+
+		private int count;
+
+		private int[] blockOffsets = new int[16];
+
+		private long[] blockTimestamps = new long[16];
+
+		private volatile long maxTimestamp = Long.MIN_VALUE;
+
+		private Segment(long id, File file, int capacity) throws IOException {
+			this.id = id;
+			this.file = file;
+			this.capacity = capacity;
+			this.channel = open(file);
+		}
+
+		static Segment create(File directory, long id, int capacity)
+				throws IOException {
+			File file = new File(directory, String.format("%s%020d%s", PREFIX, id, SUFFIX));
+			return new Segment(id, file, capacity);
+		}
+
+		static Segment recover(File file, long id, int capacity) throws IOException {
+			Segment segment = new Segment(id, file, capacity);
+			segment.recover();
+			return segment;
+		}
+
+		private static FileChannel open(File file) throws IOException {
+			return new RandomAccessFile(file, "rw").getChannel();
+		}
+
+		private void recover() throws IOException {
+			long length = this.channel.size();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			CRC32 crc = new CRC32();
+			int position = 0;
+			while (position + HEADER_SIZE <= length) {
+				header.clear();
+				readFully(header, position);
+				int recordLength = header.getInt(0);
+				if (recordLength <= 0
+						|| recordLength > length - position - HEADER_SIZE) {
+					break;
+				}
+				ByteBuffer payload = ByteBuffer.allocate(recordLength);
+				readFully(payload, position + HEADER_SIZE);
+				crc.reset();
+				crc.update(payload.array(), 0, recordLength);
+				if ((int) crc.getValue() != header.getInt(4)) {
+					break;
+				}
+				indexRecord(position, payload.getLong(0));
+				position += HEADER_SIZE + recordLength;
+			}
+			this.size = position;
+			if (position < length) {
+				logger.warn("Discarding incomplete audit events at the end of "
+						+ this.file);
+				this.channel.truncate(position);
+			}
+		}
+
+		// Append a record, returning false if there is not enough space
+		synchronized boolean append(Encoder encoder, long timestamp) throws IOException {
+			if (encoder.size > this.capacity - this.size) {
+				return false;
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(encoder.bytes, 0, encoder.size);
+			while (buffer.hasRemaining()) {
+				transfer(buffer, this.size + buffer.position(), true);
+			}
+			indexRecord(this.size, timestamp);
+			this.size += encoder.size;
+			return true;
+		}
+
+		private void indexRecord(int offset, long timestamp) {
+			int block = this.count / BLOCK_SIZE;
+			if (this.count % BLOCK_SIZE == 0) {
+				if (block == this.blockOffsets.length) {
+					this.blockOffsets = Arrays.copyOf(this.blockOffsets, block * 2);
+					this.blockTimestamps = Arrays.copyOf(this.blockTimestamps,
+							block * 2);
+				}
+				this.blockOffsets[block] = offset;
+				this.blockTimestamps[block] = timestamp;
+			}
+			else if (timestamp > this.blockTimestamps[block]) {
+				this.blockTimestamps[block] = timestamp;
+			}
+			this.count++;
+			if (timestamp > this.maxTimestamp) {
+				this.maxTimestamp = timestamp;
+			}
+		}
+
+		synchronized boolean isEmpty() {
+			return this.count == 0;
+		}
+
+		long getMaxTimestamp() {
+			return this.maxTimestamp;
+		}
+
+		void find(byte[] principal, long after, byte[] type, List<AuditEvent> events)
+				throws IOException {
+			int size;
+			int blocks;
+			int[] blockOffsets;
+			long[] blockTimestamps;
+			synchronized (this) {
+				size = this.size;
+				blocks = (this.count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+				blockOffsets = this.blockOffsets;
+				blockTimestamps = this.blockTimestamps;
+			}
+			for (int block = 0; block < blocks; block++) {
+				// The last block may still be growing so its timestamp is not reliable
+				if (block < blocks - 1 && blockTimestamps[block] < after) {
+					continue;
+				}
+				int start = blockOffsets[block];
+				int end = (block < blocks - 1 ? blockOffsets[block + 1] : size);
+				ByteBuffer buffer = ByteBuffer.allocate(end - start);
+				readFully(buffer, start);
+				int position = 0;
+				while (position < buffer.capacity()) {
+					int length = buffer.getInt(position);
+					AuditEvent event = read(buffer, position + HEADER_SIZE, principal,
+							after, type);
+					if (event != null) {
+						events.add(event);
+					}
+					position += HEADER_SIZE + length;
+				}
+			}
+		}
+
+		private AuditEvent read(ByteBuffer buffer, int position, byte[] principal,
+				long after, byte[] type) {
+			long timestamp = buffer.getLong(position);
+			if (timestamp < after) {
+				return null;
+			}
+			buffer.position(position + 8);
+			int principalStart = buffer.position();
+			if (!matchString(buffer, principal)) {
+				return null;
+			}
+			int typeStart = buffer.position();
+			if (!matchString(buffer, type)) {
+				return null;
+			}
+			buffer.position(principalStart);
+			String principalValue = readString(buffer);
+			buffer.position(typeStart);
+			String typeValue = readString(buffer);
+			int entries = readVarInt(buffer);
+			Map<String, Object> data = new LinkedHashMap<String, Object>();
+			for (int i = 0; i < entries; i++) {
+				String key = readString(buffer);
+				data.put(key, readValue(buffer));
+			}
+			return new AuditEvent(new Date(timestamp), principalValue, typeValue, data);
+		}
+
+		private void readFully(ByteBuffer buffer, long position) throws IOException {
+			while (buffer.hasRemaining()) {
+				if (transfer(buffer, position + buffer.position(), false) < 0) {
+					throw new EOFException("Unexpected end of " + this.file);
+				}
+			}
+		}
+
+		// Read or write at the given position. The channel is shared by all threads and
+		// would be closed if a thread using it was interrupted, so interrupted threads
+		// use a file of their own and a channel closed by another thread is reopened.
+		private int transfer(ByteBuffer buffer, long position, boolean write)
+				throws IOException {
+			if (Thread.currentThread().isInterrupted()) {
+				return transferWithoutChannel(buffer, position, write);
+			}
+			FileChannel channel = this.channel;
+			int start = buffer.position();
+			try {
+				return transfer(channel, buffer, position, write);
+			}
+			catch (ClosedByInterruptException ex) {
+				buffer.position(start);
+				return transferWithoutChannel(buffer, position, write);
+			}
+			catch (ClosedChannelException ex) {
+				buffer.position(start);
+				return transfer(reopen(channel), buffer, position, write);
+			}
+		}
+
+		private int transfer(FileChannel channel, ByteBuffer buffer, long position,
+				boolean write) throws IOException {
+			return (write ? channel.write(buffer, position)
+					: channel.read(buffer, position));
+		}
+
+		private int transferWithoutChannel(ByteBuffer buffer, long position,
+				boolean write) throws IOException {
+			if (this.closed) {
+				throw new ClosedChannelException();
+			}
+			RandomAccessFile file = new RandomAccessFile(this.file, (write ? "rw" : "r"));
+			try {
+				file.seek(position);
+				int offset = buffer.arrayOffset() + buffer.position();
+				int count = buffer.remaining();
+				if (write) {
+					file.write(buffer.array(), offset, count);
+				}
+				else {
+					count = file.read(buffer.array(), offset, count);
+				}
+				if (count > 0) {
+					buffer.position(buffer.position() + count);
+				}
+				return count;
+			}
+			finally {
+				file.close();
+			}
+		}
+
+		private synchronized FileChannel reopen(FileChannel closed) throws IOException {
+			if (this.closed) {
+				throw new ClosedChannelException();
+			}
+			if (this.channel == closed) {
+				this.channel = open(this.file);
+			}
+			return this.channel;
+		}
+
+		void force() {
+			try {
+				this.channel.force(false);
+			}
+			catch (IOException ex) {
+				logger.warn("Could not flush audit event log segment " + this.file, ex);
+			}
+		}
+
+		synchronized void close() {
+			this.closed = true;
+			try {
+				this.channel.close();
+			}
+			catch (IOException ex) {
+				// Ignore
+			}
+		}
+
+		void delete() {
+			close();
+			if (!this.file.delete()) {
+				logger.warn("Could not delete audit event log segment " + this.file);
+			}
+		}
+
+	}
+
+}
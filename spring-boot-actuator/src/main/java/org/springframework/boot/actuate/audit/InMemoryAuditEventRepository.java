@@ -16,14 +16,25 @@
 
 package org.springframework.boot.actuate.audit;
 
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.springframework.util.Assert;
 
 /**
  * In-memory {@link AuditEventRepository} implementation.
+ * <p>
+ * Events are kept in fixed size segments, each of which records the latest timestamp of
+ * its events, and indexed by principal and by type. Queries only visit the events of the
+ * principal or type that is requested (or, for a query that is only restricted by date,
+ * the segments that contain recent enough events) and the index is the only state that is
+ * read while holding the lock, so queries do not stall the threads that add events. The
+ * index holds primitive sequence numbers, and the oldest segment is discarded as a whole
+ * once it is out of capacity, so large capacities do not create much garbage.
  *
  * @author Dave Syer
  * @author Phillip Webb
@@ -33,21 +44,18 @@ public class InMemoryAuditEventRepository implements AuditEventRepository {
 
 	private static final int DEFAULT_CAPACITY = 4000;
 
-	private final Object monitor = new Object();
+	private static final int MAX_SEGMENT_SIZE = 1024;
 
-	/**
-	 * Circular buffer of the event with tail pointing to the last element.
-	 */
-	private AuditEvent[] events;
+	private final Object monitor = new Object();
 
-	private volatile int tail = -1;
+	private volatile Storage storage;
 
 	public InMemoryAuditEventRepository() {
 		this(DEFAULT_CAPACITY);
 	}
 
 	public InMemoryAuditEventRepository(int capacity) {
-		this.events = new AuditEvent[capacity];
+		this.storage = new Storage(capacity);
 	}
 
 	/**
@@ -56,7 +64,7 @@ public class InMemoryAuditEventRepository implements AuditEventRepository {
 	 */
 	public void setCapacity(int capacity) {
 		synchronized (this.monitor) {
-			this.events = new AuditEvent[capacity];
+			this.storage = new Storage(capacity);
 		}
 	}
 
@@ -64,8 +72,7 @@ public class InMemoryAuditEventRepository implements AuditEventRepository {
 	public void add(AuditEvent event) {
 		Assert.notNull(event, "AuditEvent must not be null");
 		synchronized (this.monitor) {
-			this.tail = (this.tail + 1) % this.events.length;
-			this.events[this.tail] = event;
+			this.storage.add(event);
 		}
 	}
 
@@ -81,29 +88,241 @@ public class InMemoryAuditEventRepository implements AuditEventRepository {
 
 	@Override
 	public List<AuditEvent> find(String principal, Date after, String type) {
-		LinkedList<AuditEvent> events = new LinkedList<AuditEvent>();
+		Storage storage = this.storage;
+		long timestamp = (after == null ? Long.MIN_VALUE : after.getTime());
+		if (principal == null && type == null) {
+			return storage.find(timestamp);
+		}
+		long[] sequences;
+		long end;
 		synchronized (this.monitor) {
-			for (int i = 0; i < this.events.length; i++) {
-				AuditEvent event = resolveTailEvent(i);
-				if (event != null && isMatch(principal, after, type, event)) {
-					events.addFirst(event);
+			sequences = storage.getIndexed(principal, type);
+			end = storage.getNextSequence();
+		}
+		List<AuditEvent> events = new ArrayList<AuditEvent>();
+		long start = end - storage.capacity;
+		for (long sequence : sequences) {
+			if (sequence >= start) {
+				AuditEvent event = storage.get(sequence, timestamp);
+				if (event != null && isMatch(principal, timestamp, type, event)) {
+					events.add(event);
 				}
 			}
 		}
 		return events;
 	}
 
-	private boolean isMatch(String principal, Date after, String type, AuditEvent event) {
+	private static boolean isMatch(String principal, long after, String type,
+			AuditEvent event) {
 		boolean match = true;
 		match = match && (principal == null || event.getPrincipal().equals(principal));
-		match = match && (after == null || event.getTimestamp().compareTo(after) >= 0);
+		match = match && (event.getTimestamp().getTime() >= after);
 		match = match && (type == null || event.getType().equals(type));
 		return match;
 	}
 
-	private AuditEvent resolveTailEvent(int offset) {
-		int index = ((this.tail + this.events.length - offset) % this.events.length);
-		return this.events[index];
+	/**
+	 * The events and indexes for a given capacity. Only {@link #add(AuditEvent)} and
+	 * {@link #getIndexed(String, String)} need to be called while holding the lock.
+	 */
+	private static final class Storage {
+
+		private final int capacity;
+
+		private final int segmentSize;
+
+		private final AtomicReferenceArray<Segment> segments;
+
+		private final Map<String, SequenceList> principals = new HashMap<String, SequenceList>();
+
+		private final Map<String, SequenceList> types = new HashMap<String, SequenceList>();
+
+		private volatile long nextSequence;
+
+		Storage(int capacity) {
+			Assert.isTrue(capacity > 0, "Capacity must be greater than 0");
+			this.capacity = capacity;
+			this.segmentSize = Math.min(capacity, MAX_SEGMENT_SIZE);
+			// One extra segment so that a segment is only discarded once all of its
+			// events are out of capacity
+			this.segments = new AtomicReferenceArray<Segment>(
+					(capacity + this.segmentSize - 1) / this.segmentSize + 1);
+		}
+
+		long getNextSequence() {
+			return this.nextSequence;
+		}
+
+		void add(AuditEvent event) {
+			long sequence = this.nextSequence;
+			long number = sequence / this.segmentSize;
+			int offset = (int) (sequence % this.segmentSize);
+			int slot = (int) (number % this.segments.length());
+			Segment segment = this.segments.get(slot);
+			if (offset == 0) {
+				if (segment != null) {
+					discard(segment);
+				}
+				segment = new Segment(number, this.segmentSize);
+				this.segments.set(slot, segment);
+			}
+			segment.add(offset, event);
+			index(this.principals, event.getPrincipal(), sequence);
+			index(this.types, event.getType(), sequence);
+			this.nextSequence = sequence + 1;
+		}
+
+		private void discard(Segment segment) {
+			for (AuditEvent event : segment.events) {
+				unindex(this.principals, event.getPrincipal());
+				unindex(this.types, event.getType());
+			}
+		}
+
+		private void index(Map<String, SequenceList> index, String key, long sequence) {
+			SequenceList sequences = index.get(key);
+			if (sequences == null) {
+				sequences = new SequenceList();
+				index.put(key, sequences);
+			}
+			sequences.add(sequence);
+		}
+
+		private void unindex(Map<String, SequenceList> index, String key) {
+			SequenceList sequences = index.get(key);
+			sequences.removeFirst();
+			if (sequences.isEmpty()) {
+				index.remove(key);
+			}
+		}
+
+		long[] getIndexed(String principal, String type) {
+			SequenceList sequences = (principal == null ? null
+					: this.principals.get(principal));
+			if (type != null) {
+				SequenceList byType = this.types.get(type);
+				if (principal == null || byType == null
+						|| (sequences != null && byType.size() < sequences.size())) {
+					sequences = byType;
+				}
+			}
+			return (sequences == null ? new long[0] : sequences.toArray());
+		}
+
+		/**
+		 * Return the event with the given sequence number if it is still stored and its
+		 * segment contains events that are not older than the given timestamp.
+		 * @param sequence the sequence number
+		 * @param after the timestamp
+		 * @return the event or {@code null}
+		 */
+		AuditEvent get(long sequence, long after) {
+			long number = sequence / this.segmentSize;
+			Segment segment = this.segments.get((int) (number % this.segments.length()));
+			if (segment == null || segment.number != number
+					|| segment.latestTimestamp < after) {
+				return null;
+			}
+			return segment.events[(int) (sequence % this.segmentSize)];
+		}
+
+		List<AuditEvent> find(long after) {
+			List<AuditEvent> events = new ArrayList<AuditEvent>();
+			long end = this.nextSequence;
+			long start = Math.max(end - this.capacity, 0);
+			for (long number = start / this.segmentSize; number * this.segmentSize < end;
+					number++) {
+				Segment segment = this.segments
+						.get((int) (number % this.segments.length()));
+				if (segment == null || segment.number != number
+						|| segment.latestTimestamp < after) {
+					continue;
+				}
+				long first = number * this.segmentSize;
+				int from = (int) (Math.max(start, first) - first);
+				int to = (int) (Math.min(end, first + this.segmentSize) - first);
+				for (int i = from; i < to; i++) {
+					AuditEvent event = segment.events[i];
+					if (event.getTimestamp().getTime() >= after) {
+						events.add(event);
+					}
+				}
+			}
+			return events;
+		}
+
+	}
+
+	/**
+	 * A fixed size run of consecutive events. Once full, a segment is never modified so
+	 * readers can keep using it after it has been discarded.
+	 */
+	private static final class Segment {
+
+		private final long number;
+
+		private final AuditEvent[] events;
+
+		private volatile long latestTimestamp = Long.MIN_VALUE;
+
+		Segment(long number, int size) {
+			this.number = number;
+			this.events = new AuditEvent[size];
+		}
+
+		void add(int offset, AuditEvent event) {
+			this.events[offset] = event;
+			this.latestTimestamp = Math.max(this.latestTimestamp,
+					event.getTimestamp().getTime());
+		}
+
+	}
+
+	/**
+	 * Growable ring of ascending sequence numbers.
+	 */
+	private static final class SequenceList {
+
+		private long[] values = new long[4];
+
+		private int head;
+
+		private int size;
+
+		void add(long value) {
+			if (this.size == this.values.length) {
+				this.values = toArray(this.size * 2);
+				this.head = 0;
+			}
+			this.values[(this.head + this.size) % this.values.length] = value;
+			this.size++;
+		}
+
+		void removeFirst() {
+			this.head = (this.head + 1) % this.values.length;
+			this.size--;
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		long[] toArray() {
+			return toArray(this.size);
+		}
+
+		private long[] toArray(int length) {
+			long[] result = new long[length];
+			int first = Math.min(this.size, this.values.length - this.head);
+			System.arraycopy(this.values, this.head, result, 0, first);
+			System.arraycopy(this.values, 0, result, first, this.size - first);
+			return result;
+		}
+
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,12 @@
 
 package org.springframework.boot.actuate.autoconfigure;
 
+import java.io.File;
+
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.actuate.audit.AuditEventRepository;
+import org.springframework.boot.actuate.audit.FileAuditEventRepository;
 import org.springframework.boot.actuate.audit.InMemoryAuditEventRepository;
 import org.springframework.boot.actuate.audit.listener.AbstractAuditListener;
 import org.springframework.boot.actuate.audit.listener.AuditListener;
@@ -29,7 +32,11 @@ import org.springframework.boot.actuate.security.AuthorizationAuditListener;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.NoneNestedConditions;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 
 /**
@@ -74,6 +81,31 @@ public class AuditAutoConfiguration {
 
 	@Configuration
 	@ConditionalOnMissingBean(AuditEventRepository.class)
+	@ConditionalOnProperty(prefix = "management.audit.file", name = "path")
+	@EnableConfigurationProperties(AuditProperties.class)
+	protected static class FileAuditEventRepositoryConfiguration {
+
+		private final AuditProperties properties;
+
+		public FileAuditEventRepositoryConfiguration(AuditProperties properties) {
+			this.properties = properties;
+		}
+
+		@Bean
+		public FileAuditEventRepository auditEventRepository() {
+			AuditProperties.File file = this.properties.getFile();
+			FileAuditEventRepository repository = new FileAuditEventRepository(
+					new File(file.getPath()), file.getSegmentSize());
+			repository.setMaxSegments(file.getMaxSegments());
+			repository.setRetentionPeriod(file.getRetentionPeriod());
+			return repository;
+		}
+
+	}
+
+	@Configuration
+	@ConditionalOnMissingBean(AuditEventRepository.class)
+	@Conditional(NoAuditFilePathCondition.class)
 	protected static class AuditEventRepositoryConfiguration {
 
 		@Bean
@@ -83,4 +115,20 @@ public class AuditAutoConfiguration {
 
 	}
 
+	/**
+	 * Condition that matches when no audit event log path has been configured.
+	 */
+	static class NoAuditFilePathCondition extends NoneNestedConditions {
+
+		NoAuditFilePathCondition() {
+			super(ConfigurationPhase.PARSE_CONFIGURATION);
+		}
+
+		@ConditionalOnProperty(prefix = "management.audit.file", name = "path")
+		static class AuditFilePath {
+
+		}
+
+	}
+
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.autoconfigure;
+
+import org.springframework.boot.actuate.audit.AuditEventRepository;
+import org.springframework.boot.actuate.audit.FileAuditEventRepository;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the {@link AuditEventRepository}.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+@ConfigurationProperties(prefix = "management.audit")
+public class AuditProperties {
+
+	private final File file = new File();
+
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Properties of the {@link FileAuditEventRepository}.
+	 */
+	public static class File {
+
+		/**
+		 * Directory of the audit event log. If set, audit events are appended to the log
+		 * rather than kept in memory.
+		 */
+		private String path;
+
+		/**
+		 * Size of each segment of the audit event log in bytes.
+		 */
+		private int segmentSize = 64 * 1024 * 1024;
+
+		/**
+		 * Maximum number of segments to keep, 0 for unlimited.
+		 */
+		private int maxSegments;
+
+		/**
+		 * Time to keep audit events for in milliseconds, 0 for unlimited.
+		 */
+		private long retentionPeriod;
+
+		public String getPath() {
+			return this.path;
+		}
+
+		public void setPath(String path) {
+			this.path = path;
+		}
+
+		public int getSegmentSize() {
+			return this.segmentSize;
+		}
+
+		public void setSegmentSize(int segmentSize) {
+			this.segmentSize = segmentSize;
+		}
+
+		public int getMaxSegments() {
+			return this.maxSegments;
+		}
+
+		public void setMaxSegments(int maxSegments) {
+			this.maxSegments = maxSegments;
+		}
+
+		public long getRetentionPeriod() {
+			return this.retentionPeriod;
+		}
+
+		public void setRetentionPeriod(long retentionPeriod) {
+			this.retentionPeriod = retentionPeriod;
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,13 +19,19 @@ package org.springframework.boot.actuate.autoconfigure;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import liquibase.integration.spring.SpringLiquibase;
 import org.flywaydb.core.Flyway;
 
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.actuate.endpoint.AutoConfigurationReportEndpoint;
 import org.springframework.boot.actuate.endpoint.BeansEndpoint;
 import org.springframework.boot.actuate.endpoint.ConfigurationPropertiesReportEndpoint;
@@ -45,7 +51,9 @@ import org.springframework.boot.actuate.endpoint.ShutdownEndpoint;
 import org.springframework.boot.actuate.endpoint.TraceEndpoint;
 import org.springframework.boot.actuate.health.HealthAggregator;
 import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.HealthProber;
 import org.springframework.boot.actuate.health.OrderedHealthAggregator;
+import org.springframework.boot.actuate.health.Status;
 import org.springframework.boot.actuate.info.InfoContributor;
 import org.springframework.boot.actuate.trace.InMemoryTraceRepository;
 import org.springframework.boot.actuate.trace.TraceRepository;
@@ -55,6 +63,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionEvaluationRepor
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.SearchStrategy;
 import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
 import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
@@ -63,6 +72,7 @@ import org.springframework.boot.logging.LoggingSystem;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.web.servlet.handler.AbstractHandlerMethodMapping;
 
 /**
@@ -83,9 +93,14 @@ import org.springframework.web.servlet.handler.AbstractHandlerMethodMapping;
  */
 @Configuration
 @AutoConfigureAfter({ FlywayAutoConfiguration.class, LiquibaseAutoConfiguration.class })
-@EnableConfigurationProperties(EndpointProperties.class)
+@EnableConfigurationProperties({ EndpointProperties.class,
+		HealthInvocationProperties.class })
 public class EndpointAutoConfiguration {
 
+	private static final String HEALTH_INDICATOR_EXECUTOR = "healthIndicatorExecutor";
+
+	private static final int HEALTH_INDICATOR_QUEUE_CAPACITY = 100;
+
 	private final HealthAggregator healthAggregator;
 
 	private final Map<String, HealthIndicator> healthIndicators;
@@ -96,16 +111,20 @@ public class EndpointAutoConfiguration {
 
 	private final TraceRepository traceRepository;
 
+	private final HealthInvocationProperties healthInvocationProperties;
+
 	public EndpointAutoConfiguration(ObjectProvider<HealthAggregator> healthAggregator,
 			ObjectProvider<Map<String, HealthIndicator>> healthIndicators,
 			ObjectProvider<List<InfoContributor>> infoContributors,
 			ObjectProvider<Collection<PublicMetrics>> publicMetrics,
-			ObjectProvider<TraceRepository> traceRepository) {
+			ObjectProvider<TraceRepository> traceRepository,
+			HealthInvocationProperties healthInvocationProperties) {
 		this.healthAggregator = healthAggregator.getIfAvailable();
 		this.healthIndicators = healthIndicators.getIfAvailable();
 		this.infoContributors = infoContributors.getIfAvailable();
 		this.publicMetrics = publicMetrics.getIfAvailable();
 		this.traceRepository = traceRepository.getIfAvailable();
+		this.healthInvocationProperties = healthInvocationProperties;
 	}
 
 	@Bean
@@ -116,13 +135,63 @@ public class EndpointAutoConfiguration {
 
 	@Bean
 	@ConditionalOnMissingBean
-	public HealthEndpoint healthEndpoint() {
-		return new HealthEndpoint(
-				this.healthAggregator == null ? new OrderedHealthAggregator()
-						: this.healthAggregator,
-				this.healthIndicators == null
-						? Collections.<String, HealthIndicator>emptyMap()
-						: this.healthIndicators);
+	public HealthEndpoint healthEndpoint(ObjectProvider<HealthProber> healthProber,
+			@Qualifier(HEALTH_INDICATOR_EXECUTOR) ObjectProvider<ExecutorService> executor) {
+		HealthAggregator healthAggregator = (this.healthAggregator == null
+				? new OrderedHealthAggregator() : this.healthAggregator);
+		Map<String, HealthIndicator> healthIndicators = (this.healthIndicators == null
+				? Collections.<String, HealthIndicator>emptyMap()
+				: this.healthIndicators);
+		HealthProber prober = healthProber.getIfAvailable();
+		if (prober != null) {
+			healthIndicators = registerHealthIndicators(prober, healthIndicators);
+		}
+		HealthInvocationProperties.Parallel parallel = this.healthInvocationProperties
+				.getParallel();
+		ExecutorService healthIndicatorExecutor = executor.getIfAvailable();
+		if (parallel.isEnabled() && healthIndicatorExecutor != null) {
+			return new HealthEndpoint(healthAggregator, healthIndicators,
+					healthIndicatorExecutor, parallel.getTimeout(),
+					new Status(parallel.getTimeoutStatus()));
+		}
+		return new HealthEndpoint(healthAggregator, healthIndicators);
+	}
+
+	@Bean(name = HEALTH_INDICATOR_EXECUTOR, destroyMethod = "shutdownNow")
+	@ConditionalOnMissingBean(name = HEALTH_INDICATOR_EXECUTOR)
+	@ConditionalOnProperty(prefix = "management.health.parallel", name = "enabled")
+	public ExecutorService healthIndicatorExecutor() {
+		int threads = this.healthInvocationProperties.getParallel().getThreads();
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"health-");
+		threadFactory.setDaemon(true);
+		// Indicators that are rejected when the queue is full run in the calling thread
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60,
+				TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(HEALTH_INDICATOR_QUEUE_CAPACITY),
+				threadFactory);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(prefix = "management.health.background", name = "enabled")
+	public HealthProber healthProber() {
+		return new HealthProber(
+				this.healthInvocationProperties.getBackground().getThreads());
+	}
+
+	private Map<String, HealthIndicator> registerHealthIndicators(HealthProber prober,
+			Map<String, HealthIndicator> healthIndicators) {
+		HealthInvocationProperties.Background background = this.healthInvocationProperties
+				.getBackground();
+		Map<String, HealthIndicator> registered = new LinkedHashMap<String, HealthIndicator>();
+		for (Map.Entry<String, HealthIndicator> entry : healthIndicators.entrySet()) {
+			registered.put(entry.getKey(), prober.register(entry.getValue(),
+					background.getInterval(entry.getKey())));
+		}
+		return registered;
 	}
 
 	@Bean
@@ -23,6 +23,7 @@ import java.util.Set;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.actuate.audit.AuditEventRepository;
 import org.springframework.boot.actuate.condition.ConditionalOnEnabledEndpoint;
+import org.springframework.boot.actuate.endpoint.DumpEndpoint;
 import org.springframework.boot.actuate.endpoint.Endpoint;
 import org.springframework.boot.actuate.endpoint.EnvironmentEndpoint;
 import org.springframework.boot.actuate.endpoint.HealthEndpoint;
@@ -30,6 +31,7 @@ import org.springframework.boot.actuate.endpoint.LoggersEndpoint;
 import org.springframework.boot.actuate.endpoint.MetricsEndpoint;
 import org.springframework.boot.actuate.endpoint.ShutdownEndpoint;
 import org.springframework.boot.actuate.endpoint.mvc.AuditEventsMvcEndpoint;
+import org.springframework.boot.actuate.endpoint.mvc.DumpMvcEndpoint;
 import org.springframework.boot.actuate.endpoint.mvc.EndpointHandlerMapping;
 import org.springframework.boot.actuate.endpoint.mvc.EndpointHandlerMappingCustomizer;
 import org.springframework.boot.actuate.endpoint.mvc.EnvironmentMvcEndpoint;
@@ -41,6 +43,7 @@ import org.springframework.boot.actuate.endpoint.mvc.MetricsMvcEndpoint;
 import org.springframework.boot.actuate.endpoint.mvc.MvcEndpoint;
 import org.springframework.boot.actuate.endpoint.mvc.MvcEndpointSecurityInterceptor;
 import org.springframework.boot.actuate.endpoint.mvc.MvcEndpoints;
+import org.springframework.boot.actuate.endpoint.mvc.PrometheusMvcEndpoint;
 import org.springframework.boot.actuate.endpoint.mvc.ShutdownMvcEndpoint;
 import org.springframework.boot.autoconfigure.condition.ConditionMessage;
 import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
@@ -153,6 +156,14 @@ public class EndpointWebMvcManagementContextConfiguration {
 		return new EnvironmentMvcEndpoint(delegate);
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnBean(DumpEndpoint.class)
+	@ConditionalOnEnabledEndpoint("dump")
+	public DumpMvcEndpoint dumpMvcEndpoint(DumpEndpoint delegate) {
+		return new DumpMvcEndpoint(delegate);
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	@ConditionalOnEnabledEndpoint("heapdump")
@@ -192,6 +203,14 @@ public class EndpointWebMvcManagementContextConfiguration {
 		return new MetricsMvcEndpoint(delegate);
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnBean(MetricsEndpoint.class)
+	@ConditionalOnEnabledEndpoint(value = "prometheus", enabledByDefault = false)
+	public PrometheusMvcEndpoint prometheusMvcEndpoint(MetricsEndpoint delegate) {
+		return new PrometheusMvcEndpoint(delegate);
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	@ConditionalOnEnabledEndpoint("logfile")
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.autoconfigure;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.Assert;
+
+/**
+ * Configuration properties for how the health indicators are invoked.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+@ConfigurationProperties(prefix = "management.health")
+public class HealthInvocationProperties {
+
+	private final Parallel parallel = new Parallel();
+
+	private final Background background = new Background();
+
+	public Parallel getParallel() {
+		return this.parallel;
+	}
+
+	public Background getBackground() {
+		return this.background;
+	}
+
+	/**
+	 * Concurrent invocation of the health indicators.
+	 */
+	public static class Parallel {
+
+		/**
+		 * Invoke the health indicators concurrently rather than one after another.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Maximum number of threads used to invoke the health indicators.
+		 */
+		private int threads = 4;
+
+		/**
+		 * Time to wait for each health indicator from when it starts, in milliseconds.
+		 */
+		private long timeout = 10000;
+
+		/**
+		 * Health status reported for an indicator that has not responded in time.
+		 */
+		private String timeoutStatus = Status.UNKNOWN.getCode();
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getThreads() {
+			return this.threads;
+		}
+
+		public void setThreads(int threads) {
+			Assert.isTrue(threads > 0, "Threads must be greater than 0");
+			this.threads = threads;
+		}
+
+		public long getTimeout() {
+			return this.timeout;
+		}
+
+		public void setTimeout(long timeout) {
+			this.timeout = timeout;
+		}
+
+		public String getTimeoutStatus() {
+			return this.timeoutStatus;
+		}
+
+		public void setTimeoutStatus(String timeoutStatus) {
+			this.timeoutStatus = timeoutStatus;
+		}
+
+	}
+
+	/**
+	 * Background refresh of the health indicators.
+	 */
+	public static class Background {
+
+		/**
+		 * Refresh the health indicators in the background and serve the latest results
+		 * rather than invoking them for each request.
+		 */
+		private boolean enabled;
+
+		/**
+		 * Default time between two checks of a health indicator, in milliseconds.
+		 */
+		private long interval = 10000;
+
+		/**
+		 * Time between two checks of specific health indicators, in milliseconds, keyed
+		 * by indicator name (e.g. disk-space or elasticsearch).
+		 */
+		private Map<String, Long> intervals = new LinkedHashMap<String, Long>();
+
+		/**
+		 * Number of threads used to run the checks.
+		 */
+		private int threads = 2;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public long getInterval() {
+			return this.interval;
+		}
+
+		public void setInterval(long interval) {
+			this.interval = interval;
+		}
+
+		public Map<String, Long> getIntervals() {
+			return this.intervals;
+		}
+
+		public void setIntervals(Map<String, Long> intervals) {
+			this.intervals = intervals;
+		}
+
+		public int getThreads() {
+			return this.threads;
+		}
+
+		public void setThreads(int threads) {
+			Assert.isTrue(threads > 0, "Threads must be greater than 0");
+			this.threads = threads;
+		}
+
+		/**
+		 * Return the interval for the health indicator with the given name. Names are
+		 * compared ignoring case, dashes, underscores and any {@code HealthIndicator}
+		 * suffix, so that a bean named {@code diskSpaceHealthIndicator} matches the
+		 * {@code disk-space} key.
+		 * @param name the name of the health indicator
+		 * @return the interval in milliseconds
+		 */
+		public long getInterval(String name) {
+			String key = normalize(name);
+			for (Map.Entry<String, Long> entry : this.intervals.entrySet()) {
+				if (normalize(entry.getKey()).equals(key)) {
+					return entry.getValue();
+				}
+			}
+			return this.interval;
+		}
+
+		private String normalize(String name) {
+			String normalized = name.replace("-", "").replace("_", "").toLowerCase();
+			int index = normalized.indexOf("healthindicator");
+			return (index > 0 ? normalized.substring(0, index) : normalized);
+		}
+
+	}
+
+}
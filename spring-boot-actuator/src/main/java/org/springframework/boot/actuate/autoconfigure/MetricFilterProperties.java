@@ -42,6 +42,12 @@ public class MetricFilterProperties {
 	 */
 	private Set<MetricsFilterSubmission> counterSubmissions;
 
+	/**
+	 * Cache the metric names derived from each handler pattern rather than computing
+	 * them for every request.
+	 */
+	private boolean cacheMetricNames = true;
+
 	public MetricFilterProperties() {
 		this.gaugeSubmissions = new HashSet<MetricsFilterSubmission>(
 				EnumSet.of(MetricsFilterSubmission.MERGED));
@@ -65,6 +71,14 @@ public class MetricFilterProperties {
 		this.counterSubmissions = counterSubmissions;
 	}
 
+	public boolean isCacheMetricNames() {
+		return this.cacheMetricNames;
+	}
+
+	public void setCacheMetricNames(boolean cacheMetricNames) {
+		this.cacheMetricNames = cacheMetricNames;
+	}
+
 	boolean shouldSubmitToGauge(MetricsFilterSubmission submission) {
 		return shouldSubmit(this.gaugeSubmissions, submission);
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.boot.actuate.autoconfigure;
 
 import com.codahale.metrics.MetricRegistry;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.actuate.metrics.CounterService;
 import org.springframework.boot.actuate.metrics.GaugeService;
 import org.springframework.boot.actuate.metrics.buffer.BufferCounterService;
@@ -25,8 +26,13 @@ import org.springframework.boot.actuate.metrics.buffer.BufferGaugeService;
 import org.springframework.boot.actuate.metrics.buffer.BufferMetricReader;
 import org.springframework.boot.actuate.metrics.buffer.CounterBuffers;
 import org.springframework.boot.actuate.metrics.buffer.GaugeBuffers;
+import org.springframework.boot.actuate.metrics.buffer.StripedCounterBuffers;
 import org.springframework.boot.actuate.metrics.export.Exporter;
 import org.springframework.boot.actuate.metrics.export.MetricCopyExporter;
+import org.springframework.boot.actuate.metrics.histogram.HistogramGaugeService;
+import org.springframework.boot.actuate.metrics.histogram.HistogramMetricReader;
+import org.springframework.boot.actuate.metrics.histogram.HistogramProperties;
+import org.springframework.boot.actuate.metrics.histogram.Histograms;
 import org.springframework.boot.actuate.metrics.repository.InMemoryMetricRepository;
 import org.springframework.boot.actuate.metrics.repository.InMemoryMultiMetricRepository;
 import org.springframework.boot.actuate.metrics.writer.DefaultCounterService;
@@ -37,6 +43,8 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnJava;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnJava.JavaVersion;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnJava.Range;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.MessageChannel;
@@ -49,9 +57,16 @@ import org.springframework.messaging.MessageChannel;
  * In general, even if metric data needs to be stored and analysed remotely, it is
  * recommended to use in-memory storage to buffer metric updates locally as is done by the
  * default {@link InMemoryMetricRepository} (Java 7) or {@link CounterBuffers} and
- * {@link GaugeBuffers} (Java 8). The values can be exported (e.g. on a periodic basis)
- * using an {@link Exporter}, most implementations of which have optimizations for sending
- * data to remote repositories.
+ * {@link GaugeBuffers} (Java 8). Heavily contended counters can use
+ * {@link StripedCounterBuffers} instead by setting
+ * {@code spring.metrics.buffer.striped=true}. The values can be exported (e.g. on a
+ * periodic basis) using an {@link Exporter}, most implementations of which have
+ * optimizations for sending data to remote repositories.
+ * <p>
+ * If {@code spring.metrics.histogram.enabled=true} the values of selected gauges (by
+ * default the {@code response.*} gauges submitted by the metrics filter) are also
+ * recorded in {@link Histograms} and their percentiles are published by a
+ * {@link HistogramMetricReader}.
  * <p>
  * If Spring Messaging is on the classpath and a {@link MessageChannel} called
  * "metricsChannel" is also available, all metric update events are published additionally
@@ -109,6 +124,13 @@ public class MetricRepositoryAutoConfiguration {
 	@ConditionalOnMissingBean(GaugeService.class)
 	static class FastMetricServicesConfiguration {
 
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnProperty(prefix = "spring.metrics.buffer", name = "striped", havingValue = "true")
+		public StripedCounterBuffers stripedCounterBuffers() {
+			return new StripedCounterBuffers();
+		}
+
 		@Bean
 		@ConditionalOnMissingBean
 		public CounterBuffers counterBuffers() {
@@ -137,10 +159,39 @@ public class MetricRepositoryAutoConfiguration {
 
 		@Bean
 		@ConditionalOnMissingBean(GaugeService.class)
-		public BufferGaugeService gaugeService(GaugeBuffers writer) {
+		public BufferGaugeService gaugeService(GaugeBuffers writer,
+				ObjectProvider<Histograms> histograms,
+				ObjectProvider<HistogramProperties> histogramProperties) {
+			Histograms availableHistograms = histograms.getIfAvailable();
+			if (availableHistograms != null) {
+				return new HistogramGaugeService(writer, availableHistograms,
+						histogramProperties.getObject().getPrefixes());
+			}
 			return new BufferGaugeService(writer);
 		}
 
+		@Configuration
+		@ConditionalOnProperty(prefix = "spring.metrics.histogram", name = "enabled", havingValue = "true")
+		@EnableConfigurationProperties(HistogramProperties.class)
+		static class HistogramConfiguration {
+
+			@Bean
+			@ConditionalOnMissingBean
+			public Histograms histograms(HistogramProperties properties) {
+				return new Histograms(properties.getIntervalMillis());
+			}
+
+			@Bean
+			@ExportMetricReader
+			@ConditionalOnMissingBean
+			public HistogramMetricReader histogramMetricReader(Histograms histograms,
+					HistogramProperties properties) {
+				return new HistogramMetricReader(histograms,
+						properties.getPercentiles());
+			}
+
+		}
+
 	}
 
 	@Configuration
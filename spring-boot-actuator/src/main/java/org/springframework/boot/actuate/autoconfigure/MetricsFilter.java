@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,9 +17,13 @@
 package org.springframework.boot.actuate.autoconfigure;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import javax.servlet.FilterChain;
@@ -36,7 +40,6 @@ import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatus.Series;
-import org.springframework.util.StopWatch;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.util.UrlPathHelper;
@@ -47,8 +50,8 @@ import org.springframework.web.util.UrlPathHelper;
 @Order(Ordered.HIGHEST_PRECEDENCE)
 final class MetricsFilter extends OncePerRequestFilter {
 
-	private static final String ATTRIBUTE_STOP_WATCH = MetricsFilter.class.getName()
-			+ ".StopWatch";
+	private static final String ATTRIBUTE_START_TIME = MetricsFilter.class.getName()
+			+ ".StartTime";
 
 	private static final int UNDEFINED_HTTP_STATUS = 999;
 
@@ -62,6 +65,10 @@ final class MetricsFilter extends OncePerRequestFilter {
 
 	private final MetricFilterProperties properties;
 
+	private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+	private final ConcurrentMap<String, PatternMetricNames> metricNames = new ConcurrentHashMap<String, PatternMetricNames>();
+
 	private static final Set<PatternReplacer> STATUS_REPLACERS;
 
 	static {
@@ -99,33 +106,30 @@ final class MetricsFilter extends OncePerRequestFilter {
 	protected void doFilterInternal(HttpServletRequest request,
 			HttpServletResponse response, FilterChain chain)
 					throws ServletException, IOException {
-		StopWatch stopWatch = createStopWatchIfNecessary(request);
-		String path = new UrlPathHelper().getPathWithinApplication(request);
+		long startTime = getStartTime(request);
 		int status = HttpStatus.INTERNAL_SERVER_ERROR.value();
 		try {
 			chain.doFilter(request, response);
 			status = getStatus(response);
 		}
 		finally {
-			if (!request.isAsyncStarted()) {
+			if (request.isAsyncStarted()) {
+				request.setAttribute(ATTRIBUTE_START_TIME, startTime);
+			}
+			else {
 				if (response.isCommitted()) {
 					status = getStatus(response);
 				}
-				stopWatch.stop();
-				request.removeAttribute(ATTRIBUTE_STOP_WATCH);
-				recordMetrics(request, path, status, stopWatch.getTotalTimeMillis());
+				request.removeAttribute(ATTRIBUTE_START_TIME);
+				recordMetrics(request, status, TimeUnit.NANOSECONDS
+						.toMillis(System.nanoTime() - startTime));
 			}
 		}
 	}
 
-	private StopWatch createStopWatchIfNecessary(HttpServletRequest request) {
-		StopWatch stopWatch = (StopWatch) request.getAttribute(ATTRIBUTE_STOP_WATCH);
-		if (stopWatch == null) {
-			stopWatch = new StopWatch();
-			stopWatch.start();
-			request.setAttribute(ATTRIBUTE_STOP_WATCH, stopWatch);
-		}
-		return stopWatch;
+	private long getStartTime(HttpServletRequest request) {
+		Long startTime = (Long) request.getAttribute(ATTRIBUTE_START_TIME);
+		return (startTime != null ? startTime : System.nanoTime());
 	}
 
 	private int getStatus(HttpServletResponse response) {
@@ -137,30 +141,44 @@ final class MetricsFilter extends OncePerRequestFilter {
 		}
 	}
 
-	private void recordMetrics(HttpServletRequest request, String path, int status,
-			long time) {
-		String suffix = determineMetricNameSuffix(request, path, status);
-		submitMetrics(MetricsFilterSubmission.MERGED, request, status, time, suffix);
+	private void recordMetrics(HttpServletRequest request, int status, long time) {
+		PatternMetricNames names = getMetricNames(request, status);
+		submitMetrics(MetricsFilterSubmission.MERGED, request, status, time, names);
 		submitMetrics(MetricsFilterSubmission.PER_HTTP_METHOD, request, status, time,
-				suffix);
+				names);
 	}
 
-	private String determineMetricNameSuffix(HttpServletRequest request, String path,
-			int status) {
+	private PatternMetricNames getMetricNames(HttpServletRequest request, int status) {
 		Object bestMatchingPattern = request
 				.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
 		if (bestMatchingPattern != null) {
-			return fixSpecialCharacters(bestMatchingPattern.toString());
+			return getMetricNames(bestMatchingPattern.toString(), true);
 		}
 		Series series = getSeries(status);
 		if (Series.CLIENT_ERROR.equals(series) || Series.SERVER_ERROR.equals(series)
 				|| Series.REDIRECTION.equals(series)) {
-			return UNKNOWN_PATH_SUFFIX;
+			return getMetricNames(UNKNOWN_PATH_SUFFIX, false);
 		}
-		return path;
+		// Raw paths are unbounded so they are never cached
+		return new PatternMetricNames(
+				this.urlPathHelper.getPathWithinApplication(request));
 	}
 
-	private String fixSpecialCharacters(String value) {
+	private PatternMetricNames getMetricNames(String pattern, boolean fix) {
+		if (!this.properties.isCacheMetricNames()) {
+			return new PatternMetricNames(fix ? fixSpecialCharacters(pattern) : pattern);
+		}
+		PatternMetricNames names = this.metricNames.get(pattern);
+		if (names == null) {
+			names = new PatternMetricNames(
+					fix ? fixSpecialCharacters(pattern) : pattern);
+			PatternMetricNames existing = this.metricNames.putIfAbsent(pattern, names);
+			names = (existing != null ? existing : names);
+		}
+		return names;
+	}
+
+	private static String fixSpecialCharacters(String value) {
 		String result = value;
 		for (PatternReplacer replacer : STATUS_REPLACERS) {
 			result = replacer.apply(result);
@@ -184,20 +202,25 @@ final class MetricsFilter extends OncePerRequestFilter {
 	}
 
 	private void submitMetrics(MetricsFilterSubmission submission,
-			HttpServletRequest request, int status, long time, String suffix) {
-		String prefix = "";
-		if (submission == MetricsFilterSubmission.PER_HTTP_METHOD) {
-			prefix = request.getMethod() + ".";
+			HttpServletRequest request, int status, long time,
+			PatternMetricNames patternNames) {
+		boolean gauge = this.properties.shouldSubmitToGauge(submission);
+		boolean counter = this.properties.shouldSubmitToCounter(submission);
+		if (!gauge && !counter) {
+			return;
 		}
-		if (this.properties.shouldSubmitToGauge(submission)) {
-			submitToGauge(getKey("response." + prefix + suffix), time);
+		MetricNames names = (submission == MetricsFilterSubmission.PER_HTTP_METHOD
+				? patternNames.getPerHttpMethod(request.getMethod())
+				: patternNames.getMerged());
+		if (gauge) {
+			submitToGauge(names.getGaugeName(), time);
 		}
-		if (this.properties.shouldSubmitToCounter(submission)) {
-			incrementCounter(getKey("status." + prefix + status + suffix));
+		if (counter) {
+			incrementCounter(names.getCounterName(status));
 		}
 	}
 
-	private String getKey(String string) {
+	private static String getKey(String string) {
 		// graphite compatible metric names
 		String key = string;
 		for (PatternReplacer replacer : KEY_REPLACERS) {
@@ -230,6 +253,96 @@ final class MetricsFilter extends OncePerRequestFilter {
 		}
 	}
 
+	/**
+	 * Metric names derived from a single (normalized) handler pattern.
+	 */
+	private static final class PatternMetricNames {
+
+		private final String suffix;
+
+		private final MetricNames merged;
+
+		private final ConcurrentMap<String, MetricNames> perHttpMethod = new ConcurrentHashMap<String, MetricNames>();
+
+		PatternMetricNames(String suffix) {
+			this.suffix = suffix;
+			this.merged = new MetricNames("", suffix);
+		}
+
+		public MetricNames getMerged() {
+			return this.merged;
+		}
+
+		public MetricNames getPerHttpMethod(String method) {
+			MetricNames names = this.perHttpMethod.get(method);
+			if (names == null) {
+				names = new MetricNames(method + ".", this.suffix);
+				MetricNames existing = this.perHttpMethod.putIfAbsent(method, names);
+				names = (existing != null ? existing : names);
+			}
+			return names;
+		}
+
+	}
+
+	/**
+	 * Gauge and counter names for a pattern and optional HTTP method prefix. Counter
+	 * names are held in a small copy-on-write table keyed by status code since only a
+	 * handful of distinct statuses are usually seen for any one pattern.
+	 */
+	private static final class MetricNames {
+
+		private final String prefix;
+
+		private final String suffix;
+
+		private final String gaugeName;
+
+		private volatile int[] statuses = new int[0];
+
+		private volatile String[] counterNames = new String[0];
+
+		MetricNames(String prefix, String suffix) {
+			this.prefix = prefix;
+			this.suffix = suffix;
+			this.gaugeName = getKey("response." + prefix + suffix);
+		}
+
+		public String getGaugeName() {
+			return this.gaugeName;
+		}
+
+		public String getCounterName(int status) {
+			String[] counterNames = this.counterNames;
+			int[] statuses = this.statuses;
+			int length = Math.min(statuses.length, counterNames.length);
+			for (int i = 0; i < length; i++) {
+				if (statuses[i] == status) {
+					return counterNames[i];
+				}
+			}
+			return addCounterName(status);
+		}
+
+		private synchronized String addCounterName(int status) {
+			int length = this.statuses.length;
+			for (int i = 0; i < length; i++) {
+				if (this.statuses[i] == status) {
+					return this.counterNames[i];
+				}
+			}
+			String name = getKey("status." + this.prefix + status + this.suffix);
+			int[] statuses = Arrays.copyOf(this.statuses, length + 1);
+			String[] counterNames = Arrays.copyOf(this.counterNames, length + 1);
+			statuses[length] = status;
+			counterNames[length] = name;
+			this.counterNames = counterNames;
+			this.statuses = statuses;
+			return name;
+		}
+
+	}
+
 	private static class PatternReplacer {
 
 		private final Pattern pattern;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,15 +26,18 @@ import javax.sql.DataSource;
 import org.apache.catalina.startup.Tomcat;
 
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.cache.CacheStatisticsProvider;
 import org.springframework.boot.actuate.endpoint.CachePublicMetrics;
 import org.springframework.boot.actuate.endpoint.DataSourcePublicMetrics;
 import org.springframework.boot.actuate.endpoint.MetricReaderPublicMetrics;
 import org.springframework.boot.actuate.endpoint.PublicMetrics;
 import org.springframework.boot.actuate.endpoint.RichGaugeReaderPublicMetrics;
+import org.springframework.boot.actuate.endpoint.SampledSystemPublicMetrics;
 import org.springframework.boot.actuate.endpoint.SystemPublicMetrics;
 import org.springframework.boot.actuate.endpoint.TomcatPublicMetrics;
 import org.springframework.boot.actuate.metrics.integration.SpringIntegrationMetricReader;
+import org.springframework.boot.actuate.metrics.jdbc.DataSourceInstrumentation;
 import org.springframework.boot.actuate.metrics.reader.CompositeMetricReader;
 import org.springframework.boot.actuate.metrics.reader.MetricReader;
 import org.springframework.boot.actuate.metrics.rich.RichGaugeReader;
@@ -47,6 +50,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnJava;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnJava.JavaVersion;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.autoconfigure.condition.SearchStrategy;
 import org.springframework.boot.autoconfigure.integration.IntegrationAutoConfiguration;
@@ -83,6 +87,7 @@ public class PublicMetricsAutoConfiguration {
 	}
 
 	@Bean
+	@ConditionalOnProperty(prefix = "spring.metrics.system.sampling", name = "enabled", havingValue = "false", matchIfMissing = true)
 	public SystemPublicMetrics systemPublicMetrics() {
 		return new SystemPublicMetrics();
 	}
@@ -102,6 +107,18 @@ public class PublicMetricsAutoConfiguration {
 		return new RichGaugeReaderPublicMetrics(richGaugeReader);
 	}
 
+	@Configuration
+	@ConditionalOnProperty(prefix = "spring.metrics.system.sampling", name = "enabled", havingValue = "true")
+	static class SampledSystemMetricsConfiguration {
+
+		@Bean
+		public SampledSystemPublicMetrics sampledSystemPublicMetrics(
+				@Value("${spring.metrics.system.sampling.interval-millis:5000}") long interval) {
+			return new SampledSystemPublicMetrics(interval);
+		}
+
+	}
+
 	@Configuration
 	@ConditionalOnClass(DataSource.class)
 	@ConditionalOnBean(DataSource.class)
@@ -116,6 +133,19 @@ public class PublicMetricsAutoConfiguration {
 
 	}
 
+	@Configuration
+	@ConditionalOnClass(DataSource.class)
+	@ConditionalOnProperty(prefix = "spring.metrics.datasource", name = "instrument", havingValue = "true")
+	static class DataSourceInstrumentationConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public static DataSourceInstrumentation dataSourceInstrumentation() {
+			return new DataSourceInstrumentation();
+		}
+
+	}
+
 	@Configuration
 	@ConditionalOnClass({ Servlet.class, Tomcat.class })
 	@ConditionalOnWebApplication
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2015 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,9 +17,11 @@
 package org.springframework.boot.actuate.autoconfigure;
 
 import org.springframework.boot.actuate.trace.InMemoryTraceRepository;
+import org.springframework.boot.actuate.trace.RingBufferTraceRepository;
 import org.springframework.boot.actuate.trace.TraceRepository;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -31,6 +33,13 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class TraceRepositoryAutoConfiguration {
 
+	@ConditionalOnMissingBean(TraceRepository.class)
+	@ConditionalOnProperty(prefix = "management.trace", name = "ring-buffer", havingValue = "true")
+	@Bean
+	public RingBufferTraceRepository ringBufferTraceRepository() {
+		return new RingBufferTraceRepository();
+	}
+
 	@ConditionalOnMissingBean(TraceRepository.class)
 	@Bean
 	public InMemoryTraceRepository traceRepository() {
@@ -16,10 +16,14 @@
 
 package org.springframework.boot.actuate.endpoint;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.cache.CacheStatistics;
@@ -35,12 +39,27 @@ import org.springframework.util.MultiValueMap;
 
 /**
  * A {@link PublicMetrics} implementation that provides cache statistics.
+ * <p>
+ * The caches of each {@link CacheManager} and the metric prefix of each cache are
+ * worked out once and only worked out again when the cache names change. The
+ * {@link CacheStatisticsProvider providers} that can handle a type of cache are also
+ * remembered so that each call only has to look up the caches and ask their providers
+ * for statistics.
  *
  * @author Stephane Nicoll
  * @since 1.3.0
  */
 public class CachePublicMetrics implements PublicMetrics {
 
+	private static final boolean TRANSACTION_AWARE_CACHE_DECORATOR_PRESENT = ClassUtils
+			.isPresent(
+					"org.springframework.cache.transaction.TransactionAwareCacheDecorator",
+					CachePublicMetrics.class.getClassLoader());
+
+	private final Map<Class<?>, List<CacheStatisticsProvider<Cache>>> providersByCacheType = new ConcurrentHashMap<Class<?>, List<CacheStatisticsProvider<Cache>>>();
+
+	private volatile CacheBindings bindings;
+
 	@Autowired
 	private Map<String, CacheManager> cacheManagers;
 
@@ -69,13 +88,24 @@ public class CachePublicMetrics implements PublicMetrics {
 	@Override
 	public Collection<Metric<?>> metrics() {
 		Collection<Metric<?>> metrics = new HashSet<Metric<?>>();
-		for (Map.Entry<String, List<CacheManagerBean>> entry : getCacheManagerBeans()
-				.entrySet()) {
-			addMetrics(metrics, entry.getKey(), entry.getValue());
+		for (CacheBinding binding : getBindings().getBindings()) {
+			CacheStatistics statistics = getCacheStatistics(binding);
+			if (statistics != null) {
+				metrics.addAll(statistics.toMetrics(binding.getPrefix()));
+			}
 		}
 		return metrics;
 	}
 
+	private CacheBindings getBindings() {
+		CacheBindings bindings = this.bindings;
+		if (bindings == null || !bindings.isCurrent(this.cacheManagers)) {
+			bindings = new CacheBindings(this.cacheManagers, getCacheManagerBeans());
+			this.bindings = bindings;
+		}
+		return bindings;
+	}
+
 	private MultiValueMap<String, CacheManagerBean> getCacheManagerBeans() {
 		MultiValueMap<String, CacheManagerBean> cacheManagerNamesByCacheName = new LinkedMultiValueMap<String, CacheManagerBean>();
 		for (Map.Entry<String, CacheManager> entry : this.cacheManagers.entrySet()) {
@@ -87,49 +117,148 @@ public class CachePublicMetrics implements PublicMetrics {
 		return cacheManagerNamesByCacheName;
 	}
 
-	private void addMetrics(Collection<Metric<?>> metrics, String cacheName,
-			List<CacheManagerBean> cacheManagerBeans) {
-		for (CacheManagerBean cacheManagerBean : cacheManagerBeans) {
-			CacheManager cacheManager = cacheManagerBean.getCacheManager();
-			Cache cache = unwrapIfNecessary(cacheManager.getCache(cacheName));
-			CacheStatistics statistics = getCacheStatistics(cache, cacheManager);
+	private CacheStatistics getCacheStatistics(CacheBinding binding) {
+		CacheManager cacheManager = binding.getCacheManager();
+		Cache cache = unwrapIfNecessary(cacheManager.getCache(binding.getCacheName()));
+		if (cache == null) {
+			return null;
+		}
+		for (CacheStatisticsProvider<Cache> provider : getProviders(cache.getClass())) {
+			CacheStatistics statistics = provider.getCacheStatistics(cacheManager, cache);
 			if (statistics != null) {
-				String prefix = cacheName;
-				if (cacheManagerBeans.size() > 1) {
-					prefix = cacheManagerBean.getBeanName() + "_" + prefix;
-				}
-				prefix = "cache." + prefix + (prefix.endsWith(".") ? "" : ".");
-				metrics.addAll(statistics.toMetrics(prefix));
+				return statistics;
 			}
 		}
+		return null;
 	}
 
 	private Cache unwrapIfNecessary(Cache cache) {
-		if (ClassUtils.isPresent(
-				"org.springframework.cache.transaction.TransactionAwareCacheDecorator",
-				getClass().getClassLoader())) {
+		if (TRANSACTION_AWARE_CACHE_DECORATOR_PRESENT) {
 			return TransactionAwareCacheDecoratorHandler.unwrapIfNecessary(cache);
 		}
 		return cache;
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private CacheStatistics getCacheStatistics(Cache cache, CacheManager cacheManager) {
-		if (this.statisticsProviders != null) {
-			for (CacheStatisticsProvider provider : this.statisticsProviders) {
-				Class<?> cacheType = ResolvableType
-						.forClass(CacheStatisticsProvider.class, provider.getClass())
-						.resolveGeneric();
-				if (cacheType.isInstance(cache)) {
-					CacheStatistics statistics = provider.getCacheStatistics(cacheManager,
-							cache);
-					if (statistics != null) {
-						return statistics;
+	private List<CacheStatisticsProvider<Cache>> getProviders(Class<?> type) {
+		List<CacheStatisticsProvider<Cache>> providers = this.providersByCacheType
+				.get(type);
+		if (providers == null) {
+			providers = new ArrayList<CacheStatisticsProvider<Cache>>();
+			if (this.statisticsProviders != null) {
+				for (CacheStatisticsProvider provider : this.statisticsProviders) {
+					Class<?> cacheType = ResolvableType
+							.forClass(CacheStatisticsProvider.class, provider.getClass())
+							.resolveGeneric();
+					if (cacheType.isAssignableFrom(type)) {
+						providers.add(provider);
 					}
 				}
 			}
+			this.providersByCacheType.put(type, providers);
 		}
-		return null;
+		return providers;
+	}
+
+	/**
+	 * The caches of every {@link CacheManager} with their metric prefix, along with the
+	 * cache names that they were worked out from.
+	 */
+	private static final class CacheBindings {
+
+		private final List<CacheManager> cacheManagers = new ArrayList<CacheManager>();
+
+		private final List<List<String>> cacheNames = new ArrayList<List<String>>();
+
+		private final List<CacheBinding> bindings = new ArrayList<CacheBinding>();
+
+		CacheBindings(Map<String, CacheManager> cacheManagers,
+				MultiValueMap<String, CacheManagerBean> cacheManagerBeans) {
+			for (CacheManager cacheManager : cacheManagers.values()) {
+				this.cacheManagers.add(cacheManager);
+				this.cacheNames
+						.add(new ArrayList<String>(cacheManager.getCacheNames()));
+			}
+			for (Map.Entry<String, List<CacheManagerBean>> entry : cacheManagerBeans
+					.entrySet()) {
+				String cacheName = entry.getKey();
+				List<CacheManagerBean> beans = entry.getValue();
+				for (CacheManagerBean bean : beans) {
+					String prefix = cacheName;
+					if (beans.size() > 1) {
+						prefix = bean.getBeanName() + "_" + prefix;
+					}
+					prefix = "cache." + prefix + (prefix.endsWith(".") ? "" : ".");
+					this.bindings.add(
+							new CacheBinding(bean.getCacheManager(), cacheName, prefix));
+				}
+			}
+		}
+
+		boolean isCurrent(Map<String, CacheManager> cacheManagers) {
+			if (cacheManagers.size() != this.cacheManagers.size()) {
+				return false;
+			}
+			int index = 0;
+			for (CacheManager cacheManager : cacheManagers.values()) {
+				if (cacheManager != this.cacheManagers.get(index)
+						|| !isCurrent(cacheManager.getCacheNames(),
+								this.cacheNames.get(index))) {
+					return false;
+				}
+				index++;
+			}
+			return true;
+		}
+
+		private boolean isCurrent(Collection<String> names, List<String> previous) {
+			if (names.size() != previous.size()) {
+				return false;
+			}
+			Iterator<String> iterator = previous.iterator();
+			for (String name : names) {
+				if (!name.equals(iterator.next())) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		List<CacheBinding> getBindings() {
+			return Collections.unmodifiableList(this.bindings);
+		}
+
+	}
+
+	/**
+	 * A cache of a {@link CacheManager} and the prefix of its metrics.
+	 */
+	private static final class CacheBinding {
+
+		private final CacheManager cacheManager;
+
+		private final String cacheName;
+
+		private final String prefix;
+
+		CacheBinding(CacheManager cacheManager, String cacheName, String prefix) {
+			this.cacheManager = cacheManager;
+			this.cacheName = cacheName;
+			this.prefix = prefix;
+		}
+
+		CacheManager getCacheManager() {
+			return this.cacheManager;
+		}
+
+		String getCacheName() {
+			return this.cacheName;
+		}
+
+		String getPrefix() {
+			return this.prefix;
+		}
+
 	}
 
 	private static class CacheManagerBean {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,9 +25,14 @@ import java.util.Set;
 import javax.annotation.PostConstruct;
 import javax.sql.DataSource;
 
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.histogram.HistogramSnapshot;
+import org.springframework.boot.actuate.metrics.jdbc.DataSourceInstrumentation;
+import org.springframework.boot.actuate.metrics.jdbc.DataSourcePoolStatistics;
 import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadata;
 import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProvider;
 import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProviders;
@@ -36,6 +41,10 @@ import org.springframework.context.annotation.Primary;
 
 /**
  * A {@link PublicMetrics} implementation that provides data source usage statistics.
+ * Along with the {@link DataSourcePoolMetadata pool metadata}, the
+ * {@link DataSourcePoolStatistics statistics} that the pool keeps are provided and, if
+ * the data source is instrumented by a {@link DataSourceInstrumentation}, the times
+ * taken to acquire connections and for which they were held.
  *
  * @author Stephane Nicoll
  * @since 1.2.0
@@ -50,8 +59,15 @@ public class DataSourcePublicMetrics implements PublicMetrics {
 	@Autowired
 	private Collection<DataSourcePoolMetadataProvider> providers;
 
+	@Autowired(required = false)
+	private DataSourceInstrumentation instrumentation;
+
 	private final Map<String, DataSourcePoolMetadata> metadataByPrefix = new HashMap<String, DataSourcePoolMetadata>();
 
+	private final Map<String, DataSource> dataSourceByPrefix = new HashMap<String, DataSource>();
+
+	private final Map<String, String> beanNameByPrefix = new HashMap<String, String>();
+
 	@PostConstruct
 	public void initialize() {
 		DataSource primaryDataSource = getPrimaryDataSource();
@@ -62,10 +78,13 @@ public class DataSourcePublicMetrics implements PublicMetrics {
 			String beanName = entry.getKey();
 			DataSource bean = entry.getValue();
 			String prefix = createPrefix(beanName, bean, bean.equals(primaryDataSource));
+			DataSource target = getTarget(bean);
 			DataSourcePoolMetadata poolMetadata = provider
-					.getDataSourcePoolMetadata(bean);
+					.getDataSourcePoolMetadata(target);
 			if (poolMetadata != null) {
 				this.metadataByPrefix.put(prefix, poolMetadata);
+				this.dataSourceByPrefix.put(prefix, target);
+				this.beanNameByPrefix.put(prefix, beanName);
 			}
 		}
 	}
@@ -80,10 +99,63 @@ public class DataSourcePublicMetrics implements PublicMetrics {
 			DataSourcePoolMetadata metadata = entry.getValue();
 			addMetric(metrics, prefix + "active", metadata.getActive());
 			addMetric(metrics, prefix + "usage", metadata.getUsage());
+			DataSourcePoolStatistics statistics = DataSourcePoolStatistics
+					.get(this.dataSourceByPrefix.get(entry.getKey()));
+			String beanName = this.beanNameByPrefix.get(entry.getKey());
+			boolean instrumented = (this.instrumentation != null
+					&& this.instrumentation.isInstrumented(beanName));
+			if (instrumented) {
+				addInstrumentationMetrics(metrics, prefix, beanName);
+			}
+			if (statistics != null) {
+				for (Metric<?> metric : statistics.toMetrics(prefix)) {
+					// Prefer the instrumented times over those that the pool keeps
+					if (!instrumented || !isTime(metric, prefix)) {
+						metrics.add(metric);
+					}
+				}
+			}
 		}
 		return metrics;
 	}
 
+	private void addInstrumentationMetrics(Set<Metric<?>> metrics, String prefix,
+			String beanName) {
+		addMetric(metrics, prefix + "acquire.failures",
+				this.instrumentation.getAcquireFailures(beanName));
+		addHistogramMetrics(metrics, prefix + "acquire.",
+				this.instrumentation.getAcquireTimes(beanName));
+		addHistogramMetrics(metrics, prefix + "hold.",
+				this.instrumentation.getHoldTimes(beanName));
+	}
+
+	private void addHistogramMetrics(Set<Metric<?>> metrics, String prefix,
+			HistogramSnapshot snapshot) {
+		if (snapshot != null && snapshot.getCount() > 0) {
+			addMetric(metrics, prefix + "count", snapshot.getCount());
+			addMetric(metrics, prefix + "mean", snapshot.getMean());
+			addMetric(metrics, prefix + "max", snapshot.getMax());
+			addMetric(metrics, prefix + "p50", snapshot.getValueAtPercentile(0.5));
+			addMetric(metrics, prefix + "p95", snapshot.getValueAtPercentile(0.95));
+			addMetric(metrics, prefix + "p99", snapshot.getValueAtPercentile(0.99));
+		}
+	}
+
+	private boolean isTime(Metric<?> metric, String prefix) {
+		String name = metric.getName();
+		return name.startsWith(prefix + "acquire.") || name.startsWith(prefix + "hold.");
+	}
+
+	private DataSource getTarget(DataSource dataSource) {
+		if (AopUtils.isAopProxy(dataSource)) {
+			Object target = AopProxyUtils.getSingletonTarget(dataSource);
+			if (target instanceof DataSource) {
+				return (DataSource) target;
+			}
+		}
+		return dataSource;
+	}
+
 	private <T extends Number> void addMetric(Set<Metric<?>> metrics, String name,
 			T value) {
 		if (value != null) {
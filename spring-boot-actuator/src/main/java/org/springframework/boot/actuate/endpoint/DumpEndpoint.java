@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,8 +18,14 @@ package org.springframework.boot.actuate.endpoint;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -40,8 +46,101 @@ public class DumpEndpoint extends AbstractEndpoint<List<ThreadInfo>> {
 
 	@Override
 	public List<ThreadInfo> invoke() {
-		return Arrays
-				.asList(ManagementFactory.getThreadMXBean().dumpAllThreads(true, true));
+		return Arrays.asList(dumpAllThreads(true, true));
+	}
+
+	/**
+	 * Return the thread info for all live threads.
+	 * @param lockedMonitors whether to include the locked monitors
+	 * @param lockedSynchronizers whether to include the locked synchronizers
+	 * @return the thread info
+	 * @since 1.5.10
+	 */
+	public ThreadInfo[] dumpAllThreads(boolean lockedMonitors,
+			boolean lockedSynchronizers) {
+		return ManagementFactory.getThreadMXBean().dumpAllThreads(lockedMonitors,
+				lockedSynchronizers);
+	}
+
+	/**
+	 * Take a number of thread dumps at a fixed interval and aggregate them. The result
+	 * contains the most frequent top frames of runnable threads ({@code hotFrames}) and
+	 * the locks that threads were most often blocked on, along with the thread that owned
+	 * them ({@code blockedLocks}), each with the number of times that it was seen.
+	 * @param samples the number of thread dumps to take
+	 * @param interval the time between two thread dumps in milliseconds
+	 * @param limit the maximum number of hot frames and blocked locks to return
+	 * @return the aggregated samples
+	 * @throws InterruptedException if the thread is interrupted while waiting for the
+	 * next sample
+	 * @since 1.5.10
+	 */
+	public Map<String, Object> sample(int samples, long interval, int limit)
+			throws InterruptedException {
+		Map<String, Integer> hotFrames = new HashMap<String, Integer>();
+		Map<String, Integer> blockedLocks = new HashMap<String, Integer>();
+		int threads = 0;
+		for (int i = 0; i < samples; i++) {
+			if (i > 0) {
+				Thread.sleep(interval);
+			}
+			ThreadInfo[] dump = dumpAllThreads(false, false);
+			threads = Math.max(threads, dump.length);
+			for (ThreadInfo info : dump) {
+				if (info == null) {
+					continue;
+				}
+				StackTraceElement[] stackTrace = info.getStackTrace();
+				if (info.getThreadState() == Thread.State.RUNNABLE
+						&& stackTrace.length > 0) {
+					increment(hotFrames, stackTrace[0].toString());
+				}
+				if (info.getLockOwnerName() != null) {
+					increment(blockedLocks, info.getLockName() + " owned by \""
+							+ info.getLockOwnerName() + "\" Id="
+							+ info.getLockOwnerId());
+				}
+			}
+		}
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("samples", samples);
+		result.put("interval", interval);
+		result.put("threads", threads);
+		result.put("hotFrames", top(hotFrames, "frame", limit));
+		result.put("blockedLocks", top(blockedLocks, "lock", limit));
+		return result;
+	}
+
+	private void increment(Map<String, Integer> counts, String key) {
+		Integer count = counts.get(key);
+		counts.put(key, (count == null ? 1 : count + 1));
+	}
+
+	private List<Map<String, Object>> top(Map<String, Integer> counts, String name,
+			int limit) {
+		List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>(
+				counts.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+
+			@Override
+			public int compare(Map.Entry<String, Integer> o1,
+					Map.Entry<String, Integer> o2) {
+				int result = o2.getValue().compareTo(o1.getValue());
+				return (result != 0 ? result : o1.getKey().compareTo(o2.getKey()));
+			}
+
+		});
+		List<Map<String, Object>> result = new ArrayList<Map<String, Object>>();
+		for (Map.Entry<String, Integer> entry : entries) {
+			if (result.size() == limit) {
+				break;
+			}
+			Map<String, Object> item = new LinkedHashMap<String, Object>();
+			item.put(name, entry.getKey());
+			item.put("count", entry.getValue());
+			result.add(item);
+		}
+		return result;
 	}
 
 }
@@ -17,11 +17,13 @@
 package org.springframework.boot.actuate.endpoint;
 
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.springframework.boot.actuate.health.CompositeHealthIndicator;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthAggregator;
 import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.util.Assert;
 
@@ -56,6 +58,24 @@ public class HealthEndpoint extends AbstractEndpoint<Health> {
 	 */
 	public HealthEndpoint(HealthAggregator healthAggregator,
 			Map<String, HealthIndicator> healthIndicators) {
+		this(healthAggregator, healthIndicators, null, 0, null);
+	}
+
+	/**
+	 * Create a new {@link HealthEndpoint} instance that invokes the health indicators
+	 * concurrently using the given {@code executor}.
+	 * @param healthAggregator the health aggregator
+	 * @param healthIndicators the health indicators
+	 * @param executor the executor used to invoke the health indicators or {@code null}
+	 * to invoke them one after another
+	 * @param timeout the time to wait for each health indicator in milliseconds
+	 * @param timeoutStatus the status of a health indicator that did not respond in time
+	 * @since 1.5.10
+	 * @see CompositeHealthIndicator#setExecutor(Executor)
+	 */
+	public HealthEndpoint(HealthAggregator healthAggregator,
+			Map<String, HealthIndicator> healthIndicators, Executor executor,
+			long timeout, Status timeoutStatus) {
 		super("health", false);
 		Assert.notNull(healthAggregator, "HealthAggregator must not be null");
 		Assert.notNull(healthIndicators, "HealthIndicators must not be null");
@@ -64,6 +84,11 @@ public class HealthEndpoint extends AbstractEndpoint<Health> {
 		for (Map.Entry<String, HealthIndicator> entry : healthIndicators.entrySet()) {
 			healthIndicator.addHealthIndicator(getKey(entry.getKey()), entry.getValue());
 		}
+		if (executor != null) {
+			healthIndicator.setExecutor(executor);
+			healthIndicator.setTimeout(timeout);
+			healthIndicator.setTimeoutStatus(timeoutStatus);
+		}
 		this.healthIndicator = healthIndicator;
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2015 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -67,11 +67,20 @@ public class MetricsEndpoint extends AbstractEndpoint<Map<String, Object>> {
 		this.publicMetrics.remove(metrics);
 	}
 
+	/**
+	 * Return the registered {@link PublicMetrics} in the order in which their metrics
+	 * are exposed.
+	 * @return the public metrics
+	 * @since 1.5.10
+	 */
+	public List<PublicMetrics> getPublicMetrics() {
+		return new ArrayList<PublicMetrics>(this.publicMetrics);
+	}
+
 	@Override
 	public Map<String, Object> invoke() {
 		Map<String, Object> result = new LinkedHashMap<String, Object>();
-		List<PublicMetrics> metrics = new ArrayList<PublicMetrics>(this.publicMetrics);
-		for (PublicMetrics publicMetric : metrics) {
+		for (PublicMetrics publicMetric : getPublicMetrics()) {
 			try {
 				for (Metric<?> metric : publicMetric.metrics()) {
 					result.put(metric.getName(), metric.getValue());
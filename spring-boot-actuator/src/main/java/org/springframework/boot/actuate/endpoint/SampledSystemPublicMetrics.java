@@ -0,0 +1,284 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.endpoint;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * A {@link SystemPublicMetrics} that samples the system metrics on a fixed schedule so
+ * that reading them (e.g. from the {@link MetricsEndpoint} or when they are exported)
+ * never queries the JVM's management beans. Each read returns the same immutable
+ * snapshot until the next sample is taken, so values such as {@code uptime} may be up
+ * to one interval old.
+ * <p>
+ * As well as the metrics of {@link SystemPublicMetrics}, each sample after the first
+ * includes what changed since the previous one: the time in milliseconds spent in
+ * garbage collection ({@code gc.pause} and {@code gc.xxx.pause} for each collector) and,
+ * if the JVM can report the bytes allocated by each thread, the allocation rate in KB
+ * per second ({@code mem.allocation.rate}).
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+public class SampledSystemPublicMetrics extends SystemPublicMetrics
+		implements SmartLifecycle {
+
+	private static final Log logger = LogFactory.getLog(SampledSystemPublicMetrics.class);
+
+	private final long interval;
+
+	private final Object monitor = new Object();
+
+	private ScheduledThreadPoolExecutor executor;
+
+	private volatile Collection<Metric<?>> snapshot;
+
+	private Sample previous;
+
+	/**
+	 * Create a new {@link SampledSystemPublicMetrics} instance.
+	 * @param interval the time between samples in milliseconds
+	 */
+	public SampledSystemPublicMetrics(long interval) {
+		Assert.isTrue(interval > 0, "Interval must be greater than 0");
+		this.interval = interval;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Collection<Metric<?>> snapshot = this.snapshot;
+		if (snapshot == null) {
+			sample();
+			snapshot = this.snapshot;
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Take a new sample of the system metrics and make it available to readers.
+	 */
+	public void sample() {
+		synchronized (this.monitor) {
+			Collection<Metric<?>> current = this.snapshot;
+			List<Metric<?>> result = new ArrayList<Metric<?>>(
+					current == null ? 64 : current.size());
+			result.addAll(super.metrics());
+			try {
+				Sample sample = new Sample();
+				if (this.previous != null) {
+					addDeltaMetrics(result, this.previous, sample);
+				}
+				this.previous = sample;
+			}
+			catch (NoClassDefFoundError ex) {
+				// Expected on Google App Engine
+			}
+			this.snapshot = Collections.unmodifiableList(result);
+		}
+	}
+
+	private void addDeltaMetrics(Collection<Metric<?>> result, Sample previous,
+			Sample current) {
+		long total = 0;
+		for (int i = 0; i < current.gcNames.length; i++) {
+			int index = previous.indexOfGc(current.gcNames[i]);
+			long pause = current.gcTimes[i]
+					- (index < 0 ? 0 : Math.max(previous.gcTimes[index], 0));
+			pause = Math.max(pause, 0);
+			total += pause;
+			result.add(new Metric<Long>("gc." + current.gcNames[i] + ".pause", pause));
+		}
+		result.add(new Metric<Long>("gc.pause", total));
+		if (current.allocatedBytes != null && previous.allocatedBytes != null) {
+			long allocated = current.getAllocatedSince(previous);
+			long elapsed = current.nanoTime - previous.nanoTime;
+			if (elapsed > 0) {
+				result.add(new Metric<Double>("mem.allocation.rate",
+						allocated / 1024.0 * TimeUnit.SECONDS.toNanos(1) / elapsed));
+			}
+		}
+	}
+
+	@Override
+	public void start() {
+		synchronized (this.monitor) {
+			if (this.executor == null) {
+				CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+						"system-metrics-");
+				threadFactory.setDaemon(true);
+				this.executor = new ScheduledThreadPoolExecutor(1, threadFactory);
+				this.executor.scheduleAtFixedRate(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							sample();
+						}
+						catch (Exception ex) {
+							logger.debug("Could not sample system metrics", ex);
+						}
+					}
+
+				}, 0, this.interval, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	@Override
+	public void stop() {
+		synchronized (this.monitor) {
+			if (this.executor != null) {
+				this.executor.shutdownNow();
+				this.executor = null;
+			}
+		}
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+
+	@Override
+	public boolean isRunning() {
+		synchronized (this.monitor) {
+			return this.executor != null;
+		}
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return true;
+	}
+
+	@Override
+	public int getPhase() {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * The cumulative counters that deltas are derived from, as read at one point in
+	 * time.
+	 */
+	private static class Sample {
+
+		private static final Method GET_THREAD_ALLOCATED_BYTES = findGetThreadAllocatedBytes();
+
+		private final long nanoTime = System.nanoTime();
+
+		private final String[] gcNames;
+
+		private final long[] gcTimes;
+
+		private long[] threadIds;
+
+		private long[] allocatedBytes;
+
+		Sample() {
+			List<GarbageCollectorMXBean> collectors = ManagementFactory
+					.getGarbageCollectorMXBeans();
+			this.gcNames = new String[collectors.size()];
+			this.gcTimes = new long[collectors.size()];
+			for (int i = 0; i < this.gcNames.length; i++) {
+				GarbageCollectorMXBean collector = collectors.get(i);
+				this.gcNames[i] = StringUtils.replace(collector.getName(), " ", "_")
+						.toLowerCase();
+				this.gcTimes[i] = collector.getCollectionTime();
+			}
+			if (GET_THREAD_ALLOCATED_BYTES != null) {
+				ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+				long[] threadIds = threads.getAllThreadIds();
+				Arrays.sort(threadIds);
+				try {
+					this.allocatedBytes = (long[]) GET_THREAD_ALLOCATED_BYTES
+							.invoke(threads, (Object) threadIds);
+					this.threadIds = threadIds;
+				}
+				catch (Exception ex) {
+					// Allocated bytes not available (e.g. measurement disabled)
+				}
+			}
+		}
+
+		int indexOfGc(String name) {
+			for (int i = 0; i < this.gcNames.length; i++) {
+				if (this.gcNames[i].equals(name)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		// Threads that started since the previous sample count from zero and the
+		// allocations of threads that have since ended are lost
+		long getAllocatedSince(Sample previous) {
+			long allocated = 0;
+			for (int i = 0; i < this.threadIds.length; i++) {
+				long bytes = this.allocatedBytes[i];
+				if (bytes < 0) {
+					continue;
+				}
+				int index = Arrays.binarySearch(previous.threadIds, this.threadIds[i]);
+				long before = (index < 0 ? 0 : previous.allocatedBytes[index]);
+				allocated += Math.max(bytes - Math.max(before, 0), 0);
+			}
+			return allocated;
+		}
+
+		private static Method findGetThreadAllocatedBytes() {
+			try {
+				ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+				Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+				if (!type.isInstance(threads)) {
+					return null;
+				}
+				Method method = ReflectionUtils.findMethod(type, "getThreadAllocatedBytes",
+						long[].class);
+				if (method != null) {
+					ReflectionUtils.makeAccessible(method);
+				}
+				return method;
+			}
+			catch (Throwable ex) {
+				return null;
+			}
+		}
+
+	}
+
+}
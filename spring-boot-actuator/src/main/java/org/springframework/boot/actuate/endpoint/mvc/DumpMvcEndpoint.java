@@ -0,0 +1,285 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.endpoint.mvc;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.LockInfo;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import org.springframework.boot.actuate.endpoint.DumpEndpoint;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Adapter to expose {@link DumpEndpoint} as an {@link MvcEndpoint}. In addition to the
+ * JSON representation of the delegate, the thread dump can be streamed to the response
+ * one thread at a time, either in a {@code jstack}-like text format ({@code ?format=text})
+ * or as newline delimited JSON ({@code ?format=ndjson}), and locked monitors and
+ * synchronizers can be left out ({@code &locks=false}) to make the dump cheaper. The
+ * {@code /samples} path takes several thread dumps at an interval and reports the most
+ * frequent top frames of runnable threads and the locks that threads are blocked on.
+ * Sampling holds a request thread, so the number of samples times the interval is
+ * limited to a minute.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+@ConfigurationProperties(prefix = "endpoints.dump")
+public class DumpMvcEndpoint extends EndpointMvcAdapter {
+
+	/**
+	 * Media type for newline delimited JSON.
+	 */
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+	private static final int MAX_SAMPLES = 100;
+
+	private static final long MAX_INTERVAL = 10000;
+
+	private static final long MAX_SAMPLING_TIME = 60000;
+
+	private final DumpEndpoint delegate;
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	public DumpMvcEndpoint(DumpEndpoint delegate) {
+		super(delegate);
+		this.delegate = delegate;
+		this.jsonFactory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	}
+
+	@RequestMapping(method = RequestMethod.GET, params = "format")
+	@HypermediaDisabled
+	public void stream(@RequestParam String format,
+			@RequestParam(defaultValue = "true") boolean locks,
+			HttpServletResponse response) throws IOException {
+		if (!this.delegate.isEnabled()) {
+			// Shouldn't happen - MVC endpoint shouldn't be registered when delegate's
+			// disabled
+			response.setStatus(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+		boolean text = "text".equals(format);
+		if (!text && !"ndjson".equals(format)) {
+			response.sendError(HttpStatus.BAD_REQUEST.value(),
+					"Unsupported format '" + format + "'");
+			return;
+		}
+		response.setContentType(
+				(text ? MediaType.TEXT_PLAIN_VALUE : APPLICATION_NDJSON_VALUE)
+						+ ";charset=UTF-8");
+		ThreadInfo[] threads = this.delegate.dumpAllThreads(locks, locks);
+		Writer writer = new BufferedWriter(
+				new OutputStreamWriter(response.getOutputStream(), "UTF-8"));
+		if (text) {
+			writeText(threads, writer);
+		}
+		else {
+			writeJson(threads, writer);
+		}
+		writer.flush();
+	}
+
+	@ActuatorGetMapping("/samples")
+	@ResponseBody
+	@HypermediaDisabled
+	public Object samples(@RequestParam(defaultValue = "10") int count,
+			@RequestParam(defaultValue = "100") long interval,
+			@RequestParam(defaultValue = "20") int limit) throws InterruptedException {
+		if (!this.delegate.isEnabled()) {
+			return getDisabledResponse();
+		}
+		if (count < 1 || count > MAX_SAMPLES || interval < 0
+				|| interval > MAX_INTERVAL || count * interval > MAX_SAMPLING_TIME
+				|| limit < 1) {
+			return new ResponseEntity<String>("Invalid sampling parameters",
+					HttpStatus.BAD_REQUEST);
+		}
+		return this.delegate.sample(count, interval, limit);
+	}
+
+	private void writeText(ThreadInfo[] threads, Writer writer) throws IOException {
+		for (ThreadInfo thread : threads) {
+			if (thread != null) {
+				writeText(thread, writer);
+			}
+		}
+	}
+
+	private void writeText(ThreadInfo thread, Writer writer) throws IOException {
+		writer.write('"');
+		writer.write(thread.getThreadName());
+		writer.write("\" #");
+		writer.write(Long.toString(thread.getThreadId()));
+		if (thread.isSuspended()) {
+			writer.write(" (suspended)");
+		}
+		if (thread.isInNative()) {
+			writer.write(" (in native)");
+		}
+		writer.write("\n   java.lang.Thread.State: ");
+		writer.write(thread.getThreadState().toString());
+		writer.write('\n');
+		StackTraceElement[] stackTrace = thread.getStackTrace();
+		MonitorInfo[] monitors = thread.getLockedMonitors();
+		for (int depth = 0; depth < stackTrace.length; depth++) {
+			writer.write("\tat ");
+			writer.write(stackTrace[depth].toString());
+			writer.write('\n');
+			if (depth == 0) {
+				writeLockInfo(thread, stackTrace[depth], writer);
+			}
+			for (MonitorInfo monitor : monitors) {
+				if (monitor.getLockedStackDepth() == depth) {
+					writer.write("\t- locked ");
+					writeLock(monitor, writer);
+					writer.write('\n');
+				}
+			}
+		}
+		LockInfo[] synchronizers = thread.getLockedSynchronizers();
+		if (synchronizers.length > 0) {
+			writer.write("\n   Locked ownable synchronizers:\n");
+			for (LockInfo synchronizer : synchronizers) {
+				writer.write("\t- ");
+				writeLock(synchronizer, writer);
+				writer.write('\n');
+			}
+		}
+		writer.write('\n');
+	}
+
+	private void writeLockInfo(ThreadInfo thread, StackTraceElement frame,
+			Writer writer) throws IOException {
+		LockInfo lock = thread.getLockInfo();
+		if (lock == null) {
+			return;
+		}
+		if (thread.getThreadState() == Thread.State.BLOCKED) {
+			writer.write("\t- waiting to lock ");
+		}
+		else if (Object.class.getName().equals(frame.getClassName())
+				&& "wait".equals(frame.getMethodName())) {
+			writer.write("\t- waiting on ");
+		}
+		else {
+			writer.write("\t- parking to wait for ");
+		}
+		writeLock(lock, writer);
+		if (thread.getLockOwnerName() != null) {
+			writer.write(" owned by \"");
+			writer.write(thread.getLockOwnerName());
+			writer.write("\" #");
+			writer.write(Long.toString(thread.getLockOwnerId()));
+		}
+		writer.write('\n');
+	}
+
+	private void writeLock(LockInfo lock, Writer writer) throws IOException {
+		writer.write("<0x");
+		writer.write(Integer.toHexString(lock.getIdentityHashCode()));
+		writer.write("> (a ");
+		writer.write(lock.getClassName());
+		writer.write(')');
+	}
+
+	private void writeJson(ThreadInfo[] threads, Writer writer) throws IOException {
+		JsonGenerator generator = this.jsonFactory.createGenerator(writer);
+		generator.setRootValueSeparator(null);
+		for (ThreadInfo thread : threads) {
+			if (thread != null) {
+				writeJson(thread, generator);
+				generator.flush();
+				writer.write('\n');
+			}
+		}
+		generator.close();
+	}
+
+	private void writeJson(ThreadInfo thread, JsonGenerator generator)
+			throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("threadName", thread.getThreadName());
+		generator.writeNumberField("threadId", thread.getThreadId());
+		generator.writeStringField("threadState", thread.getThreadState().name());
+		generator.writeNumberField("blockedCount", thread.getBlockedCount());
+		generator.writeNumberField("blockedTime", thread.getBlockedTime());
+		generator.writeNumberField("waitedCount", thread.getWaitedCount());
+		generator.writeNumberField("waitedTime", thread.getWaitedTime());
+		generator.writeBooleanField("inNative", thread.isInNative());
+		generator.writeBooleanField("suspended", thread.isSuspended());
+		if (thread.getLockInfo() != null) {
+			generator.writeFieldName("lockInfo");
+			writeJson(thread.getLockInfo(), generator);
+		}
+		if (thread.getLockOwnerName() != null) {
+			generator.writeStringField("lockOwnerName", thread.getLockOwnerName());
+			generator.writeNumberField("lockOwnerId", thread.getLockOwnerId());
+		}
+		generator.writeArrayFieldStart("stackTrace");
+		for (StackTraceElement element : thread.getStackTrace()) {
+			generator.writeStartObject();
+			generator.writeStringField("className", element.getClassName());
+			generator.writeStringField("methodName", element.getMethodName());
+			generator.writeStringField("fileName", element.getFileName());
+			generator.writeNumberField("lineNumber", element.getLineNumber());
+			generator.writeBooleanField("nativeMethod", element.isNativeMethod());
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+		generator.writeArrayFieldStart("lockedMonitors");
+		for (MonitorInfo monitor : thread.getLockedMonitors()) {
+			generator.writeStartObject();
+			generator.writeStringField("className", monitor.getClassName());
+			generator.writeNumberField("identityHashCode",
+					monitor.getIdentityHashCode());
+			generator.writeNumberField("lockedStackDepth",
+					monitor.getLockedStackDepth());
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+		generator.writeArrayFieldStart("lockedSynchronizers");
+		for (LockInfo synchronizer : thread.getLockedSynchronizers()) {
+			writeJson(synchronizer, generator);
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+	}
+
+	private void writeJson(LockInfo lock, JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("className", lock.getClassName());
+		generator.writeNumberField("identityHashCode", lock.getIdentityHashCode());
+		generator.writeEndObject();
+	}
+
+}
@@ -19,26 +19,37 @@ package org.springframework.boot.actuate.endpoint.mvc;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.management.ManagementFactory;
 import java.lang.management.PlatformManagedObject;
 import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Enumeration;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.GZIPOutputStream;
 
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.lang.UsesJava7;
+import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StreamUtils;
@@ -46,9 +57,19 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
 
 /**
  * {@link MvcEndpoint} to expose heap dumps.
+ * <p>
+ * By default each request takes a new heap dump and streams it GZip compressed. When
+ * {@link #setRetain(boolean) retain} is enabled, the compressed dump is kept so that
+ * later requests (including HTTP range requests to resume a download) are served from
+ * it without taking a new dump, unless {@code refresh=true} is requested or the dump is
+ * older than the {@link #setRetentionPeriod(long) retention period}. Each retained dump
+ * has its own {@code ETag} so that a range request whose {@code If-Range} does not match
+ * the current dump is sent the whole of it. Compression can be spread across several
+ * threads with {@link #setCompressionThreads(int)}.
  *
  * @author Lari Hotari
  * @author Phillip Webb
@@ -56,7 +77,8 @@ import org.springframework.web.bind.annotation.ResponseStatus;
  */
 @ConfigurationProperties(prefix = "endpoints.heapdump")
 @HypermediaDisabled
-public class HeapdumpMvcEndpoint extends AbstractNamedMvcEndpoint {
+public class HeapdumpMvcEndpoint extends AbstractNamedMvcEndpoint
+		implements DisposableBean {
 
 	private final long timeout;
 
@@ -64,6 +86,26 @@ public class HeapdumpMvcEndpoint extends AbstractNamedMvcEndpoint {
 
 	private HeapDumper heapDumper;
 
+	/**
+	 * Number of threads used to compress heap dumps. When greater than 1, blocks of the
+	 * dump are compressed in parallel.
+	 */
+	private int compressionThreads = 1;
+
+	/**
+	 * Keep the last compressed heap dump so that it can be downloaded again, or resumed
+	 * with a range request, without taking a new dump.
+	 */
+	private boolean retain;
+
+	/**
+	 * Time for which a retained heap dump is reused, in milliseconds. Once it has expired
+	 * the next request takes a new dump and the old one is deleted.
+	 */
+	private long retentionPeriod = TimeUnit.MINUTES.toMillis(10);
+
+	private volatile RetainedHeapDump retained;
+
 	public HeapdumpMvcEndpoint() {
 		this(TimeUnit.SECONDS.toMillis(10));
 	}
@@ -73,6 +115,41 @@ public class HeapdumpMvcEndpoint extends AbstractNamedMvcEndpoint {
 		this.timeout = timeout;
 	}
 
+	public int getCompressionThreads() {
+		return this.compressionThreads;
+	}
+
+	public void setCompressionThreads(int compressionThreads) {
+		Assert.isTrue(compressionThreads > 0, "CompressionThreads must be positive");
+		this.compressionThreads = compressionThreads;
+	}
+
+	public boolean isRetain() {
+		return this.retain;
+	}
+
+	public void setRetain(boolean retain) {
+		this.retain = retain;
+	}
+
+	public long getRetentionPeriod() {
+		return this.retentionPeriod;
+	}
+
+	public void setRetentionPeriod(long retentionPeriod) {
+		Assert.isTrue(retentionPeriod > 0, "RetentionPeriod must be positive");
+		this.retentionPeriod = retentionPeriod;
+	}
+
+	@Override
+	public void destroy() {
+		RetainedHeapDump retained = this.retained;
+		if (retained != null) {
+			this.retained = null;
+			retained.file.delete();
+		}
+	}
+
 	@RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
 	public void invoke(@RequestParam(defaultValue = "true") boolean live,
 			HttpServletRequest request, HttpServletResponse response)
@@ -81,15 +158,29 @@ public class HeapdumpMvcEndpoint extends AbstractNamedMvcEndpoint {
 			response.setStatus(HttpStatus.NOT_FOUND.value());
 			return;
 		}
+		long requested = System.currentTimeMillis();
+		boolean refresh = Boolean.parseBoolean(request.getParameter("refresh"));
+		long notBefore = (refresh ? requested : requested - this.retentionPeriod);
+		RetainedHeapDump retained = this.retained;
+		if (this.retain && !refresh && retained != null
+				&& retained.matches(live, notBefore)) {
+			retained.send(request, response);
+			return;
+		}
 		try {
 			if (this.lock.tryLock(this.timeout, TimeUnit.MILLISECONDS)) {
 				try {
-					dumpHeap(live, request, response);
-					return;
+					if (!this.retain) {
+						dumpHeap(live, request, response);
+						return;
+					}
+					retained = retainHeapDump(live, notBefore);
 				}
 				finally {
 					this.lock.unlock();
 				}
+				retained.send(request, response);
+				return;
 			}
 		}
 		catch (InterruptedException ex) {
@@ -98,6 +189,48 @@ public class HeapdumpMvcEndpoint extends AbstractNamedMvcEndpoint {
 		response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
 	}
 
+	private RetainedHeapDump retainHeapDump(boolean live, long notBefore)
+			throws IOException, InterruptedException {
+		RetainedHeapDump previous = this.retained;
+		if (previous != null && previous.matches(live, notBefore)) {
+			// Taken while this request was waiting for the lock
+			return previous;
+		}
+		if (this.heapDumper == null) {
+			this.heapDumper = createHeapDumper();
+		}
+		File file = createTempFile(live);
+		File compressed = new File(file.getPath() + ".gz");
+		try {
+			this.heapDumper.dumpHeap(file, live);
+			InputStream in = new FileInputStream(file);
+			try {
+				OutputStream out = new FileOutputStream(compressed);
+				try {
+					compress(in, out);
+				}
+				finally {
+					out.close();
+				}
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (IOException ex) {
+			compressed.delete();
+			throw ex;
+		}
+		finally {
+			file.delete();
+		}
+		this.retained = new RetainedHeapDump(compressed, live);
+		if (previous != null) {
+			previous.file.delete();
+		}
+		return this.retained;
+	}
+
 	private void dumpHeap(boolean live, HttpServletRequest request,
 			HttpServletResponse response)
 					throws IOException, ServletException, InterruptedException {
@@ -148,9 +281,7 @@ public class HeapdumpMvcEndpoint extends AbstractNamedMvcEndpoint {
 		try {
 			InputStream in = new FileInputStream(heapDumpFile);
 			try {
-				GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream());
-				StreamUtils.copy(in, out);
-				out.finish();
+				compress(in, response.getOutputStream());
 			}
 			catch (NullPointerException ex) {
 			}
@@ -166,6 +297,127 @@ public class HeapdumpMvcEndpoint extends AbstractNamedMvcEndpoint {
 		}
 	}
 
+	private void compress(InputStream in, OutputStream out) throws IOException {
+		if (this.compressionThreads > 1) {
+			ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out,
+					this.compressionThreads);
+			try {
+				StreamUtils.copy(in, gzip);
+			}
+			finally {
+				gzip.finish();
+			}
+		}
+		else {
+			GZIPOutputStream gzip = new GZIPOutputStream(out);
+			StreamUtils.copy(in, gzip);
+			gzip.finish();
+		}
+	}
+
+	/**
+	 * A compressed heap dump that has been kept to be sent again.
+	 */
+	private static final class RetainedHeapDump {
+
+		private final File file;
+
+		private final boolean live;
+
+		private final long timestamp = System.currentTimeMillis();
+
+		private final String eTag;
+
+		RetainedHeapDump(File file, boolean live) {
+			this.file = file;
+			this.live = live;
+			this.eTag = "\"" + file.getName() + "-" + Long.toHexString(this.timestamp)
+					+ "\"";
+		}
+
+		boolean matches(boolean live, long notBefore) {
+			return this.live == live && this.timestamp >= notBefore
+					&& this.file.exists();
+		}
+
+		void send(HttpServletRequest request, HttpServletResponse response)
+				throws ServletException, IOException {
+			response.setHeader("Content-Disposition",
+					"attachment; filename=\"" + this.file.getName() + "\"");
+			response.setHeader(HttpHeaders.ETAG, this.eTag);
+			String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+			if (ifRange != null && !ifRange.equals(this.eTag)) {
+				// Resuming a different dump so send all of this one
+				request = new IgnoreRangeRequest(request);
+			}
+			new Handler(new FileSystemResource(this.file), request.getServletContext())
+					.handleRequest(request, response);
+		}
+
+	}
+
+	/**
+	 * {@link ResourceHttpRequestHandler} to send a retained heap dump, supporting range
+	 * requests.
+	 */
+	private static class Handler extends ResourceHttpRequestHandler {
+
+		private final Resource resource;
+
+		Handler(Resource resource, ServletContext servletContext) {
+			this.resource = resource;
+			getLocations().add(resource);
+			try {
+				setServletContext(servletContext);
+				afterPropertiesSet();
+			}
+			catch (Exception ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+
+		@Override
+		protected void initAllowedLocations() {
+			this.getLocations().clear();
+		}
+
+		@Override
+		protected Resource getResource(HttpServletRequest request) throws IOException {
+			return this.resource;
+		}
+
+		@Override
+		protected MediaType getMediaType(Resource resource) {
+			return MediaType.APPLICATION_OCTET_STREAM;
+		}
+
+	}
+
+	/**
+	 * {@link HttpServletRequestWrapper} that hides the {@code Range} header.
+	 */
+	private static class IgnoreRangeRequest extends HttpServletRequestWrapper {
+
+		IgnoreRangeRequest(HttpServletRequest request) {
+			super(request);
+		}
+
+		@Override
+		public String getHeader(String name) {
+			return (HttpHeaders.RANGE.equalsIgnoreCase(name) ? null
+					: super.getHeader(name));
+		}
+
+		@Override
+		public Enumeration<String> getHeaders(String name) {
+			if (HttpHeaders.RANGE.equalsIgnoreCase(name)) {
+				return Collections.enumeration(Collections.<String>emptyList());
+			}
+			return super.getHeaders(name);
+		}
+
+	}
+
 	/**
 	 * Strategy interface used to dump the heap to a file.
 	 */
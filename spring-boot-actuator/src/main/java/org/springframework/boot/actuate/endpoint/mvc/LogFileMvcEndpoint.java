@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,7 +17,14 @@
 package org.springframework.boot.actuate.endpoint.mvc;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -33,14 +40,28 @@ import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.lang.UsesJava7;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
 
 /**
  * Controller that provides an API for logfiles, i.e. downloading the main logfile
  * configured in environment property 'logging.file' that is standard, but optional
  * property for spring-boot applications.
+ * <p>
+ * Rather than downloading the whole file, clients can request the last lines with
+ * {@code ?tail=<lines>} and then follow the file with {@code ?position=<offset>}, where
+ * the offset is the value of the {@value #POSITION_HEADER} header of the previous
+ * response. A follow request returns the bytes appended since that offset, waiting up
+ * to {@code wait} milliseconds for some to be written. Passing the value of the
+ * {@value #FILE_HEADER} header as {@code file} as well lets a rotation be noticed even
+ * when the new file has already grown past the offset. A rotated file (or one that has
+ * become shorter than the offset) is sent from the start, with a {@value #ROTATED_HEADER}
+ * header. Responses are streamed without a {@code Content-Length} as the file may be
+ * truncated while it is being sent.
  *
  * @author Johannes Edmeier
  * @author Phillip Webb
@@ -49,8 +70,33 @@ import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
 @ConfigurationProperties(prefix = "endpoints.logfile")
 public class LogFileMvcEndpoint extends AbstractNamedMvcEndpoint {
 
+	/**
+	 * Header containing the offset in the log file that the response ends at.
+	 */
+	public static final String POSITION_HEADER = "X-Log-Position";
+
+	/**
+	 * Header added to a follow response when the log file has been rotated.
+	 */
+	public static final String ROTATED_HEADER = "X-Log-Rotated";
+
+	/**
+	 * Header identifying the log file that a response was read from. Not available on
+	 * Java 6.
+	 */
+	public static final String FILE_HEADER = "X-Log-File";
+
 	private static final Log logger = LogFactory.getLog(LogFileMvcEndpoint.class);
 
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final long POLL_INTERVAL = 100;
+
+	private static final long MAX_WAIT = 30000;
+
+	private static final boolean FILE_ATTRIBUTES_PRESENT = ClassUtils
+			.isPresent("java.nio.file.Files", LogFileMvcEndpoint.class.getClassLoader());
+
 	/**
 	 * External Logfile to be accessed. Can be used if the logfile is written by output
 	 * redirect and not by the logging-system itself.
@@ -87,6 +133,171 @@ public class LogFileMvcEndpoint extends AbstractNamedMvcEndpoint {
 		handler.handleRequest(request, response);
 	}
 
+	@RequestMapping(method = RequestMethod.GET, params = "tail")
+	public void tail(@RequestParam int tail, HttpServletResponse response)
+			throws IOException {
+		if (!isEnabled()) {
+			response.setStatus(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+		if (tail < 0) {
+			response.sendError(HttpStatus.BAD_REQUEST.value(),
+					"Number of lines must not be negative");
+			return;
+		}
+		File file = getLogFile();
+		if (file == null) {
+			response.setStatus(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+		FileChannel channel = new FileInputStream(file).getChannel();
+		try {
+			String id = getFileId(file);
+			long end = channel.size();
+			send(channel, findTailStart(channel, end, tail), end, id, response);
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	@RequestMapping(method = RequestMethod.GET, params = "position")
+	public void follow(@RequestParam long position,
+			@RequestParam(name = "file", required = false) String id,
+			@RequestParam(defaultValue = "0") long wait, HttpServletResponse response)
+			throws IOException {
+		if (!isEnabled()) {
+			response.setStatus(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+		if (position < 0 || wait < 0 || wait > MAX_WAIT) {
+			response.sendError(HttpStatus.BAD_REQUEST.value(),
+					"Position must not be negative and wait must be between 0 and "
+							+ MAX_WAIT + "ms");
+			return;
+		}
+		File file = getLogFile();
+		if (file == null) {
+			response.setStatus(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+		awaitChange(file, position, id, wait);
+		FileChannel channel;
+		try {
+			channel = new FileInputStream(file).getChannel();
+		}
+		catch (IOException ex) {
+			// Rotated away while waiting and not yet recreated
+			response.setStatus(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+		try {
+			String currentId = getFileId(file);
+			long end = channel.size();
+			if (end < position || isRotated(id, currentId)) {
+				response.setHeader(ROTATED_HEADER, "true");
+				position = 0;
+			}
+			send(channel, position, end, currentId, response);
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	@RequestMapping(method = RequestMethod.GET, params = { "tail", "position" })
+	public void tailAndFollow(HttpServletResponse response) throws IOException {
+		if (!isEnabled()) {
+			response.setStatus(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+		response.sendError(HttpStatus.BAD_REQUEST.value(),
+				"Only one of tail and position may be specified");
+	}
+
+	private void awaitChange(File file, long position, String id, long wait) {
+		long deadline = System.currentTimeMillis() + wait;
+		long remaining = wait;
+		// The file is polled by name rather than through an open channel so that a
+		// rotation (where the file is renamed and a new one created) is noticed
+		while (file.length() == position && !isRotated(id, getFileId(file))
+				&& remaining > 0) {
+			try {
+				Thread.sleep(Math.min(POLL_INTERVAL, remaining));
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			remaining = deadline - System.currentTimeMillis();
+		}
+	}
+
+	private long findTailStart(FileChannel channel, long end, int lines)
+			throws IOException {
+		if (lines == 0) {
+			return end;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		long position = end;
+		int found = 0;
+		while (position > 0) {
+			int length = (int) Math.min(BUFFER_SIZE, position);
+			position -= length;
+			buffer.clear();
+			buffer.limit(length);
+			while (buffer.hasRemaining() && channel.read(buffer,
+					position + buffer.position()) != -1) {
+				// Keep reading until the buffer is full
+			}
+			for (int i = length - 1; i >= 0; i--) {
+				// The newline that terminates the last line doesn't start a new one
+				if (buffer.get(i) == '\n' && position + i != end - 1
+						&& ++found == lines) {
+					return position + i + 1;
+				}
+			}
+		}
+		return 0;
+	}
+
+	private boolean isRotated(String id, String currentId) {
+		return id != null && currentId != null && !id.equals(currentId);
+	}
+
+	private void send(FileChannel channel, long start, long end, String id,
+			HttpServletResponse response) throws IOException {
+		response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+		response.setHeader(POSITION_HEADER, Long.toString(end));
+		if (id != null) {
+			response.setHeader(FILE_HEADER, id);
+		}
+		WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+		long position = start;
+		while (position < end) {
+			long transferred = channel.transferTo(position, end - position, target);
+			if (transferred <= 0) {
+				// Truncated while sending. No length was promised so the response just
+				// ends early and the next follow request sees a shorter file
+				break;
+			}
+			position += transferred;
+		}
+		response.flushBuffer();
+	}
+
+	private String getFileId(File file) {
+		return (FILE_ATTRIBUTES_PRESENT ? FileIds.get(file) : null);
+	}
+
+	private File getLogFile() throws IOException {
+		Resource resource = getLogFileResource();
+		if (resource == null || !resource.exists()) {
+			return null;
+		}
+		return resource.getFile();
+	}
+
 	private Resource getLogFileResource() {
 		if (this.externalFile != null) {
 			return new FileSystemResource(this.externalFile);
@@ -99,6 +310,33 @@ public class LogFileMvcEndpoint extends AbstractNamedMvcEndpoint {
 		return new FileSystemResource(logFile.toString());
 	}
 
+	/**
+	 * Identifies a file by its key (the inode on most file systems) or, where the file
+	 * system has no keys, by its creation time. Either stays the same while a file is
+	 * renamed, but differs for the file created in its place.
+	 */
+	@UsesJava7
+	private static final class FileIds {
+
+		private FileIds() {
+		}
+
+		static String get(File file) {
+			try {
+				BasicFileAttributes attributes = Files.readAttributes(file.toPath(),
+						BasicFileAttributes.class);
+				Object key = attributes.fileKey();
+				String id = (key != null ? key.toString()
+						: attributes.creationTime().toString());
+				return Integer.toHexString(id.hashCode());
+			}
+			catch (IOException ex) {
+				return null;
+			}
+		}
+
+	}
+
 	/**
 	 * {@link ResourceHttpRequestHandler} to send the log file.
 	 */
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.endpoint.mvc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * {@link OutputStream} that compresses fixed size blocks of its input in parallel and
+ * writes each block as a separate GZip member. The concatenated members form a valid
+ * GZip stream (RFC 1952) that decompresses to the original input with {@code gunzip} or
+ * {@link java.util.zip.GZIPInputStream}. Blocks are compressed with
+ * {@link Deflater#BEST_SPEED} and written in order, with at most two blocks per thread
+ * held in memory. The compression threads are stopped when the stream is finished or
+ * closed, or as soon as a block cannot be compressed or written.
+ *
+ * @author agent (agent@local)
+ */
+class ParallelGzipOutputStream extends FilterOutputStream {
+
+	private static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+	private final ExecutorService executor;
+
+	private final int maxPending;
+
+	private final LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+
+	private final int blockSize;
+
+	private byte[] block;
+
+	private int count;
+
+	private boolean written;
+
+	private boolean finished;
+
+	ParallelGzipOutputStream(OutputStream out, int threads) {
+		this(out, threads, DEFAULT_BLOCK_SIZE);
+	}
+
+	ParallelGzipOutputStream(OutputStream out, int threads, int blockSize) {
+		super(out);
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"gzip-");
+		threadFactory.setDaemon(true);
+		this.executor = Executors.newFixedThreadPool(threads, threadFactory);
+		this.maxPending = threads * 2;
+		this.blockSize = blockSize;
+		this.block = new byte[blockSize];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		this.block[this.count++] = (byte) b;
+		if (this.count == this.blockSize) {
+			submitBlock();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			int length = Math.min(len, this.blockSize - this.count);
+			System.arraycopy(b, off, this.block, this.count, length);
+			this.count += length;
+			off += length;
+			len -= length;
+			if (this.count == this.blockSize) {
+				submitBlock();
+			}
+		}
+	}
+
+	/**
+	 * Compress and write any remaining input without closing the underlying stream.
+	 * @throws IOException on IO error
+	 */
+	public void finish() throws IOException {
+		if (this.finished) {
+			return;
+		}
+		this.finished = true;
+		try {
+			if (this.count > 0 || !this.written) {
+				// An empty input still needs one (empty) member to be valid GZip
+				submitBlock();
+			}
+			while (!this.pending.isEmpty()) {
+				writePending();
+			}
+			this.out.flush();
+		}
+		finally {
+			this.executor.shutdownNow();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		}
+		finally {
+			this.executor.shutdownNow();
+			this.out.close();
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		if (this.executor.isShutdown()) {
+			throw new IOException("Stream closed");
+		}
+		final byte[] input = this.block;
+		final int length = this.count;
+		this.pending.add(this.executor.submit(new Callable<byte[]>() {
+
+			@Override
+			public byte[] call() throws Exception {
+				return compress(input, length);
+			}
+
+		}));
+		this.written = true;
+		this.block = new byte[this.blockSize];
+		this.count = 0;
+		if (this.pending.size() >= this.maxPending) {
+			writePending();
+		}
+	}
+
+	private void writePending() throws IOException {
+		Future<byte[]> future = this.pending.removeFirst();
+		try {
+			this.out.write(getCompressed(future));
+		}
+		catch (IOException ex) {
+			// Nothing more can be written so stop compressing
+			this.finished = true;
+			this.pending.clear();
+			this.executor.shutdownNow();
+			throw ex;
+		}
+	}
+
+	private byte[] getCompressed(Future<byte[]> future) throws IOException {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing");
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private static byte[] compress(byte[] input, int length) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(length / 2 + 64);
+		GZIPOutputStream gzip = new GZIPOutputStream(output) {
+
+			{
+				this.def.setLevel(Deflater.BEST_SPEED);
+			}
+
+		};
+		gzip.write(input, 0, length);
+		gzip.close();
+		return output.toByteArray();
+	}
+
+}
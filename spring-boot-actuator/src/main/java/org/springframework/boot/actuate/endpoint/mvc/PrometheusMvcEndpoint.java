@@ -0,0 +1,303 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.endpoint.mvc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.actuate.endpoint.MetricsEndpoint;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * {@link MvcEndpoint} to expose the metrics of a {@link MetricsEndpoint} in the
+ * Prometheus text exposition format. Metrics are written straight to the response as
+ * they are read from each {@link PublicMetrics} rather than being collected into a map
+ * and serialized, and the response is compressed if the client accepts gzip. Metric
+ * names are sanitized to the characters that Prometheus allows (e.g.
+ * {@code counter.status.200.root} becomes {@code counter_status_200_root}). All metrics
+ * are exposed as gauges, including {@code counter.*} metrics as they can be decremented
+ * and reset. If several metrics in a scrape have the same sanitized name, only the one
+ * that was read first is exposed. Sanitized names are cached and whole numbers are
+ * written straight into the response buffer without being formatted as strings.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+@ConfigurationProperties(prefix = "endpoints.prometheus")
+@HypermediaDisabled
+public class PrometheusMvcEndpoint extends AbstractNamedMvcEndpoint {
+
+	private static final String CONTENT_TYPE = "text/plain;version=0.0.4;charset=utf-8";
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	static final int SAMPLE_CACHE_SIZE = 4096;
+
+	private final MetricsEndpoint delegate;
+
+	private final ConcurrentMap<String, Sample> samples = new ConcurrentHashMap<String, Sample>();
+
+	public PrometheusMvcEndpoint(MetricsEndpoint delegate) {
+		super("prometheus", "/prometheus", true);
+		this.delegate = delegate;
+	}
+
+	@RequestMapping(method = RequestMethod.GET, produces = MediaType.TEXT_PLAIN_VALUE)
+	public void invoke(HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		if (!isEnabled()) {
+			response.setStatus(HttpStatus.NOT_FOUND.value());
+			return;
+		}
+		response.setContentType(CONTENT_TYPE);
+		response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		OutputStream output = response.getOutputStream();
+		GZIPOutputStream gzip = null;
+		if (acceptsGzip(request)) {
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+			gzip = new GZIPOutputStream(output, BUFFER_SIZE);
+			output = gzip;
+		}
+		AsciiOutput ascii = new AsciiOutput(output);
+		write(ascii);
+		ascii.flush();
+		if (gzip != null) {
+			gzip.finish();
+		}
+	}
+
+	private boolean acceptsGzip(HttpServletRequest request) {
+		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String encoding : StringUtils
+				.commaDelimitedListToStringArray(acceptEncoding)) {
+			encoding = encoding.trim();
+			if (encoding.startsWith("gzip") && !encoding.replace(" ", "")
+					.matches("gzip;q=0(\\.0*)?")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void write(AsciiOutput output) throws IOException {
+		Set<String> written = new HashSet<String>();
+		for (PublicMetrics publicMetrics : this.delegate.getPublicMetrics()) {
+			Collection<Metric<?>> metrics;
+			try {
+				metrics = publicMetrics.metrics();
+			}
+			catch (Exception ex) {
+				// Could not evaluate metrics
+				continue;
+			}
+			for (Metric<?> metric : metrics) {
+				Number value = metric.getValue();
+				if (value != null) {
+					Sample sample = getSample(metric.getName());
+					if (written.add(sample.name)) {
+						output.write(sample.prefix);
+						write(output, value);
+						output.write('\n');
+					}
+				}
+			}
+		}
+	}
+
+	private Sample getSample(String metricName) {
+		Sample sample = this.samples.get(metricName);
+		if (sample == null) {
+			sample = new Sample(sanitize(metricName));
+			if (this.samples.size() >= SAMPLE_CACHE_SIZE) {
+				// Metric names come and go, so start again rather than grow forever
+				this.samples.clear();
+			}
+			this.samples.put(metricName, sample);
+		}
+		return sample;
+	}
+
+	private static String sanitize(String metricName) {
+		StringBuilder name = new StringBuilder(metricName.length() + 1);
+		if (metricName.isEmpty() || Character.isDigit(metricName.charAt(0))) {
+			name.append('_');
+		}
+		for (int i = 0; i < metricName.length(); i++) {
+			char c = metricName.charAt(i);
+			boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+					|| (c >= '0' && c <= '9') || c == '_' || c == ':';
+			name.append(valid ? c : '_');
+		}
+		return name.toString();
+	}
+
+	private static void write(AsciiOutput output, Number value) throws IOException {
+		if (value instanceof Long || value instanceof Integer || value instanceof Short
+				|| value instanceof Byte) {
+			output.write(value.longValue());
+		}
+		else if (value instanceof Double || value instanceof Float) {
+			double doubleValue = value.doubleValue();
+			if (Double.isNaN(doubleValue)) {
+				output.write("NaN");
+			}
+			else if (Double.isInfinite(doubleValue)) {
+				output.write(doubleValue > 0 ? "+Inf" : "-Inf");
+			}
+			else {
+				output.write(value.toString());
+			}
+		}
+		else {
+			output.write(value.toString());
+		}
+	}
+
+	/**
+	 * The sanitized name of a metric and the (ASCII) text that precedes its value, e.g.
+	 * {@code "# TYPE foo_bar gauge\nfoo_bar "}.
+	 */
+	private static class Sample {
+
+		private final String name;
+
+		private final byte[] prefix;
+
+		Sample(String name) {
+			this.name = name;
+			this.prefix = ("# TYPE " + name + " gauge\n" + name + " ").getBytes(ASCII);
+		}
+
+	}
+
+	/**
+	 * Unsynchronized buffer for writing ASCII text to an {@link OutputStream} without
+	 * going through a charset encoder. Every character that is written is either part of
+	 * a sanitized metric name or of a formatted number so is known to be ASCII.
+	 */
+	private static class AsciiOutput {
+
+		private final OutputStream output;
+
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+
+		private int count;
+
+		AsciiOutput(OutputStream output) {
+			this.output = output;
+		}
+
+		void write(byte[] bytes) throws IOException {
+			if (bytes.length > this.buffer.length - this.count) {
+				flushBuffer();
+				if (bytes.length > this.buffer.length) {
+					this.output.write(bytes);
+					return;
+				}
+			}
+			System.arraycopy(bytes, 0, this.buffer, this.count, bytes.length);
+			this.count += bytes.length;
+		}
+
+		void write(String text) throws IOException {
+			int length = text.length();
+			if (length > this.buffer.length - this.count) {
+				flushBuffer();
+				if (length > this.buffer.length) {
+					this.output.write(text.getBytes(ASCII));
+					return;
+				}
+			}
+			for (int i = 0; i < length; i++) {
+				this.buffer[this.count++] = (byte) text.charAt(i);
+			}
+		}
+
+		void write(char c) throws IOException {
+			if (this.count == this.buffer.length) {
+				flushBuffer();
+			}
+			this.buffer[this.count++] = (byte) c;
+		}
+
+		void write(long value) throws IOException {
+			if (value == Long.MIN_VALUE) {
+				write(Long.toString(value));
+				return;
+			}
+			if (this.buffer.length - this.count < 20) {
+				flushBuffer();
+			}
+			if (value < 0) {
+				this.buffer[this.count++] = '-';
+				value = -value;
+			}
+			int end = this.count + digits(value);
+			for (int i = end - 1; i >= this.count; i--) {
+				this.buffer[i] = (byte) ('0' + (value % 10));
+				value /= 10;
+			}
+			this.count = end;
+		}
+
+		private int digits(long value) {
+			int digits = 1;
+			while (value >= 10) {
+				value /= 10;
+				digits++;
+			}
+			return digits;
+		}
+
+		void flush() throws IOException {
+			flushBuffer();
+			this.output.flush();
+		}
+
+		private void flushBuffer() throws IOException {
+			if (this.count > 0) {
+				this.output.write(this.buffer, 0, this.count);
+				this.count = 0;
+			}
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2015 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,11 +18,27 @@ package org.springframework.boot.actuate.health;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.springframework.util.Assert;
 
 /**
  * {@link HealthIndicator} that returns health indications from all registered delegates.
+ * By default the delegates are invoked one after another in the calling thread. If an
+ * {@link #setExecutor(Executor) executor} is set they are invoked concurrently instead,
+ * each delegate that has not responded within the {@link #setTimeout(long) timeout} of
+ * starting is reported with the {@link #setTimeoutStatus(Status) timeout status} and the
+ * time taken by each delegate is added to its details as {@code elapsed} (in
+ * milliseconds). A delegate that is queued behind others has the same time to start,
+ * and one that the executor rejects is invoked in the calling thread.
  *
  * <p>
  *     HealthIndicator，返回所有已注册代表的健康指示。
@@ -39,6 +55,12 @@ public class CompositeHealthIndicator implements HealthIndicator {
 
 	private final HealthAggregator healthAggregator;
 
+	private Executor executor;
+
+	private long timeout = 10000;
+
+	private Status timeoutStatus = Status.UNKNOWN;
+
 	/**
 	 * Create a new {@link CompositeHealthIndicator}.
 	 * @param healthAggregator the health aggregator
@@ -65,8 +87,41 @@ public class CompositeHealthIndicator implements HealthIndicator {
 		this.indicators.put(name, indicator);
 	}
 
+	/**
+	 * Set the executor used to invoke the delegates concurrently. If not set (the
+	 * default) the delegates are invoked one after another in the calling thread.
+	 * @param executor the executor or {@code null}
+	 * @since 1.5.10
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Set the time to wait for each delegate, from when it starts, when they are invoked
+	 * concurrently.
+	 * @param timeout the timeout in milliseconds (default 10000)
+	 * @since 1.5.10
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Set the status reported for a delegate that has not responded within the timeout.
+	 * @param timeoutStatus the timeout status (default {@link Status#UNKNOWN})
+	 * @since 1.5.10
+	 */
+	public void setTimeoutStatus(Status timeoutStatus) {
+		Assert.notNull(timeoutStatus, "TimeoutStatus must not be null");
+		this.timeoutStatus = timeoutStatus;
+	}
+
 	@Override
 	public Health health() {
+		if (this.executor != null) {
+			return this.healthAggregator.aggregate(invokeConcurrently());
+		}
 		Map<String, Health> healths = new LinkedHashMap<String, Health>();
 		for (Map.Entry<String, HealthIndicator> entry : this.indicators.entrySet()) {
 			healths.put(entry.getKey(), entry.getValue().health());
@@ -74,4 +129,144 @@ public class CompositeHealthIndicator implements HealthIndicator {
 		return this.healthAggregator.aggregate(healths);
 	}
 
+	private Map<String, Health> invokeConcurrently() {
+		Map<String, HealthTask> tasks = new LinkedHashMap<String, HealthTask>();
+		for (Map.Entry<String, HealthIndicator> entry : this.indicators.entrySet()) {
+			HealthTask task = new HealthTask(entry.getValue());
+			try {
+				this.executor.execute(task);
+			}
+			catch (RejectedExecutionException ex) {
+				task.run();
+			}
+			tasks.put(entry.getKey(), task);
+		}
+		Map<String, Health> healths = new LinkedHashMap<String, Health>();
+		for (Map.Entry<String, HealthTask> entry : tasks.entrySet()) {
+			healths.put(entry.getKey(), getHealth(entry.getValue()));
+		}
+		return healths;
+	}
+
+	private Health getHealth(HealthTask task) {
+		try {
+			// A delegate still queued behind others gets the timeout to start as well
+			if (!task.awaitStart(this.timeout) && task.abandon()) {
+				return Health.status(this.timeoutStatus).withDetail("error",
+						"Not started within " + this.timeout + "ms").build();
+			}
+			long deadline = task.awaitStart()
+					+ TimeUnit.MILLISECONDS.toNanos(this.timeout);
+			return task.get(Math.max(deadline - System.nanoTime(), 0),
+					TimeUnit.NANOSECONDS);
+		}
+		catch (ExecutionException ex) {
+			// Not expected since the callable handles exceptions
+			return Health.down().withDetail("error", ex.getCause().toString()).build();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		catch (TimeoutException ex) {
+			// Fall through
+		}
+		task.cancel(true);
+		Health.Builder builder = Health.status(this.timeoutStatus).withDetail("error",
+				"Timed out after " + this.timeout + "ms");
+		if (task.isStarted()) {
+			builder.withDetail("elapsed", elapsedSince(task.getStartTime()));
+		}
+		return builder.build();
+	}
+
+	private static long elapsedSince(long start) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	/**
+	 * {@link FutureTask} that invokes a {@link HealthIndicator} unless it is abandoned
+	 * before it starts.
+	 */
+	private static class HealthTask extends FutureTask<Health> {
+
+		private final TimedHealthCallable callable;
+
+		HealthTask(HealthIndicator indicator) {
+			this(new TimedHealthCallable(indicator));
+		}
+
+		private HealthTask(TimedHealthCallable callable) {
+			super(callable);
+			this.callable = callable;
+		}
+
+		boolean isStarted() {
+			return this.callable.started.getCount() == 0;
+		}
+
+		boolean awaitStart(long timeout) throws InterruptedException {
+			return this.callable.started.await(timeout, TimeUnit.MILLISECONDS);
+		}
+
+		long awaitStart() throws InterruptedException {
+			this.callable.started.await();
+			return this.callable.startTime;
+		}
+
+		long getStartTime() {
+			return this.callable.startTime;
+		}
+
+		/**
+		 * Stop the indicator from being invoked if no thread has claimed it yet.
+		 * @return {@code true} if the indicator will not be invoked
+		 */
+		boolean abandon() {
+			if (this.callable.claimed.compareAndSet(false, true)) {
+				cancel(false);
+				return true;
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * {@link Callable} that invokes a {@link HealthIndicator} and adds the time it took
+	 * to the details of the result.
+	 */
+	private static class TimedHealthCallable implements Callable<Health> {
+
+		private final HealthIndicator indicator;
+
+		private final AtomicBoolean claimed = new AtomicBoolean();
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private volatile long startTime;
+
+		TimedHealthCallable(HealthIndicator indicator) {
+			this.indicator = indicator;
+		}
+
+		@Override
+		public Health call() {
+			if (!this.claimed.compareAndSet(false, true)) {
+				return null;
+			}
+			this.startTime = System.nanoTime();
+			this.started.countDown();
+			Health health;
+			try {
+				health = this.indicator.health();
+			}
+			catch (Exception ex) {
+				health = Health.down(ex).build();
+			}
+			return new Health.Builder(health.getStatus(), health.getDetails())
+					.withDetail("elapsed", elapsedSince(this.startTime)).build();
+		}
+
+	}
+
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.health;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Refreshes the {@link Health} of {@link HealthIndicator}s in the background, each on its
+ * own interval, so that reading their health never invokes the underlying checks. Each
+ * {@link #register(HealthIndicator, long) registered} indicator is replaced by one that
+ * returns the latest snapshot, with the age of the snapshot (in milliseconds) in its
+ * details. A snapshot that has not been refreshed for two intervals (e.g. because the
+ * check is hanging) is also flagged as {@code stale}. Until the first check has completed
+ * the status is {@link Status#UNKNOWN}.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+public class HealthProber implements SmartLifecycle {
+
+	private static final Log logger = LogFactory.getLog(HealthProber.class);
+
+	private final int threads;
+
+	private final List<SnapshotHealthIndicator> indicators = new ArrayList<SnapshotHealthIndicator>();
+
+	private final Object monitor = new Object();
+
+	private ScheduledThreadPoolExecutor executor;
+
+	/**
+	 * Create a new {@link HealthProber} using the given number of threads to run the
+	 * checks.
+	 * @param threads the number of threads
+	 */
+	public HealthProber(int threads) {
+		Assert.isTrue(threads > 0, "Threads must be greater than 0");
+		this.threads = threads;
+	}
+
+	/**
+	 * Register a {@link HealthIndicator} to be refreshed every {@code interval}
+	 * milliseconds.
+	 * @param indicator the indicator to refresh
+	 * @param interval the time between the end of one check and the start of the next,
+	 * in milliseconds
+	 * @return a {@link HealthIndicator} that returns the latest snapshot
+	 */
+	public HealthIndicator register(HealthIndicator indicator, long interval) {
+		Assert.notNull(indicator, "Indicator must not be null");
+		Assert.isTrue(interval > 0, "Interval must be greater than 0");
+		SnapshotHealthIndicator snapshot = new SnapshotHealthIndicator(indicator,
+				interval);
+		synchronized (this.monitor) {
+			this.indicators.add(snapshot);
+			if (this.executor != null) {
+				schedule(snapshot);
+			}
+		}
+		return snapshot;
+	}
+
+	@Override
+	public void start() {
+		synchronized (this.monitor) {
+			if (this.executor == null) {
+				CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+						"health-prober-");
+				threadFactory.setDaemon(true);
+				this.executor = new ScheduledThreadPoolExecutor(this.threads,
+						threadFactory);
+				for (SnapshotHealthIndicator indicator : this.indicators) {
+					schedule(indicator);
+				}
+			}
+		}
+	}
+
+	private void schedule(SnapshotHealthIndicator indicator) {
+		this.executor.scheduleWithFixedDelay(indicator, 0, indicator.interval,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void stop() {
+		synchronized (this.monitor) {
+			if (this.executor != null) {
+				this.executor.shutdownNow();
+				this.executor = null;
+			}
+		}
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+
+	@Override
+	public boolean isRunning() {
+		synchronized (this.monitor) {
+			return this.executor != null;
+		}
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return true;
+	}
+
+	@Override
+	public int getPhase() {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * {@link HealthIndicator} that returns the last {@link Health} of its delegate and
+	 * refreshes it when run.
+	 */
+	private static class SnapshotHealthIndicator implements HealthIndicator, Runnable {
+
+		private final HealthIndicator delegate;
+
+		private final long interval;
+
+		private volatile Snapshot snapshot;
+
+		SnapshotHealthIndicator(HealthIndicator delegate, long interval) {
+			this.delegate = delegate;
+			this.interval = interval;
+		}
+
+		@Override
+		public void run() {
+			Health health;
+			try {
+				health = this.delegate.health();
+			}
+			catch (Exception ex) {
+				logger.debug("Health check failed", ex);
+				health = Health.down(ex).build();
+			}
+			this.snapshot = new Snapshot(health, System.currentTimeMillis());
+		}
+
+		@Override
+		public Health health() {
+			Snapshot snapshot = this.snapshot;
+			if (snapshot == null) {
+				return Health.unknown().withDetail("stale", true).build();
+			}
+			long age = System.currentTimeMillis() - snapshot.timestamp;
+			Health.Builder builder = new Health.Builder(snapshot.health.getStatus(),
+					snapshot.health.getDetails()).withDetail("age", age);
+			if (age > 2 * this.interval) {
+				builder.withDetail("stale", true);
+			}
+			return builder.build();
+		}
+
+	}
+
+	/**
+	 * A {@link Health} and the time at which it was checked.
+	 */
+	private static class Snapshot {
+
+		private final Health health;
+
+		private final long timestamp;
+
+		Snapshot(Health health, long timestamp) {
+			this.health = health;
+			this.timestamp = timestamp;
+		}
+
+	}
+
+}
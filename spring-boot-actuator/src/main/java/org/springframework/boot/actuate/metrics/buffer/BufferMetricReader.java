@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2015 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.reader.ChangeTrackingMetricReader;
 import org.springframework.boot.actuate.metrics.reader.MetricReader;
 import org.springframework.boot.actuate.metrics.reader.PrefixMetricReader;
 import org.springframework.lang.UsesJava8;
@@ -36,7 +37,8 @@ import org.springframework.lang.UsesJava8;
  * @since 1.3.0
  */
 @UsesJava8
-public class BufferMetricReader implements MetricReader, PrefixMetricReader {
+public class BufferMetricReader
+		implements MetricReader, PrefixMetricReader, ChangeTrackingMetricReader {
 
 	private static final Predicate<String> ALL = Pattern.compile(".*").asPredicate();
 
@@ -68,26 +70,42 @@ public class BufferMetricReader implements MetricReader, PrefixMetricReader {
 		return findAll(Pattern.compile(prefix + ".*").asPredicate());
 	}
 
+	@Override
+	public Iterable<Metric<?>> findAllUpdatedSince(long timestamp) {
+		return findAll(BufferMetricReader.ALL, timestamp);
+	}
+
+	@Override
+	public Iterable<Metric<?>> findAllUpdatedSince(String prefix, long timestamp) {
+		return findAll(Pattern.compile(prefix + ".*").asPredicate(), timestamp);
+	}
+
 	@Override
 	public long count() {
 		return this.counterBuffers.count() + this.gaugeBuffers.count();
 	}
 
 	private Iterable<Metric<?>> findAll(Predicate<String> predicate) {
+		return findAll(predicate, Long.MIN_VALUE);
+	}
+
+	private Iterable<Metric<?>> findAll(Predicate<String> predicate, long timestamp) {
 		final List<Metric<?>> metrics = new ArrayList<Metric<?>>();
-		collectMetrics(this.gaugeBuffers, predicate, metrics);
-		collectMetrics(this.counterBuffers, predicate, metrics);
+		collectMetrics(this.gaugeBuffers, predicate, timestamp, metrics);
+		collectMetrics(this.counterBuffers, predicate, timestamp, metrics);
 		return metrics;
 	}
 
 	private <T extends Number, B extends Buffer<T>> void collectMetrics(
-			Buffers<B> buffers, Predicate<String> predicate,
+			Buffers<B> buffers, Predicate<String> predicate, final long timestamp,
 			final List<Metric<?>> metrics) {
 		buffers.forEach(predicate, new BiConsumer<String, B>() {
 
 			@Override
 			public void accept(String name, B value) {
-				metrics.add(asMetric(name, value));
+				if (value.getTimestamp() >= timestamp) {
+					metrics.add(asMetric(name, value));
+				}
 			}
 
 		});
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2015 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -59,6 +59,17 @@ abstract class Buffers<B extends Buffer<?>> {
 	}
 
 	protected final void doWith(final String name, final Consumer<B> consumer) {
+		consumer.accept(getOrCreate(name));
+	}
+
+	/**
+	 * Return the buffer with the given name, creating it if necessary. Unlike
+	 * {@link #doWith(String, Consumer)} this method does not require a callback so it
+	 * can be used on hot paths without allocating.
+	 * @param name the name of the buffer
+	 * @return the buffer (never {@code null})
+	 */
+	protected final B getOrCreate(final String name) {
 		B buffer = this.buffers.get(name);
 		if (buffer == null) {
 			buffer = this.buffers.computeIfAbsent(name, new Function<String, B>() {
@@ -68,7 +79,7 @@ abstract class Buffers<B extends Buffer<?>> {
 				}
 			});
 		}
-		consumer.accept(buffer);
+		return buffer;
 	}
 
 	protected abstract B createBuffer();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2015 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -29,16 +29,10 @@ import org.springframework.lang.UsesJava8;
 @UsesJava8
 public class CounterBuffers extends Buffers<CounterBuffer> {
 
-	public void increment(final String name, final long delta) {
-		doWith(name, new Consumer<CounterBuffer>() {
-
-			@Override
-			public void accept(CounterBuffer buffer) {
-				buffer.setTimestamp(System.currentTimeMillis());
-				buffer.add(delta);
-			}
-
-		});
+	public void increment(String name, long delta) {
+		CounterBuffer buffer = getOrCreate(name);
+		buffer.setTimestamp(System.currentTimeMillis());
+		buffer.add(delta);
 	}
 
 	public void reset(final String name) {
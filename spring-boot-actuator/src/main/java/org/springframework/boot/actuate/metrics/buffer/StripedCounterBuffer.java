@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.buffer;
+
+import org.springframework.lang.UsesJava8;
+
+/**
+ * {@link CounterBuffer} that does not touch the clock when it is updated. Writers only
+ * mark the buffer as dirty (a plain read of a volatile flag once it has been set) and
+ * the timestamp is resolved lazily, when the value is read, so that concurrent
+ * increments never contend on a shared timestamp field.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+@UsesJava8
+public class StripedCounterBuffer extends CounterBuffer {
+
+	private volatile boolean dirty;
+
+	public StripedCounterBuffer(long timestamp) {
+		super(timestamp);
+	}
+
+	@Override
+	public void add(long delta) {
+		super.add(delta);
+		markDirty();
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		markDirty();
+	}
+
+	@Override
+	public long getTimestamp() {
+		resolveTimestamp();
+		return super.getTimestamp();
+	}
+
+	@Override
+	public Long getValue() {
+		// Resolve the timestamp before summing the cells so that any update that is
+		// not included in the sum leaves the buffer dirty for the next read
+		resolveTimestamp();
+		return super.getValue();
+	}
+
+	private void markDirty() {
+		if (!this.dirty) {
+			this.dirty = true;
+		}
+	}
+
+	private void resolveTimestamp() {
+		if (this.dirty) {
+			this.dirty = false;
+			setTimestamp(System.currentTimeMillis());
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.buffer;
+
+import org.springframework.lang.UsesJava8;
+
+/**
+ * {@link CounterBuffers} optimized for highly contended counters. Updates go straight
+ * to a {@link StripedCounterBuffer} without allocating a callback or reading the clock,
+ * and the striped cells are only merged (and the timestamp resolved) when the value is
+ * read, typically by a {@link BufferMetricReader}. Timestamps are therefore only as
+ * precise as the interval between reads.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+@UsesJava8
+public class StripedCounterBuffers extends CounterBuffers {
+
+	@Override
+	public void increment(String name, long delta) {
+		getOrCreate(name).add(delta);
+	}
+
+	@Override
+	public void reset(String name) {
+		getOrCreate(name).reset();
+	}
+
+	@Override
+	protected CounterBuffer createBuffer() {
+		return new StripedCounterBuffer(0);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,12 +23,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.reader.ChangeTrackingMetricReader;
 import org.springframework.util.StringUtils;
 
 /**
@@ -55,6 +58,8 @@ public abstract class AbstractMetricExporter implements Exporter, Closeable, Flu
 
 	private Date latestTimestamp = new Date(0L);
 
+	private final ConcurrentMap<String, String> prefixedNames = new ConcurrentHashMap<String, String>();
+
 	public AbstractMetricExporter(String prefix) {
 		this.prefix = (!StringUtils.hasText(prefix) ? ""
 				: (prefix.endsWith(".") ? prefix : prefix + "."));
@@ -104,9 +109,10 @@ public abstract class AbstractMetricExporter implements Exporter, Closeable, Flu
 	}
 
 	private void exportGroups() {
+		Date since = getEarliestExportableTimestamp();
 		for (String group : groups()) {
 			Collection<Metric<?>> values = new ArrayList<Metric<?>>();
-			for (Metric<?> metric : next(group)) {
+			for (Metric<?> metric : next(group, since)) {
 				Date timestamp = metric.getTimestamp();
 				if (canExportTimestamp(timestamp)) {
 					values.add(getPrefixedMetric(metric));
@@ -118,8 +124,25 @@ public abstract class AbstractMetricExporter implements Exporter, Closeable, Flu
 		}
 	}
 
+	private Date getEarliestExportableTimestamp() {
+		if (this.ignoreTimestamps) {
+			return null;
+		}
+		if (this.sendLatest && this.latestTimestamp.after(this.earliestTimestamp)) {
+			return this.latestTimestamp;
+		}
+		return this.earliestTimestamp;
+	}
+
 	private Metric<?> getPrefixedMetric(Metric<?> metric) {
-		String name = this.prefix + metric.getName();
+		if (this.prefix.isEmpty()) {
+			return metric;
+		}
+		String name = this.prefixedNames.get(metric.getName());
+		if (name == null) {
+			name = this.prefix + metric.getName();
+			this.prefixedNames.put(metric.getName(), name);
+		}
 		return new Metric<Number>(name, metric.getValue(), metric.getTimestamp());
 	}
 
@@ -181,4 +204,20 @@ public abstract class AbstractMetricExporter implements Exporter, Closeable, Flu
 	 */
 	protected abstract Iterable<Metric<?>> next(String group);
 
+	/**
+	 * Get the next group of metrics to write, given the earliest timestamp that will be
+	 * exported. Metrics with an earlier timestamp are discarded anyway, so subclasses
+	 * that can find the updated metrics efficiently (e.g. using a
+	 * {@link ChangeTrackingMetricReader}) should override this method to avoid visiting
+	 * the others. The default implementation delegates to {@link #next(String)}.
+	 * @param group the group name to write
+	 * @param since the earliest timestamp that will be exported or {@code null} if all
+	 * metrics are exported
+	 * @return some metrics to write
+	 * @since 1.5.10
+	 */
+	protected Iterable<Metric<?>> next(String group, Date since) {
+		return next(group);
+	}
+
 }
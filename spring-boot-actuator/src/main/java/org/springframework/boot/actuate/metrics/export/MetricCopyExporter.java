@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.boot.actuate.metrics.export;
 import java.io.Flushable;
 import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -27,6 +28,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.reader.ChangeTrackingMetricReader;
 import org.springframework.boot.actuate.metrics.reader.MetricReader;
 import org.springframework.boot.actuate.metrics.writer.CompositeMetricWriter;
 import org.springframework.boot.actuate.metrics.writer.CounterWriter;
@@ -118,10 +120,23 @@ public class MetricCopyExporter extends AbstractMetricExporter {
 
 	@Override
 	protected Iterable<Metric<?>> next(String group) {
+		return filter(this.reader.findAll());
+	}
+
+	@Override
+	protected Iterable<Metric<?>> next(String group, Date since) {
+		if (since != null && this.reader instanceof ChangeTrackingMetricReader) {
+			return filter(((ChangeTrackingMetricReader) this.reader)
+					.findAllUpdatedSince(since.getTime()));
+		}
+		return next(group);
+	}
+
+	private Iterable<Metric<?>> filter(Iterable<Metric<?>> metrics) {
 		if (ObjectUtils.isEmpty(this.includes) && ObjectUtils.isEmpty(this.excludes)) {
-			return this.reader.findAll();
+			return metrics;
 		}
-		return new PatternMatchingIterable(MetricCopyExporter.this.reader);
+		return new PatternMatchingIterable(metrics);
 	}
 
 	@Override
@@ -179,15 +194,15 @@ public class MetricCopyExporter extends AbstractMetricExporter {
 
 	private class PatternMatchingIterable implements Iterable<Metric<?>> {
 
-		private final MetricReader reader;
+		private final Iterable<Metric<?>> metrics;
 
-		PatternMatchingIterable(MetricReader reader) {
-			this.reader = reader;
+		PatternMatchingIterable(Iterable<Metric<?>> metrics) {
+			this.metrics = metrics;
 		}
 
 		@Override
 		public Iterator<Metric<?>> iterator() {
-			return new PatternMatchingIterator(this.reader.findAll().iterator());
+			return new PatternMatchingIterator(this.metrics.iterator());
 		}
 
 	}
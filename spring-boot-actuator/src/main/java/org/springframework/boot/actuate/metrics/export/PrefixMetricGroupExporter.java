@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,12 +17,14 @@
 package org.springframework.boot.actuate.metrics.export;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.reader.ChangeTrackingMetricReader;
 import org.springframework.boot.actuate.metrics.reader.PrefixMetricReader;
 import org.springframework.boot.actuate.metrics.repository.MultiMetricRepository;
 import org.springframework.boot.actuate.metrics.writer.Delta;
@@ -91,6 +93,15 @@ public class PrefixMetricGroupExporter extends AbstractMetricExporter {
 		return this.reader.findAll(group);
 	}
 
+	@Override
+	protected Iterable<Metric<?>> next(String group, Date since) {
+		if (since != null && this.reader instanceof ChangeTrackingMetricReader) {
+			return ((ChangeTrackingMetricReader) this.reader).findAllUpdatedSince(group,
+					since.getTime());
+		}
+		return next(group);
+	}
+
 	@Override
 	protected void write(String group, Collection<Metric<?>> values) {
 		if (group.contains("counter.")) {
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.histogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed memory histogram of positive {@code double} values using logarithmic buckets (in
+ * the style of an HDR histogram). Each power of two between 2<sup>-16</sup> and
+ * 2<sup>47</sup> is split into 16 linear sub-buckets so estimated percentiles are within
+ * about 6% of the recorded values. Recording is lock-free and does not allocate. Values
+ * outside the supported range are clamped to the first or last bucket.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+public class Histogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int MIN_EXPONENT = -16;
+
+	private static final int MAX_EXPONENT = 47;
+
+	static final int BUCKETS = (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+
+	private static final long INITIAL_MIN = Double
+			.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+
+	private static final long INITIAL_MAX = Double
+			.doubleToRawLongBits(Double.NEGATIVE_INFINITY);
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLong sum = new AtomicLong(Double.doubleToRawLongBits(0.0));
+
+	private final AtomicLong min = new AtomicLong(INITIAL_MIN);
+
+	private final AtomicLong max = new AtomicLong(INITIAL_MAX);
+
+	/**
+	 * Record a value.
+	 * @param value the value to record
+	 */
+	public void record(double value) {
+		this.counts.incrementAndGet(bucket(value));
+		add(this.sum, value);
+		updateMin(value);
+		updateMax(value);
+	}
+
+	/**
+	 * Return a snapshot of the values recorded since the histogram was created or last
+	 * reset.
+	 * @param reset if the histogram should be reset as the snapshot is taken. Values
+	 * recorded concurrently are attributed to either this snapshot or the next one.
+	 * @return the snapshot
+	 */
+	public HistogramSnapshot snapshot(boolean reset) {
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = (reset ? this.counts.getAndSet(i, 0) : this.counts.get(i));
+			count += counts[i];
+		}
+		double sum = Double.longBitsToDouble(reset
+				? this.sum.getAndSet(Double.doubleToRawLongBits(0.0)) : this.sum.get());
+		double min = Double.longBitsToDouble(
+				reset ? this.min.getAndSet(INITIAL_MIN) : this.min.get());
+		double max = Double.longBitsToDouble(
+				reset ? this.max.getAndSet(INITIAL_MAX) : this.max.get());
+		return new HistogramSnapshot(counts, count, sum, min, max);
+	}
+
+	/**
+	 * Reset the histogram, discarding the values recorded so far. Values recorded
+	 * concurrently may or may not be discarded.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.counts.set(i, 0);
+		}
+		this.sum.set(Double.doubleToRawLongBits(0.0));
+		this.min.set(INITIAL_MIN);
+		this.max.set(INITIAL_MAX);
+	}
+
+	private void add(AtomicLong target, double value) {
+		while (true) {
+			long current = target.get();
+			long updated = Double
+					.doubleToRawLongBits(Double.longBitsToDouble(current) + value);
+			if (target.compareAndSet(current, updated)) {
+				return;
+			}
+		}
+	}
+
+	private void updateMin(double value) {
+		long current = this.min.get();
+		while (value < Double.longBitsToDouble(current)) {
+			if (this.min.compareAndSet(current, Double.doubleToRawLongBits(value))) {
+				return;
+			}
+			current = this.min.get();
+		}
+	}
+
+	private void updateMax(double value) {
+		long current = this.max.get();
+		while (value > Double.longBitsToDouble(current)) {
+			if (this.max.compareAndSet(current, Double.doubleToRawLongBits(value))) {
+				return;
+			}
+			current = this.max.get();
+		}
+	}
+
+	static int bucket(double value) {
+		if (!(value > 0.0)) {
+			return 0;
+		}
+		long bits = Double.doubleToRawLongBits(value);
+		int exponent = (int) ((bits >>> 52) & 0x7ff) - 1023;
+		if (exponent < MIN_EXPONENT) {
+			return 0;
+		}
+		if (exponent > MAX_EXPONENT) {
+			return BUCKETS - 1;
+		}
+		int subBucket = (int) ((bits >>> (52 - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+		return ((exponent - MIN_EXPONENT) << SUB_BUCKET_BITS) | subBucket;
+	}
+
+	static double lowerBound(int bucket) {
+		int exponent = (bucket >> SUB_BUCKET_BITS) + MIN_EXPONENT;
+		int subBucket = bucket & (SUB_BUCKETS - 1);
+		return Math.scalb(1.0 + (double) subBucket / SUB_BUCKETS, exponent);
+	}
+
+	static double upperBound(int bucket) {
+		int exponent = (bucket >> SUB_BUCKET_BITS) + MIN_EXPONENT;
+		int subBucket = bucket & (SUB_BUCKETS - 1);
+		return Math.scalb(1.0 + (double) (subBucket + 1) / SUB_BUCKETS, exponent);
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.histogram;
+
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.boot.actuate.metrics.buffer.BufferGaugeService;
+import org.springframework.boot.actuate.metrics.buffer.GaugeBuffers;
+import org.springframework.lang.UsesJava8;
+
+/**
+ * {@link BufferGaugeService} that additionally records the values of selected gauges in
+ * {@link Histograms} so that percentiles can be reported (e.g. for the
+ * {@code response.*} gauges submitted by the metrics filter).
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+@UsesJava8
+public class HistogramGaugeService extends BufferGaugeService {
+
+	private final Histograms histograms;
+
+	private final String[] prefixes;
+
+	/**
+	 * Create a {@link HistogramGaugeService} instance.
+	 * @param buffers the underlying buffers used to store the latest gauge values
+	 * @param histograms the histograms
+	 * @param prefixes the prefixes of the {@link GaugeService#submit(String, double)
+	 * submitted} gauge names that should also be recorded in histograms
+	 */
+	public HistogramGaugeService(GaugeBuffers buffers, Histograms histograms,
+			String... prefixes) {
+		super(buffers);
+		this.histograms = histograms;
+		this.prefixes = prefixes;
+	}
+
+	@Override
+	public void submit(String metricName, double value) {
+		if (isHistogram(metricName)) {
+			this.histograms.record(metricName, value);
+		}
+		super.submit(metricName, value);
+	}
+
+	private boolean isHistogram(String metricName) {
+		for (String prefix : this.prefixes) {
+			if (metricName.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
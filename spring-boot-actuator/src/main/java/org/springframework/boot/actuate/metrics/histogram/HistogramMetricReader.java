@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.histogram;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.reader.MetricReader;
+import org.springframework.boot.actuate.metrics.reader.PrefixMetricReader;
+
+/**
+ * {@link MetricReader} exposing {@link Histograms} as a group of metrics per histogram.
+ * For example, a histogram called {@code response.foo} is read as
+ * {@code [histogram.response.foo.count, histogram.response.foo.min,
+ * histogram.response.foo.max, histogram.response.foo.mean,
+ * histogram.response.foo.p99, ...]}. Names that already start with {@code histogram.}
+ * or {@code timer.} are not prefixed.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+public class HistogramMetricReader implements MetricReader, PrefixMetricReader {
+
+	private static final String PREFIX = "histogram.";
+
+	private final Histograms histograms;
+
+	private final double[] percentiles;
+
+	private final String[] percentileSuffixes;
+
+	/**
+	 * Create a {@link HistogramMetricReader} instance.
+	 * @param histograms the histograms to read
+	 * @param percentiles the percentiles to publish (between 0.0 and 1.0)
+	 */
+	public HistogramMetricReader(Histograms histograms, double... percentiles) {
+		this.histograms = histograms;
+		this.percentiles = percentiles.clone();
+		this.percentileSuffixes = new String[percentiles.length];
+		for (int i = 0; i < percentiles.length; i++) {
+			this.percentileSuffixes[i] = ".p" + BigDecimal.valueOf(percentiles[i] * 100)
+					.stripTrailingZeros().toPlainString().replace(".", "");
+		}
+	}
+
+	@Override
+	public Metric<?> findOne(String metricName) {
+		for (Metric<?> metric : findAll()) {
+			if (metric.getName().equals(metricName)) {
+				return metric;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Iterable<Metric<?>> findAll() {
+		return findAll(null);
+	}
+
+	@Override
+	public Iterable<Metric<?>> findAll(String prefix) {
+		List<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		for (Map.Entry<String, HistogramSnapshot> entry : this.histograms.findAll()
+				.entrySet()) {
+			String name = getName(entry.getKey());
+			if (prefix == null || name.startsWith(prefix)) {
+				addMetrics(metrics, name, entry.getValue());
+			}
+		}
+		return metrics;
+	}
+
+	@Override
+	public long count() {
+		return (long) this.histograms.count() * (4 + this.percentiles.length);
+	}
+
+	private String getName(String histogramName) {
+		if (histogramName.startsWith(PREFIX) || histogramName.startsWith("timer.")) {
+			return histogramName;
+		}
+		return PREFIX + histogramName;
+	}
+
+	private void addMetrics(List<Metric<?>> metrics, String name,
+			HistogramSnapshot snapshot) {
+		metrics.add(new Metric<Long>(name + ".count", snapshot.getCount()));
+		metrics.add(new Metric<Double>(name + ".min", snapshot.getMin()));
+		metrics.add(new Metric<Double>(name + ".max", snapshot.getMax()));
+		metrics.add(new Metric<Double>(name + ".mean", snapshot.getMean()));
+		for (int i = 0; i < this.percentiles.length; i++) {
+			metrics.add(new Metric<Double>(name + this.percentileSuffixes[i],
+					snapshot.getValueAtPercentile(this.percentiles[i])));
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.histogram;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for metrics {@link Histograms}.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+@ConfigurationProperties(prefix = "spring.metrics.histogram")
+public class HistogramProperties {
+
+	/**
+	 * Enable histograms of gauge values.
+	 */
+	private boolean enabled;
+
+	/**
+	 * Prefixes of the gauge names that should be recorded in histograms.
+	 */
+	private String[] prefixes = new String[] { "response.", "timer.", "histogram." };
+
+	/**
+	 * Percentiles (between 0.0 and 1.0) to publish for each histogram.
+	 */
+	private double[] percentiles = new double[] { 0.5, 0.95, 0.99 };
+
+	/**
+	 * Length in milliseconds of the interval after which histograms are reset. Readers
+	 * see the values from the last completed interval, which are empty until the first
+	 * interval has completed. Set to 0 to never reset.
+	 */
+	private long intervalMillis = 60000;
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public String[] getPrefixes() {
+		return this.prefixes;
+	}
+
+	public void setPrefixes(String[] prefixes) {
+		this.prefixes = prefixes;
+	}
+
+	public double[] getPercentiles() {
+		return this.percentiles;
+	}
+
+	public void setPercentiles(double[] percentiles) {
+		this.percentiles = percentiles;
+	}
+
+	public long getIntervalMillis() {
+		return this.intervalMillis;
+	}
+
+	public void setIntervalMillis(long intervalMillis) {
+		this.intervalMillis = intervalMillis;
+	}
+
+}
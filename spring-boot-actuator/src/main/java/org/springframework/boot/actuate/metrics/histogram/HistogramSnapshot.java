@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.histogram;
+
+import org.springframework.util.Assert;
+
+/**
+ * Immutable snapshot of the values recorded by a {@link Histogram}.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+public final class HistogramSnapshot {
+
+	private final long[] counts;
+
+	private final long count;
+
+	private final double sum;
+
+	private final double min;
+
+	private final double max;
+
+	HistogramSnapshot(long[] counts, long count, double sum, double min, double max) {
+		this.counts = counts;
+		this.count = count;
+		this.sum = sum;
+		// Guard against a concurrent reset leaving min or max at its initial value
+		this.min = (count == 0 || Double.isInfinite(min) ? 0.0 : min);
+		this.max = (count == 0 || Double.isInfinite(max) ? 0.0 : max);
+	}
+
+	public long getCount() {
+		return this.count;
+	}
+
+	public double getSum() {
+		return this.sum;
+	}
+
+	public double getMin() {
+		return this.min;
+	}
+
+	public double getMax() {
+		return this.max;
+	}
+
+	public double getMean() {
+		return (this.count == 0 ? 0.0 : this.sum / this.count);
+	}
+
+	/**
+	 * Return an estimate of the value at the given percentile.
+	 * @param percentile the percentile (between 0.0 and 1.0)
+	 * @return the estimated value or {@code 0.0} if no values were recorded
+	 */
+	public double getValueAtPercentile(double percentile) {
+		Assert.isTrue(percentile >= 0.0 && percentile <= 1.0,
+				"Percentile must be between 0.0 and 1.0");
+		if (this.count == 0) {
+			return 0.0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile * this.count));
+		if (rank >= this.count) {
+			return this.max;
+		}
+		long seen = 0;
+		for (int i = 0; i < this.counts.length; i++) {
+			seen += this.counts[i];
+			if (seen >= rank) {
+				double value = (Histogram.lowerBound(i) + Histogram.upperBound(i)) / 2;
+				return Math.min(Math.max(value, this.min), this.max);
+			}
+		}
+		return this.max;
+	}
+
+}
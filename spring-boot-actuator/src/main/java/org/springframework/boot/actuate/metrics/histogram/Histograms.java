@@ -0,0 +1,181 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of named {@link Histogram histograms} with per-interval reset semantics. Reads
+ * return the values of the last completed interval so that several readers (e.g. the
+ * metrics endpoint and an exporter) see the same data. Intervals follow each other from
+ * the time the registry is created. Recording a value never rolls an interval over: a
+ * value recorded after the end of an interval goes to the next one, and the first read
+ * after the end rolls over to it, reusing the histograms of the interval before. If
+ * nothing was read for a whole interval, the values recorded since the end of the last
+ * interval that was read are returned. Until the first interval has completed the
+ * snapshots are empty. If the interval is not positive the values recorded so far are
+ * returned.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+public class Histograms {
+
+	private final ConcurrentMap<String, Entry> histograms = new ConcurrentHashMap<String, Entry>();
+
+	private final long intervalMillis;
+
+	private final Clock clock;
+
+	private volatile long intervalEnd;
+
+	/**
+	 * Create a new {@link Histograms} instance.
+	 * @param intervalMillis the length of each interval in milliseconds or zero to never
+	 * reset
+	 */
+	public Histograms(long intervalMillis) {
+		this(intervalMillis, Clock.SYSTEM);
+	}
+
+	Histograms(long intervalMillis, Clock clock) {
+		this.intervalMillis = intervalMillis;
+		this.clock = clock;
+		this.intervalEnd = clock.currentTimeMillis() + intervalMillis;
+	}
+
+	/**
+	 * Record a value in the histogram with the given name, creating it if necessary.
+	 * @param name the histogram name
+	 * @param value the value
+	 */
+	public void record(String name, double value) {
+		Entry entry = this.histograms.get(name);
+		if (entry == null) {
+			entry = new Entry();
+			Entry existing = this.histograms.putIfAbsent(name, entry);
+			entry = (existing != null ? existing : entry);
+		}
+		boolean ended = (this.intervalMillis > 0
+				&& this.clock.currentTimeMillis() >= this.intervalEnd);
+		(ended ? entry.next : entry.current).record(value);
+	}
+
+	/**
+	 * Return the snapshot for the given histogram.
+	 * @param name the histogram name
+	 * @return the snapshot or {@code null} if there is no such histogram
+	 */
+	public synchronized HistogramSnapshot findOne(String name) {
+		rollIfNecessary();
+		Entry entry = this.histograms.get(name);
+		return (entry == null ? null : getSnapshot(entry));
+	}
+
+	/**
+	 * Return snapshots for all histograms, keyed by name.
+	 * @return the snapshots
+	 */
+	public synchronized Map<String, HistogramSnapshot> findAll() {
+		rollIfNecessary();
+		Map<String, HistogramSnapshot> snapshots = new LinkedHashMap<String, HistogramSnapshot>();
+		for (Map.Entry<String, Entry> entry : this.histograms.entrySet()) {
+			snapshots.put(entry.getKey(), getSnapshot(entry.getValue()));
+		}
+		return snapshots;
+	}
+
+	/**
+	 * Return the number of histograms.
+	 * @return the number of histograms
+	 */
+	public int count() {
+		return this.histograms.size();
+	}
+
+	private HistogramSnapshot getSnapshot(Entry entry) {
+		return (this.intervalMillis > 0 ? entry.completed : entry.current)
+				.snapshot(false);
+	}
+
+	private void rollIfNecessary() {
+		if (this.intervalMillis <= 0) {
+			return;
+		}
+		long now = this.clock.currentTimeMillis();
+		long end = this.intervalEnd;
+		if (now >= end) {
+			// If another interval has ended since then, it was recorded in next as well
+			boolean skipped = (now - end >= this.intervalMillis);
+			for (Entry entry : this.histograms.values()) {
+				entry.roll(skipped);
+			}
+			this.intervalEnd = end
+					+ ((now - end) / this.intervalMillis + 1) * this.intervalMillis;
+		}
+	}
+
+	/**
+	 * Source of the current time.
+	 */
+	interface Clock {
+
+		Clock SYSTEM = new Clock() {
+
+			@Override
+			public long currentTimeMillis() {
+				return System.currentTimeMillis();
+			}
+
+		};
+
+		long currentTimeMillis();
+
+	}
+
+	/**
+	 * The histograms of the current, next and last completed interval for one name.
+	 * Rolling over reuses the histogram of the completed interval for the next one.
+	 */
+	private static final class Entry {
+
+		private volatile Histogram current = new Histogram();
+
+		private volatile Histogram next = new Histogram();
+
+		private volatile Histogram completed = new Histogram();
+
+		void roll(boolean skipped) {
+			Histogram spare = this.completed;
+			if (skipped) {
+				this.completed = this.next;
+				this.current.reset();
+			}
+			else {
+				this.completed = this.current;
+				this.current = this.next;
+			}
+			spare.reset();
+			this.next = spare;
+		}
+
+	}
+
+}
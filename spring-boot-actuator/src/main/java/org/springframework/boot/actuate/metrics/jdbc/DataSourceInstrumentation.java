@@ -0,0 +1,258 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.metrics.histogram.HistogramSnapshot;
+import org.springframework.boot.actuate.metrics.histogram.Histograms;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link BeanPostProcessor} that instruments pooled {@link DataSource} beans (Hikari,
+ * Tomcat, Commons DBCP and Commons DBCP2) to record how long it takes to acquire a
+ * connection, how long connections are held before they are closed and how many
+ * attempts to acquire a connection fail (typically because the pool timed out).
+ * <p>
+ * Each data source is replaced by a class-based proxy so that it can still be injected
+ * as the pool type. Times are recorded in milliseconds in {@link Histograms} that are
+ * reset at the end of each interval. Recording a time does not allocate or lock, but
+ * every connection is wrapped in a JDK proxy so that it can be timed when it is closed.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+public class DataSourceInstrumentation implements BeanPostProcessor {
+
+	private static final String[] POOL_CLASS_NAMES = {
+			"com.zaxxer.hikari.HikariDataSource",
+			"org.apache.tomcat.jdbc.pool.DataSource",
+			"org.apache.commons.dbcp.BasicDataSource",
+			"org.apache.commons.dbcp2.BasicDataSource" };
+
+	private static final String ACQUIRE = ".acquire";
+
+	private static final String HOLD = ".hold";
+
+	private final Histograms histograms;
+
+	private final ConcurrentMap<String, AtomicLong> failures = new ConcurrentHashMap<String, AtomicLong>();
+
+	/**
+	 * Create a new {@link DataSourceInstrumentation} that resets its histograms every
+	 * minute.
+	 */
+	public DataSourceInstrumentation() {
+		this(60000);
+	}
+
+	/**
+	 * Create a new {@link DataSourceInstrumentation}.
+	 * @param intervalMillis the length of each histogram interval in milliseconds or
+	 * zero to never reset
+	 */
+	public DataSourceInstrumentation(long intervalMillis) {
+		this.histograms = new Histograms(intervalMillis);
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName)
+			throws BeansException {
+		return bean;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName)
+			throws BeansException {
+		if (bean instanceof DataSource && !AopUtils.isAopProxy(bean) && isPool(bean)) {
+			return instrument((DataSource) bean, beanName);
+		}
+		return bean;
+	}
+
+	/**
+	 * Return a proxy for the given {@link DataSource} that records statistics under the
+	 * given name.
+	 * @param dataSource the data source to instrument
+	 * @param name the name to record statistics under
+	 * @return the instrumented data source
+	 */
+	public DataSource instrument(DataSource dataSource, String name) {
+		this.failures.putIfAbsent(name, new AtomicLong());
+		ProxyFactory factory = new ProxyFactory(dataSource);
+		factory.setProxyTargetClass(true);
+		factory.addAdvice(new GetConnectionInterceptor(name));
+		return (DataSource) factory.getProxy(dataSource.getClass().getClassLoader());
+	}
+
+	/**
+	 * Return if a data source has been instrumented with the given name.
+	 * @param name the name of the data source
+	 * @return {@code true} if the data source is instrumented
+	 */
+	public boolean isInstrumented(String name) {
+		return this.failures.containsKey(name);
+	}
+
+	/**
+	 * Return the times in milliseconds that it took to acquire connections during the
+	 * last interval.
+	 * @param name the name of the data source
+	 * @return the acquire times or {@code null} if no connection has been acquired
+	 */
+	public HistogramSnapshot getAcquireTimes(String name) {
+		return this.histograms.findOne(name + ACQUIRE);
+	}
+
+	/**
+	 * Return the times in milliseconds that connections closed during the last interval
+	 * were held for.
+	 * @param name the name of the data source
+	 * @return the hold times or {@code null} if no connection has been closed
+	 */
+	public HistogramSnapshot getHoldTimes(String name) {
+		return this.histograms.findOne(name + HOLD);
+	}
+
+	/**
+	 * Return the number of failed attempts to acquire a connection.
+	 * @param name the name of the data source
+	 * @return the number of failures or {@code null} if the data source is not
+	 * instrumented
+	 */
+	public Long getAcquireFailures(String name) {
+		AtomicLong failures = this.failures.get(name);
+		return (failures == null ? null : failures.get());
+	}
+
+	private boolean isPool(Object bean) {
+		ClassLoader classLoader = bean.getClass().getClassLoader();
+		for (String className : POOL_CLASS_NAMES) {
+			if (ClassUtils.isPresent(className, classLoader) && ClassUtils
+					.resolveClassName(className, classLoader).isInstance(bean)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Interceptor for {@link DataSource#getConnection()} that times acquisition and
+	 * wraps the connection to time how long it is held.
+	 */
+	private class GetConnectionInterceptor implements MethodInterceptor {
+
+		private final String acquireName;
+
+		private final String holdName;
+
+		private final AtomicLong failures;
+
+		GetConnectionInterceptor(String name) {
+			this.acquireName = name + ACQUIRE;
+			this.holdName = name + HOLD;
+			this.failures = DataSourceInstrumentation.this.failures.get(name);
+		}
+
+		@Override
+		public Object invoke(MethodInvocation invocation) throws Throwable {
+			if (!"getConnection".equals(invocation.getMethod().getName())) {
+				return invocation.proceed();
+			}
+			long start = System.nanoTime();
+			Connection connection;
+			try {
+				connection = (Connection) invocation.proceed();
+			}
+			catch (SQLException ex) {
+				this.failures.incrementAndGet();
+				throw ex;
+			}
+			long acquired = System.nanoTime();
+			DataSourceInstrumentation.this.histograms.record(this.acquireName,
+					(acquired - start) / 1000000.0);
+			return (Connection) Proxy.newProxyInstance(
+					DataSourceInstrumentation.class.getClassLoader(),
+					new Class<?>[] { Connection.class },
+					new HoldTimeInvocationHandler(connection, acquired, this.holdName));
+		}
+
+	}
+
+	/**
+	 * {@link InvocationHandler} for a {@link Connection} that records how long it was
+	 * held for when it is closed.
+	 */
+	private class HoldTimeInvocationHandler implements InvocationHandler {
+
+		private final Connection target;
+
+		private final long acquired;
+
+		private final String name;
+
+		private boolean closed;
+
+		HoldTimeInvocationHandler(Connection target, long acquired, String name) {
+			this.target = target;
+			this.acquired = acquired;
+			this.name = name;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+			String methodName = method.getName();
+			if (methodName.equals("equals")) {
+				return (proxy == args[0]);
+			}
+			if (methodName.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			}
+			if (methodName.equals("close") && !this.closed) {
+				this.closed = true;
+				DataSourceInstrumentation.this.histograms.record(this.name,
+						(System.nanoTime() - this.acquired) / 1000000.0);
+			}
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.jdbc;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.pool.HikariPool;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Statistics that a connection pool keeps about itself, beyond the
+ * {@link org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadata
+ * metadata} that is common to all pools. Hikari, Tomcat and Commons DBCP2 pools are
+ * supported and only the statistics that a pool provides are set.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+public class DataSourcePoolStatistics {
+
+	private static final boolean HIKARI_PRESENT = isPresent(
+			"com.zaxxer.hikari.HikariDataSource");
+
+	private static final boolean TOMCAT_PRESENT = isPresent(
+			"org.apache.tomcat.jdbc.pool.DataSource");
+
+	private static final boolean DBCP2_PRESENT = isPresent(
+			"org.apache.commons.dbcp2.BasicDataSource");
+
+	private Integer idle;
+
+	private Integer pending;
+
+	private Long borrowed;
+
+	private Long created;
+
+	private Long destroyed;
+
+	private Long acquireMean;
+
+	private Long acquireMax;
+
+	private Long holdMean;
+
+	/**
+	 * Return the statistics of the pool behind the given {@link DataSource}.
+	 * @param dataSource the data source
+	 * @return the statistics or {@code null} if the data source is not a supported
+	 * pool or the pool has not been started yet
+	 */
+	public static DataSourcePoolStatistics get(DataSource dataSource) {
+		try {
+			if (HIKARI_PRESENT && Hikari.isPool(dataSource)) {
+				return Hikari.get(dataSource);
+			}
+			if (TOMCAT_PRESENT && Tomcat.isPool(dataSource)) {
+				return Tomcat.get(dataSource);
+			}
+			if (DBCP2_PRESENT && Dbcp2.isPool(dataSource)) {
+				return Dbcp2.get(dataSource);
+			}
+		}
+		catch (Exception ex) {
+			// Pool not available
+		}
+		return null;
+	}
+
+	/**
+	 * Return the statistics as metrics.
+	 * @param prefix the metric name prefix (ending with '.')
+	 * @return the metrics
+	 */
+	public Collection<Metric<?>> toMetrics(String prefix) {
+		Collection<Metric<?>> result = new ArrayList<Metric<?>>();
+		addMetric(result, prefix + "idle", this.idle);
+		addMetric(result, prefix + "pending", this.pending);
+		addMetric(result, prefix + "borrowed", this.borrowed);
+		addMetric(result, prefix + "created", this.created);
+		addMetric(result, prefix + "destroyed", this.destroyed);
+		addMetric(result, prefix + "acquire.mean", this.acquireMean);
+		addMetric(result, prefix + "acquire.max", this.acquireMax);
+		addMetric(result, prefix + "hold.mean", this.holdMean);
+		return result;
+	}
+
+	/**
+	 * Return the number of idle connections.
+	 * @return the idle connections or {@code null}
+	 */
+	public Integer getIdle() {
+		return this.idle;
+	}
+
+	/**
+	 * Return the number of threads waiting for a connection.
+	 * @return the pending threads or {@code null}
+	 */
+	public Integer getPending() {
+		return this.pending;
+	}
+
+	/**
+	 * Return the number of times that a connection has been borrowed.
+	 * @return the borrow count or {@code null}
+	 */
+	public Long getBorrowed() {
+		return this.borrowed;
+	}
+
+	/**
+	 * Return the number of connections that have been created.
+	 * @return the created count or {@code null}
+	 */
+	public Long getCreated() {
+		return this.created;
+	}
+
+	/**
+	 * Return the number of connections that have been closed by the pool.
+	 * @return the destroyed count or {@code null}
+	 */
+	public Long getDestroyed() {
+		return this.destroyed;
+	}
+
+	/**
+	 * Return the mean time in milliseconds that recent borrowers waited for a
+	 * connection.
+	 * @return the mean wait or {@code null}
+	 */
+	public Long getAcquireMean() {
+		return this.acquireMean;
+	}
+
+	/**
+	 * Return the maximum time in milliseconds that a borrower waited for a connection.
+	 * @return the maximum wait or {@code null}
+	 */
+	public Long getAcquireMax() {
+		return this.acquireMax;
+	}
+
+	/**
+	 * Return the mean time in milliseconds that recently returned connections were
+	 * borrowed for.
+	 * @return the mean hold time or {@code null}
+	 */
+	public Long getHoldMean() {
+		return this.holdMean;
+	}
+
+	private static <T extends Number> void addMetric(Collection<Metric<?>> metrics,
+			String name, T value) {
+		if (value != null) {
+			metrics.add(new Metric<T>(name, value));
+		}
+	}
+
+	private static boolean isPresent(String className) {
+		return ClassUtils.isPresent(className,
+				DataSourcePoolStatistics.class.getClassLoader());
+	}
+
+	private static class Hikari {
+
+		static boolean isPool(DataSource dataSource) {
+			return dataSource instanceof HikariDataSource;
+		}
+
+		static DataSourcePoolStatistics get(DataSource dataSource) {
+			HikariPool pool = (HikariPool) new DirectFieldAccessor(dataSource)
+					.getPropertyValue("pool");
+			if (pool == null) {
+				return null;
+			}
+			DataSourcePoolStatistics statistics = new DataSourcePoolStatistics();
+			statistics.idle = pool.getIdleConnections();
+			statistics.pending = pool.getThreadsAwaitingConnection();
+			return statistics;
+		}
+
+	}
+
+	private static class Tomcat {
+
+		static boolean isPool(DataSource dataSource) {
+			return dataSource instanceof org.apache.tomcat.jdbc.pool.DataSource;
+		}
+
+		static DataSourcePoolStatistics get(DataSource dataSource) {
+			ConnectionPool pool = ((org.apache.tomcat.jdbc.pool.DataSource) dataSource)
+					.getPool();
+			if (pool == null) {
+				return null;
+			}
+			DataSourcePoolStatistics statistics = new DataSourcePoolStatistics();
+			statistics.idle = pool.getIdle();
+			statistics.pending = pool.getWaitCount();
+			statistics.borrowed = pool.getBorrowedCount();
+			statistics.created = pool.getCreatedCount();
+			statistics.destroyed = pool.getReleasedCount();
+			return statistics;
+		}
+
+	}
+
+	private static class Dbcp2 {
+
+		private static final Method GET_CONNECTION_POOL;
+
+		static {
+			GET_CONNECTION_POOL = ReflectionUtils.findMethod(BasicDataSource.class,
+					"getConnectionPool");
+			ReflectionUtils.makeAccessible(GET_CONNECTION_POOL);
+		}
+
+		static boolean isPool(DataSource dataSource) {
+			return dataSource instanceof BasicDataSource;
+		}
+
+		static DataSourcePoolStatistics get(DataSource dataSource) {
+			GenericObjectPool<?> pool = (GenericObjectPool<?>) ReflectionUtils
+					.invokeMethod(GET_CONNECTION_POOL, dataSource);
+			if (pool == null) {
+				return null;
+			}
+			DataSourcePoolStatistics statistics = new DataSourcePoolStatistics();
+			statistics.idle = pool.getNumIdle();
+			statistics.pending = pool.getNumWaiters();
+			statistics.borrowed = pool.getBorrowedCount();
+			statistics.created = pool.getCreatedCount();
+			statistics.destroyed = pool.getDestroyedCount();
+			statistics.acquireMean = pool.getMeanBorrowWaitTimeMillis();
+			statistics.acquireMax = pool.getMaxBorrowWaitTimeMillis();
+			statistics.holdMean = pool.getMeanActiveTimeMillis();
+			return statistics;
+		}
+
+	}
+
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.opentsdb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * An {@link OpenTsdbGaugeWriter} that never blocks the caller. Values are added to a
+ * bounded queue and posted to the server by a dedicated sender thread, in batches of up
+ * to {@link #setBufferSize(int) bufferSize} values or whatever has been queued when the
+ * {@link #setFlushIntervalMillis(long) flush interval} elapses. Request bodies are
+ * compressed with gzip (unless {@link #setCompress(boolean) disabled}) and failed
+ * batches are retried with an exponential backoff. Values are dropped when the queue is
+ * full or when a batch cannot be written after all retries, and the number of dropped
+ * values is available from {@link #getDroppedCount()} and, if a
+ * {@link #setCounterService(CounterService) counter service} is configured, as the
+ * {@code opentsdb.dropped} counter.
+ * <p>
+ * The sender thread is started when the first value is written and should be stopped by
+ * calling {@link #close()}, which also flushes any queued values.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+public class AsyncOpenTsdbGaugeWriter extends OpenTsdbGaugeWriter implements Closeable {
+
+	private static final Log logger = LogFactory.getLog(AsyncOpenTsdbGaugeWriter.class);
+
+	private static final String DROPPED_METRIC_NAME = "opentsdb.dropped";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final AtomicLong sent = new AtomicLong();
+
+	/**
+	 * Maximum number of values waiting to be sent. Further values are dropped.
+	 */
+	private int queueCapacity = 10000;
+
+	/**
+	 * Maximum time in milliseconds that a value waits for its batch to fill.
+	 */
+	private long flushIntervalMillis = 1000;
+
+	/**
+	 * Number of times a failed batch is retried before it is dropped.
+	 */
+	private int maxRetries = 3;
+
+	/**
+	 * Time in milliseconds to wait before the first retry. Doubled for each subsequent
+	 * retry.
+	 */
+	private long initialBackoffMillis = 100;
+
+	/**
+	 * Maximum time in milliseconds to wait between retries.
+	 */
+	private long maxBackoffMillis = 5000;
+
+	private boolean compress = true;
+
+	private CounterService counterService;
+
+	private volatile BlockingQueue<OpenTsdbData> queue;
+
+	private Thread sender;
+
+	private volatile boolean running;
+
+	private volatile boolean closed;
+
+	/**
+	 * Creates a new {@code AsyncOpenTsdbGaugeWriter} with the default connect (10
+	 * seconds) and read (30 seconds) timeouts.
+	 */
+	public AsyncOpenTsdbGaugeWriter() {
+		super();
+	}
+
+	/**
+	 * Creates a new {@code AsyncOpenTsdbGaugeWriter} with the given millisecond
+	 * {@code connectTimeout} and {@code readTimeout}.
+	 * @param connectTimeout the connect timeout in milliseconds
+	 * @param readTimeout the read timeout in milliseconds
+	 */
+	public AsyncOpenTsdbGaugeWriter(int connectTimeout, int readTimeout) {
+		super(connectTimeout, readTimeout);
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public void setFlushIntervalMillis(long flushIntervalMillis) {
+		this.flushIntervalMillis = flushIntervalMillis;
+	}
+
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public void setInitialBackoffMillis(long initialBackoffMillis) {
+		this.initialBackoffMillis = initialBackoffMillis;
+	}
+
+	public void setMaxBackoffMillis(long maxBackoffMillis) {
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+
+	public void setCompress(boolean compress) {
+		this.compress = compress;
+	}
+
+	public void setCounterService(CounterService counterService) {
+		this.counterService = counterService;
+	}
+
+	/**
+	 * Return the number of values that have been dropped, either because the queue was
+	 * full or because they could not be written to the server.
+	 * @return the number of dropped values
+	 */
+	public long getDroppedCount() {
+		return this.dropped.get();
+	}
+
+	/**
+	 * Return the number of values that have been written to the server.
+	 * @return the number of values written
+	 */
+	public long getSentCount() {
+		return this.sent.get();
+	}
+
+	/**
+	 * Return the number of values waiting to be sent.
+	 * @return the queue size
+	 */
+	public int getQueueSize() {
+		BlockingQueue<OpenTsdbData> queue = this.queue;
+		return (queue == null ? 0 : queue.size());
+	}
+
+	@Override
+	public void set(Metric<?> value) {
+		BlockingQueue<OpenTsdbData> queue = getQueue();
+		if (this.closed || !queue.offer(createData(value))) {
+			drop(1);
+		}
+	}
+
+	/**
+	 * Send all queued values from the calling thread without waiting for the sender.
+	 */
+	@Override
+	public void flush() {
+		BlockingQueue<OpenTsdbData> queue = this.queue;
+		if (queue == null) {
+			return;
+		}
+		List<OpenTsdbData> batch = new ArrayList<OpenTsdbData>();
+		while (queue.drainTo(batch, Math.max(getBufferSize(), 1)) > 0) {
+			send(batch);
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Stop the sender thread and flush any queued values.
+	 */
+	@Override
+	public void close() {
+		Thread sender;
+		synchronized (this) {
+			this.closed = true;
+			this.running = false;
+			sender = this.sender;
+		}
+		if (sender != null) {
+			sender.interrupt();
+			try {
+				sender.join(this.flushIntervalMillis + this.maxBackoffMillis);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		flush();
+	}
+
+	private BlockingQueue<OpenTsdbData> getQueue() {
+		BlockingQueue<OpenTsdbData> queue = this.queue;
+		if (queue == null) {
+			synchronized (this) {
+				if (this.queue == null) {
+					this.queue = new ArrayBlockingQueue<OpenTsdbData>(this.queueCapacity);
+					if (!this.closed) {
+						startSender();
+					}
+				}
+				queue = this.queue;
+			}
+		}
+		return queue;
+	}
+
+	private void startSender() {
+		this.running = true;
+		this.sender = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				sendQueuedValues();
+			}
+
+		}, "opentsdb-sender");
+		this.sender.setDaemon(true);
+		this.sender.start();
+	}
+
+	private void sendQueuedValues() {
+		List<OpenTsdbData> batch = new ArrayList<OpenTsdbData>();
+		while (this.running) {
+			try {
+				fillBatch(batch);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				this.running = false;
+			}
+			if (!batch.isEmpty()) {
+				send(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	private void fillBatch(List<OpenTsdbData> batch) throws InterruptedException {
+		OpenTsdbData first = this.queue.poll(this.flushIntervalMillis,
+				TimeUnit.MILLISECONDS);
+		if (first == null) {
+			return;
+		}
+		batch.add(first);
+		int batchSize = Math.max(getBufferSize(), 1);
+		long deadline = System.nanoTime()
+				+ TimeUnit.MILLISECONDS.toNanos(this.flushIntervalMillis);
+		while (batch.size() < batchSize) {
+			if (this.queue.drainTo(batch, batchSize - batch.size()) == 0) {
+				long remaining = deadline - System.nanoTime();
+				OpenTsdbData next = (remaining > 0
+						? this.queue.poll(remaining, TimeUnit.NANOSECONDS) : null);
+				if (next == null) {
+					return;
+				}
+				batch.add(next);
+			}
+		}
+	}
+
+	private void send(List<OpenTsdbData> batch) {
+		long backoff = this.initialBackoffMillis;
+		for (int attempt = 0;; attempt++) {
+			try {
+				if (post(batch)) {
+					this.sent.addAndGet(batch.size());
+					return;
+				}
+			}
+			catch (HttpClientErrorException ex) {
+				// The server rejected the data so there is no point retrying
+				logger.warn("Cannot write metrics: " + ex.getResponseBodyAsString());
+				break;
+			}
+			catch (RestClientException ex) {
+				logger.debug("Cannot write metrics (attempt " + (attempt + 1) + ")", ex);
+			}
+			catch (IOException ex) {
+				logger.warn("Cannot serialize metrics", ex);
+				break;
+			}
+			if (attempt >= this.maxRetries || !sleep(backoff)) {
+				break;
+			}
+			backoff = Math.min(backoff * 2, this.maxBackoffMillis);
+		}
+		logger.warn("Cannot write metrics (discarded " + batch.size() + " values)");
+		drop(batch.size());
+	}
+
+	@SuppressWarnings("rawtypes")
+	private boolean post(List<OpenTsdbData> batch) throws IOException {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setAccept(Arrays.asList(getMediaType()));
+		headers.setContentType(getMediaType());
+		byte[] body = this.objectMapper.writeValueAsBytes(batch);
+		if (this.compress) {
+			body = gzip(body);
+			headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		ResponseEntity<Map> response = getRestTemplate().postForEntity(getUrl(),
+				new HttpEntity<byte[]>(body, headers), Map.class);
+		return response.getStatusCode().is2xxSuccessful();
+	}
+
+	private byte[] gzip(byte[] bytes) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream(bytes.length / 4);
+		GZIPOutputStream stream = new GZIPOutputStream(result);
+		try {
+			stream.write(bytes);
+		}
+		finally {
+			stream.close();
+		}
+		return result.toByteArray();
+	}
+
+	private boolean sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+			return true;
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private void drop(int count) {
+		CounterService counterService = this.counterService;
+		if (counterService != null) {
+			for (int i = 0; i < count; i++) {
+				counterService.increment(DROPPED_METRIC_NAME);
+			}
+		}
+		this.dropped.addAndGet(count);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -108,14 +108,26 @@ public class OpenTsdbGaugeWriter implements GaugeWriter {
 		this.restTemplate = restTemplate;
 	}
 
+	protected String getUrl() {
+		return this.url;
+	}
+
 	public void setUrl(String url) {
 		this.url = url;
 	}
 
+	protected int getBufferSize() {
+		return this.bufferSize;
+	}
+
 	public void setBufferSize(int bufferSize) {
 		this.bufferSize = bufferSize;
 	}
 
+	protected MediaType getMediaType() {
+		return this.mediaType;
+	}
+
 	public void setMediaType(MediaType mediaType) {
 		this.mediaType = mediaType;
 	}
@@ -126,8 +138,7 @@ public class OpenTsdbGaugeWriter implements GaugeWriter {
 
 	@Override
 	public void set(Metric<?> value) {
-		OpenTsdbData data = new OpenTsdbData(this.namingStrategy.getName(value.getName()),
-				value.getValue(), value.getTimestamp().getTime());
+		OpenTsdbData data = createData(value);
 		synchronized (this.buffer) {
 			this.buffer.add(data);
 			if (this.buffer.size() >= this.bufferSize) {
@@ -136,6 +147,16 @@ public class OpenTsdbGaugeWriter implements GaugeWriter {
 		}
 	}
 
+	/**
+	 * Create the {@link OpenTsdbData} to post for the given metric.
+	 * @param value the metric
+	 * @return the data
+	 */
+	protected OpenTsdbData createData(Metric<?> value) {
+		return new OpenTsdbData(this.namingStrategy.getName(value.getName()),
+				value.getValue(), value.getTimestamp().getTime());
+	}
+
 	/**
 	 * Flush the buffer without waiting for it to fill any further.
 	 */
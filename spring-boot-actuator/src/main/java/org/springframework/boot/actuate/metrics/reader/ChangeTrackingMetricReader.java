@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.reader;
+
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * Interface for readers that can find the metrics updated since a given time without
+ * visiting (and creating {@link Metric} instances for) the ones that have not changed.
+ * Exporters use it to only copy the metrics that changed since their last export.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+public interface ChangeTrackingMetricReader extends MetricReader {
+
+	/**
+	 * Find all metrics whose timestamp is at or after the given time.
+	 * @param timestamp the time in milliseconds since the epoch
+	 * @return all metrics updated since the timestamp
+	 */
+	Iterable<Metric<?>> findAllUpdatedSince(long timestamp);
+
+	/**
+	 * Find all metrics whose name starts with the given prefix and whose timestamp is at
+	 * or after the given time.
+	 * @param prefix the prefix for metric names
+	 * @param timestamp the time in milliseconds since the epoch
+	 * @return all metrics with names starting with the prefix updated since the
+	 * timestamp
+	 * @see PrefixMetricReader#findAll(String)
+	 */
+	Iterable<Metric<?>> findAllUpdatedSince(String prefix, long timestamp);
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.util.Date;
 import java.util.concurrent.ConcurrentNavigableMap;
 
 import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.util.HashIndexedInMemoryRepository;
 import org.springframework.boot.actuate.metrics.util.SimpleInMemoryRepository;
 import org.springframework.boot.actuate.metrics.util.SimpleInMemoryRepository.Callback;
 import org.springframework.boot.actuate.metrics.writer.Delta;
@@ -32,10 +33,17 @@ import org.springframework.boot.actuate.metrics.writer.Delta;
  */
 public class InMemoryMetricRepository implements MetricRepository {
 
-	private final SimpleInMemoryRepository<Metric<?>> metrics = new SimpleInMemoryRepository<Metric<?>>();
+	private volatile SimpleInMemoryRepository<Metric<?>> metrics = new HashIndexedInMemoryRepository<Metric<?>>();
 
+	/**
+	 * Use the given map to store the metrics. Writes then go directly to the (sorted)
+	 * map, rather than to the default hash index.
+	 * @param values the map of metric values keyed by name
+	 */
 	public void setValues(ConcurrentNavigableMap<String, Metric<?>> values) {
-		this.metrics.setValues(values);
+		SimpleInMemoryRepository<Metric<?>> metrics = new SimpleInMemoryRepository<Metric<?>>();
+		metrics.setValues(values);
+		this.metrics = metrics;
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,11 +16,17 @@
 
 package org.springframework.boot.actuate.metrics.repository.redis;
 
+import java.io.Flushable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.springframework.boot.actuate.metrics.Metric;
 import org.springframework.boot.actuate.metrics.repository.MetricRepository;
@@ -28,6 +34,10 @@ import org.springframework.boot.actuate.metrics.writer.Delta;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.BoundZSetOperations;
 import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
 import org.springframework.util.Assert;
 
 /**
@@ -37,10 +47,19 @@ import org.springframework.util.Assert;
  * multiple metrics repositories all point at the same instance of Redis, it may be useful
  * to change the prefix to be unique (but not if you want them to contribute to the same
  * metrics).
+ * <p>
+ * Each write is sent to Redis as a single pipeline. If the repository is
+ * {@link #setBuffered(boolean) buffered}, writes are instead accumulated in memory
+ * (deltas are summed and only the latest value is kept for each metric) and are sent in
+ * one pipeline when the repository is {@link #flush() flushed}. A
+ * {@link org.springframework.boot.actuate.metrics.export.MetricCopyExporter} flushes its
+ * writer at the end of every export, so a buffered repository that is the target of an
+ * export costs one round trip per export rather than several per metric. Buffered values
+ * are not visible to reads until they have been flushed.
  *
  * @author Dave Syer
  */
-public class RedisMetricRepository implements MetricRepository {
+public class RedisMetricRepository implements MetricRepository, Flushable {
 
 	private static final String DEFAULT_METRICS_PREFIX = "spring.metrics.";
 
@@ -54,6 +73,10 @@ public class RedisMetricRepository implements MetricRepository {
 
 	private final RedisOperations<String, String> redisOperations;
 
+	private final ConcurrentMap<String, PendingWrite> pendingWrites = new ConcurrentHashMap<String, PendingWrite>();
+
+	private boolean buffered;
+
 	/**
 	 * Create a RedisMetricRepository with a default prefix to apply to all metric names.
 	 * If multiple repositories share a redis instance they will feed into the same global
@@ -121,14 +144,18 @@ public class RedisMetricRepository implements MetricRepository {
 	public Iterable<Metric<?>> findAll() {
 
 		// This set is sorted
-		Set<String> keys = this.zSetOperations.range(0, -1);
-		Iterator<String> keysIt = keys.iterator();
+		Set<TypedTuple<String>> tuples = this.zSetOperations.rangeWithScores(0, -1);
+		List<String> keys = new ArrayList<String>(tuples.size());
+		for (TypedTuple<String> tuple : tuples) {
+			keys.add(tuple.getValue());
+		}
+		Iterator<TypedTuple<String>> tuplesIt = tuples.iterator();
 
 		List<Metric<?>> result = new ArrayList<Metric<?>>(keys.size());
 		List<String> values = this.redisOperations.opsForValue().multiGet(keys);
 		for (String v : values) {
-			String key = keysIt.next();
-			Metric<?> value = deserialize(key, v, this.zSetOperations.score(key));
+			TypedTuple<String> tuple = tuplesIt.next();
+			Metric<?> value = deserialize(tuple.getValue(), v, tuple.getScore());
 			if (value != null) {
 				result.add(value);
 			}
@@ -142,25 +169,91 @@ public class RedisMetricRepository implements MetricRepository {
 		return this.zSetOperations.size();
 	}
 
+	/**
+	 * Set whether writes should be buffered in memory until the next {@link #flush()}.
+	 * Defaults to {@code false}.
+	 * @param buffered {@code true} to buffer writes
+	 */
+	public void setBuffered(boolean buffered) {
+		this.buffered = buffered;
+	}
+
 	@Override
 	public void increment(Delta<?> delta) {
-		String name = delta.getName();
-		String key = keyFor(name);
-		trackMembership(key);
-		double value = this.zSetOperations.incrementScore(key,
-				delta.getValue().doubleValue());
-		String raw = serialize(new Metric<Double>(name, value, delta.getTimestamp()));
-		this.redisOperations.opsForValue().set(key, raw);
+		PendingWrite write = new PendingWrite(false, delta.getValue().doubleValue(),
+				delta.getTimestamp().getTime());
+		write(keyFor(delta.getName()), write);
 	}
 
 	@Override
 	public void set(Metric<?> value) {
-		String name = value.getName();
-		String key = keyFor(name);
-		trackMembership(key);
-		this.zSetOperations.add(key, value.getValue().doubleValue());
-		String raw = serialize(value);
-		this.redisOperations.opsForValue().set(key, raw);
+		PendingWrite write = new PendingWrite(true, value.getValue().doubleValue(),
+				value.getTimestamp().getTime());
+		write(keyFor(value.getName()), write);
+	}
+
+	private void write(String key, PendingWrite write) {
+		if (!this.buffered) {
+			execute(Collections.singletonMap(key, write));
+			return;
+		}
+		while (true) {
+			PendingWrite current = this.pendingWrites.putIfAbsent(key, write);
+			if (current == null || this.pendingWrites.replace(key, current,
+					current.merge(write))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Send all buffered writes to Redis in a single pipeline.
+	 */
+	@Override
+	public void flush() {
+		if (this.pendingWrites.isEmpty()) {
+			return;
+		}
+		Map<String, PendingWrite> writes = new LinkedHashMap<String, PendingWrite>();
+		for (String key : this.pendingWrites.keySet()) {
+			PendingWrite write = this.pendingWrites.remove(key);
+			if (write != null) {
+				writes.put(key, write);
+			}
+		}
+		execute(writes);
+	}
+
+	private void execute(final Map<String, PendingWrite> writes) {
+		if (writes.isEmpty()) {
+			return;
+		}
+		final String zSetKey = this.key;
+		this.redisOperations.executePipelined(new SessionCallback<Object>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public <K, V> Object execute(RedisOperations<K, V> operations) {
+				RedisOperations<String, String> redisOperations = (RedisOperations<String, String>) operations;
+				ZSetOperations<String, String> zSetOperations = redisOperations
+						.opsForZSet();
+				ValueOperations<String, String> valueOperations = redisOperations
+						.opsForValue();
+				for (Map.Entry<String, PendingWrite> entry : writes.entrySet()) {
+					String key = entry.getKey();
+					PendingWrite write = entry.getValue();
+					if (write.set) {
+						zSetOperations.add(zSetKey, key, write.value);
+					}
+					else {
+						zSetOperations.incrementScore(zSetKey, key, write.value);
+					}
+					valueOperations.set(key, String.valueOf(write.timestamp));
+				}
+				return null;
+			}
+
+		});
 	}
 
 	@Override
@@ -179,10 +272,6 @@ public class RedisMetricRepository implements MetricRepository {
 		return new Metric<Double>(nameFor(redisKey), value, timestamp);
 	}
 
-	private String serialize(Metric<?> entity) {
-		return String.valueOf(entity.getTimestamp().getTime());
-	}
-
 	private String keyFor(String name) {
 		return this.prefix + name;
 	}
@@ -191,8 +280,32 @@ public class RedisMetricRepository implements MetricRepository {
 		return redisKey.substring(this.prefix.length());
 	}
 
-	private void trackMembership(String redisKey) {
-		this.zSetOperations.incrementScore(redisKey, 0.0D);
+	/**
+	 * A write that has not yet been sent to Redis: either an absolute value or a delta,
+	 * with the timestamp of the latest update.
+	 */
+	private static final class PendingWrite {
+
+		private final boolean set;
+
+		private final double value;
+
+		private final long timestamp;
+
+		PendingWrite(boolean set, double value, long timestamp) {
+			this.set = set;
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+
+		PendingWrite merge(PendingWrite next) {
+			if (next.set) {
+				return next;
+			}
+			return new PendingWrite(this.set, this.value + next.value,
+					Math.max(this.timestamp, next.timestamp));
+		}
+
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2015 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -29,13 +30,19 @@ import org.springframework.boot.actuate.metrics.writer.Delta;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.BoundZSetOperations;
 import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
 import org.springframework.util.Assert;
 
 /**
  * {@link MultiMetricRepository} implementation backed by a redis store. Metric values are
  * stored as zset values and the timestamps as regular values, both against a key composed
  * of the group name prefixed with a constant prefix (default "spring.groups."). The group
- * names are stored as a zset under "keys." + {@code [prefix]}.
+ * names are stored as a zset under "keys." + {@code [prefix]}. Each write (including a
+ * {@link #set(String, Collection) set} of a whole group) is sent to Redis as a single
+ * pipeline.
  *
  * @author Dave Syer
  */
@@ -73,44 +80,56 @@ public class RedisMultiMetricRepository implements MultiMetricRepository {
 		BoundZSetOperations<String, String> zSetOperations = this.redisOperations
 				.boundZSetOps(keyFor(group));
 
-		Set<String> keys = zSetOperations.range(0, -1);
-		Iterator<String> keysIt = keys.iterator();
+		Set<TypedTuple<String>> tuples = zSetOperations.rangeWithScores(0, -1);
+		List<String> keys = new ArrayList<String>(tuples.size());
+		for (TypedTuple<String> tuple : tuples) {
+			keys.add(tuple.getValue());
+		}
+		Iterator<TypedTuple<String>> tuplesIt = tuples.iterator();
 
 		List<Metric<?>> result = new ArrayList<Metric<?>>(keys.size());
 		List<String> values = this.redisOperations.opsForValue().multiGet(keys);
 		for (String v : values) {
-			String key = keysIt.next();
-			result.add(deserialize(group, key, v, zSetOperations.score(key)));
+			TypedTuple<String> tuple = tuplesIt.next();
+			result.add(deserialize(group, tuple.getValue(), v, tuple.getScore()));
 		}
 		return result;
 
 	}
 
 	@Override
-	public void set(String group, Collection<Metric<?>> values) {
-		String groupKey = keyFor(group);
-		trackMembership(groupKey);
-		BoundZSetOperations<String, String> zSetOperations = this.redisOperations
-				.boundZSetOps(groupKey);
-		for (Metric<?> metric : values) {
-			String raw = serialize(metric);
-			String key = keyFor(metric.getName());
-			zSetOperations.add(key, metric.getValue().doubleValue());
-			this.redisOperations.opsForValue().set(key, raw);
-		}
+	public void set(String group, final Collection<Metric<?>> values) {
+		final String groupKey = keyFor(group);
+		this.redisOperations.executePipelined(new GroupCallback(groupKey) {
+
+			@Override
+			protected void execute(ZSetOperations<String, String> zSetOperations,
+					ValueOperations<String, String> valueOperations) {
+				for (Metric<?> metric : values) {
+					String key = keyFor(metric.getName());
+					zSetOperations.add(groupKey, key, metric.getValue().doubleValue());
+					valueOperations.set(key, serialize(metric));
+				}
+			}
+
+		});
 	}
 
 	@Override
-	public void increment(String group, Delta<?> delta) {
-		String groupKey = keyFor(group);
-		trackMembership(groupKey);
-		BoundZSetOperations<String, String> zSetOperations = this.redisOperations
-				.boundZSetOps(groupKey);
-		String key = keyFor(delta.getName());
-		double value = zSetOperations.incrementScore(key, delta.getValue().doubleValue());
-		String raw = serialize(
-				new Metric<Double>(delta.getName(), value, delta.getTimestamp()));
-		this.redisOperations.opsForValue().set(key, raw);
+	public void increment(String group, final Delta<?> delta) {
+		final String groupKey = keyFor(group);
+		this.redisOperations.executePipelined(new GroupCallback(groupKey) {
+
+			@Override
+			protected void execute(ZSetOperations<String, String> zSetOperations,
+					ValueOperations<String, String> valueOperations) {
+				String key = keyFor(delta.getName());
+				zSetOperations.incrementScore(groupKey, key,
+						delta.getValue().doubleValue());
+				valueOperations.set(key, serialize(delta));
+			}
+
+		});
 	}
 
 	@Override
@@ -134,11 +153,9 @@ public class RedisMultiMetricRepository implements MultiMetricRepository {
 		if (this.redisOperations.hasKey(groupKey)) {
 			BoundZSetOperations<String, String> zSetOperations = this.redisOperations
 					.boundZSetOps(groupKey);
-			Set<String> keys = zSetOperations.range(0, -1);
-			for (String key : keys) {
-				this.redisOperations.delete(key);
-			}
-			this.redisOperations.delete(groupKey);
+			Set<String> keys = new LinkedHashSet<String>(zSetOperations.range(0, -1));
+			keys.add(groupKey);
+			this.redisOperations.delete(keys);
 		}
 		this.zSetOperations.remove(groupKey);
 	}
@@ -162,8 +179,32 @@ public class RedisMultiMetricRepository implements MultiMetricRepository {
 		return redisKey.substring(this.prefix.length());
 	}
 
-	private void trackMembership(String redisKey) {
-		this.zSetOperations.incrementScore(redisKey, 0.0D);
+	/**
+	 * {@link SessionCallback} that records the membership of a group and then writes
+	 * values for that group, all in the same pipeline.
+	 */
+	private abstract class GroupCallback implements SessionCallback<Object> {
+
+		private final String groupKey;
+
+		GroupCallback(String groupKey) {
+			this.groupKey = groupKey;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <K, V> Object execute(RedisOperations<K, V> operations) {
+			RedisOperations<String, String> redisOperations = (RedisOperations<String, String>) operations;
+			ZSetOperations<String, String> zSetOperations = redisOperations.opsForZSet();
+			zSetOperations.incrementScore(RedisMultiMetricRepository.this.keys,
+					this.groupKey, 0.0D);
+			execute(zSetOperations, redisOperations.opsForValue());
+			return null;
+		}
+
+		protected abstract void execute(ZSetOperations<String, String> zSetOperations,
+				ValueOperations<String, String> valueOperations);
+
 	}
 
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SimpleInMemoryRepository} that keeps its values in a hash index so that point
+ * reads and writes are O(1) and lock free. Updates are applied with compare-and-set, so
+ * a {@link Callback} may be invoked more than once for a single update and must not
+ * modify the current value in place. A sorted index of the names is built lazily, the
+ * first time that it is needed after a name has been added or removed, and is used by
+ * {@link #findAll()} and {@link #findAllWithPrefix(String)}.
+ *
+ * @param <T> the type to store
+ * @author agent (agent@local)
+ * @since 1.5.10
+ */
+public class HashIndexedInMemoryRepository<T> extends SimpleInMemoryRepository<T> {
+
+	private final ConcurrentHashMap<String, T> values = new ConcurrentHashMap<String, T>();
+
+	private final AtomicLong version = new AtomicLong();
+
+	private volatile SortedNames sortedNames;
+
+	@Override
+	public T update(String name, Callback<T> callback) {
+		while (true) {
+			T current = this.values.get(name);
+			T value = callback.modify(current);
+			if (current == null) {
+				if (this.values.putIfAbsent(name, value) == null) {
+					this.version.incrementAndGet();
+					return value;
+				}
+			}
+			else if (this.values.replace(name, current, value)) {
+				return value;
+			}
+		}
+	}
+
+	@Override
+	public void set(String name, T value) {
+		if (this.values.put(name, value) == null) {
+			this.version.incrementAndGet();
+		}
+	}
+
+	@Override
+	public long count() {
+		return this.values.size();
+	}
+
+	@Override
+	public void remove(String name) {
+		if (this.values.remove(name) != null) {
+			this.version.incrementAndGet();
+		}
+	}
+
+	@Override
+	public T findOne(String name) {
+		return this.values.get(name);
+	}
+
+	@Override
+	public Iterable<T> findAll() {
+		String[] names = getSortedNames();
+		List<T> result = new ArrayList<T>(names.length);
+		for (String name : names) {
+			addIfPresent(result, name);
+		}
+		return result;
+	}
+
+	@Override
+	public Iterable<T> findAllWithPrefix(String prefix) {
+		if (prefix.endsWith(".*")) {
+			prefix = prefix.substring(0, prefix.length() - 1);
+		}
+		if (!prefix.endsWith(".")) {
+			prefix = prefix + ".";
+		}
+		String[] names = getSortedNames();
+		int index = Arrays.binarySearch(names, prefix);
+		index = (index < 0 ? -index - 1 : index + 1);
+		List<T> result = new ArrayList<T>();
+		while (index < names.length && names[index].startsWith(prefix)) {
+			addIfPresent(result, names[index++]);
+		}
+		return result;
+	}
+
+	private void addIfPresent(List<T> result, String name) {
+		T value = this.values.get(name);
+		if (value != null) {
+			result.add(value);
+		}
+	}
+
+	private String[] getSortedNames() {
+		long version = this.version.get();
+		SortedNames sortedNames = this.sortedNames;
+		if (sortedNames == null || sortedNames.version != version) {
+			String[] names = this.values.keySet().toArray(new String[0]);
+			Arrays.sort(names);
+			sortedNames = new SortedNames(version, names);
+			this.sortedNames = sortedNames;
+		}
+		return sortedNames.names;
+	}
+
+	@Override
+	public void setValues(ConcurrentNavigableMap<String, T> values) {
+		this.values.clear();
+		this.values.putAll(values);
+		this.version.incrementAndGet();
+	}
+
+	@Override
+	protected NavigableMap<String, T> getValues() {
+		return new TreeMap<String, T>(this.values);
+	}
+
+	/**
+	 * Sorted metric names and the version of the hash index that they were built from.
+	 */
+	private static final class SortedNames {
+
+		private final long version;
+
+		private final String[] names;
+
+		SortedNames(long version, String[] names) {
+			this.version = version;
+			this.names = names;
+		}
+
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.trace;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link Map} used to capture trace information with as little work as possible on the
+ * request thread. Entries are appended to a flat array and are only expanded into a
+ * {@link LinkedHashMap} the first time that the map is read (typically when the
+ * {@link TraceRepository} is read by the trace endpoint). Values are often themselves
+ * {@link CompactTraceInfo} instances so nested structures (such as headers) are also
+ * only expanded on demand.
+ *
+ * @author agent (agent@local)
+ */
+final class CompactTraceInfo extends AbstractMap<String, Object> {
+
+	private Object[] entries;
+
+	private int size;
+
+	private Map<String, Object> expanded;
+
+	CompactTraceInfo() {
+		this(8);
+	}
+
+	CompactTraceInfo(int initialCapacity) {
+		this.entries = new Object[initialCapacity * 2];
+	}
+
+	@Override
+	public synchronized Object put(String key, Object value) {
+		if (this.expanded != null) {
+			return this.expanded.put(key, value);
+		}
+		int index = indexOf(key);
+		if (index >= 0) {
+			Object previous = this.entries[index + 1];
+			this.entries[index + 1] = value;
+			return previous;
+		}
+		if (this.size * 2 == this.entries.length) {
+			this.entries = Arrays.copyOf(this.entries, Math.max(this.entries.length, 2) * 2);
+		}
+		this.entries[this.size * 2] = key;
+		this.entries[this.size * 2 + 1] = value;
+		this.size++;
+		return null;
+	}
+
+	@Override
+	public Object get(Object key) {
+		return expanded().get(key);
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return expanded().entrySet();
+	}
+
+	/**
+	 * Return the value captured for the given key without expanding the map.
+	 * @param key the key
+	 * @return the captured value or {@code null}
+	 */
+	synchronized Object getCaptured(String key) {
+		if (this.expanded != null) {
+			return this.expanded.get(key);
+		}
+		int index = indexOf(key);
+		return (index >= 0 ? this.entries[index + 1] : null);
+	}
+
+	private int indexOf(String key) {
+		for (int i = 0; i < this.size * 2; i += 2) {
+			if (this.entries[i].equals(key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private synchronized Map<String, Object> expanded() {
+		if (this.expanded == null) {
+			Map<String, Object> expanded = new LinkedHashMap<String, Object>(this.size * 2);
+			for (int i = 0; i < this.size * 2; i += 2) {
+				expanded.put((String) this.entries[i], this.entries[i + 1]);
+			}
+			this.expanded = expanded;
+			this.entries = null;
+		}
+		return this.expanded;
+	}
+
+}
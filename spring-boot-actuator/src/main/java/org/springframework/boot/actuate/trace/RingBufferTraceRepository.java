@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.util.Assert;
+
+/**
+ * Lock-free, fixed capacity in-memory implementation of {@link TraceRepository}. Traces
+ * are appended to a ring buffer by claiming a sequence number so that concurrent request
+ * threads never contend on a shared monitor. {@link #findAll()} returns a snapshot of the
+ * most recent traces without blocking writers.
+ *
+ * @author agent (agent@local)
+ * @since 1.5.10
+ * @see InMemoryTraceRepository
+ */
+public class RingBufferTraceRepository implements TraceRepository {
+
+	private volatile boolean reverse = true;
+
+	private volatile Ring ring = new Ring(100);
+
+	/**
+	 * Flag to say that the repository lists traces in reverse order.
+	 * @param reverse flag value (default true)
+	 */
+	public void setReverse(boolean reverse) {
+		this.reverse = reverse;
+	}
+
+	/**
+	 * Set the capacity of the in-memory repository. The most recent traces are retained
+	 * but traces added concurrently with a change in capacity may be lost.
+	 * @param capacity the capacity
+	 */
+	public synchronized void setCapacity(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be greater than 0");
+		Ring ring = new Ring(capacity);
+		for (Trace trace : this.ring.snapshot()) {
+			ring.add(trace);
+		}
+		this.ring = ring;
+	}
+
+	@Override
+	public List<Trace> findAll() {
+		List<Trace> traces = this.ring.snapshot();
+		if (this.reverse) {
+			Collections.reverse(traces);
+		}
+		return Collections.unmodifiableList(traces);
+	}
+
+	@Override
+	public void add(Map<String, Object> map) {
+		this.ring.add(new Trace(new Date(), map));
+	}
+
+	/**
+	 * Multi-producer ring of traces. Each slot records the sequence that it was written
+	 * for so that readers can detect (and skip) slots that are being overwritten.
+	 */
+	private static final class Ring {
+
+		private final int capacity;
+
+		private final AtomicReferenceArray<Slot> slots;
+
+		private final AtomicLong sequence = new AtomicLong();
+
+		Ring(int capacity) {
+			this.capacity = capacity;
+			this.slots = new AtomicReferenceArray<Slot>(capacity);
+		}
+
+		public void add(Trace trace) {
+			long sequence = this.sequence.getAndIncrement();
+			int index = (int) (sequence % this.capacity);
+			Slot slot = new Slot(sequence, trace);
+			Slot current = this.slots.get(index);
+			while (current == null || current.sequence < sequence) {
+				if (this.slots.compareAndSet(index, current, slot)) {
+					return;
+				}
+				current = this.slots.get(index);
+			}
+			// A writer that lapped us has already stored a more recent trace
+		}
+
+		public List<Trace> snapshot() {
+			long end = this.sequence.get();
+			long start = Math.max(0, end - this.capacity);
+			List<Trace> traces = new ArrayList<Trace>((int) (end - start));
+			for (long sequence = start; sequence < end; sequence++) {
+				Slot slot = this.slots.get((int) (sequence % this.capacity));
+				if (slot != null && slot.sequence == sequence) {
+					traces.add(slot.trace);
+				}
+			}
+			return traces;
+		}
+
+	}
+
+	private static final class Slot {
+
+		private final long sequence;
+
+		private final Trace trace;
+
+		Slot(long sequence, Trace trace) {
+			this.sequence = sequence;
+			this.trace = trace;
+		}
+
+	}
+
+}
@@ -22,6 +22,7 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.Assert;
 
 /**
  * Configuration properties for tracing.
@@ -55,6 +56,18 @@ public class TraceProperties {
 	 */
 	private Set<Include> include = new HashSet<Include>(DEFAULT_INCLUDES);
 
+	/**
+	 * Fraction of requests, between 0.0 and 1.0, that are traced. Requests that are not
+	 * sampled skip trace capture entirely.
+	 */
+	private double sampleRate = 1.0;
+
+	/**
+	 * Capture trace information into a compact structure that is only expanded into
+	 * maps when the trace is read.
+	 */
+	private boolean lazyCapture = false;
+
 	public Set<Include> getInclude() {
 		return this.include;
 	}
@@ -63,6 +76,24 @@ public class TraceProperties {
 		this.include = include;
 	}
 
+	public double getSampleRate() {
+		return this.sampleRate;
+	}
+
+	public void setSampleRate(double sampleRate) {
+		Assert.isTrue(sampleRate >= 0.0 && sampleRate <= 1.0,
+				"SampleRate must be between 0.0 and 1.0");
+		this.sampleRate = sampleRate;
+	}
+
+	public boolean isLazyCapture() {
+		return this.lazyCapture;
+	}
+
+	public void setLazyCapture(boolean lazyCapture) {
+		this.lazyCapture = lazyCapture;
+	}
+
 	/**
 	 * Include options for tracing.
 	 */
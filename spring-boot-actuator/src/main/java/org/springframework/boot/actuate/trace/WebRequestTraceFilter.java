@@ -20,11 +20,10 @@ import java.io.IOException;
 import java.security.Principal;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 import javax.servlet.Filter;
@@ -42,11 +41,15 @@ import org.springframework.boot.actuate.trace.TraceProperties.Include;
 import org.springframework.boot.autoconfigure.web.ErrorAttributes;
 import org.springframework.core.Ordered;
 import org.springframework.http.HttpStatus;
+import org.springframework.lang.UsesJava7;
 import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 /**
- * Servlet {@link Filter} that logs all requests to a {@link TraceRepository}.
+ * Servlet {@link Filter} that logs all requests to a {@link TraceRepository}. Requests
+ * can be {@link TraceProperties#getSampleRate() sampled} and captured
+ * {@link TraceProperties#isLazyCapture() lazily} to reduce the overhead of tracing on
+ * busy applications.
  *
  * <p>
  *     Servlet过滤器，将所有请求记录到TraceRepository
@@ -106,6 +109,10 @@ public class WebRequestTraceFilter extends OncePerRequestFilter implements Order
 	protected void doFilterInternal(HttpServletRequest request,
 			HttpServletResponse response, FilterChain filterChain)
 					throws ServletException, IOException {
+		if (!isSampled()) {
+			filterChain.doFilter(request, response);
+			return;
+		}
 		long startTime = System.nanoTime();
 		Map<String, Object> trace = getTrace(request);
 		logTrace(request, trace);
@@ -127,8 +134,8 @@ public class WebRequestTraceFilter extends OncePerRequestFilter implements Order
 		Throwable exception = (Throwable) request
 				.getAttribute("javax.servlet.error.exception");
 		Principal userPrincipal = request.getUserPrincipal();
-		Map<String, Object> trace = new LinkedHashMap<String, Object>();
-		Map<String, Object> headers = new LinkedHashMap<String, Object>();
+		Map<String, Object> trace = createMap(16);
+		Map<String, Object> headers = createMap(2);
 		trace.put("method", request.getMethod());
 		trace.put("path", request.getRequestURI());
 		trace.put("headers", headers);
@@ -159,12 +166,14 @@ public class WebRequestTraceFilter extends OncePerRequestFilter implements Order
 	}
 
 	private Map<String, Object> getRequestHeaders(HttpServletRequest request) {
-		Map<String, Object> headers = new LinkedHashMap<String, Object>();
-		Set<String> excludedHeaders = getExcludeHeaders();
+		Map<String, Object> headers = createMap(16);
+		boolean includeCookies = isIncluded(Include.COOKIES);
+		boolean includeAuthorization = isIncluded(Include.AUTHORIZATION_HEADER);
 		Enumeration<String> names = request.getHeaderNames();
 		while (names.hasMoreElements()) {
 			String name = names.nextElement();
-			if (!excludedHeaders.contains(name.toLowerCase())) {
+			if ((includeCookies || !"cookie".equalsIgnoreCase(name))
+					&& (includeAuthorization || !"authorization".equalsIgnoreCase(name))) {
 				headers.put(name, getHeaderValue(request, name));
 			}
 		}
@@ -172,17 +181,6 @@ public class WebRequestTraceFilter extends OncePerRequestFilter implements Order
 		return headers;
 	}
 
-	private Set<String> getExcludeHeaders() {
-		Set<String> excludedHeaders = new HashSet<String>();
-		if (!isIncluded(Include.COOKIES)) {
-			excludedHeaders.add("cookie");
-		}
-		if (!isIncluded(Include.AUTHORIZATION_HEADER)) {
-			excludedHeaders.add("authorization");
-		}
-		return excludedHeaders;
-	}
-
 	private Object getHeaderValue(HttpServletRequest request, String name) {
 		List<String> value = Collections.list(request.getHeaders(name));
 		if (value.size() == 1) {
@@ -194,8 +192,16 @@ public class WebRequestTraceFilter extends OncePerRequestFilter implements Order
 		return value;
 	}
 
-	private Map<String, String[]> getParameterMapCopy(HttpServletRequest request) {
-		return new LinkedHashMap<String, String[]>(request.getParameterMap());
+	private Map<String, ?> getParameterMapCopy(HttpServletRequest request) {
+		if (!this.properties.isLazyCapture()) {
+			return new LinkedHashMap<String, String[]>(request.getParameterMap());
+		}
+		Map<String, String[]> parameters = request.getParameterMap();
+		Map<String, Object> copy = createMap(parameters.size());
+		for (Map.Entry<String, String[]> entry : parameters.entrySet()) {
+			copy.put(entry.getKey(), entry.getValue());
+		}
+		return copy;
 	}
 
 	/**
@@ -212,22 +218,28 @@ public class WebRequestTraceFilter extends OncePerRequestFilter implements Order
 				"" + TimeUnit.NANOSECONDS.toMillis(timeTaken));
 	}
 
-	@SuppressWarnings("unchecked")
 	protected void enhanceTrace(Map<String, Object> trace, HttpServletResponse response) {
 		if (isIncluded(Include.RESPONSE_HEADERS)) {
-			Map<String, Object> headers = (Map<String, Object>) trace.get("headers");
-			headers.put("response", getResponseHeaders(response));
+			getHeaders(trace).put("response", getResponseHeaders(response));
 		}
 	}
 
-	private Map<String, String> getResponseHeaders(HttpServletResponse response) {
-		Map<String, String> headers = new LinkedHashMap<String, String>();
-		for (String header : response.getHeaderNames()) {
-			String value = response.getHeader(header);
-			headers.put(header, value);
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> getHeaders(Map<String, Object> trace) {
+		if (trace instanceof CompactTraceInfo) {
+			// Avoid expanding a lazily captured trace
+			return (Map<String, Object>) ((CompactTraceInfo) trace).getCaptured("headers");
 		}
-		if (!isIncluded(Include.COOKIES)) {
-			headers.remove("Set-Cookie");
+		return (Map<String, Object>) trace.get("headers");
+	}
+
+	private Map<String, Object> getResponseHeaders(HttpServletResponse response) {
+		Map<String, Object> headers = createMap(16);
+		boolean includeCookies = isIncluded(Include.COOKIES);
+		for (String header : response.getHeaderNames()) {
+			if (includeCookies || !"Set-Cookie".equals(header)) {
+				headers.put(header, response.getHeader(header));
+			}
 		}
 		headers.put("status", "" + response.getStatus());
 		return headers;
@@ -250,6 +262,22 @@ public class WebRequestTraceFilter extends OncePerRequestFilter implements Order
 		}
 	}
 
+	@UsesJava7
+	private boolean isSampled() {
+		double sampleRate = this.properties.getSampleRate();
+		if (sampleRate >= 1.0) {
+			return true;
+		}
+		return sampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+	}
+
+	private Map<String, Object> createMap(int initialCapacity) {
+		if (this.properties.isLazyCapture()) {
+			return new CompactTraceInfo(initialCapacity);
+		}
+		return new LinkedHashMap<String, Object>();
+	}
+
 	private boolean isIncluded(Include include) {
 		return this.properties.getInclude().contains(include);
 	}
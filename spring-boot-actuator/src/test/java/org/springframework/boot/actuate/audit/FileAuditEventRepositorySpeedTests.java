@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.audit;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.util.StopWatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Speed tests for {@link FileAuditEventRepository} measuring append throughput and the
+ * latency of queries for recent events once the log is large. Run with
+ * {@code -Dperformance.test=true} to append 10M events.
+ *
+ * @author agent (agent@local)
+ */
+public class FileAuditEventRepositorySpeedTests {
+
+	@ClassRule
+	public static TemporaryFolder temp = new TemporaryFolder();
+
+	private static final int number = Boolean.getBoolean("performance.test") ? 10000000
+			: 100000;
+
+	private static final int principals = 1000;
+
+	private static StopWatch watch = new StopWatch("audit");
+
+	@AfterClass
+	public static void washup() {
+		System.err.println(watch.prettyPrint());
+	}
+
+	@Test
+	public void appendAndQuery() throws Exception {
+		FileAuditEventRepository repository = new FileAuditEventRepository(
+				temp.getRoot());
+		try {
+			long start = System.currentTimeMillis() - number;
+			Map<String, Object> data = new LinkedHashMap<String, Object>();
+			data.put("remoteAddress", "127.0.0.1");
+			data.put("sessionId", "2C7B1DB1B2B6E2F2A7D2A2B8D1C1E0F3");
+			watch.start("append(" + number + ")");
+			for (int i = 0; i < number; i++) {
+				repository.add(new AuditEvent(new Date(start + i), "user" + (i % principals),
+						(i % 10 == 0 ? "AUTHENTICATION_FAILURE" : "AUTHENTICATION_SUCCESS"),
+						data));
+			}
+			watch.stop();
+			System.err.println(watch.getLastTaskName() + " rate=" + (double) number
+					/ Math.max(watch.getLastTaskTimeMillis(), 1) * 1000);
+			// The last 10000 events
+			Date after = new Date(start + number - 10000);
+			List<AuditEvent> events = null;
+			watch.start("find(after)");
+			for (int i = 0; i < 100; i++) {
+				events = repository.find(after);
+			}
+			watch.stop();
+			report(events, 10000);
+			watch.start("find(principal, after, type)");
+			for (int i = 0; i < 100; i++) {
+				events = repository.find("user0", after, "AUTHENTICATION_FAILURE");
+			}
+			watch.stop();
+			report(events, 10);
+			watch.start("find(principal)");
+			events = repository.find("user1", null);
+			watch.stop();
+			assertThat(events).hasSize(number / principals);
+		}
+		finally {
+			repository.close();
+		}
+	}
+
+	private void report(List<AuditEvent> events, int expected) {
+		System.err.println(watch.getLastTaskName() + " latency="
+				+ watch.getLastTaskTimeMillis() / 100.0 + "ms");
+		assertThat(events).hasSize(expected);
+	}
+
+}
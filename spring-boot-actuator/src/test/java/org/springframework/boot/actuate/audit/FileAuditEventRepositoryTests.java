@@ -0,0 +1,260 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.audit;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link FileAuditEventRepository}.
+ *
+ * @author agent (agent@local)
+ */
+public class FileAuditEventRepositoryTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private FileAuditEventRepository repository;
+
+	@After
+	public void close() {
+		if (this.repository != null) {
+			this.repository.close();
+		}
+	}
+
+	@Test
+	public void findByPrincipalAndType() throws Exception {
+		this.repository = new FileAuditEventRepository(this.temp.getRoot());
+		this.repository.add(new AuditEvent("dave", "a"));
+		this.repository.add(new AuditEvent("phil", "b"));
+		this.repository.add(new AuditEvent("dave", "c"));
+		this.repository.add(new AuditEvent("phil", "a"));
+		assertThat(this.repository.find(null)).hasSize(4);
+		List<AuditEvent> events = this.repository.find("dave", null);
+		assertThat(events).hasSize(2);
+		assertThat(events.get(0).getType()).isEqualTo("a");
+		assertThat(events.get(1).getType()).isEqualTo("c");
+		events = this.repository.find(null, null, "a");
+		assertThat(events).hasSize(2);
+		assertThat(events.get(1).getPrincipal()).isEqualTo("phil");
+		events = this.repository.find("phil", null, "a");
+		assertThat(events).hasSize(1);
+		assertThat(this.repository.find("phil", null, "c")).isEmpty();
+	}
+
+	@Test
+	public void findByDate() throws Exception {
+		this.repository = new FileAuditEventRepository(this.temp.getRoot(), 4096);
+		for (int i = 0; i < 500; i++) {
+			// Mostly ascending, with some events that arrive late
+			long timestamp = (i % 10 == 0 ? i - 50 : i);
+			this.repository.add(new AuditEvent(new Date(timestamp), "dave", "a",
+					new LinkedHashMap<String, Object>()));
+		}
+		List<AuditEvent> events = this.repository.find(new Date(400));
+		assertThat(events).hasSize(90 + 5);
+		for (AuditEvent event : events) {
+			assertThat(event.getTimestamp().getTime()).isGreaterThanOrEqualTo(400);
+		}
+		assertThat(this.repository.find("dave", new Date(1000))).isEmpty();
+	}
+
+	@Test
+	public void data() throws Exception {
+		this.repository = new FileAuditEventRepository(this.temp.getRoot());
+		Map<String, Object> data = new LinkedHashMap<String, Object>();
+		data.put("string", "été");
+		data.put("long", -123456789012L);
+		data.put("integer", 42);
+		data.put("double", 1.5);
+		data.put("boolean", true);
+		data.put("null", null);
+		data.put("other", new StringBuilder("foo"));
+		Date timestamp = new Date();
+		this.repository.add(new AuditEvent(timestamp, "dave", "a", data));
+		AuditEvent event = this.repository.find(null).get(0);
+		assertThat(event.getTimestamp()).isEqualTo(timestamp);
+		assertThat(event.getPrincipal()).isEqualTo("dave");
+		assertThat(event.getType()).isEqualTo("a");
+		Map<String, Object> expected = new LinkedHashMap<String, Object>(data);
+		expected.put("other", "foo");
+		assertThat(event.getData()).isEqualTo(expected);
+	}
+
+	@Test
+	public void eventsSurviveReopening() throws Exception {
+		this.repository = new FileAuditEventRepository(this.temp.getRoot(), 4096);
+		for (int i = 0; i < 200; i++) {
+			this.repository.add(new AuditEvent("user" + (i % 3), "a"));
+		}
+		this.repository.close();
+		assertThat(this.temp.getRoot().list().length).isGreaterThan(1);
+		this.repository = new FileAuditEventRepository(this.temp.getRoot(), 4096);
+		assertThat(this.repository.find(null)).hasSize(200);
+		this.repository.add(new AuditEvent("user1", "b"));
+		List<AuditEvent> events = this.repository.find("user1", null);
+		assertThat(events).hasSize(68);
+		assertThat(events.get(67).getType()).isEqualTo("b");
+	}
+
+	@Test
+	public void incompleteRecordIsDiscarded() throws Exception {
+		this.repository = new FileAuditEventRepository(this.temp.getRoot());
+		this.repository.add(new AuditEvent("dave", "a"));
+		this.repository.add(new AuditEvent("dave", "b"));
+		this.repository.close();
+		File file = this.temp.getRoot().listFiles()[0];
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			// Corrupt the last byte of the second record
+			long position = findEnd(randomAccessFile) - 1;
+			randomAccessFile.seek(position);
+			int value = randomAccessFile.read();
+			randomAccessFile.seek(position);
+			randomAccessFile.write(value ^ 0xFF);
+		}
+		finally {
+			randomAccessFile.close();
+		}
+		this.repository = new FileAuditEventRepository(this.temp.getRoot());
+		List<AuditEvent> events = this.repository.find(null);
+		assertThat(events).hasSize(1);
+		this.repository.add(new AuditEvent("dave", "c"));
+		events = this.repository.find(null);
+		assertThat(events).hasSize(2);
+		assertThat(events.get(1).getType()).isEqualTo("c");
+	}
+
+	@Test
+	public void maxSegments() throws Exception {
+		this.repository = new FileAuditEventRepository(this.temp.getRoot(), 1024);
+		this.repository.setMaxSegments(2);
+		for (int i = 0; i < 1000; i++) {
+			this.repository.add(new AuditEvent("dave", "a", "index=" + i));
+		}
+		assertThat(this.temp.getRoot().list()).hasSize(2);
+		List<AuditEvent> events = this.repository.find(null);
+		assertThat(events.size()).isLessThan(1000);
+		assertThat(events.get(events.size() - 1).getData()).containsEntry("index",
+				"999");
+	}
+
+	@Test
+	public void retentionPeriod() throws Exception {
+		this.repository = new FileAuditEventRepository(this.temp.getRoot(), 1024);
+		this.repository.setRetentionPeriod(60000);
+		for (int i = 0; i < 100; i++) {
+			this.repository.add(new AuditEvent(new Date(i), "dave", "a",
+					new LinkedHashMap<String, Object>()));
+		}
+		for (int i = 0; i < 100; i++) {
+			this.repository.add(new AuditEvent("dave", "b"));
+		}
+		// Only the segment that also contains recent events is kept
+		assertThat(this.repository.find(null, null, "a").size()).isLessThan(50);
+		assertThat(this.repository.find(null, null, "b")).hasSize(100);
+	}
+
+	@Test
+	public void retentionPeriodWithoutNewSegments() throws Exception {
+		this.repository = new FileAuditEventRepository(this.temp.getRoot());
+		this.repository.setRetentionPeriod(200);
+		this.repository.add(new AuditEvent("dave", "a"));
+		this.repository.add(new AuditEvent("dave", "b"));
+		assertThat(this.repository.find(null)).hasSize(2);
+		File file = this.temp.getRoot().listFiles()[0];
+		Thread.sleep(300);
+		assertThat(this.repository.find(null)).isEmpty();
+		assertThat(file).doesNotExist();
+		assertThat(this.temp.getRoot().list()).hasSize(1);
+		this.repository.add(new AuditEvent("dave", "c"));
+		List<AuditEvent> events = this.repository.find(null);
+		assertThat(events).hasSize(1);
+		assertThat(events.get(0).getType()).isEqualTo("c");
+	}
+
+	@Test
+	public void segmentsOnlyTakeTheSpaceOfTheirEvents() throws Exception {
+		this.repository = new FileAuditEventRepository(this.temp.getRoot());
+		this.repository.add(new AuditEvent("dave", "a"));
+		this.repository.flush();
+		File file = this.temp.getRoot().listFiles()[0];
+		assertThat(file.length()).isGreaterThan(0).isLessThan(100);
+	}
+
+	@Test
+	public void interruptedThreadDoesNotCloseTheLog() throws Exception {
+		this.repository = new FileAuditEventRepository(this.temp.getRoot());
+		this.repository.add(new AuditEvent("dave", "a"));
+		Thread.currentThread().interrupt();
+		try {
+			this.repository.add(new AuditEvent("dave", "b"));
+			assertThat(this.repository.find(null)).hasSize(2);
+		}
+		finally {
+			Thread.interrupted();
+		}
+		this.repository.add(new AuditEvent("dave", "c"));
+		assertThat(this.repository.find(null)).hasSize(3);
+	}
+
+	@Test
+	public void largeEvent() throws Exception {
+		this.repository = new FileAuditEventRepository(this.temp.getRoot(), 1024);
+		StringBuilder message = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			message.append("message");
+		}
+		this.repository.add(new AuditEvent("dave", "a"));
+		this.repository.add(new AuditEvent("dave", "b", "message=" + message));
+		this.repository.add(new AuditEvent("dave", "c"));
+		List<AuditEvent> events = this.repository.find(null);
+		assertThat(events).hasSize(3);
+		assertThat(events.get(1).getData()).containsEntry("message",
+				message.toString());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void addAfterClose() throws Exception {
+		this.repository = new FileAuditEventRepository(this.temp.getRoot());
+		this.repository.close();
+		this.repository.add(new AuditEvent("dave", "a"));
+	}
+
+	private long findEnd(RandomAccessFile file) throws Exception {
+		long position = 0;
+		while (position < file.length()) {
+			file.seek(position);
+			position += 8 + file.readInt();
+		}
+		return position;
+	}
+
+}
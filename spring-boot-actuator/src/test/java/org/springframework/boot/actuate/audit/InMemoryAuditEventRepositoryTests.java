@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -122,4 +122,108 @@ public class InMemoryAuditEventRepositoryTests {
 		assertThat(events.get(0).getType()).isEqualTo("c");
 	}
 
+	@Test
+	public void findByType() throws Exception {
+		InMemoryAuditEventRepository repository = new InMemoryAuditEventRepository();
+		repository.add(new AuditEvent("dave", "a"));
+		repository.add(new AuditEvent("phil", "b"));
+		repository.add(new AuditEvent("phil", "a"));
+		List<AuditEvent> events = repository.find(null, null, "a");
+		assertThat(events.size()).isEqualTo(2);
+		assertThat(events.get(0).getPrincipal()).isEqualTo("dave");
+		assertThat(events.get(1).getPrincipal()).isEqualTo("phil");
+	}
+
+	@Test
+	public void findByUnknownPrincipalAndType() throws Exception {
+		InMemoryAuditEventRepository repository = new InMemoryAuditEventRepository();
+		repository.add(new AuditEvent("dave", "a"));
+		assertThat(repository.find("phil", null, "a")).isEmpty();
+		assertThat(repository.find("dave", null, "b")).isEmpty();
+	}
+
+	@Test
+	public void findByDateOutOfOrder() throws Exception {
+		Map<String, Object> data = new HashMap<String, Object>();
+		InMemoryAuditEventRepository repository = new InMemoryAuditEventRepository(
+				3000);
+		for (int i = 0; i < 2500; i++) {
+			repository.add(new AuditEvent(new Date(i % 2 == 0 ? 1000 : 5000 + i),
+					"dave", "a", data));
+		}
+		repository.add(new AuditEvent(new Date(2000), "phil", "b", data));
+		List<AuditEvent> events = repository.find(new Date(2000));
+		assertThat(events.size()).isEqualTo(1251);
+		assertThat(events.get(0).getTimestamp().getTime()).isEqualTo(5001);
+		assertThat(events.get(1250).getPrincipal()).isEqualTo("phil");
+		assertThat(repository.find(new Date(7000))).hasSize(250);
+	}
+
+	@Test
+	public void capacityAcrossSegments() throws Exception {
+		InMemoryAuditEventRepository repository = new InMemoryAuditEventRepository(
+				5000);
+		for (int i = 0; i < 12345; i++) {
+			repository.add(new AuditEvent("user" + (i % 7), "type" + (i % 3)));
+		}
+		assertThat(repository.find(null)).hasSize(5000);
+		int total = 0;
+		for (int i = 0; i < 7; i++) {
+			List<AuditEvent> events = repository.find("user" + i, null);
+			for (AuditEvent event : events) {
+				assertThat(event.getPrincipal()).isEqualTo("user" + i);
+			}
+			total += events.size();
+		}
+		assertThat(total).isEqualTo(5000);
+		List<AuditEvent> events = repository.find("user1", null, "type2");
+		// i % 7 == 1 && i % 3 == 2 within the last 5000 events
+		int expected = 0;
+		for (int i = 12345 - 5000; i < 12345; i++) {
+			if (i % 7 == 1 && i % 3 == 2) {
+				expected++;
+			}
+		}
+		assertThat(events).hasSize(expected);
+		assertThat(repository.find("user1", null, "type3")).isEmpty();
+	}
+
+	@Test
+	public void setCapacity() throws Exception {
+		InMemoryAuditEventRepository repository = new InMemoryAuditEventRepository();
+		repository.add(new AuditEvent("dave", "a"));
+		repository.setCapacity(1);
+		assertThat(repository.find(null)).isEmpty();
+		repository.add(new AuditEvent("dave", "b"));
+		repository.add(new AuditEvent("dave", "c"));
+		List<AuditEvent> events = repository.find("dave", null);
+		assertThat(events.size()).isEqualTo(1);
+		assertThat(events.get(0).getType()).isEqualTo("c");
+	}
+
+	@Test
+	public void findWhileAdding() throws Exception {
+		final InMemoryAuditEventRepository repository = new InMemoryAuditEventRepository(
+				2000);
+		Thread writer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				for (int i = 0; i < 100000; i++) {
+					repository.add(new AuditEvent("user" + (i % 5), "a"));
+				}
+			}
+
+		});
+		writer.start();
+		while (writer.isAlive()) {
+			assertThat(repository.find(null).size()).isLessThanOrEqualTo(2000);
+			for (AuditEvent event : repository.find("user3", null, "a")) {
+				assertThat(event.getPrincipal()).isEqualTo("user3");
+			}
+		}
+		writer.join();
+		assertThat(repository.find("user3", null)).hasSize(400);
+	}
+
 }
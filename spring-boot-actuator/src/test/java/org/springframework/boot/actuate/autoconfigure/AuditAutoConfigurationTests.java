@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,16 +16,20 @@
 
 package org.springframework.boot.actuate.autoconfigure;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.actuate.audit.AuditEventRepository;
+import org.springframework.boot.actuate.audit.FileAuditEventRepository;
 import org.springframework.boot.actuate.audit.InMemoryAuditEventRepository;
 import org.springframework.boot.actuate.audit.listener.AbstractAuditListener;
 import org.springframework.boot.actuate.security.AbstractAuthenticationAuditListener;
 import org.springframework.boot.actuate.security.AbstractAuthorizationAuditListener;
 import org.springframework.boot.actuate.security.AuthenticationAuditListener;
 import org.springframework.boot.actuate.security.AuthorizationAuditListener;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -43,6 +47,9 @@ import static org.assertj.core.api.Assertions.assertThat;
  */
 public class AuditAutoConfigurationTests {
 
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
 	private AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
 
 	@Test
@@ -53,6 +60,20 @@ public class AuditAutoConfigurationTests {
 		assertThat(this.context.getBean(AuthorizationAuditListener.class)).isNotNull();
 	}
 
+	@Test
+	public void fileAuditEventRepository() throws Exception {
+		EnvironmentTestUtils.addEnvironment(this.context,
+				"management.audit.file.path=" + this.temp.getRoot().getAbsolutePath(),
+				"management.audit.file.segment-size=4096");
+		registerAndRefresh(AuditAutoConfiguration.class);
+		AuditEventRepository repository = this.context
+				.getBean(AuditEventRepository.class);
+		assertThat(repository).isInstanceOf(FileAuditEventRepository.class);
+		repository.add(new AuditEvent("dave", "a"));
+		this.context.close();
+		assertThat(this.temp.getRoot().list()).hasSize(1);
+	}
+
 	@Test
 	public void ownAuditEventRepository() throws Exception {
 		registerAndRefresh(CustomAuditEventRepositoryConfiguration.class,
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
 import javax.sql.DataSource;
 
@@ -30,6 +31,7 @@ import org.flywaydb.core.Flyway;
 import org.junit.After;
 import org.junit.Test;
 
+import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.boot.actuate.endpoint.AutoConfigurationReportEndpoint;
 import org.springframework.boot.actuate.endpoint.BeansEndpoint;
 import org.springframework.boot.actuate.endpoint.DumpEndpoint;
@@ -45,6 +47,8 @@ import org.springframework.boot.actuate.endpoint.RequestMappingEndpoint;
 import org.springframework.boot.actuate.endpoint.ShutdownEndpoint;
 import org.springframework.boot.actuate.endpoint.TraceEndpoint;
 import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthProber;
+import org.springframework.boot.actuate.health.Status;
 import org.springframework.boot.actuate.info.Info;
 import org.springframework.boot.actuate.info.InfoContributor;
 import org.springframework.boot.actuate.metrics.Metric;
@@ -127,6 +131,79 @@ public class EndpointAutoConfigurationTests {
 		assertThat(result).isNotNull();
 	}
 
+	@Test
+	public void healthEndpointWithParallelHealthIndicators() {
+		this.context = new AnnotationConfigApplicationContext();
+		EnvironmentTestUtils.addEnvironment(this.context,
+				"management.health.parallel.enabled=true",
+				"management.health.parallel.timeout=5000");
+		this.context.register(EmbeddedDataSourceConfiguration.class,
+				EndpointAutoConfiguration.class, HealthIndicatorAutoConfiguration.class);
+		this.context.refresh();
+		Health result = this.context.getBean(HealthEndpoint.class).invoke();
+		assertThat(result.getStatus()).isEqualTo(Status.UP);
+		assertThat(((Health) result.getDetails().get("db")).getDetails())
+				.containsKey("elapsed");
+	}
+
+	@Test
+	public void healthIndicatorExecutorIsShutDownWithContext() {
+		this.context = new AnnotationConfigApplicationContext();
+		EnvironmentTestUtils.addEnvironment(this.context,
+				"management.health.parallel.enabled=true");
+		this.context.register(EndpointAutoConfiguration.class);
+		this.context.refresh();
+		ExecutorService executor = this.context.getBean("healthIndicatorExecutor",
+				ExecutorService.class);
+		assertThat(executor.isShutdown()).isFalse();
+		this.context.close();
+		assertThat(executor.isShutdown()).isTrue();
+	}
+
+	@Test
+	public void healthIndicatorExecutorNeedsThreads() {
+		this.context = new AnnotationConfigApplicationContext();
+		EnvironmentTestUtils.addEnvironment(this.context,
+				"management.health.parallel.enabled=true",
+				"management.health.parallel.threads=0");
+		this.context.register(EndpointAutoConfiguration.class);
+		try {
+			this.context.refresh();
+			throw new AssertionError("Expected BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertThat(ex).hasStackTraceContaining("Threads must be greater than 0");
+		}
+	}
+
+	@Test
+	public void noHealthIndicatorExecutorByDefault() {
+		load(EndpointAutoConfiguration.class);
+		assertThat(this.context.containsBean("healthIndicatorExecutor")).isFalse();
+	}
+
+	@Test
+	public void healthEndpointWithBackgroundHealthIndicators() throws Exception {
+		this.context = new AnnotationConfigApplicationContext();
+		EnvironmentTestUtils.addEnvironment(this.context,
+				"management.health.background.enabled=true",
+				"management.health.background.intervals.db=60000");
+		this.context.register(EmbeddedDataSourceConfiguration.class,
+				EndpointAutoConfiguration.class, HealthIndicatorAutoConfiguration.class);
+		this.context.refresh();
+		assertThat(this.context.getBean(HealthProber.class).isRunning()).isTrue();
+		HealthEndpoint endpoint = this.context.getBean(HealthEndpoint.class);
+		long timeout = System.currentTimeMillis() + 5000;
+		Health db = (Health) endpoint.invoke().getDetails().get("db");
+		while (!db.getStatus().equals(Status.UP)
+				&& System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+			db = (Health) endpoint.invoke().getDetails().get("db");
+		}
+		assertThat(db.getStatus()).isEqualTo(Status.UP);
+		assertThat(db.getDetails()).containsKey("age");
+	}
+
 	@Test
 	public void loggersEndpointHasLoggers() throws Exception {
 		load(CustomLoggingConfig.class, EndpointAutoConfiguration.class);
@@ -44,6 +44,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import org.springframework.boot.actuate.endpoint.Endpoint;
+import org.springframework.boot.actuate.endpoint.mvc.DumpMvcEndpoint;
 import org.springframework.boot.actuate.endpoint.mvc.EndpointHandlerMapping;
 import org.springframework.boot.actuate.endpoint.mvc.EndpointHandlerMappingCustomizer;
 import org.springframework.boot.actuate.endpoint.mvc.EnvironmentMvcEndpoint;
@@ -440,9 +441,9 @@ public class EndpointWebMvcAutoConfigurationTests {
 				BaseConfiguration.class, ServerPortConfig.class,
 				EndpointWebMvcAutoConfiguration.class);
 		this.applicationContext.refresh();
-		// /health, /metrics, /loggers, /env, /actuator, /heapdump, /auditevents
+		// /health, /metrics, /loggers, /env, /dump, /actuator, /heapdump, /auditevents
 		// (/shutdown is disabled by default)
-		assertThat(this.applicationContext.getBeansOfType(MvcEndpoint.class)).hasSize(7);
+		assertThat(this.applicationContext.getBeansOfType(MvcEndpoint.class)).hasSize(8);
 	}
 
 	@Test
@@ -460,6 +461,11 @@ public class EndpointWebMvcAutoConfigurationTests {
 		endpointDisabled("env", EnvironmentMvcEndpoint.class);
 	}
 
+	@Test
+	public void dumpEndpointDisabled() throws Exception {
+		endpointDisabled("dump", DumpMvcEndpoint.class);
+	}
+
 	@Test
 	public void environmentEndpointEnabledOverride() throws Exception {
 		endpointEnabledOverride("env", EnvironmentMvcEndpoint.class);
@@ -290,7 +290,7 @@ public class MetricFilterAutoConfigurationTests {
 		MockMvc mvc = MockMvcBuilders
 				.standaloneSetup(new MetricFilterTestController(latch)).addFilter(filter)
 				.build();
-		String attributeName = MetricsFilter.class.getName() + ".StopWatch";
+		String attributeName = MetricsFilter.class.getName() + ".StartTime";
 		MvcResult result = mvc.perform(post("/create")).andExpect(status().isOk())
 				.andExpect(request().asyncStarted())
 				.andExpect(request().attribute(attributeName, is(notNullValue())))
@@ -312,7 +312,7 @@ public class MetricFilterAutoConfigurationTests {
 		MockMvc mvc = MockMvcBuilders
 				.standaloneSetup(new MetricFilterTestController(latch)).addFilter(filter)
 				.build();
-		String attributeName = MetricsFilter.class.getName() + ".StopWatch";
+		String attributeName = MetricsFilter.class.getName() + ".StartTime";
 		MvcResult result = mvc.perform(post("/createFailure")).andExpect(status().isOk())
 				.andExpect(request().asyncStarted())
 				.andExpect(request().attribute(attributeName, is(notNullValue())))
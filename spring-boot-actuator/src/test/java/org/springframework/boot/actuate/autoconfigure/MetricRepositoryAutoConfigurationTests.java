@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,10 +25,17 @@ import org.springframework.boot.actuate.metrics.CounterService;
 import org.springframework.boot.actuate.metrics.GaugeService;
 import org.springframework.boot.actuate.metrics.buffer.BufferCounterService;
 import org.springframework.boot.actuate.metrics.buffer.BufferGaugeService;
+import org.springframework.boot.actuate.metrics.buffer.BufferMetricReader;
+import org.springframework.boot.actuate.metrics.buffer.CounterBuffers;
+import org.springframework.boot.actuate.metrics.buffer.StripedCounterBuffers;
 import org.springframework.boot.actuate.metrics.dropwizard.DropwizardMetricServices;
+import org.springframework.boot.actuate.metrics.histogram.HistogramGaugeService;
+import org.springframework.boot.actuate.metrics.histogram.HistogramMetricReader;
+import org.springframework.boot.actuate.metrics.histogram.Histograms;
 import org.springframework.boot.actuate.metrics.reader.MetricReader;
 import org.springframework.boot.actuate.metrics.reader.PrefixMetricReader;
 import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -66,6 +73,49 @@ public class MetricRepositoryAutoConfigurationTests {
 		assertThat(bean.findOne("gauge.foo").getValue()).isEqualTo(2.7);
 	}
 
+	@Test
+	public void createStripedCounterBuffers() throws Exception {
+		this.context = new AnnotationConfigApplicationContext();
+		EnvironmentTestUtils.addEnvironment(this.context,
+				"spring.metrics.buffer.striped:true");
+		this.context.register(MetricRepositoryAutoConfiguration.class);
+		this.context.refresh();
+		assertThat(this.context.getBean(CounterBuffers.class))
+				.isInstanceOf(StripedCounterBuffers.class);
+		this.context.getBean(CounterService.class).increment("foo");
+		MetricReader bean = this.context.getBean(MetricReader.class);
+		assertThat(bean.findOne("counter.foo").getValue()).isEqualTo(1L);
+	}
+
+	@Test
+	public void createHistograms() throws Exception {
+		this.context = new AnnotationConfigApplicationContext();
+		EnvironmentTestUtils.addEnvironment(this.context,
+				"spring.metrics.histogram.enabled:true",
+				"spring.metrics.histogram.percentiles:0.5,0.9",
+				"spring.metrics.histogram.interval-millis:0");
+		this.context.register(MetricRepositoryAutoConfiguration.class);
+		this.context.refresh();
+		GaugeService gaugeService = this.context.getBean(GaugeService.class);
+		assertThat(gaugeService).isInstanceOf(HistogramGaugeService.class);
+		gaugeService.submit("response.foo", 12);
+		HistogramMetricReader reader = this.context
+				.getBean(HistogramMetricReader.class);
+		assertThat(reader.findOne("histogram.response.foo.p90").getValue())
+				.isEqualTo(12.0);
+		assertThat(this.context.getBean(BufferMetricReader.class)
+				.findOne("gauge.response.foo").getValue()).isEqualTo(12.0);
+	}
+
+	@Test
+	public void histogramsNotCreatedByDefault() throws Exception {
+		this.context = new AnnotationConfigApplicationContext(
+				MetricRepositoryAutoConfiguration.class);
+		assertThat(this.context.getBean(GaugeService.class))
+				.isNotInstanceOf(HistogramGaugeService.class);
+		assertThat(this.context.getBeansOfType(Histograms.class)).isEmpty();
+	}
+
 	@Test
 	public void dropwizardInstalledIfPresent() {
 		this.context = new AnnotationConfigApplicationContext(
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.autoconfigure;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.EnumSet;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import org.springframework.boot.actuate.metrics.buffer.BufferCounterService;
+import org.springframework.boot.actuate.metrics.buffer.BufferGaugeService;
+import org.springframework.boot.actuate.metrics.buffer.CounterBuffers;
+import org.springframework.boot.actuate.metrics.buffer.GaugeBuffers;
+import org.springframework.lang.UsesJava8;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Speed tests for {@link MetricsFilter} measuring time and allocation per request with
+ * and without {@link MetricFilterProperties#isCacheMetricNames() cached metric names}.
+ * Run with {@code -Dperformance.test=true} for more meaningful numbers.
+ *
+ * @author agent (agent@local)
+ */
+@UsesJava8
+public class MetricsFilterSpeedTests {
+
+	private static final int number = Boolean.getBoolean("performance.test") ? 10000000
+			: 100000;
+
+	private static final FilterChain chain = new FilterChain() {
+
+		@Override
+		public void doFilter(ServletRequest request, ServletResponse response)
+				throws IOException, ServletException {
+		}
+
+	};
+
+	@Test
+	public void allocationPerRequest() throws Exception {
+		com.sun.management.ThreadMXBean threads = getThreadMXBean();
+		long uncached = measure("uncached", threads, false);
+		long cached = measure("cached", threads, true);
+		assertThat(cached).isLessThan(uncached);
+	}
+
+	private long measure(String name, com.sun.management.ThreadMXBean threads,
+			boolean cacheMetricNames) throws Exception {
+		MetricFilterProperties properties = new MetricFilterProperties();
+		properties.setCacheMetricNames(cacheMetricNames);
+		properties.setGaugeSubmissions(EnumSet.allOf(MetricsFilterSubmission.class));
+		properties.setCounterSubmissions(EnumSet.allOf(MetricsFilterSubmission.class));
+		MetricsFilter filter = new MetricsFilter(
+				new BufferCounterService(new CounterBuffers()),
+				new BufferGaugeService(new GaugeBuffers()), properties);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET",
+				"/templateVarTest/foo");
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+				"/templateVarTest/{someVariable}");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		for (int i = 0; i < number / 10; i++) {
+			filter.doFilterInternal(request, response, chain);
+		}
+		long threadId = Thread.currentThread().getId();
+		long bytes = threads.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int i = 0; i < number; i++) {
+			filter.doFilterInternal(request, response, chain);
+		}
+		long nanos = System.nanoTime() - start;
+		long allocated = (threads.getThreadAllocatedBytes(threadId) - bytes) / number;
+		System.err.println(name + ": " + allocated + " bytes/request, "
+				+ (nanos / number) + " ns/request");
+		return allocated;
+	}
+
+	private com.sun.management.ThreadMXBean getThreadMXBean() {
+		Object threads = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean result = (com.sun.management.ThreadMXBean) threads;
+		Assume.assumeTrue(result.isThreadAllocatedMemorySupported()
+				&& result.isThreadAllocatedMemoryEnabled());
+		return result;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -35,9 +35,11 @@ import org.springframework.boot.actuate.endpoint.DataSourcePublicMetrics;
 import org.springframework.boot.actuate.endpoint.MetricReaderPublicMetrics;
 import org.springframework.boot.actuate.endpoint.PublicMetrics;
 import org.springframework.boot.actuate.endpoint.RichGaugeReaderPublicMetrics;
+import org.springframework.boot.actuate.endpoint.SampledSystemPublicMetrics;
 import org.springframework.boot.actuate.endpoint.SystemPublicMetrics;
 import org.springframework.boot.actuate.endpoint.TomcatPublicMetrics;
 import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.jdbc.DataSourceInstrumentation;
 import org.springframework.boot.actuate.metrics.rich.RichGauge;
 import org.springframework.boot.actuate.metrics.rich.RichGaugeReader;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
@@ -46,6 +48,7 @@ import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetada
 import org.springframework.boot.context.embedded.AnnotationConfigEmbeddedWebApplicationContext;
 import org.springframework.boot.context.embedded.MockEmbeddedServletContainerFactory;
 import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.ConfigurableApplicationContext;
@@ -88,6 +91,17 @@ public class PublicMetricsAutoConfigurationTests {
 		assertThat(this.context.getBeansOfType(SystemPublicMetrics.class)).hasSize(1);
 	}
 
+	@Test
+	public void sampledSystemPublicMetrics() throws Exception {
+		load(new Class<?>[0], "spring.metrics.system.sampling.enabled=true",
+				"spring.metrics.system.sampling.interval-millis=1000");
+		assertThat(this.context.getBeansOfType(SystemPublicMetrics.class)).hasSize(1);
+		SampledSystemPublicMetrics bean = this.context
+				.getBean(SampledSystemPublicMetrics.class);
+		assertThat(bean.isRunning()).isTrue();
+		assertMetrics(bean.metrics(), "mem", "heap.used");
+	}
+
 	@Test
 	public void metricReaderPublicMetrics() throws Exception {
 		load();
@@ -159,6 +173,35 @@ public class PublicMetricsAutoConfigurationTests {
 				"datasource.commonsDbcp.usage");
 	}
 
+	@Test
+	public void instrumentedDataSources() {
+		load(new Class<?>[] { MultipleDataSourcesConfig.class,
+				UnresetDataSourceInstrumentationConfig.class },
+				"spring.metrics.datasource.instrument=true");
+		assertThat(this.context.getBean("tomcatDataSource"))
+				.isInstanceOf(org.apache.tomcat.jdbc.pool.DataSource.class);
+		PublicMetrics bean = this.context.getBean(DataSourcePublicMetrics.class);
+		for (String name : new String[] { "tomcatDataSource", "hikariDS",
+				"commonsDbcpDataSource" }) {
+			new JdbcTemplate(this.context.getBean(name, DataSource.class))
+					.execute(new ConnectionCallback<Void>() {
+						@Override
+						public Void doInConnection(Connection connection)
+								throws SQLException, DataAccessException {
+							return null;
+						}
+					});
+		}
+		Collection<Metric<?>> metrics = bean.metrics();
+		for (String prefix : new String[] { "datasource.tomcat.",
+				"datasource.hikariDS.", "datasource.commonsDbcp." }) {
+			assertMetrics(metrics, prefix + "active", prefix + "usage",
+					prefix + "idle", prefix + "pending", prefix + "acquire.failures",
+					prefix + "acquire.count", prefix + "acquire.p99",
+					prefix + "hold.count", prefix + "hold.max");
+		}
+	}
+
 	@Test
 	public void multipleDataSourcesWithPrimary() {
 		load(MultipleDataSourcesWithPrimaryConfig.class);
@@ -250,7 +293,12 @@ public class PublicMetricsAutoConfigurationTests {
 	}
 
 	private void load(Class<?>... config) {
+		load(config, new String[0]);
+	}
+
+	private void load(Class<?>[] config, String... environment) {
 		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		EnvironmentTestUtils.addEnvironment(context, environment);
 		if (config.length > 0) {
 			context.register(config);
 		}
@@ -282,6 +330,17 @@ public class PublicMetricsAutoConfigurationTests {
 
 	}
 
+	@Configuration
+	static class UnresetDataSourceInstrumentationConfig {
+
+		@Bean
+		public static DataSourceInstrumentation dataSourceInstrumentation() {
+			// Publish the times as they are recorded rather than after an interval
+			return new DataSourceInstrumentation(0);
+		}
+
+	}
+
 	@Configuration
 	static class MultipleDataSourcesWithPrimaryConfig {
 
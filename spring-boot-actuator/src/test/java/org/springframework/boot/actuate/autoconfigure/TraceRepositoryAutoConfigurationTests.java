@@ -19,7 +19,9 @@ package org.springframework.boot.actuate.autoconfigure;
 import org.junit.Test;
 
 import org.springframework.boot.actuate.trace.InMemoryTraceRepository;
+import org.springframework.boot.actuate.trace.RingBufferTraceRepository;
 import org.springframework.boot.actuate.trace.TraceRepository;
+import org.springframework.boot.test.util.EnvironmentTestUtils;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -42,6 +44,18 @@ public class TraceRepositoryAutoConfigurationTests {
 		context.close();
 	}
 
+	@Test
+	public void configuresRingBufferTraceRepository() throws Exception {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		EnvironmentTestUtils.addEnvironment(context, "management.trace.ring-buffer:true");
+		context.register(TraceRepositoryAutoConfiguration.class);
+		context.refresh();
+		assertThat(context.getBean(TraceRepository.class))
+				.isInstanceOf(RingBufferTraceRepository.class);
+		assertThat(context.getBeansOfType(InMemoryTraceRepository.class)).isEmpty();
+		context.close();
+	}
+
 	@Test
 	public void skipsIfRepositoryExists() throws Exception {
 		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
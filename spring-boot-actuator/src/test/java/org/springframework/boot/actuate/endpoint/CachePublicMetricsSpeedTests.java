@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.endpoint;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.experimental.theories.DataPoints;
+import org.junit.experimental.theories.Theories;
+import org.junit.experimental.theories.Theory;
+import org.junit.runner.RunWith;
+
+import org.springframework.boot.actuate.cache.CacheStatisticsProvider;
+import org.springframework.boot.actuate.cache.CaffeineCacheStatisticsProvider;
+import org.springframework.boot.actuate.cache.ConcurrentMapCacheStatisticsProvider;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.util.StopWatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Speed tests for {@link CachePublicMetrics} with many caches. Run with
+ * {@code -Dperformance.test=true} for more meaningful numbers.
+ *
+ * @author agent (agent@local)
+ */
+@RunWith(Theories.class)
+public class CachePublicMetricsSpeedTests {
+
+	@DataPoints
+	public static int[] cacheCounts = new int[] { 10, 1000 };
+
+	private static final int number = Boolean.getBoolean("performance.test") ? 5000
+			: 50;
+
+	private static StopWatch watch = new StopWatch("caches");
+
+	@AfterClass
+	public static void washup() {
+		System.err.println(watch.prettyPrint());
+	}
+
+	@Theory
+	public void metrics(int cacheCount) throws Exception {
+		CachePublicMetrics metrics = createMetrics(cacheCount,
+				new ConcurrentMapCacheManager());
+		watch.start("metrics(" + cacheCount + ")");
+		int count = 0;
+		for (int i = 0; i < number; i++) {
+			count = metrics.metrics().size();
+		}
+		watch.stop();
+		report(count);
+		assertThat(count).isEqualTo(cacheCount * 2);
+	}
+
+	@Theory
+	public void metricsWithChangingCacheNames(int cacheCount) throws Exception {
+		ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+		CachePublicMetrics metrics = createMetrics(cacheCount, cacheManager);
+		watch.start("metricsWithChangingCacheNames(" + cacheCount + ")");
+		Collection<Metric<?>> result = null;
+		for (int i = 0; i < number; i++) {
+			cacheManager.getCache("new" + i);
+			result = metrics.metrics();
+		}
+		watch.stop();
+		report(result.size());
+		assertThat(result).hasSize(cacheCount * 2 + number);
+	}
+
+	private void report(int count) {
+		double rate = (double) number / Math.max(watch.getLastTaskTimeMillis(), 1)
+				* 1000;
+		System.err.println(watch.getLastTaskName() + " rate=" + rate + " metrics="
+				+ count);
+	}
+
+	private CachePublicMetrics createMetrics(int cacheCount,
+			ConcurrentMapCacheManager other) {
+		ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+		for (int i = 0; i < cacheCount; i++) {
+			cacheManager.getCache("cache" + i).put("key", i);
+			other.getCache("cache" + i);
+		}
+		Map<String, CacheManager> cacheManagers = new LinkedHashMap<String, CacheManager>();
+		cacheManagers.put("cacheManager", cacheManager);
+		cacheManagers.put("otherCacheManager", other);
+		Collection<CacheStatisticsProvider<?>> providers = Arrays.<CacheStatisticsProvider<?>>asList(
+				new CaffeineCacheStatisticsProvider(),
+				new ConcurrentMapCacheStatisticsProvider());
+		return new CachePublicMetrics(cacheManagers, providers);
+	}
+
+}
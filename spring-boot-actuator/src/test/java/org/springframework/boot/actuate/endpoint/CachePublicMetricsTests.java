@@ -95,6 +95,33 @@ public class CachePublicMetricsTests {
 		assertThat(metrics).containsOnly(entry("cache.foo.size", 0L));
 	}
 
+	@Test
+	public void cacheMetricsWhenCacheNamesChange() {
+		ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+		this.cacheManagers.put("cacheManager", cacheManager);
+		CachePublicMetrics cpm = new CachePublicMetrics(this.cacheManagers,
+				providers(new ConcurrentMapCacheStatisticsProvider()));
+		assertThat(metrics(cpm)).isEmpty();
+		cacheManager.getCache("foo");
+		assertThat(metrics(cpm)).containsOnly(entry("cache.foo.size", 0L));
+		this.cacheManagers.put("anotherCacheManager",
+				new ConcurrentMapCacheManager("foo"));
+		assertThat(metrics(cpm)).containsOnly(entry("cache.cacheManager_foo.size", 0L),
+				entry("cache.anotherCacheManager_foo.size", 0L));
+	}
+
+	@Test
+	public void cacheMetricsWhenCachesAreRecreated() {
+		ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("foo");
+		this.cacheManagers.put("cacheManager", cacheManager);
+		CachePublicMetrics cpm = new CachePublicMetrics(this.cacheManagers,
+				providers(new ConcurrentMapCacheStatisticsProvider()));
+		cacheManager.getCache("foo").put("key", "value");
+		assertThat(metrics(cpm)).containsOnly(entry("cache.foo.size", 1L));
+		cacheManager.setAllowNullValues(false);
+		assertThat(metrics(cpm)).containsOnly(entry("cache.foo.size", 0L));
+	}
+
 	private Map<String, Number> metrics(CachePublicMetrics cpm) {
 		Collection<Metric<?>> metrics = cpm.metrics();
 		assertThat(metrics).isNotNull();
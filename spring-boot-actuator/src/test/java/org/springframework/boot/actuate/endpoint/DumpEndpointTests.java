@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,8 @@ package org.springframework.boot.actuate.endpoint;
 
 import java.lang.management.ThreadInfo;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.Test;
 
@@ -44,6 +46,51 @@ public class DumpEndpointTests extends AbstractEndpointTests<DumpEndpoint> {
 		assertThat(threadInfo.size()).isGreaterThan(0);
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void sampleReportsBlockedLocks() throws Exception {
+		final Object lock = new Object();
+		final CountDownLatch started = new CountDownLatch(1);
+		Thread blocked = new Thread("blocked") {
+
+			@Override
+			public void run() {
+				started.countDown();
+				synchronized (lock) {
+					// Nothing to do
+				}
+			}
+
+		};
+		synchronized (lock) {
+			blocked.start();
+			started.await();
+			while (blocked.getState() != Thread.State.BLOCKED) {
+				Thread.sleep(1);
+			}
+			Map<String, Object> sample = getEndpointBean().sample(2, 0, 5);
+			assertThat(sample).containsEntry("samples", 2).containsEntry("interval", 0L);
+			List<Map<String, Object>> locks = (List<Map<String, Object>>) sample
+					.get("blockedLocks");
+			assertThat(locks).isNotEmpty();
+			assertThat((String) locks.get(0).get("lock")).startsWith("java.lang.Object@")
+					.contains("owned by \"" + Thread.currentThread().getName() + "\"");
+			assertThat(locks.get(0)).containsEntry("count", 2);
+			assertThat((List<?>) sample.get("hotFrames")).isNotEmpty();
+		}
+		blocked.join();
+	}
+
+	@Test
+	public void dumpWithoutLocks() throws Exception {
+		ThreadInfo[] threads = getEndpointBean().dumpAllThreads(false, false);
+		assertThat(threads).isNotEmpty();
+		for (ThreadInfo thread : threads) {
+			assertThat(thread.getLockedMonitors()).isEmpty();
+			assertThat(thread.getLockedSynchronizers()).isEmpty();
+		}
+	}
+
 	@Configuration
 	@EnableConfigurationProperties
 	public static class Config {
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.endpoint;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.boot.actuate.metrics.Metric;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link SampledSystemPublicMetrics}.
+ *
+ * @author agent (agent@local)
+ */
+public class SampledSystemPublicMetricsTests {
+
+	private final SampledSystemPublicMetrics publicMetrics = new SampledSystemPublicMetrics(
+			60000);
+
+	@After
+	public void stop() {
+		this.publicMetrics.stop();
+	}
+
+	@Test
+	public void firstReadSamples() throws Exception {
+		Map<String, Metric<?>> results = toMap(this.publicMetrics.metrics());
+		assertThat(results).containsKeys("mem", "uptime", "heap.used", "threads",
+				"classes");
+		assertThat(results).doesNotContainKey("gc.pause");
+	}
+
+	@Test
+	public void readsReturnSnapshot() throws Exception {
+		Collection<Metric<?>> metrics = this.publicMetrics.metrics();
+		assertThat(this.publicMetrics.metrics()).isSameAs(metrics);
+		this.publicMetrics.sample();
+		assertThat(this.publicMetrics.metrics()).isNotSameAs(metrics);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void snapshotIsImmutable() throws Exception {
+		this.publicMetrics.metrics().clear();
+	}
+
+	@Test
+	public void deltasAfterSecondSample() throws Exception {
+		this.publicMetrics.sample();
+		byte[][] garbage = new byte[100][];
+		for (int i = 0; i < garbage.length; i++) {
+			garbage[i] = new byte[1024];
+		}
+		Thread.sleep(10);
+		this.publicMetrics.sample();
+		Map<String, Metric<?>> results = toMap(this.publicMetrics.metrics());
+		assertThat(results).containsKey("gc.pause");
+		assertThat(results.get("gc.pause").getValue().longValue())
+				.isGreaterThanOrEqualTo(0);
+		assertThat(results).containsKey("mem.allocation.rate");
+		assertThat(results.get("mem.allocation.rate").getValue().doubleValue())
+				.isGreaterThan(0);
+		for (String name : results.keySet()) {
+			if (name.startsWith("gc.") && name.endsWith(".count")) {
+				String collector = name.substring(0, name.length() - ".count".length());
+				assertThat(results).containsKey(collector + ".pause");
+			}
+		}
+	}
+
+	@Test
+	public void startSamplesInBackground() throws Exception {
+		SampledSystemPublicMetrics publicMetrics = new SampledSystemPublicMetrics(10);
+		publicMetrics.start();
+		try {
+			assertThat(publicMetrics.isRunning()).isTrue();
+			Collection<Metric<?>> metrics = publicMetrics.metrics();
+			long timeout = System.currentTimeMillis() + 5000;
+			while (publicMetrics.metrics() == metrics
+					&& System.currentTimeMillis() < timeout) {
+				Thread.sleep(10);
+			}
+			assertThat(toMap(publicMetrics.metrics())).containsKey("gc.pause");
+		}
+		finally {
+			publicMetrics.stop();
+		}
+		assertThat(publicMetrics.isRunning()).isFalse();
+	}
+
+	private Map<String, Metric<?>> toMap(Collection<Metric<?>> metrics) {
+		Map<String, Metric<?>> results = new HashMap<String, Metric<?>>();
+		for (Metric<?> metric : metrics) {
+			results.put(metric.getName(), metric);
+		}
+		return results;
+	}
+
+}
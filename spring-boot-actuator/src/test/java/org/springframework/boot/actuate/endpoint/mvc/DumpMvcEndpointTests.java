@@ -0,0 +1,183 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.endpoint.mvc;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.AuditAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.EndpointWebMvcAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.ManagementServerPropertiesAutoConfiguration;
+import org.springframework.boot.actuate.endpoint.DumpEndpoint;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests for {@link DumpMvcEndpoint}.
+ *
+ * @author agent (agent@local)
+ */
+@RunWith(SpringRunner.class)
+@DirtiesContext
+@SpringBootTest
+@TestPropertySource(properties = "management.security.enabled=false")
+public class DumpMvcEndpointTests {
+
+	@Autowired
+	private WebApplicationContext context;
+
+	private MockMvc mvc;
+
+	@Before
+	public void setUp() {
+		this.context.getBean(DumpEndpoint.class).setEnabled(true);
+		this.mvc = MockMvcBuilders.webAppContextSetup(this.context).build();
+	}
+
+	@Test
+	public void home() throws Exception {
+		this.mvc.perform(get("/dump")).andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].threadName").exists());
+	}
+
+	@Test
+	public void text() throws Exception {
+		String main = Thread.currentThread().getName();
+		ResultActions result;
+		synchronized (this) {
+			result = this.mvc.perform(get("/dump").param("format", "text"));
+		}
+		result.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("text/plain"))
+				.andExpect(content().string(containsString("\"" + main + "\" #")))
+				.andExpect(content()
+						.string(containsString("java.lang.Thread.State: RUNNABLE")))
+				.andExpect(content().string(containsString("\tat ")))
+				.andExpect(content().string(containsString("\t- locked <0x")));
+	}
+
+	@Test
+	public void textWithoutLocks() throws Exception {
+		ResultActions result;
+		synchronized (this) {
+			result = this.mvc.perform(
+					get("/dump").param("format", "text").param("locks", "false"));
+		}
+		result.andExpect(status().isOk())
+				.andExpect(content().string(not(containsString("\t- locked "))));
+	}
+
+	@Test
+	public void ndjson() throws Exception {
+		MvcResult result = this.mvc.perform(get("/dump").param("format", "ndjson"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(DumpMvcEndpoint.APPLICATION_NDJSON_VALUE
+						+ ";charset=UTF-8"))
+				.andReturn();
+		String[] lines = result.getResponse().getContentAsString().split("\n");
+		assertThat(lines.length).isGreaterThan(0);
+		for (String line : lines) {
+			assertThat(line).startsWith("{\"threadName\":").endsWith("}");
+		}
+	}
+
+	@Test
+	public void unsupportedFormat() throws Exception {
+		this.mvc.perform(get("/dump").param("format", "xml"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void samples() throws Exception {
+		this.mvc.perform(get("/dump/samples").param("count", "2").param("interval", "1"))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.samples").value(2))
+				.andExpect(jsonPath("$.interval").value(1))
+				.andExpect(jsonPath("$.hotFrames[0].frame").exists())
+				.andExpect(jsonPath("$.hotFrames[0].count").exists())
+				.andExpect(jsonPath("$.blockedLocks").isArray());
+	}
+
+	@Test
+	public void samplesWithInvalidCount() throws Exception {
+		this.mvc.perform(get("/dump/samples").param("count", "0"))
+				.andExpect(status().isBadRequest());
+		this.mvc.perform(get("/dump/samples").param("count", "101"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void samplesWithInvalidInterval() throws Exception {
+		this.mvc.perform(get("/dump/samples").param("interval", "-1"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void samplesForTooLong() throws Exception {
+		this.mvc.perform(get("/dump/samples").param("count", "100").param("interval",
+				"10000")).andExpect(status().isBadRequest());
+		this.mvc.perform(
+				get("/dump/samples").param("count", "7").param("interval", "10000"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void homeWhenDisabled() throws Exception {
+		this.context.getBean(DumpEndpoint.class).setEnabled(false);
+		this.mvc.perform(get("/dump")).andExpect(status().isNotFound());
+		this.mvc.perform(get("/dump").param("format", "text"))
+				.andExpect(status().isNotFound());
+		this.mvc.perform(get("/dump/samples")).andExpect(status().isNotFound());
+	}
+
+	@Import({ JacksonAutoConfiguration.class, AuditAutoConfiguration.class,
+			HttpMessageConvertersAutoConfiguration.class,
+			EndpointWebMvcAutoConfiguration.class, WebMvcAutoConfiguration.class,
+			ManagementServerPropertiesAutoConfiguration.class })
+	@Configuration
+	public static class TestConfiguration {
+
+		@Bean
+		public DumpEndpoint endpoint() {
+			return new DumpEndpoint();
+		}
+
+	}
+
+}
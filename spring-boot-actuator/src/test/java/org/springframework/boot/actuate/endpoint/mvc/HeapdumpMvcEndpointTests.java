@@ -18,6 +18,7 @@ package org.springframework.boot.actuate.endpoint.mvc;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 
@@ -38,6 +39,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
@@ -47,8 +50,10 @@ import org.springframework.util.FileCopyUtils;
 import org.springframework.web.context.WebApplicationContext;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.options;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -110,11 +115,141 @@ public class HeapdumpMvcEndpointTests {
 		assertThat(uncompressed).isEqualTo("HEAPDUMP".getBytes());
 	}
 
+	@Test
+	public void invokeWithCompressionThreadsShouldReturnGzipContent() throws Exception {
+		this.endpoint.setCompressionThreads(4);
+		MvcResult result = this.mvc.perform(get("/heapdump")).andExpect(status().isOk())
+				.andReturn();
+		assertThat(uncompress(result.getResponse().getContentAsByteArray()))
+				.isEqualTo("HEAPDUMP".getBytes());
+	}
+
+	@Test
+	public void invokeWhenRetainedShouldReuseLastDump() throws Exception {
+		this.endpoint.setRetain(true);
+		byte[] first = this.mvc.perform(get("/heapdump").param("refresh", "true"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Disposition",
+						startsWith("attachment; filename=\"heapdump")))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertThat(uncompress(first)).isEqualTo("HEAPDUMP".getBytes());
+		this.endpoint.setHeapDump("CHANGED");
+		byte[] second = this.mvc.perform(get("/heapdump")).andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsByteArray();
+		assertThat(second).isEqualTo(first);
+		assertThat(this.endpoint.getDumps()).isEqualTo(1);
+		byte[] refreshed = this.mvc.perform(get("/heapdump").param("refresh", "true"))
+				.andExpect(status().isOk()).andReturn().getResponse()
+				.getContentAsByteArray();
+		assertThat(uncompress(refreshed)).isEqualTo("CHANGED".getBytes());
+		assertThat(this.endpoint.getDumps()).isEqualTo(2);
+	}
+
+	@Test
+	public void invokeWhenRetainedShouldNotReuseDumpOfDifferentKind() throws Exception {
+		this.endpoint.setRetain(true);
+		this.mvc.perform(get("/heapdump").param("refresh", "true"))
+				.andExpect(status().isOk());
+		this.mvc.perform(get("/heapdump").param("live", "false"))
+				.andExpect(status().isOk());
+		assertThat(this.endpoint.getDumps()).isEqualTo(2);
+	}
+
+	@Test
+	public void invokeWhenRetainedShouldSupportRangeRequests() throws Exception {
+		this.endpoint.setRetain(true);
+		byte[] full = this.mvc.perform(get("/heapdump").param("refresh", "true"))
+				.andExpect(status().isOk()).andReturn().getResponse()
+				.getContentAsByteArray();
+		byte[] partial = this.mvc
+				.perform(get("/heapdump").header(HttpHeaders.RANGE, "bytes=10-"))
+				.andExpect(status().isPartialContent()).andReturn().getResponse()
+				.getContentAsByteArray();
+		assertThat(partial).isEqualTo(Arrays.copyOfRange(full, 10, full.length));
+	}
+
+	@Test
+	public void invokeWhenRetainedShouldResumeIfRangeMatches() throws Exception {
+		this.endpoint.setRetain(true);
+		MockHttpServletResponse response = this.mvc
+				.perform(get("/heapdump").param("refresh", "true"))
+				.andExpect(status().isOk()).andReturn().getResponse();
+		byte[] full = response.getContentAsByteArray();
+		byte[] partial = this.mvc
+				.perform(get("/heapdump").header(HttpHeaders.RANGE, "bytes=10-")
+						.header(HttpHeaders.IF_RANGE, response.getHeader(HttpHeaders.ETAG)))
+				.andExpect(status().isPartialContent()).andReturn().getResponse()
+				.getContentAsByteArray();
+		assertThat(partial).isEqualTo(Arrays.copyOfRange(full, 10, full.length));
+	}
+
+	@Test
+	public void invokeWhenRetainedShouldSendWholeDumpIfRangeDoesNotMatch()
+			throws Exception {
+		this.endpoint.setRetain(true);
+		String eTag = this.mvc.perform(get("/heapdump").param("refresh", "true"))
+				.andExpect(status().isOk()).andReturn().getResponse()
+				.getHeader(HttpHeaders.ETAG);
+		this.endpoint.setHeapDump("CHANGED");
+		MockHttpServletResponse refreshed = this.mvc
+				.perform(get("/heapdump").param("refresh", "true"))
+				.andExpect(status().isOk()).andReturn().getResponse();
+		assertThat(refreshed.getHeader(HttpHeaders.ETAG)).isNotEqualTo(eTag);
+		byte[] resumed = this.mvc
+				.perform(get("/heapdump").header(HttpHeaders.RANGE, "bytes=10-")
+						.header(HttpHeaders.IF_RANGE, eTag))
+				.andExpect(status().isOk()).andReturn().getResponse()
+				.getContentAsByteArray();
+		assertThat(resumed).isEqualTo(refreshed.getContentAsByteArray());
+		assertThat(uncompress(resumed)).isEqualTo("CHANGED".getBytes());
+	}
+
+	@Test
+	public void invokeWhenRetainedShouldDeleteReplacedDump() throws Exception {
+		this.endpoint.setRetain(true);
+		File first = getDumpFile(this.mvc
+				.perform(get("/heapdump").param("refresh", "true")).andReturn());
+		assertThat(first).exists();
+		File second = getDumpFile(this.mvc
+				.perform(get("/heapdump").param("refresh", "true")).andReturn());
+		assertThat(first).doesNotExist();
+		assertThat(second).exists();
+		this.endpoint.destroy();
+		assertThat(second).doesNotExist();
+	}
+
+	@Test
+	public void invokeWhenRetainedDumpHasExpiredShouldTakeNewDump() throws Exception {
+		this.endpoint.setRetain(true);
+		this.endpoint.setRetentionPeriod(1);
+		File first = getDumpFile(this.mvc
+				.perform(get("/heapdump").param("refresh", "true")).andReturn());
+		Thread.sleep(10);
+		this.endpoint.setHeapDump("CHANGED");
+		byte[] second = this.mvc.perform(get("/heapdump")).andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsByteArray();
+		assertThat(uncompress(second)).isEqualTo("CHANGED".getBytes());
+		assertThat(this.endpoint.getDumps()).isEqualTo(2);
+		assertThat(first).doesNotExist();
+	}
+
 	@Test
 	public void invokeOptionsShouldReturnSize() throws Exception {
 		this.mvc.perform(options("/heapdump")).andExpect(status().isOk());
 	}
 
+	private File getDumpFile(MvcResult result) {
+		String disposition = result.getResponse().getHeader("Content-Disposition");
+		String name = disposition.substring(disposition.indexOf('"') + 1,
+				disposition.lastIndexOf('"'));
+		return new File(System.getProperty("java.io.tmpdir"), name);
+	}
+
+	private byte[] uncompress(byte[] bytes) throws IOException {
+		return FileCopyUtils
+				.copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(bytes)));
+	}
+
 	@Import({ JacksonAutoConfiguration.class, AuditAutoConfiguration.class,
 			HttpMessageConvertersAutoConfiguration.class,
 			EndpointWebMvcAutoConfiguration.class, WebMvcAutoConfiguration.class,
@@ -137,6 +272,8 @@ public class HeapdumpMvcEndpointTests {
 
 		private String heapDump;
 
+		private int dumps;
+
 		TestHeapdumpMvcEndpoint() {
 			super(TimeUnit.SECONDS.toMillis(1));
 			reset();
@@ -146,6 +283,11 @@ public class HeapdumpMvcEndpointTests {
 			this.available = true;
 			this.locked = false;
 			this.heapDump = "HEAPDUMP";
+			this.dumps = 0;
+			setRetain(false);
+			setRetentionPeriod(TimeUnit.MINUTES.toMillis(10));
+			destroy();
+			setCompressionThreads(1);
 		}
 
 		@Override
@@ -166,6 +308,7 @@ public class HeapdumpMvcEndpointTests {
 					}
 					FileCopyUtils.copy(TestHeapdumpMvcEndpoint.this.heapDump.getBytes(),
 							file);
+					TestHeapdumpMvcEndpoint.this.dumps++;
 				}
 
 			};
@@ -179,6 +322,14 @@ public class HeapdumpMvcEndpointTests {
 			this.locked = locked;
 		}
 
+		public void setHeapDump(String heapDump) {
+			this.heapDump = heapDump;
+		}
+
+		public int getDumps() {
+			return this.dumps;
+		}
+
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,19 +17,27 @@
 package org.springframework.boot.actuate.endpoint.mvc;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import org.springframework.context.support.StaticApplicationContext;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.mock.env.MockEnvironment;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.util.FileCopyUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.method.HandlerMethod;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -121,4 +129,217 @@ public class LogFileMvcEndpointTests {
 		assertThat("--TEST--").isEqualTo(response.getContentAsString());
 	}
 
+	@Test
+	public void tailGetsLastLines() throws Exception {
+		FileCopyUtils.copy("one\ntwo\nthree\nfour\n".getBytes(), this.logFile);
+		this.mvc.setExternalFile(this.logFile);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.tail(2, response);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getContentAsString()).isEqualTo("three\nfour\n");
+		assertThat(response.getHeader(LogFileMvcEndpoint.POSITION_HEADER))
+				.isEqualTo("19");
+	}
+
+	@Test
+	public void tailWithoutTrailingNewline() throws Exception {
+		FileCopyUtils.copy("one\ntwo\nthree".getBytes(), this.logFile);
+		this.mvc.setExternalFile(this.logFile);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.tail(2, response);
+		assertThat(response.getContentAsString()).isEqualTo("two\nthree");
+	}
+
+	@Test
+	public void tailMoreLinesThanFile() throws Exception {
+		FileCopyUtils.copy("one\ntwo\n".getBytes(), this.logFile);
+		this.mvc.setExternalFile(this.logFile);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.tail(10, response);
+		assertThat(response.getContentAsString()).isEqualTo("one\ntwo\n");
+	}
+
+	@Test
+	public void tailSpanningSeveralBuffers() throws Exception {
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			content.append("line ").append(i).append("\n");
+		}
+		FileCopyUtils.copy(content.toString().getBytes(), this.logFile);
+		this.mvc.setExternalFile(this.logFile);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.tail(3000, response);
+		String tail = response.getContentAsString();
+		assertThat(tail).startsWith("line 7000\n").endsWith("line 9999\n");
+		assertThat(tail.split("\n")).hasSize(3000);
+	}
+
+	@Test
+	public void tailWithMissingLogFile() throws Exception {
+		this.environment.setProperty("logging.file", "no_test.log");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.tail(10, response);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_FOUND.value());
+	}
+
+	@Test
+	public void tailWithNegativeLines() throws Exception {
+		this.mvc.setExternalFile(this.logFile);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.tail(-1, response);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+	}
+
+	@Test
+	public void followGetsAppendedContent() throws Exception {
+		this.mvc.setExternalFile(this.logFile);
+		append("appended");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.follow(8, null, 0, response);
+		assertThat(response.getContentAsString()).isEqualTo("appended");
+		assertThat(response.getHeader(LogFileMvcEndpoint.POSITION_HEADER))
+				.isEqualTo("16");
+		assertThat(response.getHeader(LogFileMvcEndpoint.ROTATED_HEADER)).isNull();
+	}
+
+	@Test
+	public void followWithNothingAppended() throws Exception {
+		this.mvc.setExternalFile(this.logFile);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.follow(8, null, 0, response);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getContentAsString()).isEmpty();
+		assertThat(response.getHeader(LogFileMvcEndpoint.POSITION_HEADER))
+				.isEqualTo("8");
+	}
+
+	@Test
+	public void followWaitsForAppendedContent() throws Exception {
+		this.mvc.setExternalFile(this.logFile);
+		Thread writer = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(200);
+					append("later");
+				}
+				catch (Exception ex) {
+					throw new IllegalStateException(ex);
+				}
+			}
+
+		};
+		writer.start();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.follow(8, null, 10000, response);
+		writer.join();
+		assertThat(response.getContentAsString()).isEqualTo("later");
+	}
+
+	@Test
+	public void followAfterRotation() throws Exception {
+		this.mvc.setExternalFile(this.logFile);
+		assertThat(this.logFile.renameTo(new File(this.logFile.getPath() + ".1")))
+				.isTrue();
+		FileCopyUtils.copy("new".getBytes(), this.logFile);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.follow(8, null, 0, response);
+		assertThat(response.getContentAsString()).isEqualTo("new");
+		assertThat(response.getHeader(LogFileMvcEndpoint.ROTATED_HEADER))
+				.isEqualTo("true");
+		assertThat(response.getHeader(LogFileMvcEndpoint.POSITION_HEADER))
+				.isEqualTo("3");
+	}
+
+	@Test
+	public void followAfterRotationToLongerFile() throws Exception {
+		this.mvc.setExternalFile(this.logFile);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.tail(0, response);
+		String id = response.getHeader(LogFileMvcEndpoint.FILE_HEADER);
+		assertThat(id).isNotNull();
+		assertThat(this.logFile.renameTo(new File(this.logFile.getPath() + ".1")))
+				.isTrue();
+		FileCopyUtils.copy("new and longer".getBytes(), this.logFile);
+		response = new MockHttpServletResponse();
+		this.mvc.follow(8, id, 0, response);
+		assertThat(response.getContentAsString()).isEqualTo("new and longer");
+		assertThat(response.getHeader(LogFileMvcEndpoint.ROTATED_HEADER))
+				.isEqualTo("true");
+		assertThat(response.getHeader(LogFileMvcEndpoint.FILE_HEADER)).isNotEqualTo(id);
+	}
+
+	@Test
+	public void followSameFile() throws Exception {
+		this.mvc.setExternalFile(this.logFile);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.tail(0, response);
+		String id = response.getHeader(LogFileMvcEndpoint.FILE_HEADER);
+		append("appended");
+		response = new MockHttpServletResponse();
+		this.mvc.follow(8, id, 0, response);
+		assertThat(response.getContentAsString()).isEqualTo("appended");
+		assertThat(response.getHeader(LogFileMvcEndpoint.ROTATED_HEADER)).isNull();
+		assertThat(response.getHeader(LogFileMvcEndpoint.FILE_HEADER)).isEqualTo(id);
+	}
+
+	@Test
+	public void followIsStreamedWithoutContentLength() throws Exception {
+		this.mvc.setExternalFile(this.logFile);
+		append("appended");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.follow(8, null, 0, response);
+		assertThat(response.getHeader("Content-Length")).isNull();
+	}
+
+	@Test
+	public void tailAndPositionTogetherAreRejected() throws Exception {
+		this.mvc.setExternalFile(this.logFile);
+		EndpointHandlerMapping mapping = new EndpointHandlerMapping(
+				Collections.singleton(this.mvc));
+		mapping.setApplicationContext(new StaticApplicationContext());
+		mapping.afterPropertiesSet();
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/logfile");
+		request.addParameter("tail", "10");
+		request.addParameter("position", "0");
+		Method method = ReflectionUtils.findMethod(LogFileMvcEndpoint.class,
+				"tailAndFollow", HttpServletResponse.class);
+		assertThat(mapping.getHandler(request).getHandler())
+				.isEqualTo(new HandlerMethod(this.mvc, method));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.tailAndFollow(response);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+	}
+
+	@Test
+	public void followWithInvalidWait() throws Exception {
+		this.mvc.setExternalFile(this.logFile);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.follow(0, null, 60000, response);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+	}
+
+	@Test
+	public void tailAndFollowNotAvailableIfDisabled() throws Exception {
+		this.mvc.setExternalFile(this.logFile);
+		this.mvc.setEnabled(false);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.mvc.tail(1, response);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_FOUND.value());
+		response = new MockHttpServletResponse();
+		this.mvc.follow(0, null, 0, response);
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_FOUND.value());
+	}
+
+	private void append(String content) throws IOException {
+		FileOutputStream output = new FileOutputStream(this.logFile, true);
+		try {
+			output.write(content.getBytes());
+		}
+		finally {
+			output.close();
+		}
+	}
+
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.endpoint.mvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileCopyUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link ParallelGzipOutputStream}.
+ *
+ * @author agent (agent@local)
+ */
+public class ParallelGzipOutputStreamTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void emptyInput() throws Exception {
+		assertThat(roundTrip(new byte[0], 4, 16)).isEmpty();
+	}
+
+	@Test
+	public void inputSmallerThanBlock() throws Exception {
+		byte[] input = "hello".getBytes();
+		assertThat(roundTrip(input, 4, 16)).isEqualTo(input);
+	}
+
+	@Test
+	public void inputSpanningManyBlocks() throws Exception {
+		byte[] input = new byte[100000];
+		Random random = new Random(0);
+		for (int i = 0; i < input.length; i++) {
+			input[i] = (byte) ('a' + random.nextInt(4));
+		}
+		assertThat(roundTrip(input, 4, 1000)).isEqualTo(input);
+		assertThat(roundTrip(input, 1, 1000)).isEqualTo(input);
+	}
+
+	@Test
+	public void inputWrittenByteByByte() throws Exception {
+		byte[] input = "0123456789abcdefghij".getBytes();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(output, 2, 3);
+		for (byte b : input) {
+			gzip.write(b);
+		}
+		gzip.close();
+		assertThat(uncompress(output.toByteArray())).isEqualTo(input);
+	}
+
+	@Test
+	public void finishDoesNotCloseUnderlyingStream() throws Exception {
+		final boolean[] closed = new boolean[1];
+		ByteArrayOutputStream output = new ByteArrayOutputStream() {
+
+			@Override
+			public void close() throws IOException {
+				closed[0] = true;
+			}
+
+		};
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(output, 2, 16);
+		gzip.write("test".getBytes());
+		gzip.finish();
+		assertThat(closed[0]).isFalse();
+		gzip.close();
+		assertThat(closed[0]).isTrue();
+		assertThat(uncompress(output.toByteArray())).isEqualTo("test".getBytes());
+	}
+
+	@Test
+	public void writeFailureStopsCompressionThreads() throws Exception {
+		OutputStream output = new ByteArrayOutputStream() {
+
+			@Override
+			public void write(byte[] b) throws IOException {
+				throw new IOException("Broken pipe");
+			}
+
+		};
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(output, 1, 4);
+		try {
+			gzip.write("0123456789".getBytes());
+			fail("Expected IOException");
+		}
+		catch (IOException ex) {
+			assertThat(ex.getMessage()).isEqualTo("Broken pipe");
+		}
+		assertThat(getExecutor(gzip).isShutdown()).isTrue();
+		gzip.finish();
+		this.thrown.expect(IOException.class);
+		this.thrown.expectMessage("Stream closed");
+		gzip.write("0123".getBytes());
+	}
+
+	@Test
+	public void closeStopsCompressionThreads() throws Exception {
+		OutputStream output = new ByteArrayOutputStream() {
+
+			@Override
+			public void flush() throws IOException {
+				throw new IOException("Broken pipe");
+			}
+
+		};
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(output, 2, 16);
+		gzip.write("test".getBytes());
+		try {
+			gzip.close();
+			fail("Expected IOException");
+		}
+		catch (IOException ex) {
+			assertThat(ex.getMessage()).isEqualTo("Broken pipe");
+		}
+		assertThat(getExecutor(gzip).isShutdown()).isTrue();
+	}
+
+	private ExecutorService getExecutor(ParallelGzipOutputStream gzip) {
+		return (ExecutorService) ReflectionTestUtils.getField(gzip, "executor");
+	}
+
+	private byte[] roundTrip(byte[] input, int threads, int blockSize)
+			throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(output, threads,
+				blockSize);
+		gzip.write(input);
+		gzip.close();
+		return uncompress(output.toByteArray());
+	}
+
+	private byte[] uncompress(byte[] bytes) throws IOException {
+		return FileCopyUtils
+				.copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+}
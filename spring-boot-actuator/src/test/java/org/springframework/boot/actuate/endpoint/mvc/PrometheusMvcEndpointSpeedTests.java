@@ -0,0 +1,183 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.endpoint.mvc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.AfterClass;
+import org.junit.experimental.theories.DataPoints;
+import org.junit.experimental.theories.Theories;
+import org.junit.experimental.theories.Theory;
+import org.junit.runner.RunWith;
+
+import org.springframework.boot.actuate.endpoint.MetricsEndpoint;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StopWatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Speed tests comparing the JSON rendering of the {@link MetricsEndpoint} with the
+ * streaming text rendering of the {@link PrometheusMvcEndpoint}. Each rendering is
+ * warmed up before it is timed. Run with {@code -Dperformance.test=true} for more
+ * meaningful numbers.
+ *
+ * @author agent (agent@local)
+ */
+@RunWith(Theories.class)
+public class PrometheusMvcEndpointSpeedTests {
+
+	@DataPoints
+	public static int[] metricCounts = new int[] { 100, 2000 };
+
+	private static final int number = Boolean.getBoolean("performance.test") ? 5000
+			: 50;
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	private static StopWatch watch = new StopWatch("metrics");
+
+	@AfterClass
+	public static void washup() {
+		System.err.println(watch.prettyPrint());
+	}
+
+	@Theory
+	public void json(int metricCount) throws Exception {
+		MetricsEndpoint endpoint = createEndpoint(metricCount);
+		json(endpoint);
+		watch.start("json(" + metricCount + ")");
+		int size = json(endpoint);
+		watch.stop();
+		report(size);
+	}
+
+	private int json(MetricsEndpoint endpoint) throws Exception {
+		int size = 0;
+		for (int i = 0; i < number; i++) {
+			CountingResponse response = new CountingResponse();
+			objectMapper.writeValue(response.getOutputStream(), endpoint.invoke());
+			size = response.getCount();
+		}
+		return size;
+	}
+
+	@Theory
+	public void prometheus(int metricCount) throws Exception {
+		PrometheusMvcEndpoint endpoint = new PrometheusMvcEndpoint(
+				createEndpoint(metricCount));
+		prometheus(endpoint);
+		watch.start("prometheus(" + metricCount + ")");
+		int size = prometheus(endpoint);
+		watch.stop();
+		report(size);
+	}
+
+	private int prometheus(PrometheusMvcEndpoint endpoint) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		int size = 0;
+		for (int i = 0; i < number; i++) {
+			CountingResponse response = new CountingResponse();
+			endpoint.invoke(request, response);
+			size = response.getCount();
+		}
+		return size;
+	}
+
+	private void report(int size) {
+		double rate = (double) number / Math.max(watch.getLastTaskTimeMillis(), 1)
+				* 1000;
+		System.err.println(
+				watch.getLastTaskName() + " rate=" + rate + " bytes=" + size);
+		assertThat(size).isGreaterThan(0);
+	}
+
+	private MetricsEndpoint createEndpoint(int metricCount) {
+		final List<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		for (int i = 0; i < metricCount; i++) {
+			if (i % 2 == 0) {
+				metrics.add(new Metric<Long>("counter.group" + (i % 20) + ".metric" + i,
+						(long) i));
+			}
+			else {
+				metrics.add(new Metric<Double>("gauge.group" + (i % 20) + ".metric" + i,
+						i / 3.0));
+			}
+		}
+		return new MetricsEndpoint(new PublicMetrics() {
+
+			@Override
+			public Collection<Metric<?>> metrics() {
+				return metrics;
+			}
+
+		});
+	}
+
+	/**
+	 * Response that discards its body, only counting bytes, so that the timings are not
+	 * dominated by the byte at a time copying of {@link MockHttpServletResponse}.
+	 */
+	private static class CountingResponse extends MockHttpServletResponse {
+
+		private int count;
+
+		private final ServletOutputStream outputStream = new ServletOutputStream() {
+
+			@Override
+			public void write(int b) throws IOException {
+				CountingResponse.this.count++;
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				CountingResponse.this.count += len;
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+			}
+
+		};
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			return this.outputStream;
+		}
+
+		int getCount() {
+			return this.count;
+		}
+
+	}
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.endpoint.mvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.AuditAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.EndpointWebMvcAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.ManagementServerPropertiesAutoConfiguration;
+import org.springframework.boot.actuate.endpoint.MetricsEndpoint;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests for {@link PrometheusMvcEndpoint}.
+ *
+ * @author agent (agent@local)
+ */
+@RunWith(SpringRunner.class)
+@DirtiesContext
+@SpringBootTest
+@TestPropertySource(properties = { "management.security.enabled=false",
+		"endpoints.prometheus.enabled=true" })
+public class PrometheusMvcEndpointTests {
+
+	@Autowired
+	private WebApplicationContext context;
+
+	private MockMvc mvc;
+
+	@Before
+	public void setUp() {
+		this.context.getBean(PrometheusMvcEndpoint.class).setEnabled(true);
+		this.mvc = MockMvcBuilders.webAppContextSetup(this.context).build();
+	}
+
+	@Test
+	public void home() throws Exception {
+		this.mvc.perform(get("/prometheus")).andExpect(status().isOk())
+				.andExpect(header().string("Content-Type",
+						"text/plain;version=0.0.4;charset=utf-8"))
+				.andExpect(content().string("# TYPE foo gauge\nfoo 1\n"
+						+ "# TYPE bar_png gauge\nbar_png 1.5\n"
+						+ "# TYPE counter_status_200_root gauge\n"
+						+ "counter_status_200_root 3\n"
+						+ "# TYPE group2_a gauge\ngroup2_a 1\n"
+						+ "# TYPE _2xx gauge\n_2xx NaN\n"
+						+ "# TYPE negative gauge\nnegative -1234567890123\n"));
+	}
+
+	@Test
+	public void nullValuesAreSkipped() throws Exception {
+		this.mvc.perform(get("/prometheus")).andExpect(status().isOk())
+				.andExpect(content().string(not(containsString("baz"))));
+	}
+
+	@Test
+	public void gzip() throws Exception {
+		MvcResult result = this.mvc
+				.perform(get("/prometheus").header(HttpHeaders.ACCEPT_ENCODING,
+						"deflate, gzip"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+				.andReturn();
+		byte[] body = result.getResponse().getContentAsByteArray();
+		String content = StreamUtils.copyToString(
+				new GZIPInputStream(new ByteArrayInputStream(body)),
+				Charset.forName("UTF-8"));
+		assertThat(content).startsWith("# TYPE foo gauge\nfoo 1\n");
+	}
+
+	@Test
+	public void gzipNotAcceptable() throws Exception {
+		this.mvc.perform(get("/prometheus").header(HttpHeaders.ACCEPT_ENCODING,
+				"gzip;q=0")).andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+	}
+
+	@Test
+	public void homeWhenDisabled() throws Exception {
+		this.context.getBean(PrometheusMvcEndpoint.class).setEnabled(false);
+		this.mvc.perform(get("/prometheus")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void sanitizedNamesAreOnlyDuplicatesWithinAScrape() throws Exception {
+		final List<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		PrometheusMvcEndpoint endpoint = new PrometheusMvcEndpoint(
+				new MetricsEndpoint(new PublicMetrics() {
+
+					@Override
+					public Collection<Metric<?>> metrics() {
+						return metrics;
+					}
+
+				}));
+		metrics.add(new Metric<Integer>("group.a", 1));
+		assertThat(scrape(endpoint)).isEqualTo("# TYPE group_a gauge\ngroup_a 1\n");
+		metrics.clear();
+		metrics.add(new Metric<Integer>("group_a", 2));
+		assertThat(scrape(endpoint)).isEqualTo("# TYPE group_a gauge\ngroup_a 2\n");
+	}
+
+	@Test
+	public void sampleCacheIsBounded() throws Exception {
+		final List<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		PrometheusMvcEndpoint endpoint = new PrometheusMvcEndpoint(
+				new MetricsEndpoint(new PublicMetrics() {
+
+					@Override
+					public Collection<Metric<?>> metrics() {
+						return metrics;
+					}
+
+				}));
+		for (int i = 0; i <= PrometheusMvcEndpoint.SAMPLE_CACHE_SIZE; i++) {
+			metrics.add(new Metric<Integer>("metric" + i, i));
+		}
+		scrape(endpoint);
+		metrics.clear();
+		metrics.add(new Metric<Integer>("metric0", 0));
+		assertThat(scrape(endpoint)).isEqualTo("# TYPE metric0 gauge\nmetric0 0\n");
+		Map<?, ?> samples = (Map<?, ?>) ReflectionTestUtils.getField(endpoint,
+				"samples");
+		assertThat(samples.size())
+				.isLessThanOrEqualTo(PrometheusMvcEndpoint.SAMPLE_CACHE_SIZE);
+	}
+
+	private String scrape(PrometheusMvcEndpoint endpoint) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		endpoint.invoke(new MockHttpServletRequest(), response);
+		return response.getContentAsString();
+	}
+
+	@Import({ JacksonAutoConfiguration.class, AuditAutoConfiguration.class,
+			HttpMessageConvertersAutoConfiguration.class,
+			EndpointWebMvcAutoConfiguration.class, WebMvcAutoConfiguration.class,
+			ManagementServerPropertiesAutoConfiguration.class })
+	@Configuration
+	public static class TestConfiguration {
+
+		@Bean
+		public MetricsEndpoint endpoint() {
+			return new MetricsEndpoint(new PublicMetrics() {
+
+				@Override
+				public Collection<Metric<?>> metrics() {
+					ArrayList<Metric<?>> metrics = new ArrayList<Metric<?>>();
+					metrics.add(new Metric<Integer>("foo", 1));
+					metrics.add(new Metric<Double>("bar.png", 1.5));
+					metrics.add(new Metric<Long>("counter.status.200.root", 3L));
+					metrics.add(new Metric<Integer>("group2.a", 1));
+					metrics.add(new Metric<Integer>("group2_a", 2));
+					metrics.add(new Metric<Double>("2xx", Double.NaN));
+					metrics.add(new Metric<Integer>("baz", null));
+					metrics.add(new Metric<Long>("negative", -1234567890123L));
+					return Collections.unmodifiableList(metrics);
+				}
+
+			});
+		}
+
+	}
+
+}
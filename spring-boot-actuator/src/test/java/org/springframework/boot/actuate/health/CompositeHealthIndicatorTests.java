@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,8 +18,13 @@ package org.springframework.boot.actuate.health;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -27,6 +32,8 @@ import org.mockito.MockitoAnnotations;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests for {@link CompositeHealthIndicator}
@@ -48,6 +55,8 @@ public class CompositeHealthIndicatorTests {
 	@Mock
 	private HealthIndicator three;
 
+	private ExecutorService executor = Executors.newFixedThreadPool(2);
+
 	@Before
 	public void setup() {
 		MockitoAnnotations.initMocks(this);
@@ -61,6 +70,11 @@ public class CompositeHealthIndicatorTests {
 		this.healthAggregator = new OrderedHealthAggregator();
 	}
 
+	@After
+	public void close() {
+		this.executor.shutdownNow();
+	}
+
 	@Test
 	public void createWithIndicators() throws Exception {
 		Map<String, HealthIndicator> indicators = new HashMap<String, HealthIndicator>();
@@ -126,4 +140,185 @@ public class CompositeHealthIndicatorTests {
 						+ "\"db2\":{\"status\":\"UNKNOWN\",\"2\":\"2\"}}}");
 	}
 
+	@Test
+	public void invokeConcurrently() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(2);
+		HealthIndicator waiting = new HealthIndicator() {
+
+			@Override
+			public Health health() {
+				latch.countDown();
+				try {
+					// Only completes if the other indicator runs at the same time
+					assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				return Health.up().build();
+			}
+
+		};
+		CompositeHealthIndicator composite = new CompositeHealthIndicator(
+				this.healthAggregator);
+		composite.addHealthIndicator("one", waiting);
+		composite.addHealthIndicator("two", waiting);
+		composite.setExecutor(this.executor);
+		Health result = composite.health();
+		assertThat(result.getStatus()).isEqualTo(Status.UP);
+		assertThat(((Health) result.getDetails().get("one")).getDetails())
+				.containsKey("elapsed");
+		assertThat(((Health) result.getDetails().get("two")).getStatus())
+				.isEqualTo(Status.UP);
+	}
+
+	@Test
+	public void invokeConcurrentlyWithTimeout() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		HealthIndicator hung = new HealthIndicator() {
+
+			@Override
+			public Health health() {
+				try {
+					latch.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				return Health.up().build();
+			}
+
+		};
+		CompositeHealthIndicator composite = new CompositeHealthIndicator(
+				this.healthAggregator);
+		composite.addHealthIndicator("one", this.one);
+		composite.addHealthIndicator("hung", hung);
+		composite.setExecutor(this.executor);
+		composite.setTimeout(100);
+		composite.setTimeoutStatus(Status.DOWN);
+		try {
+			Health result = composite.health();
+			assertThat(result.getStatus()).isEqualTo(Status.DOWN);
+			Health one = (Health) result.getDetails().get("one");
+			assertThat(one.getStatus()).isEqualTo(Status.UNKNOWN);
+			assertThat(one.getDetails()).containsEntry("1", "1")
+					.containsKey("elapsed");
+			Health timedOut = (Health) result.getDetails().get("hung");
+			assertThat(timedOut.getStatus()).isEqualTo(Status.DOWN);
+			assertThat(timedOut.getDetails()).containsEntry("error",
+					"Timed out after 100ms");
+		}
+		finally {
+			latch.countDown();
+		}
+	}
+
+	@Test
+	public void queuedIndicatorDoesNotTimeOutBeforeItStarts() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		HealthIndicator hung = new HealthIndicator() {
+
+			@Override
+			public Health health() {
+				try {
+					latch.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				return Health.up().build();
+			}
+
+		};
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		CompositeHealthIndicator composite = new CompositeHealthIndicator(
+				this.healthAggregator);
+		composite.addHealthIndicator("hung", hung);
+		composite.addHealthIndicator("one", this.one);
+		composite.setExecutor(executor);
+		composite.setTimeout(100);
+		try {
+			Health result = composite.health();
+			assertThat(((Health) result.getDetails().get("hung")).getDetails())
+					.containsEntry("error", "Timed out after 100ms");
+			Health one = (Health) result.getDetails().get("one");
+			assertThat(one.getDetails()).containsEntry("1", "1")
+					.doesNotContainKey("error");
+		}
+		finally {
+			latch.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void indicatorThatNeverGetsAThreadIsNotInvoked() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		HealthIndicator stuck = new HealthIndicator() {
+
+			@Override
+			public Health health() {
+				// Ignores interruption so keeps the only thread busy
+				while (latch.getCount() > 0) {
+					try {
+						latch.await();
+					}
+					catch (InterruptedException ex) {
+						// Continue
+					}
+				}
+				return Health.up().build();
+			}
+
+		};
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		CompositeHealthIndicator composite = new CompositeHealthIndicator(
+				this.healthAggregator);
+		composite.addHealthIndicator("stuck", stuck);
+		composite.addHealthIndicator("one", this.one);
+		composite.setExecutor(executor);
+		composite.setTimeout(100);
+		try {
+			Health result = composite.health();
+			assertThat(((Health) result.getDetails().get("stuck")).getDetails())
+					.containsEntry("error", "Timed out after 100ms");
+			assertThat(((Health) result.getDetails().get("one")).getDetails())
+					.containsEntry("error", "Not started within 100ms");
+		}
+		finally {
+			latch.countDown();
+			executor.shutdownNow();
+		}
+		verify(this.one, never()).health();
+	}
+
+	@Test
+	public void rejectedIndicatorsAreInvokedInCallingThread() throws Exception {
+		this.executor.shutdown();
+		CompositeHealthIndicator composite = new CompositeHealthIndicator(
+				this.healthAggregator);
+		composite.addHealthIndicator("one", this.one);
+		composite.addHealthIndicator("two", this.two);
+		composite.setExecutor(this.executor);
+		Health result = composite.health();
+		assertThat(((Health) result.getDetails().get("one")).getDetails())
+				.containsEntry("1", "1").containsKey("elapsed");
+		assertThat(((Health) result.getDetails().get("two")).getDetails())
+				.containsEntry("2", "2").containsKey("elapsed");
+	}
+
+	@Test
+	public void invokeConcurrentlyWithException() throws Exception {
+		given(this.two.health()).willThrow(new IllegalStateException("Failed"));
+		CompositeHealthIndicator composite = new CompositeHealthIndicator(
+				this.healthAggregator);
+		composite.addHealthIndicator("one", this.one);
+		composite.addHealthIndicator("two", this.two);
+		composite.setExecutor(this.executor);
+		Health result = composite.health();
+		assertThat(result.getStatus()).isEqualTo(Status.DOWN);
+		assertThat(((Health) result.getDetails().get("two")).getDetails())
+				.containsEntry("error", "java.lang.IllegalStateException: Failed");
+	}
+
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.health;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link HealthProber}.
+ *
+ * @author agent (agent@local)
+ */
+public class HealthProberTests {
+
+	private final HealthProber prober = new HealthProber(2);
+
+	@After
+	public void close() {
+		this.prober.stop();
+	}
+
+	@Test
+	public void unknownBeforeFirstCheck() throws Exception {
+		HealthIndicator indicator = this.prober.register(new CountingHealthIndicator(),
+				1000);
+		Health health = indicator.health();
+		assertThat(health.getStatus()).isEqualTo(Status.UNKNOWN);
+		assertThat(health.getDetails()).containsEntry("stale", true);
+	}
+
+	@Test
+	public void snapshotIsServedWithoutInvokingDelegate() throws Exception {
+		CountingHealthIndicator delegate = new CountingHealthIndicator();
+		HealthIndicator indicator = this.prober.register(delegate, 60000);
+		this.prober.start();
+		assertThat(delegate.latch.await(5, TimeUnit.SECONDS)).isTrue();
+		Health health = awaitHealth(indicator);
+		assertThat(health.getStatus()).isEqualTo(Status.UP);
+		assertThat(health.getDetails()).containsEntry("count", 1)
+				.containsKey("age").doesNotContainKey("stale");
+		for (int i = 0; i < 10; i++) {
+			indicator.health();
+		}
+		assertThat(delegate.count.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void eachIndicatorIsRefreshedOnItsOwnInterval() throws Exception {
+		CountingHealthIndicator fast = new CountingHealthIndicator();
+		CountingHealthIndicator slow = new CountingHealthIndicator();
+		this.prober.register(fast, 10);
+		this.prober.register(slow, 60000);
+		this.prober.start();
+		long timeout = System.currentTimeMillis() + 5000;
+		while (fast.count.get() < 5 && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		assertThat(fast.count.get()).isGreaterThanOrEqualTo(5);
+		assertThat(slow.count.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void registerAfterStart() throws Exception {
+		this.prober.start();
+		CountingHealthIndicator delegate = new CountingHealthIndicator();
+		HealthIndicator indicator = this.prober.register(delegate, 60000);
+		assertThat(awaitHealth(indicator).getStatus()).isEqualTo(Status.UP);
+	}
+
+	@Test
+	public void exceptionIsReportedAsDown() throws Exception {
+		HealthIndicator indicator = this.prober.register(new HealthIndicator() {
+
+			@Override
+			public Health health() {
+				throw new IllegalStateException("Failed");
+			}
+
+		}, 60000);
+		this.prober.start();
+		Health health = awaitHealth(indicator);
+		assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+		assertThat(health.getDetails()).containsEntry("error",
+				"java.lang.IllegalStateException: Failed");
+	}
+
+	@Test
+	public void staleWhenCheckHangs() throws Exception {
+		final CountDownLatch hang = new CountDownLatch(1);
+		final AtomicInteger count = new AtomicInteger();
+		HealthIndicator indicator = this.prober.register(new HealthIndicator() {
+
+			@Override
+			public Health health() {
+				if (count.incrementAndGet() > 1) {
+					try {
+						hang.await();
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return Health.up().build();
+			}
+
+		}, 20);
+		this.prober.start();
+		try {
+			awaitHealth(indicator);
+			long timeout = System.currentTimeMillis() + 5000;
+			while (!indicator.health().getDetails().containsKey("stale")
+					&& System.currentTimeMillis() < timeout) {
+				Thread.sleep(10);
+			}
+			Health health = indicator.health();
+			assertThat(health.getStatus()).isEqualTo(Status.UP);
+			assertThat(health.getDetails()).containsEntry("stale", true);
+		}
+		finally {
+			hang.countDown();
+		}
+	}
+
+	@Test
+	public void stop() throws Exception {
+		this.prober.start();
+		assertThat(this.prober.isRunning()).isTrue();
+		this.prober.stop();
+		assertThat(this.prober.isRunning()).isFalse();
+	}
+
+	private Health awaitHealth(HealthIndicator indicator) throws InterruptedException {
+		long timeout = System.currentTimeMillis() + 5000;
+		Health health = indicator.health();
+		while (health.getStatus().equals(Status.UNKNOWN)
+				&& System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+			health = indicator.health();
+		}
+		return health;
+	}
+
+	private static class CountingHealthIndicator implements HealthIndicator {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+
+		@Override
+		public Health health() {
+			Health health = Health.up().withDetail("count", this.count.incrementAndGet())
+					.build();
+			this.latch.countDown();
+			return health;
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -55,4 +55,19 @@ public class BufferMetricReaderTests {
 		assertThat(this.reader.count()).isEqualTo(1);
 	}
 
+	@Test
+	public void findAllUpdatedSince() throws Exception {
+		this.gauges.set("foo", 1);
+		this.counters.increment("bar", 1);
+		long since = System.currentTimeMillis() + 1;
+		Thread.sleep(10);
+		this.gauges.set("spam", 2);
+		this.counters.increment("bar", 1);
+		assertThat(this.reader.findAllUpdatedSince(since)).extracting("name")
+				.containsOnly("spam", "bar");
+		assertThat(this.reader.findAllUpdatedSince("sp", since)).extracting("name")
+				.containsOnly("spam");
+		assertThat(this.reader.findAll()).hasSize(3);
+	}
+
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.experimental.theories.DataPoints;
+import org.junit.experimental.theories.Theories;
+import org.junit.experimental.theories.Theory;
+import org.junit.runner.RunWith;
+
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.lang.UsesJava8;
+import org.springframework.util.StopWatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Contention speed tests comparing {@link StripedCounterBuffers} with
+ * {@link CounterBuffers} for a small number of hot counters (e.g. {@code status.200.*}).
+ * Run with {@code -Dperformance.test=true} for more meaningful numbers.
+ *
+ * @author agent (agent@local)
+ */
+@RunWith(Theories.class)
+@UsesJava8
+public class StripedCounterBuffersSpeedTests {
+
+	@DataPoints
+	public static int[] threadCounts = new int[] { 1, 2, 4, 8, 16, 32, 64 };
+
+	private static final String[] names = new String[] { "status.200.foo",
+			"status.200.bar", "status.200.root", "status.404.unmapped" };
+
+	private static final int number = Boolean.getBoolean("performance.test") ? 10000000
+			: 100000;
+
+	private static StopWatch watch = new StopWatch("contention");
+
+	@AfterClass
+	public static void washup() {
+		System.err.println(watch.prettyPrint());
+	}
+
+	@Theory
+	public void counterBuffers(int threadCount) throws Exception {
+		iterate("counterBuffers", new CounterBuffers(), threadCount);
+	}
+
+	@Theory
+	public void stripedCounterBuffers(int threadCount) throws Exception {
+		iterate("stripedCounterBuffers", new StripedCounterBuffers(), threadCount);
+	}
+
+	private void iterate(String taskName, CounterBuffers buffers, int threadCount)
+			throws Exception {
+		final CounterService service = new BufferCounterService(buffers);
+		final int perThread = number / threadCount;
+		ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < perThread; i++) {
+					service.increment(names[i % names.length]);
+				}
+			}
+		};
+		watch.start(taskName + "(" + threadCount + ")");
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int i = 0; i < threadCount; i++) {
+			futures.add(pool.submit(task));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		watch.stop();
+		pool.shutdown();
+		double rate = (double) perThread * threadCount
+				/ Math.max(watch.getLastTaskTimeMillis(), 1) * 1000;
+		System.err.println(watch.getLastTaskName() + " rate=" + rate);
+		long total = 0;
+		for (Metric<?> metric : new BufferMetricReader(buffers, new GaugeBuffers())
+				.findAll()) {
+			total += metric.getValue().longValue();
+		}
+		assertThat(total).isEqualTo((long) perThread * threadCount);
+	}
+
+}
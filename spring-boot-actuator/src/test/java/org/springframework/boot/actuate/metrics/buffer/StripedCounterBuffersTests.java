@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.buffer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link StripedCounterBuffers}.
+ *
+ * @author agent (agent@local)
+ */
+public class StripedCounterBuffersTests {
+
+	private StripedCounterBuffers buffers = new StripedCounterBuffers();
+
+	@Test
+	public void inAndOut() {
+		this.buffers.increment("foo", 2);
+		this.buffers.increment("foo", 3);
+		assertThat(this.buffers.find("foo").getValue()).isEqualTo(5);
+	}
+
+	@Test
+	public void findNonExistent() {
+		assertThat(this.buffers.find("foo")).isNull();
+	}
+
+	@Test
+	public void timestampResolvedOnRead() {
+		long before = System.currentTimeMillis();
+		this.buffers.increment("foo", 1);
+		CounterBuffer buffer = this.buffers.find("foo");
+		assertThat(buffer.getValue()).isEqualTo(1);
+		long timestamp = buffer.getTimestamp();
+		assertThat(timestamp).isGreaterThanOrEqualTo(before);
+		assertThat(buffer.getTimestamp()).isEqualTo(timestamp);
+	}
+
+	@Test
+	public void timestampNotResolvedUntilUpdated() {
+		this.buffers.reset("foo");
+		CounterBuffer buffer = this.buffers.find("foo");
+		buffer.getValue();
+		long timestamp = buffer.getTimestamp();
+		assertThat(timestamp).isGreaterThan(0);
+		assertThat(buffer.getValue()).isEqualTo(0);
+		assertThat(buffer.getTimestamp()).isEqualTo(timestamp);
+	}
+
+	@Test
+	public void reset() {
+		this.buffers.increment("foo", 2);
+		this.buffers.reset("foo");
+		assertThat(this.buffers.find("foo").getValue()).isEqualTo(0);
+	}
+
+	@Test
+	public void concurrentIncrements() throws Exception {
+		int threads = 8;
+		final int iterations = 10000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final CountDownLatch latch = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int j = 0; j < iterations; j++) {
+						StripedCounterBuffersTests.this.buffers.increment("foo", 1);
+					}
+					latch.countDown();
+				}
+
+			});
+		}
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		executor.shutdown();
+		assertThat(this.buffers.find("foo").getValue()).isEqualTo(threads * iterations);
+	}
+
+}
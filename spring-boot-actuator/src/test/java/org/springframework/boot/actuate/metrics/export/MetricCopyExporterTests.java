@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,16 +16,25 @@
 
 package org.springframework.boot.actuate.metrics.export;
 
+import java.util.Collections;
 import java.util.Date;
 
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.reader.ChangeTrackingMetricReader;
 import org.springframework.boot.actuate.metrics.repository.InMemoryMetricRepository;
 import org.springframework.boot.actuate.metrics.writer.Delta;
 import org.springframework.boot.actuate.metrics.writer.GaugeWriter;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests for {@link MetricCopyExporter}.
@@ -111,6 +120,35 @@ public class MetricCopyExporterTests {
 		assertThat(this.writer.count()).isEqualTo(0);
 	}
 
+	@Test
+	public void changeTrackingReaderOnlyAskedForUpdatedMetrics() {
+		ChangeTrackingMetricReader reader = mock(ChangeTrackingMetricReader.class);
+		given(reader.findAllUpdatedSince(anyLong())).willReturn(
+				Collections.<Metric<?>>singletonList(new Metric<Number>("foo", 2.3)));
+		MetricCopyExporter exporter = new MetricCopyExporter(reader, this.writer,
+				"spring");
+		long before = System.currentTimeMillis();
+		exporter.export();
+		exporter.export();
+		ArgumentCaptor<Long> since = ArgumentCaptor.forClass(Long.class);
+		verify(reader, times(2)).findAllUpdatedSince(since.capture());
+		verify(reader, never()).findAll();
+		assertThat(since.getAllValues().get(1)).isGreaterThanOrEqualTo(before);
+		assertThat(this.writer.findOne("spring.foo").getValue()).isEqualTo(2.3);
+	}
+
+	@Test
+	public void changeTrackingReaderNotUsedWhenIgnoringTimestamps() {
+		ChangeTrackingMetricReader reader = mock(ChangeTrackingMetricReader.class);
+		given(reader.findAll()).willReturn(
+				Collections.<Metric<?>>singletonList(new Metric<Number>("foo", 2.3)));
+		MetricCopyExporter exporter = new MetricCopyExporter(reader, this.writer);
+		exporter.setIgnoreTimestamps(true);
+		exporter.export();
+		verify(reader, never()).findAllUpdatedSince(anyLong());
+		assertThat(this.writer.count()).isEqualTo(1);
+	}
+
 	@Test
 	public void ignoreTimestamp() {
 		this.reader.set(new Metric<Number>("foo", 2.3));
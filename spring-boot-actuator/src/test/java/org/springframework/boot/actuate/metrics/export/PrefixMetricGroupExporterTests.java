@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,10 +23,19 @@ import org.junit.Test;
 
 import org.springframework.boot.actuate.metrics.Iterables;
 import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.buffer.BufferMetricReader;
+import org.springframework.boot.actuate.metrics.buffer.CounterBuffers;
+import org.springframework.boot.actuate.metrics.buffer.GaugeBuffers;
 import org.springframework.boot.actuate.metrics.repository.InMemoryMultiMetricRepository;
 import org.springframework.boot.actuate.metrics.writer.Delta;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests for {@link PrefixMetricGroupExporter}.
@@ -91,4 +100,23 @@ public class PrefixMetricGroupExporterTests {
 		assertThat(Iterables.collection(this.writer.groups())).hasSize(1);
 	}
 
+	@Test
+	public void onlyUpdatedMetricsVisitedWithChangeTrackingReader() throws Exception {
+		GaugeBuffers gauges = new GaugeBuffers();
+		BufferMetricReader reader = spy(
+				new BufferMetricReader(new CounterBuffers(), gauges));
+		PrefixMetricGroupExporter exporter = new PrefixMetricGroupExporter(reader,
+				this.writer);
+		exporter.setGroups(Collections.singleton("foo"));
+		gauges.set("foo.bar", 2.3);
+		Thread.sleep(10);
+		exporter.export();
+		assertThat(Iterables.collection(this.writer.findAll("foo"))).hasSize(1);
+		gauges.set("foo.spam", 1.3);
+		exporter.export();
+		verify(reader, times(2)).findAllUpdatedSince(eq("foo"), anyLong());
+		verify(reader, never()).findAll("foo");
+		assertThat(Iterables.collection(this.writer.findAll("foo"))).hasSize(2);
+	}
+
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.buffer.GaugeBuffers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link HistogramMetricReader} and {@link HistogramGaugeService}.
+ *
+ * @author agent (agent@local)
+ */
+public class HistogramMetricReaderTests {
+
+	private final TestClock clock = new TestClock();
+
+	private final Histograms histograms = new Histograms(0);
+
+	private final HistogramMetricReader reader = new HistogramMetricReader(
+			this.histograms, 0.5, 0.99, 0.999);
+
+	@Test
+	public void metricNames() {
+		this.histograms.record("response.foo", 10);
+		assertThat(names(this.reader.findAll())).containsExactly(
+				"histogram.response.foo.count", "histogram.response.foo.min",
+				"histogram.response.foo.max", "histogram.response.foo.mean",
+				"histogram.response.foo.p50", "histogram.response.foo.p99",
+				"histogram.response.foo.p999");
+		assertThat(this.reader.count()).isEqualTo(7);
+	}
+
+	@Test
+	public void timerNotPrefixed() {
+		this.histograms.record("timer.foo", 10);
+		assertThat(this.reader.findOne("timer.foo.count").getValue()).isEqualTo(1L);
+	}
+
+	@Test
+	public void findAllWithPrefix() {
+		this.histograms.record("response.foo", 10);
+		this.histograms.record("response.bar", 10);
+		assertThat(names(this.reader.findAll("histogram.response.bar"))).hasSize(7);
+	}
+
+	@Test
+	public void gaugeServiceRecordsMatchingPrefixes() {
+		GaugeBuffers buffers = new GaugeBuffers();
+		HistogramGaugeService service = new HistogramGaugeService(buffers,
+				this.histograms, new String[] { "response." });
+		service.submit("response.foo", 3);
+		service.submit("response.foo", 5);
+		service.submit("gauge.bar", 1);
+		assertThat(buffers.find("gauge.response.foo").getValue()).isEqualTo(5);
+		assertThat(buffers.find("gauge.bar").getValue()).isEqualTo(1);
+		assertThat(this.histograms.count()).isEqualTo(1);
+		assertThat(this.reader.findOne("histogram.response.foo.max").getValue())
+				.isEqualTo(5.0);
+	}
+
+	@Test
+	public void intervalsRoll() {
+		Histograms histograms = new Histograms(200, this.clock);
+		histograms.record("foo", 1);
+		assertThat(histograms.findOne("foo").getCount()).isEqualTo(0);
+		this.clock.time = 300;
+		assertThat(histograms.findOne("foo").getCount()).isEqualTo(1);
+		histograms.record("foo", 2);
+		histograms.record("foo", 3);
+		assertThat(histograms.findOne("foo").getCount()).isEqualTo(1);
+		this.clock.time = 500;
+		assertThat(histograms.findOne("foo").getCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void valuesRecordedBeforeIntervalHasRolledGoToNextInterval() {
+		Histograms histograms = new Histograms(200, this.clock);
+		histograms.record("foo", 1);
+		this.clock.time = 250;
+		histograms.record("foo", 2);
+		assertThat(histograms.findOne("foo").getMax()).isEqualTo(1.0);
+		this.clock.time = 450;
+		assertThat(histograms.findOne("foo").getMax()).isEqualTo(2.0);
+		assertThat(histograms.findOne("foo").getCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void intervalsRollWhenRecordingWithoutReads() {
+		Histograms histograms = new Histograms(200, this.clock);
+		histograms.record("foo", 1);
+		this.clock.time = 300;
+		histograms.record("foo", 2);
+		histograms.record("foo", 3);
+		this.clock.time = 500;
+		assertThat(histograms.findOne("foo").getCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void idleIntervalsAreEmpty() {
+		Histograms histograms = new Histograms(200, this.clock);
+		histograms.record("foo", 1);
+		this.clock.time = 500;
+		assertThat(histograms.findOne("foo").getCount()).isEqualTo(0);
+		this.clock.time = 700;
+		histograms.record("foo", 2);
+		this.clock.time = 900;
+		assertThat(histograms.findOne("foo").getCount()).isEqualTo(1);
+	}
+
+	private List<String> names(Iterable<Metric<?>> metrics) {
+		List<String> names = new ArrayList<String>();
+		for (Metric<?> metric : metrics) {
+			names.add(metric.getName());
+		}
+		return names;
+	}
+
+	private static class TestClock implements Histograms.Clock {
+
+		private long time;
+
+		@Override
+		public long currentTimeMillis() {
+			return this.time;
+		}
+
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.histogram;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * Tests for {@link Histogram}.
+ *
+ * @author agent (agent@local)
+ */
+public class HistogramTests {
+
+	private Histogram histogram = new Histogram();
+
+	@Test
+	public void empty() {
+		HistogramSnapshot snapshot = this.histogram.snapshot(false);
+		assertThat(snapshot.getCount()).isEqualTo(0);
+		assertThat(snapshot.getMin()).isEqualTo(0);
+		assertThat(snapshot.getMax()).isEqualTo(0);
+		assertThat(snapshot.getMean()).isEqualTo(0);
+		assertThat(snapshot.getValueAtPercentile(0.99)).isEqualTo(0);
+	}
+
+	@Test
+	public void summaryStatistics() {
+		this.histogram.record(1);
+		this.histogram.record(2);
+		this.histogram.record(3);
+		HistogramSnapshot snapshot = this.histogram.snapshot(false);
+		assertThat(snapshot.getCount()).isEqualTo(3);
+		assertThat(snapshot.getSum()).isEqualTo(6);
+		assertThat(snapshot.getMin()).isEqualTo(1);
+		assertThat(snapshot.getMax()).isEqualTo(3);
+		assertThat(snapshot.getMean()).isEqualTo(2);
+	}
+
+	@Test
+	public void percentilesWithinBucketPrecision() {
+		for (int i = 1; i <= 10000; i++) {
+			this.histogram.record(i);
+		}
+		HistogramSnapshot snapshot = this.histogram.snapshot(false);
+		assertThat(snapshot.getValueAtPercentile(0.5)).isCloseTo(5000, offset(250.0));
+		assertThat(snapshot.getValueAtPercentile(0.95)).isCloseTo(9500, offset(475.0));
+		assertThat(snapshot.getValueAtPercentile(0.99)).isCloseTo(9900, offset(495.0));
+		assertThat(snapshot.getValueAtPercentile(1.0)).isEqualTo(10000);
+	}
+
+	@Test
+	public void singleValue() {
+		this.histogram.record(42);
+		HistogramSnapshot snapshot = this.histogram.snapshot(false);
+		assertThat(snapshot.getValueAtPercentile(0.5)).isEqualTo(42);
+		assertThat(snapshot.getValueAtPercentile(0.99)).isEqualTo(42);
+	}
+
+	@Test
+	public void snapshotWithReset() {
+		this.histogram.record(5);
+		assertThat(this.histogram.snapshot(true).getCount()).isEqualTo(1);
+		HistogramSnapshot snapshot = this.histogram.snapshot(false);
+		assertThat(snapshot.getCount()).isEqualTo(0);
+		assertThat(snapshot.getMax()).isEqualTo(0);
+	}
+
+	@Test
+	public void reset() {
+		this.histogram.record(5);
+		this.histogram.reset();
+		this.histogram.record(2);
+		HistogramSnapshot snapshot = this.histogram.snapshot(false);
+		assertThat(snapshot.getCount()).isEqualTo(1);
+		assertThat(snapshot.getSum()).isEqualTo(2);
+		assertThat(snapshot.getMin()).isEqualTo(2);
+		assertThat(snapshot.getMax()).isEqualTo(2);
+	}
+
+	@Test
+	public void bucketBounds() {
+		int bucket = Histogram.bucket(123.4);
+		assertThat(Histogram.lowerBound(bucket)).isLessThanOrEqualTo(123.4);
+		assertThat(Histogram.upperBound(bucket)).isGreaterThan(123.4);
+		assertThat(Histogram.bucket(0)).isEqualTo(0);
+		assertThat(Histogram.bucket(Double.MAX_VALUE)).isEqualTo(Histogram.BUCKETS - 1);
+	}
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.actuate.metrics.histogram.HistogramSnapshot;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link DataSourceInstrumentation}.
+ *
+ * @author agent (agent@local)
+ */
+public class DataSourceInstrumentationTests {
+
+	private final DataSourceInstrumentation instrumentation = new DataSourceInstrumentation(
+			0);
+
+	private org.apache.tomcat.jdbc.pool.DataSource tomcat;
+
+	@After
+	public void close() {
+		if (this.tomcat != null) {
+			this.tomcat.close(true);
+		}
+	}
+
+	@Test
+	public void instrumentsPool() throws Exception {
+		DataSource dataSource = (DataSource) this.instrumentation
+				.postProcessAfterInitialization(createTomcat(), "tomcat");
+		assertThat(AopUtils.isAopProxy(dataSource)).isTrue();
+		assertThat(dataSource).isInstanceOf(org.apache.tomcat.jdbc.pool.DataSource.class);
+		assertThat(this.instrumentation.isInstrumented("tomcat")).isTrue();
+		assertThat(this.instrumentation.getAcquireFailures("tomcat")).isEqualTo(0L);
+	}
+
+	@Test
+	public void doesNotInstrumentOtherDataSources() throws Exception {
+		DataSource dataSource = DataSourceBuilder.create()
+				.type(org.springframework.jdbc.datasource.SimpleDriverDataSource.class)
+				.url("jdbc:hsqldb:mem:instrumentation").username("sa").build();
+		assertThat(this.instrumentation.postProcessAfterInitialization(dataSource,
+				"simple")).isSameAs(dataSource);
+		assertThat(this.instrumentation.isInstrumented("simple")).isFalse();
+		assertThat(this.instrumentation.getAcquireFailures("simple")).isNull();
+	}
+
+	@Test
+	public void doesNotInstrumentOtherBeans() throws Exception {
+		Object bean = new Object();
+		assertThat(this.instrumentation.postProcessAfterInitialization(bean, "bean"))
+				.isSameAs(bean);
+	}
+
+	@Test
+	public void recordsAcquireAndHoldTimes() throws Exception {
+		DataSource dataSource = this.instrumentation.instrument(createTomcat(),
+				"tomcat");
+		assertThat(this.instrumentation.getAcquireTimes("tomcat")).isNull();
+		Connection connection = dataSource.getConnection();
+		Thread.sleep(20);
+		assertThat(this.instrumentation.getHoldTimes("tomcat")).isNull();
+		connection.close();
+		connection.close();
+		HistogramSnapshot acquire = this.instrumentation.getAcquireTimes("tomcat");
+		assertThat(acquire.getCount()).isEqualTo(1);
+		HistogramSnapshot hold = this.instrumentation.getHoldTimes("tomcat");
+		assertThat(hold.getCount()).isEqualTo(1);
+		assertThat(hold.getMax()).isGreaterThanOrEqualTo(20);
+		assertThat(connection.isClosed()).isTrue();
+	}
+
+	@Test
+	public void connectionIsReturnedToPool() throws Exception {
+		org.apache.tomcat.jdbc.pool.DataSource tomcat = createTomcat();
+		DataSource dataSource = this.instrumentation.instrument(tomcat, "tomcat");
+		Connection connection = dataSource.getConnection();
+		assertThat(tomcat.getActive()).isEqualTo(1);
+		assertThat(connection).isEqualTo(connection);
+		assertThat(connection.hashCode()).isEqualTo(System.identityHashCode(connection));
+		connection.close();
+		assertThat(tomcat.getActive()).isEqualTo(0);
+	}
+
+	@Test
+	public void countsAcquireFailures() throws Exception {
+		org.apache.tomcat.jdbc.pool.DataSource tomcat = createTomcat();
+		tomcat.setMaxActive(1);
+		tomcat.setMaxWait(10);
+		DataSource dataSource = this.instrumentation.instrument(tomcat, "tomcat");
+		Connection connection = dataSource.getConnection();
+		try {
+			dataSource.getConnection();
+			fail("Expected SQLException");
+		}
+		catch (SQLException ex) {
+			// Expected
+		}
+		finally {
+			connection.close();
+		}
+		assertThat(this.instrumentation.getAcquireFailures("tomcat")).isEqualTo(1L);
+		assertThat(this.instrumentation.getAcquireTimes("tomcat").getCount())
+				.isEqualTo(1);
+	}
+
+	@Test
+	public void instrumentsHikari() throws Exception {
+		HikariDataSource hikari = new HikariDataSource();
+		hikari.setJdbcUrl("jdbc:hsqldb:mem:instrumentation");
+		hikari.setUsername("sa");
+		try {
+			DataSource dataSource = (DataSource) this.instrumentation
+					.postProcessAfterInitialization(hikari, "hikari");
+			assertThat(dataSource).isInstanceOf(HikariDataSource.class);
+			dataSource.getConnection().close();
+			assertThat(this.instrumentation.getAcquireTimes("hikari").getCount())
+					.isEqualTo(1);
+			assertThat(this.instrumentation.getHoldTimes("hikari").getCount())
+					.isEqualTo(1);
+		}
+		finally {
+			hikari.close();
+		}
+	}
+
+	@Test
+	public void instrumentsDbcp2() throws Exception {
+		BasicDataSource dbcp2 = new BasicDataSource();
+		dbcp2.setUrl("jdbc:hsqldb:mem:instrumentation");
+		dbcp2.setUsername("sa");
+		try {
+			DataSource dataSource = (DataSource) this.instrumentation
+					.postProcessAfterInitialization(dbcp2, "dbcp2");
+			assertThat(dataSource).isInstanceOf(BasicDataSource.class);
+			dataSource.getConnection().close();
+			assertThat(this.instrumentation.getAcquireTimes("dbcp2").getCount())
+					.isEqualTo(1);
+			assertThat(this.instrumentation.getHoldTimes("dbcp2").getCount())
+					.isEqualTo(1);
+		}
+		finally {
+			dbcp2.close();
+		}
+	}
+
+	private org.apache.tomcat.jdbc.pool.DataSource createTomcat() {
+		this.tomcat = new org.apache.tomcat.jdbc.pool.DataSource();
+		this.tomcat.setUrl("jdbc:hsqldb:mem:instrumentation");
+		this.tomcat.setUsername("sa");
+		return this.tomcat;
+	}
+
+}
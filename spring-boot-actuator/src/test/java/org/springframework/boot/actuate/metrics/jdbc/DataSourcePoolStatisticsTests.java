@@ -0,0 +1,137 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.jdbc;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.Test;
+
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link DataSourcePoolStatistics}.
+ *
+ * @author agent (agent@local)
+ */
+public class DataSourcePoolStatisticsTests {
+
+	private static final String URL = "jdbc:hsqldb:mem:statistics";
+
+	@Test
+	public void unsupportedDataSource() throws Exception {
+		assertThat(DataSourcePoolStatistics.get(new SimpleDriverDataSource())).isNull();
+	}
+
+	@Test
+	public void tomcat() throws Exception {
+		org.apache.tomcat.jdbc.pool.DataSource dataSource = new org.apache.tomcat.jdbc.pool.DataSource();
+		dataSource.setUrl(URL);
+		dataSource.setUsername("sa");
+		try {
+			Connection connection = dataSource.getConnection();
+			DataSourcePoolStatistics statistics = DataSourcePoolStatistics
+					.get(dataSource);
+			assertThat(statistics.getPending()).isEqualTo(0);
+			assertThat(statistics.getBorrowed()).isEqualTo(1);
+			assertThat(statistics.getCreated()).isGreaterThanOrEqualTo(1);
+			assertThat(statistics.getAcquireMean()).isNull();
+			connection.close();
+			assertThat(DataSourcePoolStatistics.get(dataSource).getIdle())
+					.isGreaterThanOrEqualTo(1);
+		}
+		finally {
+			dataSource.close(true);
+		}
+	}
+
+	@Test
+	public void hikari() throws Exception {
+		HikariDataSource dataSource = new HikariDataSource();
+		dataSource.setJdbcUrl(URL);
+		dataSource.setUsername("sa");
+		try {
+			assertThat(DataSourcePoolStatistics.get(dataSource)).isNull();
+			Connection connection = dataSource.getConnection();
+			DataSourcePoolStatistics statistics = DataSourcePoolStatistics
+					.get(dataSource);
+			assertThat(statistics.getPending()).isEqualTo(0);
+			assertThat(statistics.getIdle()).isNotNull();
+			assertThat(statistics.getBorrowed()).isNull();
+			connection.close();
+		}
+		finally {
+			dataSource.close();
+		}
+	}
+
+	@Test
+	public void dbcp2() throws Exception {
+		BasicDataSource dataSource = new BasicDataSource();
+		dataSource.setUrl(URL);
+		dataSource.setUsername("sa");
+		try {
+			assertThat(DataSourcePoolStatistics.get(dataSource)).isNull();
+			Connection connection = dataSource.getConnection();
+			connection.close();
+			DataSourcePoolStatistics statistics = DataSourcePoolStatistics
+					.get(dataSource);
+			assertThat(statistics.getIdle()).isEqualTo(1);
+			assertThat(statistics.getPending()).isEqualTo(0);
+			assertThat(statistics.getBorrowed()).isEqualTo(1);
+			assertThat(statistics.getCreated()).isEqualTo(1);
+			assertThat(statistics.getDestroyed()).isEqualTo(0);
+			assertThat(statistics.getAcquireMean()).isNotNull();
+			assertThat(statistics.getAcquireMax()).isNotNull();
+			assertThat(statistics.getHoldMean()).isNotNull();
+		}
+		finally {
+			dataSource.close();
+		}
+	}
+
+	@Test
+	public void toMetrics() throws Exception {
+		BasicDataSource dataSource = new BasicDataSource();
+		dataSource.setUrl(URL);
+		dataSource.setUsername("sa");
+		try {
+			dataSource.getConnection().close();
+			Map<String, Number> metrics = new HashMap<String, Number>();
+			for (Metric<?> metric : DataSourcePoolStatistics.get(dataSource)
+					.toMetrics("datasource.test.")) {
+				metrics.put(metric.getName(), metric.getValue());
+			}
+			assertThat(metrics).containsKeys("datasource.test.idle",
+					"datasource.test.pending", "datasource.test.borrowed",
+					"datasource.test.created", "datasource.test.destroyed",
+					"datasource.test.acquire.mean", "datasource.test.acquire.max",
+					"datasource.test.hold.mean");
+			assertThat(metrics.get("datasource.test.borrowed")).isEqualTo(1L);
+		}
+		finally {
+			dataSource.close();
+		}
+	}
+
+}
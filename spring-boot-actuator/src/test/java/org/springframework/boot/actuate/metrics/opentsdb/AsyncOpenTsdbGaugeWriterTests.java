@@ -0,0 +1,260 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.opentsdb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link AsyncOpenTsdbGaugeWriter} against a stub Open TSDB server.
+ *
+ * @author agent (agent@local)
+ */
+public class AsyncOpenTsdbGaugeWriterTests {
+
+	private final StubServer server = new StubServer();
+
+	private AsyncOpenTsdbGaugeWriter writer;
+
+	@Before
+	public void init() throws IOException {
+		this.server.start();
+		this.writer = new AsyncOpenTsdbGaugeWriter();
+		this.writer.setUrl("http://localhost:" + this.server.getPort() + "/api/put");
+		this.writer.setInitialBackoffMillis(10);
+	}
+
+	@After
+	public void close() {
+		this.writer.close();
+		this.server.stop();
+	}
+
+	@Test
+	public void batchesBySize() throws Exception {
+		this.writer.setBufferSize(2);
+		this.writer.setFlushIntervalMillis(10000);
+		for (int i = 0; i < 4; i++) {
+			this.writer.set(new Metric<Double>("foo" + i, 2.4));
+		}
+		awaitSent(4);
+		assertThat(this.server.requests).hasSize(2);
+		assertThat(this.server.requests.get(0).data).hasSize(2);
+		assertThat(this.server.requests.get(1).data).hasSize(2);
+	}
+
+	@Test
+	public void batchesByTime() throws Exception {
+		this.writer.setFlushIntervalMillis(50);
+		this.writer.set(new Metric<Double>("foo", 2.4));
+		awaitSent(1);
+		assertThat(this.server.requests).hasSize(1);
+		assertThat(this.server.requests.get(0).data.get(0).get("metric"))
+				.isEqualTo("foo");
+	}
+
+	@Test
+	public void compressedByDefault() throws Exception {
+		this.writer.setFlushIntervalMillis(10);
+		this.writer.set(new Metric<Double>("foo", 2.4));
+		awaitSent(1);
+		assertThat(this.server.requests.get(0).encoding).isEqualTo("gzip");
+	}
+
+	@Test
+	public void uncompressed() throws Exception {
+		this.writer.setCompress(false);
+		this.writer.setFlushIntervalMillis(10);
+		this.writer.set(new Metric<Double>("foo", 2.4));
+		awaitSent(1);
+		assertThat(this.server.requests.get(0).encoding).isNull();
+		assertThat(this.server.requests.get(0).data).hasSize(1);
+	}
+
+	@Test
+	public void retriesServerErrors() throws Exception {
+		this.server.statuses.add(503);
+		this.server.statuses.add(500);
+		this.writer.setFlushIntervalMillis(10);
+		this.writer.set(new Metric<Double>("foo", 2.4));
+		awaitSent(1);
+		assertThat(this.server.requests).hasSize(3);
+		assertThat(this.writer.getDroppedCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void dropsAfterRetries() throws Exception {
+		CounterService counterService = mock(CounterService.class);
+		this.writer.setCounterService(counterService);
+		this.writer.setMaxRetries(1);
+		this.server.statuses.add(503);
+		this.server.statuses.add(503);
+		this.writer.setFlushIntervalMillis(10);
+		this.writer.set(new Metric<Double>("foo", 2.4));
+		awaitDropped(1);
+		assertThat(this.server.requests).hasSize(2);
+		assertThat(this.writer.getSentCount()).isEqualTo(0);
+		verify(counterService).increment("opentsdb.dropped");
+	}
+
+	@Test
+	public void doesNotRetryRejectedData() throws Exception {
+		this.server.statuses.add(400);
+		this.writer.setFlushIntervalMillis(10);
+		this.writer.set(new Metric<Double>("foo", 2.4));
+		awaitDropped(1);
+		assertThat(this.server.requests).hasSize(1);
+	}
+
+	@Test
+	public void dropsWhenQueueFull() throws Exception {
+		this.server.latch = new CountDownLatch(1);
+		this.writer.setQueueCapacity(1);
+		this.writer.setBufferSize(1);
+		this.writer.setFlushIntervalMillis(10);
+		for (int i = 0; i < 4; i++) {
+			this.writer.set(new Metric<Double>("foo" + i, 2.4));
+		}
+		assertThat(this.writer.getDroppedCount()).isGreaterThanOrEqualTo(2);
+		this.server.latch.countDown();
+		awaitSent(4 - this.writer.getDroppedCount());
+	}
+
+	@Test
+	public void closeFlushesQueuedValues() throws Exception {
+		this.writer.setBufferSize(100);
+		this.writer.setFlushIntervalMillis(10000);
+		this.writer.set(new Metric<Double>("foo", 2.4));
+		this.writer.set(new Metric<Double>("bar", 2.4));
+		this.writer.close();
+		assertThat(this.writer.getSentCount()).isEqualTo(2);
+		this.writer.set(new Metric<Double>("spam", 2.4));
+		assertThat(this.writer.getDroppedCount()).isEqualTo(1);
+	}
+
+	private void awaitSent(long count) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while (this.writer.getSentCount() < count && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		assertThat(this.writer.getSentCount()).isEqualTo(count);
+	}
+
+	private void awaitDropped(long count) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while (this.writer.getDroppedCount() < count
+				&& System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		assertThat(this.writer.getDroppedCount()).isEqualTo(count);
+	}
+
+	private static class StubServer implements HttpHandler {
+
+		private final ObjectMapper objectMapper = new ObjectMapper();
+
+		private final List<StubRequest> requests = new CopyOnWriteArrayList<StubRequest>();
+
+		private final BlockingQueue<Integer> statuses = new LinkedBlockingQueue<Integer>();
+
+		private volatile CountDownLatch latch;
+
+		private HttpServer server;
+
+		void start() throws IOException {
+			this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			this.server.createContext("/api/put", this);
+			this.server.start();
+		}
+
+		int getPort() {
+			return this.server.getAddress().getPort();
+		}
+
+		void stop() {
+			this.server.stop(0);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				CountDownLatch latch = this.latch;
+				if (latch != null) {
+					latch.await(5, TimeUnit.SECONDS);
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+			InputStream body = exchange.getRequestBody();
+			if ("gzip".equals(encoding)) {
+				body = new GZIPInputStream(body);
+			}
+			this.requests.add(new StubRequest(encoding,
+					this.objectMapper.readValue(body, List.class)));
+			Integer status = this.statuses.poll();
+			byte[] response = "{}".getBytes("UTF-8");
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(status == null ? 200 : status, response.length);
+			OutputStream output = exchange.getResponseBody();
+			output.write(response);
+			output.close();
+		}
+
+	}
+
+	private static class StubRequest {
+
+		private final String encoding;
+
+		private final List<Map<String, Object>> data;
+
+		StubRequest(String encoding, List<Map<String, Object>> data) {
+			this.encoding = encoding;
+			this.data = data;
+		}
+
+	}
+
+}
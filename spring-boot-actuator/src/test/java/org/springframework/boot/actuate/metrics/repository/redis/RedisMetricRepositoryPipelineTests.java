@@ -0,0 +1,146 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.repository.redis;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.boot.actuate.metrics.Iterables;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.writer.Delta;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Tests for the pipelined and buffered writes of {@link RedisMetricRepository} and
+ * {@link RedisMultiMetricRepository}, run against a {@link RedisStubServer}.
+ *
+ * @author agent (agent@local)
+ */
+public class RedisMetricRepositoryPipelineTests {
+
+	private final RedisStubServer redis = new RedisStubServer();
+
+	private RedisMetricRepository repository;
+
+	@Before
+	public void init() throws Exception {
+		this.redis.start();
+		this.repository = new RedisMetricRepository(this.redis.getConnectionFactory(),
+				"spring.test");
+	}
+
+	@After
+	public void close() throws Exception {
+		this.redis.stop();
+	}
+
+	@Test
+	public void setIncrementAndGet() {
+		this.repository.set(new Metric<Number>("foo", 12.3));
+		this.repository.increment(new Delta<Long>("foo", 3L));
+		Metric<?> metric = this.repository.findOne("foo");
+		assertThat(metric.getName()).isEqualTo("foo");
+		assertThat(metric.getValue().doubleValue()).isEqualTo(15.3, offset(0.01));
+	}
+
+	@Test
+	public void writeIsOnePipelineWithoutMembershipTracking() {
+		this.redis.getAndResetCommandCount();
+		this.repository.increment(new Delta<Long>("foo", 3L));
+		assertThat(this.redis.getAndResetCommandCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void findAllReadsScoresWithRange() {
+		this.repository.increment(new Delta<Long>("foo", 3L));
+		this.repository.set(new Metric<Number>("bar", 12.3));
+		this.redis.getAndResetCommandCount();
+		assertThat(Iterables.collection(this.repository.findAll())).extracting("name")
+				.containsExactly("foo", "bar");
+		assertThat(this.redis.getAndResetCommandCount()).isEqualTo(2);
+		assertThat(this.repository.count()).isEqualTo(2);
+	}
+
+	@Test
+	public void bufferedWritesAreNotVisibleUntilFlushed() {
+		this.repository.setBuffered(true);
+		this.repository.increment(new Delta<Long>("foo", 3L));
+		assertThat(this.repository.findOne("foo")).isNull();
+		this.repository.flush();
+		assertThat(this.repository.findOne("foo").getValue().longValue()).isEqualTo(3);
+	}
+
+	@Test
+	public void bufferedWritesAreMerged() {
+		this.repository.setBuffered(true);
+		this.redis.getAndResetCommandCount();
+		for (int i = 0; i < 100; i++) {
+			this.repository.increment(new Delta<Long>("counter" + (i % 10), 1L));
+		}
+		this.repository.set(new Metric<Number>("gauge", 1.0));
+		this.repository.set(new Metric<Number>("gauge", 2.0));
+		this.repository.increment(new Delta<Long>("gauge", 3L));
+		assertThat(this.redis.getAndResetCommandCount()).isEqualTo(0);
+		this.repository.flush();
+		assertThat(this.redis.getAndResetCommandCount()).isEqualTo(22);
+		assertThat(this.repository.findOne("counter3").getValue().longValue())
+				.isEqualTo(10);
+		assertThat(this.repository.findOne("gauge").getValue().doubleValue())
+				.isEqualTo(5.0);
+		this.redis.getAndResetCommandCount();
+		this.repository.flush();
+		assertThat(this.redis.getAndResetCommandCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void bufferedDeltasAreAddedToStoredValue() {
+		this.repository.set(new Metric<Number>("foo", 10.0));
+		this.repository.setBuffered(true);
+		this.repository.increment(new Delta<Long>("foo", 3L));
+		this.repository.increment(new Delta<Long>("foo", 4L));
+		this.repository.flush();
+		assertThat(this.repository.findOne("foo").getValue().longValue()).isEqualTo(17);
+	}
+
+	@Test
+	public void multiMetricRepository() {
+		RedisMultiMetricRepository repository = new RedisMultiMetricRepository(
+				this.redis.getConnectionFactory(), "spring.groups");
+		this.redis.getAndResetCommandCount();
+		repository.set("foo", Arrays.<Metric<?>>asList(new Metric<Number>("foo.bar", 1),
+				new Metric<Number>("foo.spam", 2)));
+		assertThat(this.redis.getAndResetCommandCount()).isEqualTo(5);
+		repository.increment("foo", new Delta<Long>("foo.bar", 3L));
+		assertThat(Iterables.collection(repository.findAll("foo")))
+				.extracting("name", "value")
+				.containsExactlyInAnyOrder(tuple("foo.spam", 2.0), tuple("foo.bar", 4.0));
+		assertThat(repository.groups()).containsExactly("foo");
+		repository.reset("foo");
+		assertThat(repository.countGroups()).isEqualTo(0);
+		assertThat(repository.findAll("foo")).isEmpty();
+		repository.set("bar", Collections.<Metric<?>>emptyList());
+		assertThat(repository.groups()).containsExactly("bar");
+	}
+
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.repository.redis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+
+/**
+ * Minimal in-memory stand-in for a Redis server that speaks enough of the Redis protocol
+ * for the metric repositories. Only the string and sorted set commands that the
+ * repositories use are supported.
+ *
+ * @author agent (agent@local)
+ */
+class RedisStubServer {
+
+	private final Map<String, String> values = new HashMap<String, String>();
+
+	private final Map<String, Map<String, Double>> zSets = new HashMap<String, Map<String, Double>>();
+
+	private final AtomicInteger commands = new AtomicInteger();
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	private ServerSocket serverSocket;
+
+	private JedisConnectionFactory connectionFactory;
+
+	void start() throws IOException {
+		this.serverSocket = new ServerSocket(0, 50, InetAddress.getByName("localhost"));
+		this.executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				accept();
+			}
+
+		});
+		this.connectionFactory = new JedisConnectionFactory();
+		this.connectionFactory.setHostName("localhost");
+		this.connectionFactory.setPort(this.serverSocket.getLocalPort());
+		this.connectionFactory.afterPropertiesSet();
+	}
+
+	void stop() throws IOException {
+		this.connectionFactory.destroy();
+		this.serverSocket.close();
+		this.executor.shutdownNow();
+	}
+
+	RedisConnectionFactory getConnectionFactory() {
+		return this.connectionFactory;
+	}
+
+	/**
+	 * Return the number of commands received since the last call, excluding connection
+	 * management commands.
+	 * @return the number of commands
+	 */
+	int getAndResetCommandCount() {
+		return this.commands.getAndSet(0);
+	}
+
+	private void accept() {
+		while (!this.serverSocket.isClosed()) {
+			try {
+				final Socket socket = this.serverSocket.accept();
+				this.executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						handle(socket);
+					}
+
+				});
+			}
+			catch (IOException ex) {
+				// Closed
+			}
+		}
+	}
+
+	private void handle(Socket socket) {
+		try {
+			InputStream input = new BufferedInputStream(socket.getInputStream());
+			OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+			List<String> command;
+			while ((command = readCommand(input)) != null) {
+				String name = command.get(0).toUpperCase(Locale.ENGLISH);
+				write(output, execute(name, command.subList(1, command.size())));
+				if (input.available() == 0) {
+					output.flush();
+				}
+				if ("QUIT".equals(name)) {
+					break;
+				}
+			}
+			output.flush();
+			socket.close();
+		}
+		catch (IOException ex) {
+			// Disconnected
+		}
+	}
+
+	private Object execute(String name, List<String> args) {
+		if ("PING".equals(name)) {
+			return new Status("PONG");
+		}
+		if ("QUIT".equals(name) || "SELECT".equals(name)) {
+			return new Status("OK");
+		}
+		this.commands.incrementAndGet();
+		synchronized (this) {
+			if ("GET".equals(name)) {
+				return this.values.get(args.get(0));
+			}
+			if ("SET".equals(name)) {
+				this.values.put(args.get(0), args.get(1));
+				return new Status("OK");
+			}
+			if ("MGET".equals(name)) {
+				List<String> result = new ArrayList<String>();
+				for (String key : args) {
+					result.add(this.values.get(key));
+				}
+				return result;
+			}
+			if ("DEL".equals(name)) {
+				long deleted = 0;
+				for (String key : args) {
+					deleted += (this.values.remove(key) != null
+							| this.zSets.remove(key) != null ? 1 : 0);
+				}
+				return deleted;
+			}
+			if ("EXISTS".equals(name)) {
+				String key = args.get(0);
+				return (this.values.containsKey(key) || this.zSets.containsKey(key)
+						? 1L : 0L);
+			}
+			return executeZSet(name, args);
+		}
+	}
+
+	private Object executeZSet(String name, List<String> args) {
+		Map<String, Double> zSet = this.zSets.get(args.get(0));
+		if (zSet == null) {
+			zSet = new HashMap<String, Double>();
+		}
+		if ("ZADD".equals(name)) {
+			this.zSets.put(args.get(0), zSet);
+			return (zSet.put(args.get(2), Double.valueOf(args.get(1))) == null ? 1L
+					: 0L);
+		}
+		if ("ZINCRBY".equals(name)) {
+			this.zSets.put(args.get(0), zSet);
+			Double current = zSet.get(args.get(2));
+			double value = (current == null ? 0 : current) + Double.valueOf(args.get(1));
+			zSet.put(args.get(2), value);
+			return String.valueOf(value);
+		}
+		if ("ZSCORE".equals(name)) {
+			Double score = zSet.get(args.get(1));
+			return (score == null ? null : String.valueOf(score));
+		}
+		if ("ZCARD".equals(name)) {
+			return (long) zSet.size();
+		}
+		if ("ZREM".equals(name)) {
+			long removed = 0;
+			for (String member : args.subList(1, args.size())) {
+				removed += (zSet.remove(member) != null ? 1 : 0);
+			}
+			if (zSet.isEmpty()) {
+				this.zSets.remove(args.get(0));
+			}
+			return removed;
+		}
+		if ("ZRANGE".equals(name)) {
+			return range(zSet, Integer.valueOf(args.get(1)), Integer.valueOf(args.get(2)),
+					args.size() > 3);
+		}
+		return new ErrorReply("ERR unknown command '" + name + "'");
+	}
+
+	private List<String> range(final Map<String, Double> zSet, int start, int stop,
+			boolean withScores) {
+		List<String> members = new ArrayList<String>(zSet.keySet());
+		Collections.sort(members, new Comparator<String>() {
+
+			@Override
+			public int compare(String o1, String o2) {
+				int result = zSet.get(o1).compareTo(zSet.get(o2));
+				return (result != 0 ? result : o1.compareTo(o2));
+			}
+
+		});
+		int size = members.size();
+		start = (start < 0 ? Math.max(size + start, 0) : start);
+		stop = Math.min(stop < 0 ? size + stop : stop, size - 1);
+		List<String> result = new ArrayList<String>();
+		for (int i = start; i <= stop; i++) {
+			result.add(members.get(i));
+			if (withScores) {
+				result.add(String.valueOf(zSet.get(members.get(i))));
+			}
+		}
+		return result;
+	}
+
+	private List<String> readCommand(InputStream input) throws IOException {
+		String line = readLine(input);
+		if (line == null) {
+			return null;
+		}
+		int count = Integer.parseInt(line.substring(1));
+		List<String> command = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			int length = Integer.parseInt(readLine(input).substring(1));
+			byte[] bytes = new byte[length];
+			int read = 0;
+			while (read < length) {
+				int n = input.read(bytes, read, length - read);
+				if (n < 0) {
+					return null;
+				}
+				read += n;
+			}
+			command.add(new String(bytes, "UTF-8"));
+			readLine(input);
+		}
+		return command;
+	}
+
+	private String readLine(InputStream input) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = input.read()) != '\n') {
+			if (b < 0) {
+				return null;
+			}
+			if (b != '\r') {
+				line.write(b);
+			}
+		}
+		return line.toString("UTF-8");
+	}
+
+	private void write(OutputStream output, Object reply) throws IOException {
+		if (reply instanceof ErrorReply) {
+			writeLine(output, "-" + reply);
+		}
+		else if (reply instanceof Status) {
+			writeLine(output, "+" + reply);
+		}
+		else if (reply instanceof Long) {
+			writeLine(output, ":" + reply);
+		}
+		else if (reply instanceof List) {
+			List<?> list = (List<?>) reply;
+			writeLine(output, "*" + list.size());
+			for (Object item : list) {
+				write(output, item);
+			}
+		}
+		else if (reply == null) {
+			writeLine(output, "$-1");
+		}
+		else {
+			byte[] bytes = ((String) reply).getBytes("UTF-8");
+			writeLine(output, "$" + bytes.length);
+			output.write(bytes);
+			writeLine(output, "");
+		}
+	}
+
+	private void writeLine(OutputStream output, String line) throws IOException {
+		output.write((line + "\r\n").getBytes("UTF-8"));
+	}
+
+	private static class Status {
+
+		private final String value;
+
+		Status(String value) {
+			this.value = value;
+		}
+
+		@Override
+		public String toString() {
+			return this.value;
+		}
+
+	}
+
+	private static final class ErrorReply extends Status {
+
+		ErrorReply(String value) {
+			super(value);
+		}
+
+	}
+
+}
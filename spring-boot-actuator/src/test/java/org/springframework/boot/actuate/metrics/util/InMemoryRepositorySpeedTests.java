@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.actuate.metrics.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.experimental.theories.DataPoints;
+import org.junit.experimental.theories.Theories;
+import org.junit.experimental.theories.Theory;
+import org.junit.runner.RunWith;
+
+import org.springframework.boot.actuate.metrics.util.SimpleInMemoryRepository.Callback;
+import org.springframework.util.StopWatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Speed tests comparing {@link SimpleInMemoryRepository} with
+ * {@link HashIndexedInMemoryRepository} for point updates over a keyspace of 10k metric
+ * names. Run with {@code -Dperformance.test=true} for more meaningful numbers.
+ *
+ * @author agent (agent@local)
+ */
+@RunWith(Theories.class)
+public class InMemoryRepositorySpeedTests {
+
+	@DataPoints
+	public static int[] threadCounts = new int[] { 1, 2, 4, 8, 16 };
+
+	private static final String[] names = new String[10000];
+
+	static {
+		for (int i = 0; i < names.length; i++) {
+			names[i] = "counter.group" + (i % 100) + ".metric" + i;
+		}
+	}
+
+	private static final int number = Boolean.getBoolean("performance.test") ? 10000000
+			: 200000;
+
+	private static final Callback<Long> increment = new Callback<Long>() {
+
+		@Override
+		public Long modify(Long current) {
+			return (current == null ? 1L : current + 1);
+		}
+
+	};
+
+	private static StopWatch watch = new StopWatch("repository");
+
+	@AfterClass
+	public static void washup() {
+		System.err.println(watch.prettyPrint());
+	}
+
+	@Theory
+	public void simpleInMemoryRepository(int threadCount) throws Exception {
+		iterate("simple", new SimpleInMemoryRepository<Long>(), threadCount);
+	}
+
+	@Theory
+	public void hashIndexedInMemoryRepository(int threadCount) throws Exception {
+		iterate("hashIndexed", new HashIndexedInMemoryRepository<Long>(), threadCount);
+	}
+
+	private void iterate(String taskName, final SimpleInMemoryRepository<Long> repository,
+			int threadCount) throws Exception {
+		final int perThread = number / threadCount;
+		ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		for (int t = 0; t < threadCount; t++) {
+			final int offset = t * 7919;
+			tasks.add(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < perThread; i++) {
+						repository.update(names[(offset + i) % names.length], increment);
+					}
+				}
+			});
+		}
+		watch.start(taskName + "(" + threadCount + ")");
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (Runnable task : tasks) {
+			futures.add(pool.submit(task));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		watch.stop();
+		pool.shutdown();
+		double rate = (double) perThread * threadCount
+				/ Math.max(watch.getLastTaskTimeMillis(), 1) * 1000;
+		System.err.println(watch.getLastTaskName() + " rate=" + rate);
+		long total = 0;
+		for (Long value : repository.findAll()) {
+			total += value;
+		}
+		assertThat(total).isEqualTo((long) perThread * threadCount);
+		int groupSize = 0;
+		for (Long value : repository.findAllWithPrefix("counter.group42")) {
+			groupSize++;
+		}
+		assertThat(groupSize).isEqualTo(names.length / 100);
+	}
+
+}
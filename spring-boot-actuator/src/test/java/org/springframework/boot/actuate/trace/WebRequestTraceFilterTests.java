@@ -318,4 +318,71 @@ public class WebRequestTraceFilterTests {
 		assertThat(map.get("request").toString()).isEqualTo("{Accept=application/json}");
 	}
 
+	@Test
+	public void unsampledRequestIsNotTraced() throws Exception {
+		this.properties.setSampleRate(0.0);
+		MockHttpServletRequest request = spy(new MockHttpServletRequest("GET", "/foo"));
+		this.filter.doFilterInternal(request, new MockHttpServletResponse(),
+				new MockFilterChain());
+		assertThat(this.repository.findAll()).isEmpty();
+		verify(request, times(0)).getHeaderNames();
+	}
+
+	@Test
+	public void sampledRequestIsTraced() throws Exception {
+		this.properties.setSampleRate(1.0);
+		this.filter.doFilterInternal(new MockHttpServletRequest("GET", "/foo"),
+				new MockHttpServletResponse(), new MockFilterChain());
+		assertThat(this.repository.findAll()).hasSize(1);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void lazyCaptureExpandsWhenRead() throws Exception {
+		this.properties.setLazyCapture(true);
+		this.properties.setInclude(EnumSet.allOf(Include.class));
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/foo");
+		request.addHeader("Accept", "application/json");
+		request.addHeader("Cookie", "testCookie=testValue;");
+		request.setParameter("param", "paramvalue");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.addHeader("Content-Type", "application/json");
+		this.filter.doFilterInternal(request, response, new MockFilterChain());
+		Map<String, Object> trace = this.repository.findAll().iterator().next()
+				.getInfo();
+		assertThat(trace).isInstanceOf(CompactTraceInfo.class);
+		assertThat(trace.keySet()).startsWith("method", "path", "headers");
+		assertThat(trace.get("method")).isEqualTo("GET");
+		Map<String, Object> headers = (Map<String, Object>) trace.get("headers");
+		assertThat(headers.get("request").toString())
+				.isEqualTo("{Accept=application/json, Cookie=testCookie=testValue;}");
+		Map<String, Object> responseHeaders = (Map<String, Object>) headers
+				.get("response");
+		assertThat(responseHeaders.get("Content-Type")).isEqualTo("application/json");
+		assertThat(responseHeaders.get("status")).isEqualTo("200");
+		Map<String, Object> parameters = (Map<String, Object>) trace.get("parameters");
+		assertThat((String[]) parameters.get("param")).containsExactly("paramvalue");
+		assertThat(trace.get("timeTaken")).isNotNull();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void lazyCapturePostProcessRequestHeaders() throws Exception {
+		this.properties.setLazyCapture(true);
+		this.filter = new WebRequestTraceFilter(this.repository, this.properties) {
+
+			@Override
+			protected void postProcessRequestHeaders(Map<String, Object> headers) {
+				headers.remove("Test");
+			}
+
+		};
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/foo");
+		request.addHeader("Accept", "application/json");
+		request.addHeader("Test", "spring");
+		Map<String, Object> map = (Map<String, Object>) this.filter.getTrace(request)
+				.get("headers");
+		assertThat(map.get("request").toString()).isEqualTo("{Accept=application/json}");
+	}
+
 }
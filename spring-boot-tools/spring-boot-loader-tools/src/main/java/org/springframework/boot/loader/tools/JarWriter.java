@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.boot.loader.tools;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -61,6 +62,8 @@ public class JarWriter implements LoaderClassesWriter {
 
 	private final Set<String> writtenEntries = new HashSet<String>();
 
+	private final NestedJarIndexWriter nestedJarIndex = new NestedJarIndexWriter();
+
 	/**
 	 * Create a new {@link JarWriter} instance.
 	 * @param file the file to write
@@ -140,10 +143,12 @@ public class JarWriter implements LoaderClassesWriter {
 					inputStream = new ZipHeaderPeekInputStream(
 							jarFile.getInputStream(entry));
 				}
+				boolean nestedJar = inputStream.hasZipHeader();
 				EntryWriter entryWriter = new InputStreamEntryWriter(inputStream, true);
 				JarEntry transformedEntry = entryTransformer.transform(entry);
-				if (transformedEntry != null) {
-					writeEntry(transformedEntry, entryWriter);
+				if (transformedEntry != null && writeEntry(transformedEntry, entryWriter)
+						&& nestedJar) {
+					addToNestedJarIndex(transformedEntry.getName(), jarFile, entry);
 				}
 			}
 			finally {
@@ -179,7 +184,37 @@ public class JarWriter implements LoaderClassesWriter {
 			entry.setComment("UNPACK:" + FileUtils.sha1Hash(file));
 		}
 		new CrcAndSize(file).setupStoredEntry(entry);
-		writeEntry(entry, new InputStreamEntryWriter(new FileInputStream(file), true));
+		if (writeEntry(entry,
+				new InputStreamEntryWriter(new FileInputStream(file), true))) {
+			this.nestedJarIndex.add(entry.getName(), entry.getCrc(), file);
+		}
+	}
+
+	private void addToNestedJarIndex(String name, JarFile jarFile, JarEntry entry)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+				(int) Math.max(entry.getSize(), 0));
+		new InputStreamEntryWriter(jarFile.getInputStream(entry), true).write(bytes);
+		this.nestedJarIndex.add(name, bytes.toByteArray());
+	}
+
+	/**
+	 * Write an index of the central directories of the nested jars that have been
+	 * written so that they can be opened by the launcher without being parsed. Nothing
+	 * is written if there are no nested jars.
+	 * @throws IOException if the index cannot be written
+	 */
+	public void writeNestedJarIndex() throws IOException {
+		if (this.nestedJarIndex.isEmpty()) {
+			return;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		this.nestedJarIndex.writeTo(bytes);
+		JarEntry entry = new JarEntry(NestedJarIndexWriter.NAME);
+		new CrcAndSize(new ByteArrayInputStream(bytes.toByteArray()))
+				.setupStoredEntry(entry);
+		writeEntry(entry, new InputStreamEntryWriter(
+				new ByteArrayInputStream(bytes.toByteArray()), true));
 	}
 
 	private long getNestedLibraryTime(File file) {
@@ -246,9 +281,11 @@ public class JarWriter implements LoaderClassesWriter {
 	 * delegate to this one.
 	 * @param entry the entry to write
 	 * @param entryWriter the entry writer or {@code null} if there is no content
+	 * @return {@code true} if the entry was written or {@code false} if it is a duplicate
 	 * @throws IOException in case of I/O errors
 	 */
-	private void writeEntry(JarEntry entry, EntryWriter entryWriter) throws IOException {
+	private boolean writeEntry(JarEntry entry, EntryWriter entryWriter)
+			throws IOException {
 		String parent = entry.getName();
 		if (parent.endsWith("/")) {
 			parent = parent.substring(0, parent.length() - 1);
@@ -266,7 +303,9 @@ public class JarWriter implements LoaderClassesWriter {
 				entryWriter.write(this.jarOutput);
 			}
 			this.jarOutput.closeEntry();
+			return true;
 		}
+		return false;
 	}
 
 	/**
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Writes an index of the central directories of the nested jars in an archive so that
+ * the launcher does not have to parse and sort them every time the archive is opened.
+ * The format must be kept in step with {@code NestedJarIndex} in the loader, which
+ * ignores the whole index if the magic number or version does not match and ignores a
+ * record if the CRC or size of the nested jar has changed.
+ *
+ * @author agent (agent@local)
+ */
+class NestedJarIndexWriter {
+
+	/**
+	 * The name of the index entry.
+	 */
+	static final String NAME = "META-INF/nested-jars.idx";
+
+	private static final int MAGIC = 0x4E4A4958;
+
+	private static final int VERSION = 1;
+
+	private static final int END_RECORD_SIZE = 22;
+
+	private static final int END_RECORD_SIGNATURE = 0x06054b50;
+
+	private static final int FILE_HEADER_SIZE = 46;
+
+	private static final int FILE_HEADER_SIGNATURE = 0x02014b50;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final Map<String, byte[]> records = new LinkedHashMap<String, byte[]>();
+
+	/**
+	 * Add a nested jar to the index. Jars that the loader would not be able to use an
+	 * index for (for example because they are not valid or use zip64) are skipped.
+	 * @param name the name of the nested jar entry
+	 * @param crc the CRC of the nested jar
+	 * @param file the nested jar
+	 * @throws IOException if the jar cannot be read
+	 */
+	public void add(String name, long crc, File file) throws IOException {
+		RandomAccessFile data = new RandomAccessFile(file, "r");
+		try {
+			add(name, crc, new FileZipData(data));
+		}
+		finally {
+			data.close();
+		}
+	}
+
+	/**
+	 * Add a nested jar to the index. Jars that the loader would not be able to use an
+	 * index for (for example because they are not valid or use zip64) are skipped.
+	 * @param name the name of the nested jar entry
+	 * @param bytes the content of the nested jar
+	 */
+	public void add(String name, byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		add(name, crc.getValue(), new ByteArrayZipData(bytes));
+	}
+
+	private void add(String name, long crc, ZipData data) {
+		try {
+			byte[] record = createRecord(name, crc, data);
+			if (record != null) {
+				this.records.put(name, record);
+			}
+		}
+		catch (IOException ex) {
+			// Not a valid zip so leave it for the loader to parse
+		}
+	}
+
+	public boolean isEmpty() {
+		return this.records.isEmpty();
+	}
+
+	/**
+	 * Write the index.
+	 * @param outputStream the destination
+	 * @throws IOException if the index cannot be written
+	 */
+	public void writeTo(OutputStream outputStream) throws IOException {
+		DataOutputStream output = new DataOutputStream(outputStream);
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		output.writeInt(this.records.size());
+		for (byte[] record : this.records.values()) {
+			output.write(record);
+		}
+		output.flush();
+	}
+
+	private byte[] createRecord(String name, long crc, ZipData data) throws IOException {
+		long size = data.size();
+		byte[] endRecord = findEndRecord(data);
+		if (endRecord == null) {
+			return null;
+		}
+		int numberOfRecords = (int) littleEndian(endRecord, 10, 2);
+		long centralDirectoryLength = littleEndian(endRecord, 12, 4);
+		long centralDirectoryOffset = littleEndian(endRecord, 16, 4);
+		if (numberOfRecords == 0xFFFF || centralDirectoryLength > Integer.MAX_VALUE
+				|| size - endRecord.length - centralDirectoryLength
+						- centralDirectoryOffset != 0) {
+			// Zip64 or prefixed archives are left for the loader to parse
+			return null;
+		}
+		byte[] centralDirectory = data.read(centralDirectoryOffset,
+				(int) centralDirectoryLength);
+		int[] hashCodes = new int[numberOfRecords];
+		int[] offsets = new int[numberOfRecords];
+		boolean signed = false;
+		int offset = 0;
+		for (int i = 0; i < numberOfRecords; i++) {
+			if (offset + FILE_HEADER_SIZE > centralDirectory.length || littleEndian(
+					centralDirectory, offset, 4) != FILE_HEADER_SIGNATURE) {
+				return null;
+			}
+			int nameLength = (int) littleEndian(centralDirectory, offset + 28, 2);
+			int extraLength = (int) littleEndian(centralDirectory, offset + 30, 2);
+			int commentLength = (int) littleEndian(centralDirectory, offset + 32, 2);
+			if (offset + FILE_HEADER_SIZE + nameLength > centralDirectory.length) {
+				return null;
+			}
+			byte[] nameBytes = Arrays.copyOfRange(centralDirectory,
+					offset + FILE_HEADER_SIZE, offset + FILE_HEADER_SIZE + nameLength);
+			String entryName = new String(nameBytes, UTF_8);
+			if (!Arrays.equals(nameBytes, entryName.getBytes(UTF_8))) {
+				// The loader hashes the raw bytes so only valid UTF-8 can be indexed
+				return null;
+			}
+			signed = signed || (entryName.startsWith("META-INF/")
+					&& entryName.endsWith(".SF"));
+			hashCodes[i] = entryName.hashCode();
+			offsets[i] = offset;
+			offset += FILE_HEADER_SIZE + nameLength + extraLength + commentLength;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeUTF(name);
+		output.writeLong(crc);
+		output.writeLong(size);
+		output.writeLong(centralDirectoryOffset);
+		output.writeLong(centralDirectoryLength);
+		output.writeBoolean(signed);
+		output.writeInt(numberOfRecords);
+		writeSorted(output, hashCodes, offsets);
+		output.flush();
+		return bytes.toByteArray();
+	}
+
+	private void writeSorted(DataOutputStream output, final int[] hashCodes,
+			int[] offsets) throws IOException {
+		Integer[] order = new Integer[hashCodes.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer left, Integer right) {
+				int leftHash = hashCodes[left];
+				int rightHash = hashCodes[right];
+				return (leftHash < rightHash ? -1 : (leftHash == rightHash ? 0 : 1));
+			}
+
+		});
+		int[] positions = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			positions[order[i]] = i;
+		}
+		for (Integer position : order) {
+			output.writeInt(hashCodes[position]);
+		}
+		for (Integer position : order) {
+			output.writeInt(offsets[position]);
+		}
+		for (int position : positions) {
+			output.writeInt(position);
+		}
+	}
+
+	private byte[] findEndRecord(ZipData data) throws IOException {
+		long size = data.size();
+		int length = (int) Math.min(size, END_RECORD_SIZE + 0xFFFF);
+		if (length < END_RECORD_SIZE) {
+			return null;
+		}
+		byte[] block = data.read(size - length, length);
+		for (int offset = length - END_RECORD_SIZE; offset >= 0; offset--) {
+			if (littleEndian(block, offset, 4) == END_RECORD_SIGNATURE
+					&& offset + END_RECORD_SIZE
+							+ littleEndian(block, offset + 20, 2) == length) {
+				return Arrays.copyOfRange(block, offset, length);
+			}
+		}
+		return null;
+	}
+
+	private long littleEndian(byte[] bytes, int offset, int length) {
+		long value = 0;
+		for (int i = length - 1; i >= 0; i--) {
+			value = ((value << 8) | (bytes[offset + i] & 0xFF));
+		}
+		return value;
+	}
+
+	/**
+	 * Random access to the content of a nested jar.
+	 */
+	private interface ZipData {
+
+		long size() throws IOException;
+
+		byte[] read(long position, int length) throws IOException;
+
+	}
+
+	/**
+	 * {@link ZipData} backed by a file.
+	 */
+	private static class FileZipData implements ZipData {
+
+		private final RandomAccessFile file;
+
+		FileZipData(RandomAccessFile file) {
+			this.file = file;
+		}
+
+		@Override
+		public long size() throws IOException {
+			return this.file.length();
+		}
+
+		@Override
+		public byte[] read(long position, int length) throws IOException {
+			byte[] bytes = new byte[length];
+			this.file.seek(position);
+			this.file.readFully(bytes);
+			return bytes;
+		}
+
+	}
+
+	/**
+	 * {@link ZipData} backed by a byte array.
+	 */
+	private static class ByteArrayZipData implements ZipData {
+
+		private final byte[] bytes;
+
+		ByteArrayZipData(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public long size() {
+			return this.bytes.length;
+		}
+
+		@Override
+		public byte[] read(long position, int length) throws IOException {
+			if (position < 0 || position + length > this.bytes.length) {
+				throw new IOException("Unable to read " + length + " bytes");
+			}
+			return Arrays.copyOfRange(this.bytes, (int) position,
+					(int) position + length);
+		}
+
+	}
+
+}
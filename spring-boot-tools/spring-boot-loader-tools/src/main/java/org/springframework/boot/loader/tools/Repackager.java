@@ -286,6 +286,9 @@ public class Repackager {
 		}
 		writeNestedLibraries(standardLibraries, seen, writer);
 		writeLoaderClasses(writer);
+		if (this.layout.isExecutable()) {
+			writer.writeNestedJarIndex();
+		}
 	}
 
 	private void writeNestedLibraries(List<Library> libraries, Set<String> alreadySeen,
@@ -19,9 +19,11 @@ package org.springframework.boot.loader.tools;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.Calendar;
+import java.util.Map;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -613,6 +615,81 @@ public class RepackagerTests {
 		}
 	}
 
+	@Test
+	public void nestedJarIndexIsWritten() throws Exception {
+		TestJarFile libJar = new TestJarFile(this.temporaryFolder);
+		libJar.addClass("a/b/C.class", ClassWithoutMainMethod.class);
+		libJar.addClass("a/b/D.class", ClassWithMainMethod.class);
+		final File libJarFile = libJar.getFile();
+		File sourceLibJarFile = libJar.getFile();
+		this.testJarFile.addClass("a/b/C.class", ClassWithMainMethod.class);
+		this.testJarFile.addFile("BOOT-INF/lib/source.jar", sourceLibJarFile);
+		File file = this.testJarFile.getFile();
+		Repackager repackager = new Repackager(file);
+		repackager.repackage(new Libraries() {
+			@Override
+			public void doWithLibraries(LibraryCallback callback) throws IOException {
+				callback.library(new Library(libJarFile, LibraryScope.COMPILE));
+			}
+		});
+		JarEntry indexEntry = getEntry(file, "META-INF/nested-jars.idx");
+		assertThat(indexEntry.getMethod()).isEqualTo(ZipEntry.STORED);
+		org.springframework.boot.loader.jar.JarFile jarFile = new org.springframework.boot.loader.jar.JarFile(
+				file);
+		try {
+			assertNestedJarIsIndexed(jarFile, "BOOT-INF/lib/" + libJarFile.getName(),
+					libJarFile);
+			assertNestedJarIsIndexed(jarFile, "BOOT-INF/lib/source.jar",
+					sourceLibJarFile);
+		}
+		finally {
+			jarFile.close();
+		}
+	}
+
+	@Test
+	public void nestedJarIndexIsNotWrittenWithoutNestedJars() throws Exception {
+		this.testJarFile.addClass("a/b/C.class", ClassWithMainMethod.class);
+		File file = this.testJarFile.getFile();
+		Repackager repackager = new Repackager(file);
+		repackager.repackage(NO_LIBRARIES);
+		assertThat(hasEntry(file, "META-INF/nested-jars.idx")).isFalse();
+	}
+
+	private void assertNestedJarIsIndexed(
+			org.springframework.boot.loader.jar.JarFile jarFile, String name,
+			File source) throws Exception {
+		org.springframework.boot.loader.jar.JarFile nested = jarFile
+				.getNestedJarFile(jarFile.getEntry(name));
+		Object index = getField(jarFile, "nestedJarIndex");
+		assertThat(((Map<?, ?>) getField(index, "records")).keySet()).contains(name);
+		org.springframework.boot.loader.jar.JarFile parsed = new org.springframework.boot.loader.jar.JarFile(
+				source);
+		try {
+			// The index must hold exactly what the loader would have parsed
+			Object indexedEntries = getField(nested, "entries");
+			Object parsedEntries = getField(parsed, "entries");
+			for (String field : new String[] { "size", "hashCodes",
+					"centralDirectoryOffsets", "positions" }) {
+				assertThat(getField(indexedEntries, field))
+						.isEqualTo(getField(parsedEntries, field));
+			}
+			assertThat(nested.getEntry("a/b/D.class")).isNotNull();
+			assertThat(nested.getInputStream(nested.getEntry("a/b/C.class")))
+					.hasSameContentAs(parsed
+							.getInputStream(parsed.getEntry("a/b/C.class")));
+		}
+		finally {
+			parsed.close();
+		}
+	}
+
+	private Object getField(Object target, String name) throws Exception {
+		Field field = target.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		return field.get(target);
+	}
+
 	private boolean hasLauncherClasses(File file) throws IOException {
 		return hasEntry(file, "org/springframework/boot/")
 				&& hasEntry(file, "org/springframework/boot/loader/JarLauncher.class");
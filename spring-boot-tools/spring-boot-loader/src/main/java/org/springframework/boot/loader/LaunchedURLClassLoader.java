@@ -16,21 +16,37 @@
 
 package org.springframework.boot.loader;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.JarURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLConnection;
 import java.security.AccessController;
+import java.security.CodeSource;
+import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.Attributes.Name;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 
 import org.springframework.boot.loader.jar.Handler;
 import org.springframework.lang.UsesJava7;
 
 /**
- * {@link ClassLoader} used by the {@link Launcher}.
+ * {@link ClassLoader} used by the {@link Launcher}. When all of its URLs are nested jars
+ * the directories that each jar contains are indexed so that classes and resources are
+ * only looked for in the jars that might contain them. The index can be switched off by
+ * setting the {@value #PACKAGE_INDEX_PROPERTY} system property to {@code false}.
  *
  * @author Phillip Webb
  * @author Dave Syer
@@ -38,10 +54,26 @@ import org.springframework.lang.UsesJava7;
  */
 public class LaunchedURLClassLoader extends URLClassLoader {
 
+	/**
+	 * The name of the system property that can be set to {@code false} to stop classes
+	 * and resources being found using an index of the nested jars.
+	 */
+	public static final String PACKAGE_INDEX_PROPERTY = "org.springframework.boot.loader.packageIndex";
+
+	private static final int BUFFER_SIZE = 4096;
+
 	static {
 		performParallelCapableRegistration();
 	}
 
+	private final boolean packageIndexEnabled;
+
+	private final Object packageIndexMonitor = new Object();
+
+	private volatile boolean packageIndexBuilt;
+
+	private volatile PackageIndex packageIndex;
+
 	/**
 	 * Create a new {@link LaunchedURLClassLoader} instance.
 	 * @param urls the URLs from which to load classes and resources
@@ -49,10 +81,30 @@ public class LaunchedURLClassLoader extends URLClassLoader {
 	 */
 	public LaunchedURLClassLoader(URL[] urls, ClassLoader parent) {
 		super(urls, parent);
+		this.packageIndexEnabled = !"false"
+				.equalsIgnoreCase(System.getProperty(PACKAGE_INDEX_PROPERTY));
+	}
+
+	@Override
+	protected void addURL(URL url) {
+		synchronized (this.packageIndexMonitor) {
+			super.addURL(url);
+			this.packageIndex = null;
+			this.packageIndexBuilt = false;
+		}
 	}
 
 	@Override
 	public URL findResource(String name) {
+		PackageIndex index = getPackageIndex();
+		if (index != null && index.isIndexed(name)) {
+			for (int position : index.getCandidates(name)) {
+				if (index.getJarFile(position).getEntry(name) != null) {
+					return createResourceUrl(index, position, name);
+				}
+			}
+			return null;
+		}
 		Handler.setUseFastConnectionExceptions(true);
 		try {
 			return super.findResource(name);
@@ -64,6 +116,19 @@ public class LaunchedURLClassLoader extends URLClassLoader {
 
 	@Override
 	public Enumeration<URL> findResources(String name) throws IOException {
+		PackageIndex index = getPackageIndex();
+		if (index != null && index.isIndexed(name)) {
+			List<URL> urls = new ArrayList<URL>();
+			for (int position : index.getCandidates(name)) {
+				if (index.getJarFile(position).getEntry(name) != null) {
+					URL url = createResourceUrl(index, position, name);
+					if (url != null) {
+						urls.add(url);
+					}
+				}
+			}
+			return Collections.enumeration(urls);
+		}
 		Handler.setUseFastConnectionExceptions(true);
 		try {
 			return super.findResources(name);
@@ -98,6 +163,191 @@ public class LaunchedURLClassLoader extends URLClassLoader {
 		}
 	}
 
+	@Override
+	protected Class<?> findClass(final String name) throws ClassNotFoundException {
+		final PackageIndex index = getPackageIndex();
+		final String path = name.replace('.', '/') + ".class";
+		if (index == null || !index.isIndexed(path)) {
+			return super.findClass(name);
+		}
+		try {
+			return AccessController.doPrivileged(
+					new PrivilegedExceptionAction<Class<?>>() {
+						@Override
+						public Class<?> run() throws ClassNotFoundException {
+							return findIndexedClass(index, name, path);
+						}
+					}, AccessController.getContext());
+		}
+		catch (PrivilegedActionException ex) {
+			throw (ClassNotFoundException) ex.getException();
+		}
+	}
+
+	private Class<?> findIndexedClass(PackageIndex index, String name, String path)
+			throws ClassNotFoundException {
+		for (int position : index.getCandidates(path)) {
+			JarFile jarFile = index.getJarFile(position);
+			JarEntry entry = jarFile.getJarEntry(path);
+			if (entry != null) {
+				try {
+					return defineClass(name, jarFile, entry, index.getUrl(position));
+				}
+				catch (IOException ex) {
+					throw new ClassNotFoundException(name, ex);
+				}
+			}
+		}
+		throw new ClassNotFoundException(name);
+	}
+
+	private Class<?> defineClass(String name, JarFile jarFile, JarEntry entry, URL url)
+			throws IOException {
+		byte[] bytes = readEntry(jarFile, entry);
+		int lastDot = name.lastIndexOf('.');
+		if (lastDot >= 0) {
+			definePackageIfNecessary(name.substring(0, lastDot), jarFile, url);
+		}
+		// Signers are only known once the entry has been read
+		CodeSource codeSource = new CodeSource(url, entry.getCodeSigners());
+		return defineClass(name, bytes, 0, bytes.length, codeSource);
+	}
+
+	private void definePackageIfNecessary(String packageName, JarFile jarFile, URL url)
+			throws IOException {
+		Manifest manifest = jarFile.getManifest();
+		Package pkg = getPackage(packageName);
+		if (pkg == null) {
+			try {
+				if (manifest != null) {
+					definePackage(packageName, manifest, url);
+				}
+				else {
+					definePackage(packageName, null, null, null, null, null, null,
+							null);
+				}
+				return;
+			}
+			catch (IllegalArgumentException ex) {
+				// Tolerate race condition due to being parallel capable
+				pkg = getPackage(packageName);
+			}
+		}
+		if (pkg != null) {
+			verifySealing(pkg, manifest, url);
+		}
+	}
+
+	// The same checks as URLClassLoader makes before it defines a class
+	private void verifySealing(Package pkg, Manifest manifest, URL url) {
+		if (pkg.isSealed()) {
+			if (!pkg.isSealed(url)) {
+				throw new SecurityException(
+						"sealing violation: package " + pkg.getName() + " is sealed");
+			}
+		}
+		else if (manifest != null && isSealed(pkg.getName(), manifest)) {
+			throw new SecurityException("sealing violation: can't seal package "
+					+ pkg.getName() + ": already loaded");
+		}
+	}
+
+	private boolean isSealed(String packageName, Manifest manifest) {
+		String sealed = null;
+		Attributes attributes = manifest
+				.getAttributes(packageName.replace('.', '/') + "/");
+		if (attributes != null) {
+			sealed = attributes.getValue(Name.SEALED);
+		}
+		if (sealed == null) {
+			sealed = manifest.getMainAttributes().getValue(Name.SEALED);
+		}
+		return "true".equalsIgnoreCase(sealed);
+	}
+
+	private byte[] readEntry(JarFile jarFile, JarEntry entry) throws IOException {
+		long size = entry.getSize();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+				size > 0 && size < Integer.MAX_VALUE ? (int) size : BUFFER_SIZE);
+		InputStream inputStream = jarFile.getInputStream(entry);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	private URL createResourceUrl(PackageIndex index, int position, String name) {
+		try {
+			return new URL(index.getUrl(position), encodePath(name));
+		}
+		catch (MalformedURLException ex) {
+			return null;
+		}
+	}
+
+	// Entry names are decoded when a connection is opened so must be encoded here
+	private String encodePath(String name) {
+		StringBuilder encoded = null;
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+					|| (c >= '0' && c <= '9') || "/-_.!~*'()$,;:@&=+".indexOf(c) != -1;
+			if (!safe && encoded == null) {
+				encoded = new StringBuilder(name.length() + 16);
+				encoded.append(name, 0, i);
+			}
+			if (encoded != null) {
+				if (safe) {
+					encoded.append(c);
+				}
+				else {
+					appendEncoded(encoded, name, i);
+					if (Character.isHighSurrogate(c) && i + 1 < name.length()) {
+						i++;
+					}
+				}
+			}
+		}
+		return (encoded == null ? name : encoded.toString());
+	}
+
+	private void appendEncoded(StringBuilder encoded, String name, int index) {
+		int end = (Character.isHighSurrogate(name.charAt(index))
+				&& index + 1 < name.length() ? index + 2 : index + 1);
+		try {
+			for (byte b : name.substring(index, end).getBytes("UTF-8")) {
+				encoded.append('%');
+				encoded.append(Character.forDigit((b >> 4) & 0xF, 16));
+				encoded.append(Character.forDigit(b & 0xF, 16));
+			}
+		}
+		catch (UnsupportedEncodingException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private PackageIndex getPackageIndex() {
+		if (!this.packageIndexEnabled) {
+			return null;
+		}
+		if (!this.packageIndexBuilt) {
+			synchronized (this.packageIndexMonitor) {
+				if (!this.packageIndexBuilt) {
+					this.packageIndex = PackageIndex.build(getURLs());
+					this.packageIndexBuilt = true;
+				}
+			}
+		}
+		return this.packageIndex;
+	}
+
 	/**
 	 * Define a package before a {@code findClass} call is made. This is necessary to
 	 * ensure that the appropriate manifest for nested JARs is associated with the
@@ -134,6 +384,12 @@ public class LaunchedURLClassLoader extends URLClassLoader {
 				public Object run() throws ClassNotFoundException {
 					String packageEntryName = packageName.replace('.', '/') + "/";
 					String classEntryName = className.replace('.', '/') + ".class";
+					PackageIndex index = getPackageIndex();
+					if (index != null) {
+						definePackage(index, packageName, packageEntryName,
+								classEntryName);
+						return null;
+					}
 					for (URL url : getURLs()) {
 						try {
 							URLConnection connection = url.openConnection();
@@ -162,6 +418,25 @@ public class LaunchedURLClassLoader extends URLClassLoader {
 		}
 	}
 
+	private void definePackage(PackageIndex index, String packageName,
+			String packageEntryName, String classEntryName) {
+		for (int position : index.getCandidates(classEntryName)) {
+			JarFile jarFile = index.getJarFile(position);
+			try {
+				if (jarFile.getEntry(classEntryName) != null
+						&& jarFile.getEntry(packageEntryName) != null
+						&& jarFile.getManifest() != null) {
+					definePackage(packageName, jarFile.getManifest(),
+							index.getUrl(position));
+					return;
+				}
+			}
+			catch (IOException ex) {
+				// Ignore
+			}
+		}
+	}
+
 	/**
 	 * Clear URL caches.
 	 */
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.loader.jar.JarFile;
+
+/**
+ * Index of the directories (packages) in the jars of a class path, used by the
+ * {@link LaunchedURLClassLoader} to go straight to the jars that might contain a class or
+ * resource instead of trying each one in turn. The index is built from the central
+ * directory of each {@link JarFile} so building it does not read any entries.
+ *
+ * @author agent (agent@local)
+ */
+final class PackageIndex {
+
+	private static final int[] NONE = new int[0];
+
+	private final URL[] urls;
+
+	private final JarFile[] jarFiles;
+
+	private final Map<String, int[]> packages;
+
+	private PackageIndex(URL[] urls, JarFile[] jarFiles, Map<String, int[]> packages) {
+		this.urls = urls;
+		this.jarFiles = jarFiles;
+		this.packages = packages;
+	}
+
+	/**
+	 * Return if the given name can be looked up in the index. Absolute names,
+	 * directories and names that refer to the content of a nested jar are not indexed.
+	 * @param name the name of a class file or resource
+	 * @return {@code true} if the index can be used
+	 */
+	public boolean isIndexed(String name) {
+		return !(name.isEmpty() || name.startsWith("/") || name.endsWith("/")
+				|| name.contains("!/"));
+	}
+
+	/**
+	 * Return the positions on the class path of the jars that contain entries in the
+	 * same directory as the given name, in class path order.
+	 * @param name the name of a class file or resource
+	 * @return the positions of the candidate jars
+	 */
+	public int[] getCandidates(String name) {
+		int[] candidates = this.packages.get(name.substring(0, name.lastIndexOf('/') + 1));
+		return (candidates == null ? NONE : candidates);
+	}
+
+	public URL getUrl(int position) {
+		return this.urls[position];
+	}
+
+	public JarFile getJarFile(int position) {
+		return this.jarFiles[position];
+	}
+
+	/**
+	 * Build an index of the given class path.
+	 * @param urls the class path
+	 * @return the index or {@code null} if any of the URLs is not the root of a
+	 * {@link JarFile} so cannot be indexed
+	 */
+	public static PackageIndex build(URL[] urls) {
+		JarFile[] jarFiles = new JarFile[urls.length];
+		Map<String, int[]> packages = new HashMap<String, int[]>();
+		try {
+			for (int i = 0; i < urls.length; i++) {
+				jarFiles[i] = getJarFile(urls[i]);
+				if (jarFiles[i] == null) {
+					return null;
+				}
+				for (String directory : jarFiles[i].getEntryDirectories()) {
+					packages.put(directory, append(packages.get(directory), i));
+				}
+			}
+		}
+		catch (IOException ex) {
+			return null;
+		}
+		return new PackageIndex(urls.clone(), jarFiles, packages);
+	}
+
+	private static JarFile getJarFile(URL url) throws IOException {
+		URLConnection connection = url.openConnection();
+		if (connection instanceof JarURLConnection) {
+			JarURLConnection jarConnection = (JarURLConnection) connection;
+			Object jarFile = jarConnection.getJarFile();
+			String entryName = jarConnection.getEntryName();
+			if (jarFile instanceof JarFile
+					&& (entryName == null || entryName.isEmpty())) {
+				return (JarFile) jarFile;
+			}
+		}
+		return null;
+	}
+
+	private static int[] append(int[] positions, int position) {
+		if (positions == null) {
+			return new int[] { position };
+		}
+		int[] result = new int[positions.length + 1];
+		System.arraycopy(positions, 0, result, 0, positions.length);
+		result[positions.length] = position;
+		return result;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,7 +21,6 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
@@ -104,13 +103,14 @@ public class ExplodedArchive implements Archive {
 
 	@Override
 	public List<Archive> getNestedArchives(EntryFilter filter) throws IOException {
-		List<Archive> nestedArchives = new ArrayList<Archive>();
-		for (Entry entry : this) {
-			if (filter.matches(entry)) {
-				nestedArchives.add(getNestedArchive(entry));
+		return NestedArchives.get(this, filter, new NestedArchives.Opener() {
+
+			@Override
+			public Archive open(Entry entry) throws IOException {
+				return getNestedArchive(entry);
 			}
-		}
-		return Collections.unmodifiableList(nestedArchives);
+
+		});
 	}
 
 	@Override
@@ -23,8 +23,6 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
@@ -81,13 +79,14 @@ public class JarFileArchive implements Archive {
 
 	@Override
 	public List<Archive> getNestedArchives(EntryFilter filter) throws IOException {
-		List<Archive> nestedArchives = new ArrayList<Archive>();
-		for (Entry entry : this) {
-			if (filter.matches(entry)) {
-				nestedArchives.add(getNestedArchive(entry));
+		return NestedArchives.get(this, filter, new NestedArchives.Opener() {
+
+			@Override
+			public Archive open(Entry entry) throws IOException {
+				return getNestedArchive(entry);
 			}
-		}
-		return Collections.unmodifiableList(nestedArchives);
+
+		});
 	}
 
 	@Override
@@ -122,7 +121,7 @@ public class JarFileArchive implements Archive {
 		return new JarFileArchive(file, file.toURI().toURL());
 	}
 
-	private File getTempUnpackFolder() {
+	private synchronized File getTempUnpackFolder() {
 		if (this.tempUnpackFolder == null) {
 			File tempFolder = new File(System.getProperty("java.io.tmpdir"));
 			this.tempUnpackFolder = createUnpackFolder(tempFolder);
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.archive;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.loader.archive.Archive.Entry;
+import org.springframework.boot.loader.archive.Archive.EntryFilter;
+
+/**
+ * Opens the nested archives of an {@link Archive}, either one after another or, when the
+ * {@value #PARALLEL} system property is {@code true}, on a small pool of threads. Either
+ * way the archives are returned in the order of their entries and the filter is called
+ * for each entry on the calling thread. When the {@value #DEBUG} system property is
+ * {@code true} the time taken to open each archive is logged.
+ *
+ * @author agent (agent@local)
+ */
+final class NestedArchives {
+
+	static final String PARALLEL = "loader.parallel";
+
+	static final String DEBUG = "loader.debug";
+
+	private static final int MAX_THREADS = 4;
+
+	private NestedArchives() {
+	}
+
+	public static List<Archive> get(Archive archive, EntryFilter filter,
+			Opener opener) throws IOException {
+		List<Entry> entries = new ArrayList<Entry>();
+		for (Entry entry : archive) {
+			if (filter.matches(entry)) {
+				entries.add(entry);
+			}
+		}
+		boolean debug = Boolean.getBoolean(DEBUG);
+		long start = System.nanoTime();
+		int threads = (Boolean.getBoolean(PARALLEL) ? Math.min(entries.size(),
+				Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors())) : 1);
+		Archive[] archives = (threads > 1 ? openInParallel(entries, opener, threads, debug)
+				: open(entries, opener, debug));
+		if (debug) {
+			log("Opened " + archives.length + " nested archives of " + archive + " in "
+					+ millis(start) + "ms using " + threads + " thread(s)");
+		}
+		return Collections.unmodifiableList(Arrays.asList(archives));
+	}
+
+	private static Archive[] open(List<Entry> entries, Opener opener, boolean debug)
+			throws IOException {
+		Archive[] archives = new Archive[entries.size()];
+		for (int i = 0; i < archives.length; i++) {
+			archives[i] = open(entries.get(i), opener, debug);
+		}
+		return archives;
+	}
+
+	private static Archive[] openInParallel(List<Entry> entries, final Opener opener,
+			int threads, final boolean debug) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new DaemonThreadFactory());
+		try {
+			List<Future<Archive>> futures = new ArrayList<Future<Archive>>();
+			for (final Entry entry : entries) {
+				futures.add(executor.submit(new Callable<Archive>() {
+
+					@Override
+					public Archive call() throws Exception {
+						return open(entry, opener, debug);
+					}
+
+				}));
+			}
+			Archive[] archives = new Archive[futures.size()];
+			for (int i = 0; i < archives.length; i++) {
+				archives[i] = get(futures.get(i));
+			}
+			return archives;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static Archive get(Future<Archive> future) throws IOException {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while opening nested archives",
+					ex);
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	private static Archive open(Entry entry, Opener opener, boolean debug)
+			throws IOException {
+		if (!debug) {
+			return opener.open(entry);
+		}
+		long start = System.nanoTime();
+		Archive archive = opener.open(entry);
+		log("Opened nested archive " + entry.getName() + " in " + millis(start)
+				+ "ms on " + Thread.currentThread().getName());
+		return archive;
+	}
+
+	private static long millis(long start) {
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	private static void log(String message) {
+		// We shouldn't use java.util.logging because of classpath issues
+		System.out.println(message);
+	}
+
+	/**
+	 * Strategy used to open a single nested archive.
+	 */
+	interface Opener {
+
+		Archive open(Entry entry) throws IOException;
+
+	}
+
+	/**
+	 * {@link ThreadFactory} for the daemon threads that open archives.
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable,
+					"nested-archive-" + this.count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link RandomAccessData} implementation that reads a file with positional
+ * {@link FileChannel} reads. Unlike {@link RandomAccessDataFile} a single channel is
+ * shared by any number of concurrent readers without locking or seeking and
+ * {@link #getSubsection(long, long) subsections} (e.g. nested jars) share the same
+ * channel. Single byte reads are served from a small buffer in each stream.
+ *
+ * @author agent (agent@local)
+ */
+public class ChannelRandomAccessDataFile extends RandomAccessDataFile {
+
+	private static final int BUFFER_SIZE = 512;
+
+	private final SharedChannel channel;
+
+	private final long offset;
+
+	private final long length;
+
+	/**
+	 * Create a new {@link ChannelRandomAccessDataFile} backed by the specified file.
+	 * @param file the underlying file
+	 * @throws IllegalArgumentException if the file is null or does not exist
+	 */
+	public ChannelRandomAccessDataFile(File file) {
+		this(checkFile(file), new SharedChannel(file), 0L, file.length());
+	}
+
+	private ChannelRandomAccessDataFile(File file, SharedChannel channel, long offset,
+			long length) {
+		super(file, offset, length);
+		this.channel = channel;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	private static File checkFile(File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("File must not be null");
+		}
+		if (!file.exists()) {
+			throw new IllegalArgumentException(
+					String.format("File %s must exist", file.getAbsolutePath()));
+		}
+		return file;
+	}
+
+	@Override
+	public InputStream getInputStream(ResourceAccess access) throws IOException {
+		return new ChannelInputStream();
+	}
+
+	@Override
+	public RandomAccessData getSubsection(long offset, long length) {
+		if (offset < 0 || length < 0 || offset + length > this.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		return new ChannelRandomAccessDataFile(getFile(), this.channel,
+				this.offset + offset, length);
+	}
+
+	@Override
+	public long getSize() {
+		return this.length;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	/**
+	 * {@link InputStream} that reads a section of the shared channel.
+	 */
+	private class ChannelInputStream extends InputStream {
+
+		private long position;
+
+		private byte[] buffer;
+
+		private int bufferPosition;
+
+		private int bufferLength;
+
+		@Override
+		public int read() throws IOException {
+			if (this.bufferPosition == this.bufferLength && !fill()) {
+				return -1;
+			}
+			return this.buffer[this.bufferPosition++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b) throws IOException {
+			return read(b, 0, b == null ? 0 : b.length);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (b == null) {
+				throw new NullPointerException("Bytes must not be null");
+			}
+			if (len == 0) {
+				return 0;
+			}
+			int buffered = this.bufferLength - this.bufferPosition;
+			if (buffered > 0) {
+				int count = Math.min(buffered, len);
+				System.arraycopy(this.buffer, this.bufferPosition, b, off, count);
+				this.bufferPosition += count;
+				return count;
+			}
+			int cappedLen = cap(len);
+			if (cappedLen <= 0) {
+				return -1;
+			}
+			return moveOn(ByteBuffer.wrap(b, off, cappedLen));
+		}
+
+		private boolean fill() throws IOException {
+			int cappedLen = cap(BUFFER_SIZE);
+			if (cappedLen <= 0) {
+				return false;
+			}
+			if (this.buffer == null) {
+				this.buffer = new byte[BUFFER_SIZE];
+			}
+			int count = moveOn(ByteBuffer.wrap(this.buffer, 0, cappedLen));
+			if (count <= 0) {
+				return false;
+			}
+			this.bufferPosition = 0;
+			this.bufferLength = count;
+			return true;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			if (n <= 0) {
+				return 0;
+			}
+			int buffered = this.bufferLength - this.bufferPosition;
+			if (buffered > 0) {
+				int count = (int) Math.min(buffered, n);
+				this.bufferPosition += count;
+				return count;
+			}
+			long count = cap(n);
+			this.position += count;
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (this.bufferLength - this.bufferPosition) + cap(Integer.MAX_VALUE);
+		}
+
+		/**
+		 * Cap the specified value such that it cannot exceed the number of bytes
+		 * remaining.
+		 * @param n the value to cap
+		 * @return the capped value
+		 */
+		private int cap(long n) {
+			return (int) Math.min(ChannelRandomAccessDataFile.this.length - this.position,
+					n);
+		}
+
+		/**
+		 * Read from the channel at the current position into the given buffer and move
+		 * the position forwards by the amount read.
+		 * @param buffer the destination buffer
+		 * @return the amount read or -1 if the end of the file was reached
+		 * @throws IOException in case of I/O errors
+		 */
+		private int moveOn(ByteBuffer buffer) throws IOException {
+			int count = ChannelRandomAccessDataFile.this.channel.read(buffer,
+					ChannelRandomAccessDataFile.this.offset + this.position);
+			if (count > 0) {
+				this.position += count;
+			}
+			return count;
+		}
+
+	}
+
+	/**
+	 * A {@link FileChannel} that is shared by a file and all of its subsections. The
+	 * channel is opened when it is first read and is reopened if it is read after being
+	 * closed, either explicitly or by another thread. Reads from an interrupted thread
+	 * use a {@link RandomAccessFile} of their own so that they neither fail nor close the
+	 * channel for other readers.
+	 */
+	static class SharedChannel {
+
+		private final File file;
+
+		private volatile FileChannel channel;
+
+		SharedChannel(File file) {
+			this.file = file;
+		}
+
+		public int read(ByteBuffer buffer, long position) throws IOException {
+			if (Thread.currentThread().isInterrupted()) {
+				// Reading the channel would close it for every other reader
+				return readWithoutChannel(buffer, position);
+			}
+			FileChannel channel = getChannel(null);
+			int start = buffer.position();
+			try {
+				return channel.read(buffer, position);
+			}
+			catch (ClosedByInterruptException ex) {
+				// Interrupted mid-read, the interrupt status is still set
+				buffer.position(start);
+				return readWithoutChannel(buffer, position);
+			}
+			catch (ClosedChannelException ex) {
+				// Closed by another thread so open it again and retry once
+				return getChannel(channel).read(buffer, position);
+			}
+		}
+
+		private int readWithoutChannel(ByteBuffer buffer, long position)
+				throws IOException {
+			RandomAccessFile file = new RandomAccessFile(this.file, "r");
+			try {
+				file.seek(position);
+				int count = file.read(buffer.array(),
+						buffer.arrayOffset() + buffer.position(), buffer.remaining());
+				if (count > 0) {
+					buffer.position(buffer.position() + count);
+				}
+				return count;
+			}
+			finally {
+				file.close();
+			}
+		}
+
+		private FileChannel getChannel(FileChannel closed) throws IOException {
+			FileChannel channel = this.channel;
+			if (channel != null && channel != closed && channel.isOpen()) {
+				return channel;
+			}
+			synchronized (this) {
+				channel = this.channel;
+				if (channel == null || channel == closed || !channel.isOpen()) {
+					channel = new RandomAccessFile(this.file, "r").getChannel();
+					this.channel = channel;
+				}
+				return channel;
+			}
+		}
+
+		public synchronized void close() throws IOException {
+			if (this.channel != null) {
+				this.channel.close();
+				this.channel = null;
+			}
+		}
+
+	}
+
+}
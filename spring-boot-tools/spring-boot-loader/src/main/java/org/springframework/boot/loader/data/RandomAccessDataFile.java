@@ -87,6 +87,18 @@ public class RandomAccessDataFile implements RandomAccessData {
 		this.length = length;
 	}
 
+	/**
+	 * Constructor used by subclasses that read the underlying file in some other way.
+	 * Subclasses must override {@link #getInputStream(ResourceAccess)},
+	 * {@link #getSubsection(long, long)} and {@link #close()}.
+	 * @param file the underlying file
+	 * @param offset the offset of the section
+	 * @param length the length of the section
+	 */
+	protected RandomAccessDataFile(File file, long offset, long length) {
+		this(file, null, offset, length);
+	}
+
 	/**
 	 * Returns the underlying File.
 	 * @return the underlying file
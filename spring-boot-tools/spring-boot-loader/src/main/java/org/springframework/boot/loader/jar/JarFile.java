@@ -26,10 +26,12 @@ import java.net.URLStreamHandler;
 import java.net.URLStreamHandlerFactory;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.Set;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
 
+import org.springframework.boot.loader.data.ChannelRandomAccessDataFile;
 import org.springframework.boot.loader.data.RandomAccessData;
 import org.springframework.boot.loader.data.RandomAccessData.ResourceAccess;
 import org.springframework.boot.loader.data.RandomAccessDataFile;
@@ -58,6 +60,13 @@ public class JarFile extends java.util.jar.JarFile {
 
 	private static final AsciiBytes SIGNATURE_FILE_EXTENSION = new AsciiBytes(".SF");
 
+	/**
+	 * System property that, when {@code true}, reads root jar files with positional
+	 * {@link java.nio.channels.FileChannel} reads rather than a pool of
+	 * {@link java.io.RandomAccessFile}s.
+	 */
+	public static final String CHANNEL_READS_PROPERTY = "org.springframework.boot.loader.jar.channelReads";
+
 	private final RandomAccessDataFile rootFile;
 
 	private final String pathFromRoot;
@@ -74,13 +83,19 @@ public class JarFile extends java.util.jar.JarFile {
 
 	private boolean signed;
 
+	private final Object nestedJarIndexMonitor = new Object();
+
+	private volatile boolean nestedJarIndexLoaded;
+
+	private NestedJarIndex nestedJarIndex;
+
 	/**
 	 * Create a new {@link JarFile} backed by the specified file.
 	 * @param file the root jar file
 	 * @throws IOException if the file cannot be read
 	 */
 	public JarFile(File file) throws IOException {
-		this(new RandomAccessDataFile(file));
+		this(createRootFile(file));
 	}
 
 	/**
@@ -119,6 +134,26 @@ public class JarFile extends java.util.jar.JarFile {
 		this.type = type;
 	}
 
+	private JarFile(RandomAccessDataFile rootFile, String pathFromRoot,
+			RandomAccessData data, NestedJarIndex.Record record) throws IOException {
+		super(rootFile.getFile());
+		this.rootFile = rootFile;
+		this.pathFromRoot = pathFromRoot;
+		this.entries = new JarFileEntries(this, null);
+		this.signed = record.isSigned();
+		this.entries.load(record, data.getSubsection(record.getCentralDirectoryOffset(),
+				record.getCentralDirectoryLength()));
+		this.data = data;
+		this.type = JarFileType.NESTED_JAR;
+	}
+
+	private static RandomAccessDataFile createRootFile(File file) {
+		if (Boolean.getBoolean(CHANNEL_READS_PROPERTY)) {
+			return new ChannelRandomAccessDataFile(file);
+		}
+		return new RandomAccessDataFile(file);
+	}
+
 	private CentralDirectoryVisitor centralDirectoryVisitor() {
 		return new CentralDirectoryVisitor() {
 
@@ -210,7 +245,7 @@ public class JarFile extends java.util.jar.JarFile {
 	}
 
 	@Override
-	public synchronized InputStream getInputStream(ZipEntry ze) throws IOException {
+	public InputStream getInputStream(ZipEntry ze) throws IOException {
 		return getInputStream(ze, ResourceAccess.PER_READ);
 	}
 
@@ -232,8 +267,7 @@ public class JarFile extends java.util.jar.JarFile {
 	 * @return a {@link JarFile} for the entry
 	 * @throws IOException if the nested jar file cannot be read
 	 */
-	public synchronized JarFile getNestedJarFile(final ZipEntry entry)
-			throws IOException {
+	public JarFile getNestedJarFile(final ZipEntry entry) throws IOException {
 		return getNestedJarFile((JarEntry) entry);
 	}
 
@@ -243,7 +277,7 @@ public class JarFile extends java.util.jar.JarFile {
 	 * @return a {@link JarFile} for the entry
 	 * @throws IOException if the nested jar file cannot be read
 	 */
-	public synchronized JarFile getNestedJarFile(JarEntry entry) throws IOException {
+	public JarFile getNestedJarFile(JarEntry entry) throws IOException {
 		try {
 			return createJarFileFromEntry(entry);
 		}
@@ -287,8 +321,38 @@ public class JarFile extends java.util.jar.JarFile {
 					+ "mechanism used to create your executable jar file");
 		}
 		RandomAccessData entryData = this.entries.getEntryData(entry.getName());
-		return new JarFile(this.rootFile, this.pathFromRoot + "!/" + entry.getName(),
-				entryData, JarFileType.NESTED_JAR);
+		String pathFromRoot = this.pathFromRoot + "!/" + entry.getName();
+		NestedJarIndex index = getNestedJarIndex();
+		NestedJarIndex.Record record = (index == null ? null
+				: index.getRecord(entry.getName(), entry.getCrc(), entry.getSize()));
+		if (record != null) {
+			return new JarFile(this.rootFile, pathFromRoot, entryData, record);
+		}
+		return new JarFile(this.rootFile, pathFromRoot, entryData,
+				JarFileType.NESTED_JAR);
+	}
+
+	private NestedJarIndex getNestedJarIndex() throws IOException {
+		if (this.type != JarFileType.DIRECT) {
+			return null;
+		}
+		if (!this.nestedJarIndexLoaded) {
+			synchronized (this.nestedJarIndexMonitor) {
+				if (!this.nestedJarIndexLoaded) {
+					this.nestedJarIndex = loadNestedJarIndex();
+					this.nestedJarIndexLoaded = true;
+				}
+			}
+		}
+		return this.nestedJarIndex;
+	}
+
+	private NestedJarIndex loadNestedJarIndex() throws IOException {
+		JarEntry entry = this.entries.getEntry(NestedJarIndex.NAME);
+		if (entry == null || entry.getMethod() != ZipEntry.STORED) {
+			return null;
+		}
+		return NestedJarIndex.load(Bytes.get(this.entries.getEntryData(entry.getName())));
 	}
 
 	@Override
@@ -364,6 +428,17 @@ public class JarFile extends java.util.jar.JarFile {
 		}
 	}
 
+	/**
+	 * Return the directories (ending with {@code '/'}) that contain at least one entry,
+	 * directly or in a subdirectory, with an empty string for the root of the jar. Can be
+	 * used to index the packages of a jar without creating an entry for each file.
+	 * @return the directories
+	 * @throws IOException if the directories cannot be read
+	 */
+	public Set<String> getEntryDirectories() throws IOException {
+		return this.entries.getEntryDirectories();
+	}
+
 	public void clearCache() {
 		this.entries.clearCache();
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,11 +19,11 @@ package org.springframework.boot.loader.jar;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.LinkedHashSet;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.zip.ZipEntry;
 
 import org.springframework.boot.loader.data.RandomAccessData;
@@ -66,19 +66,7 @@ class JarFileEntries implements CentralDirectoryVisitor, Iterable<JarEntry> {
 
 	private int[] positions;
 
-	private final Map<Integer, FileHeader> entriesCache = Collections
-			.synchronizedMap(new LinkedHashMap<Integer, FileHeader>(16, 0.75f, true) {
-
-				@Override
-				protected boolean removeEldestEntry(
-						Map.Entry<Integer, FileHeader> eldest) {
-					if (JarFileEntries.this.jarFile.isSigned()) {
-						return false;
-					}
-					return size() >= ENTRY_CACHE_SIZE;
-				}
-
-			});
+	private volatile AtomicReferenceArray<CachedEntry> entriesCache;
 
 	JarFileEntries(JarFile jarFile, JarEntryFilter filter) {
 		this.jarFile = jarFile;
@@ -95,6 +83,21 @@ class JarFileEntries implements CentralDirectoryVisitor, Iterable<JarEntry> {
 		this.positions = new int[maxSize];
 	}
 
+	/**
+	 * Load the entries from a {@link NestedJarIndex} record rather than by visiting the
+	 * central directory.
+	 * @param record the index record
+	 * @param centralDirectoryData the central directory data
+	 */
+	public void load(NestedJarIndex.Record record, RandomAccessData centralDirectoryData) {
+		this.centralDirectoryData = centralDirectoryData;
+		this.hashCodes = record.getHashCodes();
+		this.centralDirectoryOffsets = record.getCentralDirectoryOffsets();
+		this.positions = record.getPositions();
+		this.size = this.hashCodes.length;
+		this.entriesCache = createEntriesCache();
+	}
+
 	@Override
 	public void visitFileHeader(CentralDirectoryFileHeader fileHeader, int dataOffset) {
 		AsciiBytes name = applyFilter(fileHeader.getName());
@@ -119,6 +122,13 @@ class JarFileEntries implements CentralDirectoryVisitor, Iterable<JarEntry> {
 		for (int i = 0; i < this.size; i++) {
 			this.positions[positions[i]] = i;
 		}
+		this.entriesCache = createEntriesCache();
+	}
+
+	private AtomicReferenceArray<CachedEntry> createEntriesCache() {
+		// Signed entries carry their certificates so are never evicted
+		int size = (this.jarFile.isSigned() ? this.size : ENTRY_CACHE_SIZE);
+		return new AtomicReferenceArray<CachedEntry>(Math.max(size, 1));
 	}
 
 	private void sort(int left, int right) {
@@ -241,7 +251,7 @@ class JarFileEntries implements CentralDirectoryVisitor, Iterable<JarEntry> {
 	private <T extends FileHeader> T getEntry(int index, Class<T> type,
 			boolean cacheEntry) {
 		try {
-			FileHeader cached = this.entriesCache.get(index);
+			FileHeader cached = getCachedEntry(index);
 			FileHeader entry = (cached != null ? cached
 					: CentralDirectoryFileHeader.fromRandomAccessData(
 							this.centralDirectoryData,
@@ -251,7 +261,8 @@ class JarFileEntries implements CentralDirectoryVisitor, Iterable<JarEntry> {
 				entry = new JarEntry(this.jarFile, (CentralDirectoryFileHeader) entry);
 			}
 			if (cacheEntry && cached != entry) {
-				this.entriesCache.put(index, entry);
+				AtomicReferenceArray<CachedEntry> cache = this.entriesCache;
+				cache.set(index % cache.length(), new CachedEntry(index, entry));
 			}
 			return (T) entry;
 		}
@@ -260,6 +271,12 @@ class JarFileEntries implements CentralDirectoryVisitor, Iterable<JarEntry> {
 		}
 	}
 
+	private FileHeader getCachedEntry(int index) {
+		AtomicReferenceArray<CachedEntry> cache = this.entriesCache;
+		CachedEntry cached = cache.get(index % cache.length());
+		return (cached != null && cached.index == index ? cached.entry : null);
+	}
+
 	private int getFirstIndex(int hashCode) {
 		int index = Arrays.binarySearch(this.hashCodes, 0, this.size, hashCode);
 		if (index < 0) {
@@ -271,8 +288,42 @@ class JarFileEntries implements CentralDirectoryVisitor, Iterable<JarEntry> {
 		return index;
 	}
 
+	/**
+	 * Return the directories (ending with {@code '/'}) that contain at least one entry,
+	 * either directly or in a subdirectory, with an empty string for the root. Directory
+	 * entries count as entries of their parent. Names are read straight from the central
+	 * directory without creating any entries.
+	 * @return the directories
+	 * @throws IOException if the central directory cannot be read
+	 */
+	public Set<String> getEntryDirectories() throws IOException {
+		byte[] bytes = Bytes.get(this.centralDirectoryData);
+		CentralDirectoryFileHeader fileHeader = new CentralDirectoryFileHeader();
+		Set<String> directories = new LinkedHashSet<String>();
+		String last = null;
+		for (int i = 0; i < this.size; i++) {
+			fileHeader.load(bytes, this.centralDirectoryOffsets[this.positions[i]], null,
+					0, this.filter);
+			String name = fileHeader.getName().toString();
+			String directory = getParent(name);
+			// Entries are usually grouped by directory so skip most lookups
+			if (!directory.equals(last)) {
+				last = directory;
+				// Once a directory is known so are all of its parents
+				while (directories.add(directory) && !directory.isEmpty()) {
+					directory = getParent(directory);
+				}
+			}
+		}
+		return directories;
+	}
+
+	private String getParent(String name) {
+		return name.substring(0, name.lastIndexOf('/', name.length() - 2) + 1);
+	}
+
 	public void clearCache() {
-		this.entriesCache.clear();
+		this.entriesCache = createEntriesCache();
 	}
 
 	private AsciiBytes applyFilter(AsciiBytes name) {
@@ -303,4 +354,21 @@ class JarFileEntries implements CentralDirectoryVisitor, Iterable<JarEntry> {
 
 	}
 
+	/**
+	 * A slot in the entries cache. Slots are chosen by index so a lookup needs no locking
+	 * and a newer entry simply replaces whatever shared its slot.
+	 */
+	private static final class CachedEntry {
+
+		private final int index;
+
+		private final FileHeader entry;
+
+		CachedEntry(int index, FileHeader entry) {
+			this.index = index;
+			this.entry = entry;
+		}
+
+	}
+
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.jar;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of the central directories of the nested jars in a root jar, written by the
+ * {@code Repackager} when the jar is built. For each nested jar the index holds the
+ * sorted hash codes, central directory offsets and positions that {@link JarFileEntries}
+ * would otherwise have to parse and sort every time the jar is opened. Each record
+ * carries the CRC and size of the nested jar that it was created from so a record for a
+ * jar that has since been replaced is never used.
+ * <p>
+ * The index is a sequence of big-endian values: a magic number, a version and the number
+ * of records, followed by each record: the name of the nested jar entry (modified UTF-8),
+ * its CRC and size, the offset and length of its central directory, whether or not it is
+ * signed, the number of entries and then the hash codes, central directory offsets and
+ * positions of those entries.
+ *
+ * @author agent (agent@local)
+ */
+final class NestedJarIndex {
+
+	/**
+	 * The name of the index entry in the root jar.
+	 */
+	static final String NAME = "META-INF/nested-jars.idx";
+
+	private static final int MAGIC = 0x4E4A4958;
+
+	private static final int VERSION = 1;
+
+	private final ByteBuffer buffer;
+
+	private final Map<String, Integer> records;
+
+	private NestedJarIndex(ByteBuffer buffer, Map<String, Integer> records) {
+		this.buffer = buffer;
+		this.records = records;
+	}
+
+	/**
+	 * Return the record for a nested jar or {@code null} if the index does not contain
+	 * a valid record for the jar with the given CRC and size.
+	 * @param name the name of the nested jar entry
+	 * @param crc the CRC of the nested jar entry
+	 * @param size the size of the nested jar entry
+	 * @return the record or {@code null}
+	 */
+	public Record getRecord(String name, long crc, long size) {
+		Integer position = this.records.get(name);
+		if (position == null) {
+			return null;
+		}
+		try {
+			ByteBuffer buffer = this.buffer.duplicate();
+			buffer.position(position);
+			skipUtf(buffer);
+			if (buffer.getLong() != crc || buffer.getLong() != size) {
+				return null;
+			}
+			Record record = new Record(buffer);
+			return (record.isValid(size) ? record : null);
+		}
+		catch (RuntimeException ex) {
+			// Truncated or corrupt
+			return null;
+		}
+	}
+
+	/**
+	 * Load an index from the given bytes.
+	 * @param bytes the content of the index entry
+	 * @return the index or {@code null} if the bytes are not a valid index
+	 */
+	public static NestedJarIndex load(byte[] bytes) {
+		try {
+			ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
+			DataInputStream input = new DataInputStream(inputStream);
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				return null;
+			}
+			int count = input.readInt();
+			Map<String, Integer> records = new HashMap<String, Integer>();
+			for (int i = 0; i < count; i++) {
+				int position = bytes.length - inputStream.available();
+				String name = input.readUTF();
+				// CRC, size, central directory offset and length and signed
+				skip(input, 33);
+				skip(input, input.readInt() * 12L);
+				records.put(name, position);
+			}
+			return new NestedJarIndex(ByteBuffer.wrap(bytes), records);
+		}
+		catch (IOException ex) {
+			// Truncated or corrupt
+			return null;
+		}
+	}
+
+	private static void skip(DataInputStream input, long length) throws IOException {
+		if (length < 0 || input.skip(length) != length) {
+			throw new EOFException();
+		}
+	}
+
+	private static void skipUtf(ByteBuffer buffer) {
+		int length = buffer.getShort() & 0xFFFF;
+		buffer.position(buffer.position() + length);
+	}
+
+	/**
+	 * The index record of a single nested jar.
+	 */
+	static final class Record {
+
+		private final long centralDirectoryOffset;
+
+		private final long centralDirectoryLength;
+
+		private final boolean signed;
+
+		private final int[] hashCodes;
+
+		private final int[] centralDirectoryOffsets;
+
+		private final int[] positions;
+
+		private Record(ByteBuffer buffer) {
+			this.centralDirectoryOffset = buffer.getLong();
+			this.centralDirectoryLength = buffer.getLong();
+			this.signed = buffer.get() != 0;
+			int size = buffer.getInt();
+			this.hashCodes = new int[size];
+			this.centralDirectoryOffsets = new int[size];
+			this.positions = new int[size];
+			buffer.asIntBuffer().get(this.hashCodes).get(this.centralDirectoryOffsets)
+					.get(this.positions);
+		}
+
+		private boolean isValid(long size) {
+			if (this.centralDirectoryOffset < 0 || this.centralDirectoryLength < 0
+					|| this.centralDirectoryOffset + this.centralDirectoryLength > size) {
+				return false;
+			}
+			for (int i = 0; i < this.hashCodes.length; i++) {
+				if ((i > 0 && this.hashCodes[i] < this.hashCodes[i - 1])
+						|| this.centralDirectoryOffsets[i] < 0
+						|| this.centralDirectoryOffsets[i] >= this.centralDirectoryLength
+						|| this.positions[i] < 0
+						|| this.positions[i] >= this.positions.length) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public long getCentralDirectoryOffset() {
+			return this.centralDirectoryOffset;
+		}
+
+		public long getCentralDirectoryLength() {
+			return this.centralDirectoryLength;
+		}
+
+		public boolean isSigned() {
+			return this.signed;
+		}
+
+		public int[] getHashCodes() {
+			return this.hashCodes;
+		}
+
+		public int[] getCentralDirectoryOffsets() {
+			return this.centralDirectoryOffsets;
+		}
+
+		public int[] getPositions() {
+			return this.positions;
+		}
+
+	}
+
+}
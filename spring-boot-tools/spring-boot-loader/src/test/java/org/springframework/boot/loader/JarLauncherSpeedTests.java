@@ -0,0 +1,157 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.experimental.theories.DataPoints;
+import org.junit.experimental.theories.Theories;
+import org.junit.experimental.theories.Theory;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import org.springframework.boot.loader.archive.Archive;
+import org.springframework.boot.loader.archive.JarFileArchive;
+import org.springframework.boot.loader.jar.JarFile;
+import org.springframework.util.StopWatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Speed tests for the launch of a {@link JarLauncher} on a fat jar with many nested
+ * jars, opening the nested archives serially and in parallel. Each run opens the fat
+ * jar, gets the class path archives and creates the class loader, which is the work that
+ * is done before the main class is loaded. Run with {@code -Dperformance.test=true} for
+ * more meaningful numbers.
+ *
+ * @author agent (agent@local)
+ */
+@RunWith(Theories.class)
+public class JarLauncherSpeedTests {
+
+	@ClassRule
+	public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@DataPoints
+	public static String[] modes = new String[] { "serial", "parallel" };
+
+	private static final boolean PERFORMANCE = Boolean.getBoolean("performance.test");
+
+	private static final int NESTED_JARS = PERFORMANCE ? 200 : 10;
+
+	private static final int ENTRIES = PERFORMANCE ? 500 : 10;
+
+	private static final int RUNS = PERFORMANCE ? 5 : 1;
+
+	private static StopWatch watch = new StopWatch("launch");
+
+	private static File rootJar;
+
+	@BeforeClass
+	public static void createRootJar() throws Exception {
+		rootJar = temporaryFolder.newFile("root.jar");
+		JarOutputStream output = new JarOutputStream(new FileOutputStream(rootJar));
+		try {
+			output.putNextEntry(new JarEntry("BOOT-INF/classes/"));
+			output.closeEntry();
+			for (int i = 0; i < NESTED_JARS; i++) {
+				byte[] nested = createNestedJar(i);
+				JarEntry entry = new JarEntry("BOOT-INF/lib/nested" + i + ".jar");
+				entry.setMethod(ZipEntry.STORED);
+				entry.setSize(nested.length);
+				entry.setCompressedSize(nested.length);
+				CRC32 crc = new CRC32();
+				crc.update(nested);
+				entry.setCrc(crc.getValue());
+				output.putNextEntry(entry);
+				output.write(nested);
+				output.closeEntry();
+			}
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	private static byte[] createNestedJar(int index) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		JarOutputStream output = new JarOutputStream(bytes);
+		for (int i = 0; i < ENTRIES; i++) {
+			output.putNextEntry(
+					new JarEntry("com/example/lib" + index + "/Resource" + i + ".txt"));
+			output.write(new byte[] { (byte) i });
+			output.closeEntry();
+		}
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	@AfterClass
+	public static void washup() {
+		System.err.println(watch.prettyPrint());
+	}
+
+	@Theory
+	public void launch(String mode) throws Exception {
+		if ("parallel".equals(mode)) {
+			System.setProperty("loader.parallel", "true");
+		}
+		try {
+			// Warm up so that the first mode does not pay for class loading
+			launch();
+			watch.start("launch(" + mode + ")");
+			int archives = 0;
+			for (int run = 0; run < RUNS; run++) {
+				archives = launch();
+			}
+			watch.stop();
+			System.err.println(watch.getLastTaskName() + " time="
+					+ watch.getLastTaskTimeMillis() / RUNS + "ms archives=" + archives
+					+ " processors=" + Runtime.getRuntime().availableProcessors());
+			assertThat(archives).isEqualTo(NESTED_JARS + 1);
+		}
+		finally {
+			System.clearProperty("loader.parallel");
+		}
+	}
+
+	private int launch() throws Exception {
+		JarFile jarFile = new JarFile(rootJar);
+		try {
+			JarLauncher launcher = new JarLauncher(new JarFileArchive(jarFile));
+			List<Archive> archives = launcher.getClassPathArchives();
+			ClassLoader classLoader = launcher.createClassLoader(archives);
+			assertThat(((URLClassLoader) classLoader).getURLs()).hasSize(archives.size());
+			return archives.size();
+		}
+		finally {
+			jarFile.close();
+		}
+	}
+
+}
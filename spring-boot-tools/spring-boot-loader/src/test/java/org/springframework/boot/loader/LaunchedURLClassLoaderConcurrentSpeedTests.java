@@ -0,0 +1,227 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.experimental.theories.DataPoints;
+import org.junit.experimental.theories.Theories;
+import org.junit.experimental.theories.Theory;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import org.springframework.boot.loader.jar.JarFile;
+import org.springframework.util.StopWatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Speed tests for loading classes from the nested jars of a fat jar with a
+ * {@link LaunchedURLClassLoader} on an increasing number of threads, reading the root
+ * jar either with a pool of files or with positional channel reads. Run with
+ * {@code -Dperformance.test=true} for more meaningful numbers.
+ *
+ * @author agent (agent@local)
+ */
+@RunWith(Theories.class)
+public class LaunchedURLClassLoaderConcurrentSpeedTests {
+
+	@ClassRule
+	public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@DataPoints
+	public static String[] modes = new String[] { "pooled", "channel" };
+
+	@DataPoints
+	public static int[] threads = new int[] { 1, 2, 4, 8, 16, 32 };
+
+	private static final boolean PERFORMANCE = Boolean.getBoolean("performance.test");
+
+	private static final int NESTED_JARS = PERFORMANCE ? 100 : 4;
+
+	private static final int CLASSES = PERFORMANCE ? 50 : 8;
+
+	private static final int RUNS = PERFORMANCE ? 5 : 1;
+
+	private static StopWatch watch = new StopWatch("concurrent");
+
+	private static File rootJar;
+
+	@BeforeClass
+	public static void createRootJar() throws Exception {
+		rootJar = temporaryFolder.newFile("root.jar");
+		JarOutputStream output = new JarOutputStream(new FileOutputStream(rootJar));
+		try {
+			for (int i = 0; i < NESTED_JARS; i++) {
+				byte[] nested = createNestedJar(i);
+				JarEntry entry = new JarEntry("lib/nested" + i + ".jar");
+				entry.setMethod(ZipEntry.STORED);
+				entry.setSize(nested.length);
+				entry.setCompressedSize(nested.length);
+				CRC32 crc = new CRC32();
+				crc.update(nested);
+				entry.setCrc(crc.getValue());
+				output.putNextEntry(entry);
+				output.write(nested);
+				output.closeEntry();
+			}
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	private static byte[] createNestedJar(int index) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		JarOutputStream output = new JarOutputStream(bytes);
+		output.putNextEntry(new JarEntry("com/example/lib" + index + "/"));
+		output.closeEntry();
+		for (int i = 0; i < CLASSES; i++) {
+			String name = getClassName(index, i).replace('.', '/');
+			output.putNextEntry(new JarEntry(name + ".class"));
+			output.write(createClass(name));
+			output.closeEntry();
+		}
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	private static String getClassName(int jar, int index) {
+		return "com.example.lib" + jar + ".Class" + index;
+	}
+
+	private static byte[] createClass(String name) throws Exception {
+		// An empty public class with an unused constant to give it a realistic size
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeInt(0xCAFEBABE);
+		output.writeShort(0);
+		output.writeShort(50);
+		output.writeShort(6);
+		output.writeByte(7);
+		output.writeShort(2);
+		output.writeByte(1);
+		output.writeUTF(name);
+		output.writeByte(7);
+		output.writeShort(4);
+		output.writeByte(1);
+		output.writeUTF("java/lang/Object");
+		output.writeByte(1);
+		StringBuilder padding = new StringBuilder();
+		for (int i = 0; padding.length() < 2000; i++) {
+			padding.append(name).append(i * 31);
+		}
+		output.writeUTF(padding.toString());
+		output.writeShort(0x0021);
+		output.writeShort(1);
+		output.writeShort(3);
+		output.writeShort(0);
+		output.writeShort(0);
+		output.writeShort(0);
+		output.writeShort(0);
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	@AfterClass
+	public static void washup() {
+		System.err.println(watch.prettyPrint());
+	}
+
+	@Theory
+	public void loadClasses(String mode, int threads) throws Exception {
+		if ("channel".equals(mode)) {
+			System.setProperty(JarFile.CHANNEL_READS_PROPERTY, "true");
+		}
+		try {
+			watch.start("loadClasses(" + mode + ", " + threads + ")");
+			int loaded = 0;
+			for (int run = 0; run < RUNS; run++) {
+				loaded = loadClasses(threads);
+			}
+			watch.stop();
+			System.err.println(watch.getLastTaskName() + " time="
+					+ watch.getLastTaskTimeMillis() / RUNS + "ms loaded=" + loaded);
+			assertThat(loaded).isEqualTo(NESTED_JARS * CLASSES);
+		}
+		finally {
+			System.clearProperty(JarFile.CHANNEL_READS_PROPERTY);
+		}
+	}
+
+	private int loadClasses(int threads) throws Exception {
+		JarFile jarFile = new JarFile(rootJar);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			URL[] urls = new URL[NESTED_JARS];
+			for (int i = 0; i < NESTED_JARS; i++) {
+				urls[i] = jarFile
+						.getNestedJarFile(jarFile.getEntry("lib/nested" + i + ".jar"))
+						.getUrl();
+			}
+			final LaunchedURLClassLoader loader = new LaunchedURLClassLoader(urls,
+					getClass().getClassLoader());
+			List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (int thread = 0; thread < threads; thread++) {
+				final int first = thread;
+				final int step = threads;
+				results.add(executor.submit(new Callable<Integer>() {
+
+					@Override
+					public Integer call() throws Exception {
+						int loaded = 0;
+						for (int i = first; i < NESTED_JARS * CLASSES; i += step) {
+							String name = getClassName(i % NESTED_JARS, i / NESTED_JARS);
+							if (loader.loadClass(name).getClassLoader() == loader) {
+								loaded++;
+							}
+						}
+						return loaded;
+					}
+
+				}));
+			}
+			int loaded = 0;
+			for (Future<Integer> result : results) {
+				loaded += result.get();
+			}
+			return loaded;
+		}
+		finally {
+			executor.shutdown();
+			jarFile.close();
+		}
+	}
+
+}
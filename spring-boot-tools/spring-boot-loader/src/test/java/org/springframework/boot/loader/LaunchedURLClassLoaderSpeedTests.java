@@ -0,0 +1,176 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.experimental.theories.DataPoints;
+import org.junit.experimental.theories.Theories;
+import org.junit.experimental.theories.Theory;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import org.springframework.boot.loader.jar.JarFile;
+import org.springframework.util.StopWatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Speed tests for starting up a {@link LaunchedURLClassLoader} on a fat jar with many
+ * nested jars, with and without the package index. Each run creates a class loader,
+ * finds a resource from every nested jar and looks for classes and resources that do
+ * not exist, as happens when an application starts. Run with
+ * {@code -Dperformance.test=true} for more meaningful numbers.
+ *
+ * @author agent (agent@local)
+ */
+@RunWith(Theories.class)
+public class LaunchedURLClassLoaderSpeedTests {
+
+	@ClassRule
+	public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@DataPoints
+	public static String[] modes = new String[] { "scan", "index" };
+
+	private static final boolean PERFORMANCE = Boolean.getBoolean("performance.test");
+
+	private static final int NESTED_JARS = PERFORMANCE ? 200 : 10;
+
+	private static final int ENTRIES = PERFORMANCE ? 50 : 5;
+
+	private static final int RUNS = PERFORMANCE ? 5 : 1;
+
+	private static StopWatch watch = new StopWatch("startup");
+
+	private static File rootJar;
+
+	@BeforeClass
+	public static void createRootJar() throws Exception {
+		rootJar = temporaryFolder.newFile("root.jar");
+		JarOutputStream output = new JarOutputStream(new FileOutputStream(rootJar));
+		try {
+			for (int i = 0; i < NESTED_JARS; i++) {
+				byte[] nested = createNestedJar(i);
+				JarEntry entry = new JarEntry("lib/nested" + i + ".jar");
+				entry.setMethod(ZipEntry.STORED);
+				entry.setSize(nested.length);
+				entry.setCompressedSize(nested.length);
+				CRC32 crc = new CRC32();
+				crc.update(nested);
+				entry.setCrc(crc.getValue());
+				output.putNextEntry(entry);
+				output.write(nested);
+				output.closeEntry();
+			}
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	private static byte[] createNestedJar(int index) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		JarOutputStream output = new JarOutputStream(bytes);
+		output.putNextEntry(new JarEntry("META-INF/"));
+		output.closeEntry();
+		output.putNextEntry(new JarEntry("com/example/lib" + index + "/"));
+		output.closeEntry();
+		for (int i = 0; i < ENTRIES; i++) {
+			output.putNextEntry(
+					new JarEntry("com/example/lib" + index + "/Resource" + i + ".txt"));
+			output.write(new byte[] { (byte) i });
+			output.closeEntry();
+		}
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	@AfterClass
+	public static void washup() {
+		System.err.println(watch.prettyPrint());
+	}
+
+	@Theory
+	public void startup(String mode) throws Exception {
+		if ("scan".equals(mode)) {
+			System.setProperty(LaunchedURLClassLoader.PACKAGE_INDEX_PROPERTY, "false");
+		}
+		try {
+			watch.start("startup(" + mode + ")");
+			int found = 0;
+			for (int run = 0; run < RUNS; run++) {
+				found = startup();
+			}
+			watch.stop();
+			System.err.println(watch.getLastTaskName() + " time="
+					+ watch.getLastTaskTimeMillis() / RUNS + "ms found=" + found);
+			assertThat(found).isEqualTo(NESTED_JARS * ENTRIES);
+		}
+		finally {
+			System.clearProperty(LaunchedURLClassLoader.PACKAGE_INDEX_PROPERTY);
+		}
+	}
+
+	private int startup() throws Exception {
+		JarFile jarFile = new JarFile(rootJar);
+		try {
+			URL[] urls = new URL[NESTED_JARS];
+			for (int i = 0; i < NESTED_JARS; i++) {
+				urls[i] = jarFile
+						.getNestedJarFile(jarFile.getEntry("lib/nested" + i + ".jar"))
+						.getUrl();
+			}
+			LaunchedURLClassLoader loader = new LaunchedURLClassLoader(urls, null);
+			int found = 0;
+			for (int i = 0; i < NESTED_JARS; i++) {
+				for (int j = 0; j < ENTRIES; j++) {
+					if (loader.getResource(
+							"com/example/lib" + i + "/Resource" + j + ".txt") != null) {
+						found++;
+					}
+				}
+				assertThat(loader.getResource("com/example/lib" + i + "/missing.txt"))
+						.isNull();
+				assertThat(Collections.list(loader.getResources("META-INF/missing.txt")))
+						.isEmpty();
+				try {
+					loader.loadClass("com.example.lib" + i + ".Missing");
+				}
+				catch (ClassNotFoundException ex) {
+					// Expected
+				}
+			}
+			return found;
+		}
+		finally {
+			jarFile.close();
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012-2016 the original author or authors.
+ * Copyright 2012-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,14 +16,29 @@
 
 package org.springframework.boot.loader;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import org.springframework.boot.loader.data.RandomAccessData;
+import org.springframework.boot.loader.data.RandomAccessDataFile;
 import org.springframework.boot.loader.jar.JarFile;
+import org.springframework.util.StreamUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -105,4 +120,162 @@ public class LaunchedURLClassLoaderTests {
 		}
 	}
 
+	@Test
+	public void resolveFromIndexedNestedJars() throws Exception {
+		File file = this.temporaryFolder.newFile();
+		TestJarCreator.createTestJar(file);
+		JarFile jarFile = new JarFile(file);
+		URL url = jarFile.getUrl();
+		URL nestedUrl = jarFile.getNestedJarFile(jarFile.getEntry("nested.jar"))
+				.getUrl();
+		LaunchedURLClassLoader loader = new LaunchedURLClassLoader(
+				new URL[] { url, nestedUrl }, null);
+		assertThat(loader.getResource("3.dat")).isEqualTo(new URL(nestedUrl + "3.dat"));
+		assertThat(loader.getResource("d/9.dat")).isEqualTo(new URL(url + "d/9.dat"));
+		assertThat(loader.getResource("missing.dat")).isNull();
+		assertThat(loader.getResource("d/missing.dat")).isNull();
+		assertThat(loader.getResource("\u00E4.dat").openConnection().getInputStream()
+				.read()).isEqualTo(0xE4);
+		List<URL> resources = Collections.list(loader.getResources("1.dat"));
+		assertThat(resources).containsExactly(new URL(url + "1.dat"));
+	}
+
+	@Test
+	public void loadClassFromIndexedNestedJar() throws Exception {
+		JarFile jarFile = new JarFile(createJarWithClass(RandomAccessData.class));
+		URL url = jarFile.getNestedJarFile(jarFile.getEntry("nested.jar")).getUrl();
+		LaunchedURLClassLoader loader = new LaunchedURLClassLoader(new URL[] { url },
+				null);
+		Class<?> type = loader.loadClass(RandomAccessData.class.getName());
+		assertThat(type).isNotSameAs(RandomAccessData.class);
+		assertThat(type.getClassLoader()).isSameAs(loader);
+		assertThat(type.getProtectionDomain().getCodeSource().getLocation())
+				.isEqualTo(url);
+		assertThat(type.getPackage().getImplementationTitle()).isEqualTo("test");
+		try {
+			loader.loadClass(RandomAccessData.class.getName() + "Missing");
+			throw new AssertionError("Expected ClassNotFoundException");
+		}
+		catch (ClassNotFoundException ex) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void resolveDirectoryWithoutTrailingSlashFromIndexedNestedJar()
+			throws Exception {
+		Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		entries.put("db/", null);
+		entries.put("db/migration/", null);
+		entries.put("db/migration/V1__init.sql", "SELECT 1;".getBytes());
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		JarFile jarFile = new JarFile(createJar(createNestedJar(manifest, entries)));
+		URL url = jarFile.getNestedJarFile(jarFile.getEntry("nested.jar")).getUrl();
+		LaunchedURLClassLoader loader = new LaunchedURLClassLoader(new URL[] { url },
+				null);
+		assertThat(loader.getResource("db/migration"))
+				.isEqualTo(new URL(url + "db/migration"));
+		assertThat(Collections.list(loader.getResources("db/migration")))
+				.containsExactly(new URL(url + "db/migration"));
+		assertThat(loader.getResource("db")).isEqualTo(new URL(url + "db"));
+		assertThat(loader.getResource("db/migration/V1__init.sql")).isNotNull();
+	}
+
+	@Test
+	public void loadClassFromSealedIndexedNestedJar() throws Exception {
+		JarFile jarFile = new JarFile(
+				createJar(createNestedJar(true, RandomAccessData.class),
+						createNestedJar(false, RandomAccessDataFile.class)));
+		URL sealedUrl = jarFile.getNestedJarFile(jarFile.getEntry("nested.jar"))
+				.getUrl();
+		URL url = jarFile.getNestedJarFile(jarFile.getEntry("nested1.jar")).getUrl();
+		LaunchedURLClassLoader loader = new LaunchedURLClassLoader(
+				new URL[] { sealedUrl, url }, null);
+		Class<?> type = loader.loadClass(RandomAccessData.class.getName());
+		assertThat(type.getPackage().isSealed(sealedUrl)).isTrue();
+		try {
+			loader.loadClass(RandomAccessDataFile.class.getName());
+			throw new AssertionError("Expected SecurityException");
+		}
+		catch (SecurityException ex) {
+			assertThat(ex.getMessage()).contains("sealing violation");
+		}
+	}
+
+	@Test
+	public void loadClassWithoutIndex() throws Exception {
+		JarFile jarFile = new JarFile(createJarWithClass(RandomAccessData.class));
+		URL url = jarFile.getNestedJarFile(jarFile.getEntry("nested.jar")).getUrl();
+		System.setProperty(LaunchedURLClassLoader.PACKAGE_INDEX_PROPERTY, "false");
+		try {
+			LaunchedURLClassLoader loader = new LaunchedURLClassLoader(
+					new URL[] { url }, null);
+			Class<?> type = loader.loadClass(RandomAccessData.class.getName());
+			assertThat(type.getClassLoader()).isSameAs(loader);
+			assertThat(type.getPackage().getImplementationTitle()).isEqualTo("test");
+		}
+		finally {
+			System.clearProperty(LaunchedURLClassLoader.PACKAGE_INDEX_PROPERTY);
+		}
+	}
+
+	private File createJarWithClass(Class<?> type) throws Exception {
+		return createJar(createNestedJar(false, type));
+	}
+
+	private byte[] createNestedJar(boolean sealed, Class<?>... types) throws Exception {
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		manifest.getMainAttributes().put(Attributes.Name.IMPLEMENTATION_TITLE, "test");
+		if (sealed) {
+			manifest.getMainAttributes().put(Attributes.Name.SEALED, "true");
+		}
+		Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		for (Class<?> type : types) {
+			String name = type.getName().replace('.', '/') + ".class";
+			entries.put(name.substring(0, name.lastIndexOf('/') + 1), null);
+			InputStream inputStream = type.getClassLoader().getResourceAsStream(name);
+			try {
+				entries.put(name, StreamUtils.copyToByteArray(inputStream));
+			}
+			finally {
+				inputStream.close();
+			}
+		}
+		return createNestedJar(manifest, entries);
+	}
+
+	private byte[] createNestedJar(Manifest manifest, Map<String, byte[]> entries)
+			throws Exception {
+		ByteArrayOutputStream nested = new ByteArrayOutputStream();
+		JarOutputStream nestedOutput = new JarOutputStream(nested, manifest);
+		for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			nestedOutput.putNextEntry(new JarEntry(entry.getKey()));
+			if (entry.getValue() != null) {
+				nestedOutput.write(entry.getValue());
+			}
+		}
+		nestedOutput.close();
+		return nested.toByteArray();
+	}
+
+	private File createJar(byte[]... nestedJars) throws Exception {
+		File file = this.temporaryFolder.newFile();
+		JarOutputStream output = new JarOutputStream(new FileOutputStream(file));
+		for (int i = 0; i < nestedJars.length; i++) {
+			JarEntry entry = new JarEntry(i == 0 ? "nested.jar" : "nested" + i + ".jar");
+			byte[] bytes = nestedJars[i];
+			entry.setMethod(JarEntry.STORED);
+			entry.setSize(bytes.length);
+			CRC32 crc = new CRC32();
+			crc.update(bytes);
+			entry.setCrc(crc.getValue());
+			output.putNextEntry(entry);
+			output.write(bytes);
+		}
+		output.close();
+		return file;
+	}
+
 }
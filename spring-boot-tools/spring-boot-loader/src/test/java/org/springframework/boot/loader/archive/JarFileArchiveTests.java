@@ -20,8 +20,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
@@ -133,6 +136,70 @@ public class JarFileArchiveTests {
 		assertThat(nested.getParent()).isEqualTo(anotherNested.getParent());
 	}
 
+	@Test
+	public void getNestedArchivesInParallel() throws Exception {
+		List<URL> serial = getNestedArchiveUrls();
+		System.setProperty("loader.parallel", "true");
+		try {
+			assertThat(getNestedArchiveUrls()).isEqualTo(serial);
+		}
+		finally {
+			System.clearProperty("loader.parallel");
+		}
+		assertThat(serial).hasSize(2);
+		assertThat(serial.get(0).toString()).endsWith("!/nested.jar!/");
+		assertThat(serial.get(1).toString()).endsWith("!/another-nested.jar!/");
+	}
+
+	@Test
+	public void getNestedUnpackedArchivesInParallel() throws Exception {
+		setup(true);
+		System.setProperty("loader.parallel", "true");
+		try {
+			List<URL> urls = getNestedArchiveUrls();
+			assertThat(urls.get(0).toString()).endsWith("/nested.jar");
+			assertThat(urls.get(1).toString()).endsWith("/another-nested.jar");
+			assertThat(new File(urls.get(0).toURI()).getParent())
+					.isEqualTo(new File(urls.get(1).toURI()).getParent());
+		}
+		finally {
+			System.clearProperty("loader.parallel");
+		}
+	}
+
+	@Test
+	public void getNestedArchivesWithDebugLogsOpenTime() throws Exception {
+		PrintStream out = System.out;
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(output));
+		System.setProperty("loader.debug", "true");
+		try {
+			getNestedArchiveUrls();
+		}
+		finally {
+			System.clearProperty("loader.debug");
+			System.setOut(out);
+		}
+		assertThat(output.toString()).contains("Opened nested archive nested.jar in ")
+				.contains("Opened nested archive another-nested.jar in ")
+				.contains("Opened 2 nested archives of ");
+	}
+
+	private List<URL> getNestedArchiveUrls() throws Exception {
+		List<URL> urls = new ArrayList<URL>();
+		for (Archive nested : this.archive.getNestedArchives(new Archive.EntryFilter() {
+
+			@Override
+			public boolean matches(Entry entry) {
+				return entry.getName().endsWith(".jar");
+			}
+
+		})) {
+			urls.add(nested.getUrl());
+		}
+		return urls;
+	}
+
 	@Test
 	public void zip64ArchivesAreHandledGracefully() throws IOException {
 		File file = this.temporaryFolder.newFile("test.jar");
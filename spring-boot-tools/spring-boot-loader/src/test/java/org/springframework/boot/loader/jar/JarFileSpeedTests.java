@@ -0,0 +1,200 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.jar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.experimental.theories.DataPoints;
+import org.junit.experimental.theories.Theories;
+import org.junit.experimental.theories.Theory;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import org.springframework.boot.loader.data.ChannelRandomAccessDataFile;
+import org.springframework.boot.loader.data.RandomAccessDataFile;
+import org.springframework.util.StopWatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Speed tests for reading a fat jar with many nested jars from several threads, as
+ * happens when an application starts, with the pooled {@link RandomAccessDataFile} and
+ * with the {@link ChannelRandomAccessDataFile}. Run with {@code -Dperformance.test=true}
+ * for more meaningful numbers.
+ *
+ * @author agent (agent@local)
+ */
+@RunWith(Theories.class)
+public class JarFileSpeedTests {
+
+	@ClassRule
+	public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@DataPoints
+	public static String[] modes = new String[] { "pooled", "channel" };
+
+	@DataPoints
+	public static int[] threads = new int[] { 1, 8 };
+
+	private static final boolean PERFORMANCE = Boolean.getBoolean("performance.test");
+
+	private static final int NESTED_JARS = PERFORMANCE ? 180 : 10;
+
+	private static final int ENTRIES = PERFORMANCE ? 100 : 10;
+
+	private static final int RUNS = PERFORMANCE ? 10 : 1;
+
+	private static StopWatch watch = new StopWatch("jars");
+
+	private static File rootJar;
+
+	@BeforeClass
+	public static void createRootJar() throws Exception {
+		rootJar = temporaryFolder.newFile("root.jar");
+		JarOutputStream output = new JarOutputStream(new FileOutputStream(rootJar));
+		try {
+			Random random = new Random(0);
+			for (int i = 0; i < NESTED_JARS; i++) {
+				byte[] nested = createNestedJar(random);
+				JarEntry entry = new JarEntry("lib/nested" + i + ".jar");
+				entry.setMethod(ZipEntry.STORED);
+				entry.setSize(nested.length);
+				entry.setCompressedSize(nested.length);
+				CRC32 crc = new CRC32();
+				crc.update(nested);
+				entry.setCrc(crc.getValue());
+				output.putNextEntry(entry);
+				output.write(nested);
+				output.closeEntry();
+			}
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	private static byte[] createNestedJar(Random random) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		JarOutputStream output = new JarOutputStream(bytes);
+		byte[] content = new byte[2048];
+		for (int i = 0; i < ENTRIES; i++) {
+			output.putNextEntry(new JarEntry("com/example/Class" + i + ".class"));
+			random.nextBytes(content);
+			output.write(content);
+			output.closeEntry();
+		}
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	@AfterClass
+	public static void washup() {
+		System.err.println(watch.prettyPrint());
+	}
+
+	@Theory
+	public void readAllEntries(String mode, int threads) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			watch.start("readAllEntries(" + mode + "," + threads + ")");
+			long total = 0;
+			for (int run = 0; run < RUNS; run++) {
+				total = readAllEntries(executor, mode, threads);
+			}
+			watch.stop();
+			System.err.println(watch.getLastTaskName() + " time="
+					+ watch.getLastTaskTimeMillis() / RUNS + "ms bytes=" + total);
+			assertThat(total).isEqualTo((long) NESTED_JARS * ENTRIES * 2048);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	private long readAllEntries(ExecutorService executor, String mode, int threads)
+			throws Exception {
+		final JarFile jarFile = new JarFile("channel".equals(mode)
+				? new ChannelRandomAccessDataFile(rootJar)
+				: new RandomAccessDataFile(rootJar));
+		try {
+			List<Future<Long>> results = new ArrayList<Future<Long>>();
+			for (int i = 0; i < threads; i++) {
+				final int thread = i;
+				final int count = threads;
+				results.add(executor.submit(new Callable<Long>() {
+
+					@Override
+					public Long call() throws Exception {
+						long read = 0;
+						for (int j = thread; j < NESTED_JARS; j += count) {
+							read += readNested(jarFile, "lib/nested" + j + ".jar");
+						}
+						return read;
+					}
+
+				}));
+			}
+			long total = 0;
+			for (Future<Long> result : results) {
+				total += result.get();
+			}
+			return total;
+		}
+		finally {
+			jarFile.close();
+		}
+	}
+
+	private long readNested(JarFile jarFile, String name) throws Exception {
+		JarFile nested = jarFile.getNestedJarFile(jarFile.getEntry(name));
+		long read = 0;
+		byte[] buffer = new byte[4096];
+		Enumeration<java.util.jar.JarEntry> entries = nested.entries();
+		while (entries.hasMoreElements()) {
+			InputStream inputStream = nested.getInputStream(entries.nextElement());
+			try {
+				int count;
+				while ((count = inputStream.read(buffer)) != -1) {
+					read += count;
+				}
+			}
+			finally {
+				inputStream.close();
+			}
+		}
+		return read;
+	}
+
+}
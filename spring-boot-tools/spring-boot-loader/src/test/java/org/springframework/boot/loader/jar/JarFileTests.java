@@ -26,9 +26,16 @@ import java.io.InputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
 
@@ -39,6 +46,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 
 import org.springframework.boot.loader.TestJarCreator;
+import org.springframework.boot.loader.data.ChannelRandomAccessDataFile;
 import org.springframework.boot.loader.data.RandomAccessDataFile;
 import org.springframework.util.FileCopyUtils;
 import org.springframework.util.StreamUtils;
@@ -137,6 +145,19 @@ public class JarFileTests {
 		assertThat(entries.hasMoreElements()).isFalse();
 	}
 
+	@Test
+	public void getEntryDirectories() throws Exception {
+		assertThat(this.jarFile.getEntryDirectories()).containsExactly("", "META-INF/",
+				"d/", "special/");
+	}
+
+	@Test
+	public void getEntryDirectoriesFromNestedDirectory() throws Exception {
+		JarFile nestedJarFile = this.jarFile
+				.getNestedJarFile(this.jarFile.getEntry("d/"));
+		assertThat(nestedJarFile.getEntryDirectories()).containsExactly("");
+	}
+
 	@Test
 	public void getSpecialResourceViaClassLoader() throws Exception {
 		URLClassLoader urlClassLoader = new URLClassLoader(
@@ -478,4 +499,87 @@ public class JarFileTests {
 		assertThat(temp.delete()).isTrue();
 	}
 
+	@Test
+	public void channelReads() throws Exception {
+		System.setProperty(JarFile.CHANNEL_READS_PROPERTY, "true");
+		try {
+			JarFile jarFile = new JarFile(this.rootJarFile);
+			assertThat(jarFile.getRootJarFile())
+					.isInstanceOf(ChannelRandomAccessDataFile.class);
+			assertThat(jarFile.getManifest().getMainAttributes().getValue("Built-By"))
+					.isEqualTo("j1");
+			InputStream inputStream = jarFile.getInputStream(jarFile.getEntry("1.dat"));
+			assertThat(inputStream.read()).isEqualTo(1);
+			assertThat(inputStream.read()).isEqualTo(-1);
+			JarFile nestedJarFile = jarFile
+					.getNestedJarFile(jarFile.getEntry("nested.jar"));
+			inputStream = nestedJarFile.getInputStream(nestedJarFile.getEntry("3.dat"));
+			assertThat(inputStream.read()).isEqualTo(3);
+			assertThat(inputStream.read()).isEqualTo(-1);
+			jarFile.close();
+		}
+		finally {
+			System.clearProperty(JarFile.CHANNEL_READS_PROPERTY);
+		}
+	}
+
+	@Test
+	public void entriesAreFoundWhenTheyOutnumberTheCache() throws Exception {
+		File file = this.temporaryFolder.newFile();
+		JarOutputStream output = new JarOutputStream(new FileOutputStream(file));
+		int count = JarFileEntries.ENTRY_CACHE_SIZE * 4;
+		for (int i = 0; i < count; i++) {
+			output.putNextEntry(new JarEntry("entry-" + i));
+			output.write(i);
+			output.closeEntry();
+		}
+		output.close();
+		JarFile jarFile = new JarFile(file);
+		for (int pass = 0; pass < 2; pass++) {
+			for (int i = 0; i < count; i++) {
+				ZipEntry entry = jarFile.getEntry("entry-" + i);
+				assertThat(entry.getName()).isEqualTo("entry-" + i);
+				assertThat(jarFile.getInputStream(entry).read()).isEqualTo(i);
+			}
+		}
+		jarFile.close();
+	}
+
+	@Test
+	public void concurrentInputStreams() throws Exception {
+		final JarFile nestedJarFile = this.jarFile
+				.getNestedJarFile(this.jarFile.getEntry("nested.jar"));
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < 200; i++) {
+				final int value = (i % 3) + 1;
+				results.add(executor.submit(new Callable<Boolean>() {
+
+					@Override
+					public Boolean call() throws Exception {
+						JarFile source = (value == 3 ? nestedJarFile
+								: JarFileTests.this.jarFile);
+						InputStream inputStream = source
+								.getInputStream(source.getEntry(value + ".dat"));
+						try {
+							return inputStream.read() == value
+									&& inputStream.read() == -1;
+						}
+						finally {
+							inputStream.close();
+						}
+					}
+
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertThat(result.get()).isTrue();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.jar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link NestedJarIndex}.
+ *
+ * @author agent (agent@local)
+ */
+public class NestedJarIndexTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void getRecord() throws Exception {
+		NestedJarIndex index = NestedJarIndex.load(
+				index("lib/a.jar", 123, 1000, new int[] { 1, 2 }, new int[] { 46, 0 }));
+		NestedJarIndex.Record record = index.getRecord("lib/a.jar", 123, 1000);
+		assertThat(record.getCentralDirectoryOffset()).isEqualTo(800);
+		assertThat(record.getCentralDirectoryLength()).isEqualTo(100);
+		assertThat(record.isSigned()).isFalse();
+		assertThat(record.getHashCodes()).containsExactly(1, 2);
+		assertThat(record.getCentralDirectoryOffsets()).containsExactly(46, 0);
+		assertThat(record.getPositions()).containsExactly(1, 0);
+	}
+
+	@Test
+	public void getMissingRecord() throws Exception {
+		NestedJarIndex index = NestedJarIndex.load(
+				index("lib/a.jar", 123, 1000, new int[] { 1, 2 }, new int[] { 46, 0 }));
+		assertThat(index.getRecord("lib/b.jar", 123, 1000)).isNull();
+	}
+
+	@Test
+	public void getRecordWithDifferentCrcOrSize() throws Exception {
+		NestedJarIndex index = NestedJarIndex.load(
+				index("lib/a.jar", 123, 1000, new int[] { 1, 2 }, new int[] { 46, 0 }));
+		assertThat(index.getRecord("lib/a.jar", 124, 1000)).isNull();
+		assertThat(index.getRecord("lib/a.jar", 123, 1001)).isNull();
+	}
+
+	@Test
+	public void getInvalidRecord() throws Exception {
+		NestedJarIndex index = NestedJarIndex.load(
+				index("lib/a.jar", 123, 1000, new int[] { 2, 1 }, new int[] { 46, 0 }));
+		assertThat(index.getRecord("lib/a.jar", 123, 1000)).isNull();
+		index = NestedJarIndex.load(
+				index("lib/a.jar", 123, 1000, new int[] { 1, 2 }, new int[] { 146, 0 }));
+		assertThat(index.getRecord("lib/a.jar", 123, 1000)).isNull();
+	}
+
+	@Test
+	public void loadWithDifferentVersion() throws Exception {
+		byte[] bytes = index("lib/a.jar", 123, 1000, new int[0], new int[0]);
+		bytes[7]++;
+		assertThat(NestedJarIndex.load(bytes)).isNull();
+	}
+
+	@Test
+	public void loadTruncated() throws Exception {
+		byte[] bytes = index("lib/a.jar", 123, 1000, new int[] { 1 }, new int[] { 0 });
+		byte[] truncated = new byte[bytes.length - 1];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		assertThat(NestedJarIndex.load(truncated)).isNull();
+	}
+
+	@Test
+	public void staleIndexIsIgnored() throws Exception {
+		byte[] nested = createNestedJar();
+		JarFile jarFile = new JarFile(createRootJar(nested, index("nested.jar", 123,
+				nested.length, new int[] { 1, 2 }, new int[] { 0, 46 })));
+		try {
+			JarFile nestedJarFile = jarFile
+					.getNestedJarFile(jarFile.getEntry("nested.jar"));
+			assertThat(nestedJarFile.getEntry("1.dat")).isNotNull();
+			assertThat(nestedJarFile.getInputStream(nestedJarFile.getEntry("1.dat"))
+					.read()).isEqualTo(1);
+		}
+		finally {
+			jarFile.close();
+		}
+	}
+
+	@Test
+	public void corruptIndexIsIgnored() throws Exception {
+		byte[] nested = createNestedJar();
+		JarFile jarFile = new JarFile(createRootJar(nested, new byte[] { 1, 2, 3 }));
+		try {
+			JarFile nestedJarFile = jarFile
+					.getNestedJarFile(jarFile.getEntry("nested.jar"));
+			assertThat(nestedJarFile.getEntry("1.dat")).isNotNull();
+		}
+		finally {
+			jarFile.close();
+		}
+	}
+
+	private byte[] index(String name, long crc, long size, int[] hashCodes,
+			int[] offsets) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeInt(0x4E4A4958);
+		output.writeInt(1);
+		output.writeInt(1);
+		output.writeUTF(name);
+		output.writeLong(crc);
+		output.writeLong(size);
+		output.writeLong(size - 200);
+		output.writeLong(100);
+		output.writeBoolean(false);
+		output.writeInt(hashCodes.length);
+		for (int hashCode : hashCodes) {
+			output.writeInt(hashCode);
+		}
+		for (int offset : offsets) {
+			output.writeInt(offset);
+		}
+		for (int i = hashCodes.length - 1; i >= 0; i--) {
+			output.writeInt(i);
+		}
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	private byte[] createNestedJar() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		JarOutputStream output = new JarOutputStream(bytes);
+		output.putNextEntry(new JarEntry("1.dat"));
+		output.write(1);
+		output.closeEntry();
+		output.putNextEntry(new JarEntry("2.dat"));
+		output.write(2);
+		output.closeEntry();
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	private File createRootJar(byte[] nested, byte[] index) throws IOException {
+		File file = this.temporaryFolder.newFile();
+		JarOutputStream output = new JarOutputStream(new FileOutputStream(file));
+		try {
+			writeStoredEntry(output, NestedJarIndex.NAME, index);
+			writeStoredEntry(output, "nested.jar", nested);
+		}
+		finally {
+			output.close();
+		}
+		return file;
+	}
+
+	private void writeStoredEntry(JarOutputStream output, String name, byte[] bytes)
+			throws IOException {
+		JarEntry entry = new JarEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(bytes.length);
+		entry.setCompressedSize(bytes.length);
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		entry.setCrc(crc.getValue());
+		output.putNextEntry(entry);
+		output.write(bytes);
+		output.closeEntry();
+	}
+
+}